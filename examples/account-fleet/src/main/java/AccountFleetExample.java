@@ -0,0 +1,64 @@
+import java.util.ArrayList;
+import java.util.List;
+
+import cloud.metaapi.sdk.meta_api.MetaApiConnection;
+
+/**
+ * Note: for information on how to use this example code please read
+ * https://metaapi.cloud/docs/client/usingCodeExamples
+ */
+public class AccountFleetExample {
+
+  private static String token = getEnvOrDefault("TOKEN", "<put in your token here>");
+  private static String accountIds = getEnvOrDefault("ACCOUNT_IDS", "<put in your comma-separated account ids here>");
+
+  public static void main(String[] args) {
+    try {
+      // all accounts of the pool share one Vert.x event loop group and the websocket connections of one MetaApi
+      // instance
+      ConnectionPool.Options options = new ConnectionPool.Options();
+      options.maxConcurrentConnects = 5;
+      ConnectionPool pool = new ConnectionPool(token, options);
+
+      // start the accounts in the listed order, using every account as soon as it is ready
+      List<String> ids = new ArrayList<>();
+      for (String accountId : accountIds.split(",")) {
+        ids.add(accountId.trim());
+      }
+      FleetBootstrap.Result result = new FleetBootstrap(pool).start(ids, new FleetBootstrap.Listener() {
+        @Override
+        public void onStageChanged(String accountId, FleetBootstrap.Stage stage) {
+          System.out.println(accountId + ": " + stage);
+        }
+
+        @Override
+        public void onAccountReady(String accountId, MetaApiConnection connection) {
+          connection.getAccountInformation().onSuccess(information -> System.out.println(accountId + ": balance "
+            + information.balance + ", equity " + information.equity));
+        }
+
+        @Override
+        public void onAccountFailed(String accountId, Throwable error) {
+          System.err.println(accountId + ": " + error);
+        }
+      }).toCompletionStage().toCompletableFuture().get();
+      System.out.println(result.readyAccountIds.size() + " accounts ready, " + result.failedAccountIds.size()
+        + " failed in " + result.durationInMilliseconds + "ms");
+
+      ConnectionPool.Metrics metrics = pool.getMetrics();
+      System.out.println("Open connections: " + metrics.openConnections + "/" + metrics.maxConnections
+        + ", failed: " + metrics.failedConnections + ", threads: " + metrics.threads
+        + ", used heap: " + (metrics.usedHeap >> 20) + "MB");
+
+      pool.close().toCompletionStage().toCompletableFuture().get();
+    } catch (Exception err) {
+      System.err.println(err);
+    }
+    System.exit(0);
+  }
+
+  private static String getEnvOrDefault(String name, String defaultValue) {
+    String result = System.getenv(name);
+    return (result != null ? result : defaultValue);
+  }
+}
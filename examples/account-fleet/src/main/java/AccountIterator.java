@@ -0,0 +1,132 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+import cloud.metaapi.sdk.clients.meta_api.models.AccountsFilter;
+import cloud.metaapi.sdk.meta_api.MetatraderAccount;
+import cloud.metaapi.sdk.meta_api.MetatraderAccountApi;
+
+/**
+ * Lazily iterates over accounts matching a filter, requesting them page by page. The next page is requested as
+ * soon as the current one is received so that it downloads while the current page is being consumed. Accounts
+ * are mapped with a projection as soon as a page is received, so when a lightweight projection is used, such as
+ * {@link #summaries}, only the projections of the current page are kept in memory. Accounts created or removed
+ * during the iteration may be skipped or returned twice
+ * @param <T> type of the iterated items
+ */
+public class AccountIterator<T> implements Iterator<T> {
+
+  private MetatraderAccountApi api;
+  private AccountsFilter filter;
+  private int pageSize;
+  private Function<MetatraderAccount, T> projection;
+  private List<T> page = Collections.emptyList();
+  private int index = 0;
+  private int nextOffset;
+  private CompletableFuture<List<MetatraderAccount>> nextPage;
+
+  /**
+   * Constructs the iterator, requesting the first page right away
+   * @param api MetaTrader account API
+   * @param filter account filter, or {@code null} to iterate over all accounts. Offset is used as the start of
+   * the iteration, while limit is ignored
+   * @param pageSize number of accounts requested per page, at most 1000
+   * @param projection function mapping accounts to the iterated items
+   */
+  public AccountIterator(MetatraderAccountApi api, AccountsFilter filter, int pageSize,
+    Function<MetatraderAccount, T> projection) {
+    this.api = api;
+    this.filter = copy(filter);
+    this.pageSize = pageSize;
+    this.projection = projection;
+    this.nextOffset = this.filter.offset != null ? this.filter.offset : 0;
+    requestPage();
+  }
+
+  /**
+   * Creates an iterator over accounts requesting 1000 accounts per page
+   * @param api MetaTrader account API
+   * @param filter account filter, or {@code null} to iterate over all accounts
+   * @return account iterator
+   */
+  public static AccountIterator<MetatraderAccount> accounts(MetatraderAccountApi api, AccountsFilter filter) {
+    return new AccountIterator<>(api, filter, 1000, Function.identity());
+  }
+
+  /**
+   * Creates an iterator over account summaries requesting 1000 accounts per page
+   * @param api MetaTrader account API
+   * @param filter account filter, or {@code null} to iterate over all accounts
+   * @return account summary iterator
+   */
+  public static AccountIterator<AccountSummary> summaries(MetatraderAccountApi api, AccountsFilter filter) {
+    return new AccountIterator<>(api, filter, 1000, AccountSummary::of);
+  }
+
+  @Override
+  public boolean hasNext() {
+    while (index == page.size()) {
+      if (nextPage == null) {
+        return false;
+      }
+      List<MetatraderAccount> accounts = nextPage.join();
+      nextPage = null;
+      nextOffset += accounts.size();
+      if (accounts.size() >= pageSize) {
+        requestPage();
+      }
+      List<T> items = new ArrayList<>(accounts.size());
+      for (MetatraderAccount account : accounts) {
+        items.add(projection.apply(account));
+      }
+      page = items;
+      index = 0;
+    }
+    return true;
+  }
+
+  @Override
+  public T next() {
+    if (!hasNext()) {
+      throw new NoSuchElementException();
+    }
+    return page.get(index++);
+  }
+
+  /**
+   * Cancels the page being prefetched. Call it when abandoning the iteration before it is exhausted
+   */
+  public void close() {
+    if (nextPage != null) {
+      nextPage.cancel(false);
+      nextPage = null;
+    }
+    page = Collections.emptyList();
+    index = 0;
+  }
+
+  private void requestPage() {
+    AccountsFilter pageFilter = copy(filter);
+    pageFilter.offset = nextOffset;
+    pageFilter.limit = pageSize;
+    nextPage = api.getAccounts(pageFilter).toCompletionStage().toCompletableFuture();
+  }
+
+  private static AccountsFilter copy(AccountsFilter filter) {
+    AccountsFilter result = new AccountsFilter();
+    if (filter != null) {
+      result.offset = filter.offset;
+      result.version = filter.version;
+      result.type = filter.type;
+      result.state = filter.state;
+      result.connectionStatus = filter.connectionStatus;
+      result.query = filter.query;
+      result.provisioningProfileId = filter.provisioningProfileId;
+    }
+    return result;
+  }
+}
@@ -0,0 +1,40 @@
+import cloud.metaapi.sdk.clients.meta_api.models.MetatraderAccountDto.ConnectionStatus;
+import cloud.metaapi.sdk.clients.meta_api.models.MetatraderAccountDto.DeploymentState;
+import cloud.metaapi.sdk.meta_api.MetatraderAccount;
+
+/**
+ * Lightweight projection of a MetaTrader account, see {@link AccountIterator#summaries}
+ */
+public class AccountSummary {
+
+  /**
+   * Account id
+   */
+  public String id;
+  /**
+   * Account deployment state
+   */
+  public DeploymentState state;
+  /**
+   * Account connection status
+   */
+  public ConnectionStatus connectionStatus;
+
+  /**
+   * Creates a summary of an account
+   * @param account MetaTrader account
+   * @return account summary
+   */
+  public static AccountSummary of(MetatraderAccount account) {
+    AccountSummary summary = new AccountSummary();
+    summary.id = account.getId();
+    summary.state = account.getState();
+    summary.connectionStatus = account.getConnectionStatus();
+    return summary;
+  }
+
+  @Override
+  public String toString() {
+    return id + " " + state + " " + connectionStatus;
+  }
+}
@@ -0,0 +1,382 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import cloud.metaapi.sdk.meta_api.MetaApi;
+import cloud.metaapi.sdk.meta_api.MetaApiConnection;
+import cloud.metaapi.sdk.meta_api.MetatraderAccount;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.VertxOptions;
+
+/**
+ * Pool of streaming connections to many accounts served by a single {@link MetaApi} instance, so that all accounts
+ * share one Vert.x event loop group and the websocket connections of the SDK. Accounts are connected lazily on
+ * first use, with a bounded number of connections being established at the same time. Every
+ * {@link #getConnection(String)} call acquires a reference to the connection, which must be given back via
+ * {@link #release(String)} once the connection is no longer used. Only connections without references are closed:
+ * those unreferenced for longer than the idle timeout, and the least recently released one when the pool is full
+ * and a new connection is requested
+ */
+public class ConnectionPool {
+
+  /**
+   * Pool options
+   */
+  public static class Options {
+    /**
+     * Maximum number of open connections. Default is 2000
+     */
+    public int maxConnections = 2000;
+    /**
+     * Maximum number of connections being established at the same time. Default is 10
+     */
+    public int maxConcurrentConnects = 10;
+    /**
+     * Time after which a connection without references is closed, in milliseconds, or 0 to keep such connections
+     * open until the pool is full. Default is 30 minutes
+     */
+    public long idleTimeoutInMilliseconds = 30 * 60 * 1000;
+    /**
+     * Whether to wait until the terminal state is synchronized before a connection is handed out. Default is true
+     */
+    public boolean waitSynchronized = true;
+    /**
+     * Number of Vert.x event loop threads when the pool creates its own Vert.x instance. Default is the number of
+     * available processors
+     */
+    public int eventLoopPoolSize = Runtime.getRuntime().availableProcessors();
+  }
+
+  /**
+   * Pool capacity metrics
+   */
+  public static class Metrics {
+    /**
+     * Maximum number of open connections
+     */
+    public int maxConnections;
+    /**
+     * Number of open connections
+     */
+    public int openConnections;
+    /**
+     * Number of connections being established
+     */
+    public int pendingConnections;
+    /**
+     * Number of connection requests waiting for a free connect slot
+     */
+    public int queuedConnections;
+    /**
+     * Number of connections which failed to be established since the pool was created
+     */
+    public long failedConnections;
+    /**
+     * Number of connections closed because of idle timeout or to make room for new ones
+     */
+    public long evictedConnections;
+    /**
+     * Number of live JVM threads
+     */
+    public int threads;
+    /**
+     * Used JVM heap in bytes
+     */
+    public long usedHeap;
+    /**
+     * Maximum JVM heap in bytes
+     */
+    public long maxHeap;
+  }
+
+  private static class Entry {
+    public String accountId;
+    public Future<MetaApiConnection> connection;
+    public volatile long lastUsed = System.currentTimeMillis();
+    // number of references held by callers, or -1 once the entry is being evicted
+    public AtomicInteger references = new AtomicInteger();
+  }
+
+  private MetaApi api;
+  private Vertx vertx;
+  private boolean ownsVertx;
+  private Options options;
+  private Map<String, Entry> entries = new ConcurrentHashMap<>();
+  private Queue<Runnable> connectQueue = new ConcurrentLinkedQueue<>();
+  private AtomicInteger activeConnects = new AtomicInteger();
+  private AtomicLong failedConnections = new AtomicLong();
+  private AtomicLong evictedConnections = new AtomicLong();
+  private long idleTimer = -1;
+
+  /**
+   * Constructs the pool together with its own Vert.x and MetaApi instances
+   * @param token MetaApi token
+   * @param options pool options
+   */
+  public ConnectionPool(String token, Options options) {
+    this.vertx = Vertx.vertx(new VertxOptions().setEventLoopPoolSize(options.eventLoopPoolSize));
+    this.ownsVertx = true;
+    this.api = new MetaApi(token, vertx);
+    this.options = options;
+    startIdleTimer();
+  }
+
+  /**
+   * Constructs the pool using existing Vert.x and MetaApi instances
+   * @param api MetaApi instance created with the Vert.x instance
+   * @param vertx Vert.x instance
+   * @param options pool options
+   */
+  public ConnectionPool(MetaApi api, Vertx vertx, Options options) {
+    this.api = api;
+    this.vertx = vertx;
+    this.options = options;
+    startIdleTimer();
+  }
+
+  /**
+   * Returns MetaApi instance of the pool
+   * @return MetaApi instance
+   */
+  public MetaApi getMetaApi() {
+    return api;
+  }
+
+  /**
+   * Returns Vert.x instance of the pool
+   * @return Vert.x instance
+   */
+  public Vertx getVertx() {
+    return vertx;
+  }
+
+  /**
+   * Acquires a reference to the connection to an account, connecting the account if it is not connected yet.
+   * Concurrent calls for the same account share the same connection. Once the returned future succeeds, the
+   * reference must be released via {@link #release(String)}. If it fails, no reference is held
+   * @param accountId account id
+   * @return future resolving with the connection, or failing if the pool is full of referenced connections
+   */
+  public Future<MetaApiConnection> getConnection(String accountId) {
+    return getConnection(accountId, null);
+  }
+
+  /**
+   * Acquires a reference to the connection to an already retrieved account, the same way as
+   * {@link #getConnection(String)}, but without retrieving the account again if it is not connected yet
+   * @param account account
+   * @return future resolving with the connection, or failing if the pool is full of referenced connections
+   */
+  public Future<MetaApiConnection> getConnection(MetatraderAccount account) {
+    return getConnection(account.getId(), account);
+  }
+
+  private Future<MetaApiConnection> getConnection(String accountId, MetatraderAccount account) {
+    while (true) {
+      Entry entry = entries.get(accountId);
+      if (entry == null) {
+        Entry newEntry = new Entry();
+        newEntry.accountId = accountId;
+        newEntry.references.set(1);
+        Promise<MetaApiConnection> promise = Promise.promise();
+        newEntry.connection = promise.future();
+        if (entries.putIfAbsent(accountId, newEntry) != null) {
+          continue;
+        }
+        if (entries.size() > options.maxConnections && !evictLeastRecentlyUsed()) {
+          entries.remove(accountId, newEntry);
+          return Future.failedFuture(new IllegalStateException("Connection pool is full, all "
+            + options.maxConnections + " connections are in use"));
+        }
+        connect(newEntry, account, promise);
+        return newEntry.connection;
+      }
+      // an entry being evicted is replaced with a new one
+      if (acquire(entry)) {
+        entry.lastUsed = System.currentTimeMillis();
+        return entry.connection;
+      }
+      entries.remove(accountId, entry);
+    }
+  }
+
+  /**
+   * Releases a reference to the connection to an account acquired via {@link #getConnection(String)}. The
+   * connection is kept open for reuse until it is evicted
+   * @param accountId account id
+   */
+  public void release(String accountId) {
+    Entry entry = entries.get(accountId);
+    if (entry == null) {
+      return;
+    }
+    entry.lastUsed = System.currentTimeMillis();
+    int references;
+    do {
+      references = entry.references.get();
+      if (references <= 0) {
+        return;
+      }
+    } while (!entry.references.compareAndSet(references, references - 1));
+  }
+
+  /**
+   * Closes connection to an account immediately, regardless of the references held to it
+   * @param accountId account id
+   * @return future resolving when the connection is closed
+   */
+  public Future<Void> close(String accountId) {
+    Entry entry = entries.remove(accountId);
+    return entry != null ? close(entry) : Future.succeededFuture();
+  }
+
+  /**
+   * Returns pool capacity metrics
+   * @return metrics
+   */
+  public Metrics getMetrics() {
+    Metrics metrics = new Metrics();
+    metrics.maxConnections = options.maxConnections;
+    for (Entry entry : entries.values()) {
+      if (!entry.connection.isComplete()) {
+        metrics.pendingConnections++;
+      } else if (entry.connection.succeeded()) {
+        metrics.openConnections++;
+      }
+    }
+    metrics.queuedConnections = connectQueue.size();
+    metrics.failedConnections = failedConnections.get();
+    metrics.evictedConnections = evictedConnections.get();
+    metrics.threads = Thread.activeCount();
+    Runtime runtime = Runtime.getRuntime();
+    metrics.usedHeap = runtime.totalMemory() - runtime.freeMemory();
+    metrics.maxHeap = runtime.maxMemory();
+    return metrics;
+  }
+
+  /**
+   * Closes all connections, and the Vert.x instance if it was created by the pool
+   * @return future resolving when the pool is closed
+   */
+  public Future<Void> close() {
+    if (idleTimer != -1) {
+      vertx.cancelTimer(idleTimer);
+    }
+    List<Future<Void>> closed = new ArrayList<>();
+    for (String accountId : new ArrayList<>(entries.keySet())) {
+      closed.add(close(accountId));
+    }
+    Future<Void> result = Future.succeededFuture();
+    for (Future<Void> future : closed) {
+      result = result.compose(v -> future);
+    }
+    return ownsVertx ? result.compose(v -> vertx.close()) : result;
+  }
+
+  private void connect(Entry entry, MetatraderAccount account, Promise<MetaApiConnection> promise) {
+    connectQueue.add(() -> (account != null ? Future.succeededFuture(account)
+      : api.getMetatraderAccountApi().getAccount(entry.accountId))
+      .compose(MetatraderAccount::connect)
+      .compose(connection -> options.waitSynchronized
+        ? connection.waitSynchronized().map(v -> connection) : Future.succeededFuture(connection))
+      .onComplete(result -> {
+        activeConnects.decrementAndGet();
+        if (result.failed()) {
+          failedConnections.incrementAndGet();
+          entries.remove(entry.accountId, entry);
+          promise.fail(result.cause());
+        } else {
+          promise.complete(result.result());
+        }
+        drainConnectQueue();
+      }));
+    drainConnectQueue();
+  }
+
+  private void drainConnectQueue() {
+    while (!connectQueue.isEmpty()) {
+      int active = activeConnects.get();
+      if (active >= options.maxConcurrentConnects) {
+        return;
+      }
+      if (activeConnects.compareAndSet(active, active + 1)) {
+        Runnable task = connectQueue.poll();
+        if (task == null) {
+          activeConnects.decrementAndGet();
+        } else {
+          task.run();
+        }
+      }
+    }
+  }
+
+  private boolean evictLeastRecentlyUsed() {
+    while (true) {
+      Entry oldest = null;
+      for (Entry entry : entries.values()) {
+        if (entry.references.get() == 0 && entry.connection.isComplete()
+          && (oldest == null || entry.lastUsed < oldest.lastUsed)) {
+          oldest = entry;
+        }
+      }
+      if (oldest == null) {
+        return false;
+      }
+      // the entry may have been acquired since it was found, in which case the next oldest one is tried
+      if (evict(oldest)) {
+        return true;
+      }
+    }
+  }
+
+  private boolean acquire(Entry entry) {
+    int references;
+    do {
+      references = entry.references.get();
+      if (references < 0) {
+        return false;
+      }
+    } while (!entry.references.compareAndSet(references, references + 1));
+    return true;
+  }
+
+  private boolean evict(Entry entry) {
+    if (!entry.references.compareAndSet(0, -1)) {
+      return false;
+    }
+    if (entries.remove(entry.accountId, entry)) {
+      evictedConnections.incrementAndGet();
+      close(entry);
+    }
+    return true;
+  }
+
+  private void startIdleTimer() {
+    if (options.idleTimeoutInMilliseconds > 0) {
+      idleTimer = vertx.setPeriodic(Math.max(options.idleTimeoutInMilliseconds / 10, 1000), id -> {
+        long deadline = System.currentTimeMillis() - options.idleTimeoutInMilliseconds;
+        for (Entry entry : entries.values()) {
+          if (entry.lastUsed < deadline && entry.connection.isComplete()) {
+            evict(entry);
+          }
+        }
+      });
+    }
+  }
+
+  private Future<Void> close(Entry entry) {
+    return entry.connection.compose(MetaApiConnection::close).recover(err -> {
+      if (entry.connection.succeeded()) {
+        System.err.println("Failed to close connection to account " + entry.accountId + ": " + err);
+      }
+      return Future.succeededFuture();
+    });
+  }
+}
@@ -0,0 +1,239 @@
+import java.util.ArrayList;
+import java.util.List;
+
+import cloud.metaapi.sdk.clients.meta_api.models.MetatraderAccountDto.ConnectionStatus;
+import cloud.metaapi.sdk.clients.meta_api.models.MetatraderAccountDto.DeploymentState;
+import cloud.metaapi.sdk.meta_api.MetaApiConnection;
+import cloud.metaapi.sdk.meta_api.MetatraderAccount;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+
+/**
+ * Starts many accounts in parallel. Every account is deployed if needed, waited for to connect to the broker and
+ * then connected via a {@link ConnectionPool}, which also waits for synchronization if the pool is configured to.
+ * Accounts are started in the given priority order, with a bounded number of accounts being started at the same
+ * time and a bounded rate of starting new ones. Progress of every account is reported to a {@link Listener}, so
+ * that ready accounts can be used while the rest are still starting
+ */
+public class FleetBootstrap {
+
+  /**
+   * Bootstrap options
+   */
+  public static class Options {
+    /**
+     * Maximum number of accounts being started at the same time. Default is 50
+     */
+    public int maxConcurrency = 50;
+    /**
+     * Maximum number of accounts to start per second, which limits the rate of the provisioning API requests.
+     * Default is 10
+     */
+    public double accountsPerSecond = 10;
+  }
+
+  /**
+   * Account start stage
+   */
+  public enum Stage {
+    /**
+     * Account is being deployed
+     */
+    DEPLOYING,
+    /**
+     * Waiting for the account to connect to the broker
+     */
+    CONNECTING_TO_BROKER,
+    /**
+     * Connecting to the account via the pool
+     */
+    CONNECTING,
+    /**
+     * Account is ready to use
+     */
+    READY,
+    /**
+     * Account failed to start
+     */
+    FAILED
+  }
+
+  /**
+   * Receives account start events. Invoked on Vert.x threads, so implementations should return quickly
+   */
+  public static abstract class Listener {
+
+    /**
+     * Invoked when an account moves to another start stage
+     * @param accountId account id
+     * @param stage new stage
+     */
+    public void onStageChanged(String accountId, Stage stage) {}
+
+    /**
+     * Invoked when an account is ready to use. The bootstrap acquires a reference to the connection from the pool,
+     * which must be released via {@link ConnectionPool#release(String)} once the account is no longer used
+     * @param accountId account id
+     * @param connection connection to the account
+     */
+    public void onAccountReady(String accountId, MetaApiConnection connection) {}
+
+    /**
+     * Invoked when an account failed to start
+     * @param accountId account id
+     * @param error error
+     */
+    public void onAccountFailed(String accountId, Throwable error) {}
+  }
+
+  /**
+   * Bootstrap result
+   */
+  public static class Result {
+    /**
+     * Ids of the accounts which are ready, in the order they became ready
+     */
+    public List<String> readyAccountIds = new ArrayList<>();
+    /**
+     * Ids of the accounts which failed to start
+     */
+    public List<String> failedAccountIds = new ArrayList<>();
+    /**
+     * Time the bootstrap took in milliseconds
+     */
+    public long durationInMilliseconds;
+  }
+
+  private ConnectionPool pool;
+  private Options options;
+
+  /**
+   * Constructs the bootstrap with default options
+   * @param pool connection pool to connect the accounts via
+   */
+  public FleetBootstrap(ConnectionPool pool) {
+    this(pool, new Options());
+  }
+
+  /**
+   * Constructs the bootstrap
+   * @param pool connection pool to connect the accounts via
+   * @param options bootstrap options
+   */
+  public FleetBootstrap(ConnectionPool pool, Options options) {
+    this.pool = pool;
+    this.options = options;
+  }
+
+  /**
+   * Starts accounts
+   * @param accountIds ids of the accounts to start, in priority order
+   * @param listener listener of account start events, or {@code null}
+   * @return future resolving when all accounts are either ready or failed. The future never fails
+   */
+  public Future<Result> start(List<String> accountIds, Listener listener) {
+    Bootstrap bootstrap = new Bootstrap(new ArrayList<>(accountIds),
+      listener != null ? listener : new Listener() {});
+    bootstrap.pump();
+    return bootstrap.promise.future();
+  }
+
+  private class Bootstrap {
+    private List<String> accountIds;
+    private Listener listener;
+    private Result result = new Result();
+    private Promise<Result> promise = Promise.promise();
+    private long startedAt = System.currentTimeMillis();
+    private long nextStartAt = startedAt;
+    private int nextIndex = 0;
+    private int inFlight = 0;
+    private boolean timerSet = false;
+
+    Bootstrap(List<String> accountIds, Listener listener) {
+      this.accountIds = accountIds;
+      this.listener = listener;
+    }
+
+    void pump() {
+      List<String> toStart = new ArrayList<>();
+      synchronized (this) {
+        long interval = (long) (1000 / options.accountsPerSecond);
+        while (nextIndex < accountIds.size() && inFlight < options.maxConcurrency && !timerSet) {
+          long now = System.currentTimeMillis();
+          if (now < nextStartAt) {
+            timerSet = true;
+            pool.getVertx().setTimer(nextStartAt - now, id -> {
+              synchronized (this) {
+                timerSet = false;
+              }
+              pump();
+            });
+            break;
+          }
+          nextStartAt = Math.max(nextStartAt, now - interval) + interval;
+          inFlight++;
+          toStart.add(accountIds.get(nextIndex++));
+        }
+        if (nextIndex == accountIds.size() && inFlight == 0) {
+          result.durationInMilliseconds = System.currentTimeMillis() - startedAt;
+          promise.tryComplete(result);
+        }
+      }
+      for (String accountId : toStart) {
+        startAccount(accountId).onComplete(res -> {
+          synchronized (this) {
+            inFlight--;
+            if (res.succeeded()) {
+              result.readyAccountIds.add(accountId);
+            } else {
+              result.failedAccountIds.add(accountId);
+            }
+          }
+          if (res.succeeded()) {
+            notify(() -> listener.onStageChanged(accountId, Stage.READY));
+            notify(() -> listener.onAccountReady(accountId, res.result()));
+          } else {
+            notify(() -> listener.onStageChanged(accountId, Stage.FAILED));
+            notify(() -> listener.onAccountFailed(accountId, res.cause()));
+          }
+          pump();
+        });
+      }
+    }
+
+    private Future<MetaApiConnection> startAccount(String accountId) {
+      try {
+        return pool.getMetaApi().getMetatraderAccountApi().getAccount(accountId)
+          .compose(account -> {
+            if (account.getState() == DeploymentState.DEPLOYED) {
+              return Future.succeededFuture(account);
+            }
+            notify(() -> listener.onStageChanged(accountId, Stage.DEPLOYING));
+            return account.deploy().map(v -> account);
+          })
+          .compose(account -> {
+            if (account.getConnectionStatus() == ConnectionStatus.CONNECTED) {
+              return Future.succeededFuture(account);
+            }
+            notify(() -> listener.onStageChanged(accountId, Stage.CONNECTING_TO_BROKER));
+            return account.waitConnected().map(v -> account);
+          })
+          .compose(account -> {
+            notify(() -> listener.onStageChanged(accountId, Stage.CONNECTING));
+            // the account is passed on, so that the pool does not retrieve it again
+            return pool.getConnection(account);
+          });
+      } catch (Throwable err) {
+        return Future.failedFuture(err);
+      }
+    }
+
+    private void notify(Runnable event) {
+      try {
+        event.run();
+      } catch (Throwable err) {
+        System.err.println("Fleet bootstrap listener failed: " + err);
+      }
+    }
+  }
+}
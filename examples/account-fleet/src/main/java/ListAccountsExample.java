@@ -0,0 +1,41 @@
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import cloud.metaapi.sdk.clients.meta_api.models.MetatraderAccountDto.DeploymentState;
+import cloud.metaapi.sdk.meta_api.MetaApi;
+import io.vertx.core.Vertx;
+
+/**
+ * Note: for information on how to use this example code please read
+ * https://metaapi.cloud/docs/client/usingCodeExamples
+ */
+public class ListAccountsExample {
+
+  private static String token = getEnvOrDefault("TOKEN", "<put in your token here>");
+
+  public static void main(String[] args) {
+    try {
+      MetaApi api = new MetaApi(token, Vertx.vertx());
+
+      // iterate over all accounts page by page, keeping only id, state and connection status of each account
+      Map<DeploymentState, Integer> accountsByState = new EnumMap<>(DeploymentState.class);
+      int count = 0;
+      Iterator<AccountSummary> accounts = AccountIterator.summaries(api.getMetatraderAccountApi(), null);
+      while (accounts.hasNext()) {
+        AccountSummary account = accounts.next();
+        accountsByState.merge(account.state, 1, Integer::sum);
+        count++;
+      }
+      System.out.println(count + " accounts by state: " + accountsByState);
+    } catch (Exception err) {
+      System.err.println(err);
+    }
+    System.exit(0);
+  }
+
+  private static String getEnvOrDefault(String name, String defaultValue) {
+    String result = System.getenv(name);
+    return (result != null ? result : defaultValue);
+  }
+}
@@ -0,0 +1,92 @@
+package benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Compares JMH JSON results of a run with a baseline and reports the change of the score and of the allocation
+ * rate per operation of every benchmark. Exits with status 1 if a score got worse by more than the threshold.
+ * Usage: {@code CompareResults <baseline.json> <results.json> [threshold percent, default 10]}
+ */
+public class CompareResults {
+
+  private static final String ALLOCATION_METRIC = "gc.alloc.rate.norm";
+
+  public static void main(String[] args) throws IOException {
+    if (args.length < 2) {
+      System.err.println("Usage: CompareResults <baseline.json> <results.json> [threshold percent]");
+      System.exit(2);
+    }
+    double threshold = args.length > 2 ? Double.parseDouble(args[2]) : 10;
+    Map<String, JsonNode> baseline = load(new File(args[0]));
+    Map<String, JsonNode> results = load(new File(args[1]));
+    int regressions = 0;
+    for (Map.Entry<String, JsonNode> entry : results.entrySet()) {
+      JsonNode result = entry.getValue();
+      JsonNode baselineResult = baseline.get(entry.getKey());
+      double score = result.get("primaryMetric").get("score").asDouble();
+      String unit = result.get("primaryMetric").get("scoreUnit").asText();
+      if (baselineResult == null) {
+        System.out.println(String.format("%-90s %14.3f %-8s new", entry.getKey(), score, unit));
+        continue;
+      }
+      double baselineScore = baselineResult.get("primaryMetric").get("score").asDouble();
+      double change = (score - baselineScore) / baselineScore * 100;
+      // throughput is better when higher, times are better when lower
+      boolean higherIsBetter = "thrpt".equals(result.get("mode").asText());
+      boolean regression = (higherIsBetter ? -change : change) > threshold;
+      if (regression) {
+        regressions++;
+      }
+      String allocation = "";
+      Double bytes = getAllocation(result);
+      Double baselineBytes = getAllocation(baselineResult);
+      if (bytes != null && baselineBytes != null) {
+        allocation = String.format(", %.0f -> %.0f B/op", baselineBytes, bytes);
+      }
+      System.out.println(String.format("%-90s %14.3f %-8s %+7.1f%%%s%s", entry.getKey(), score, unit, change,
+        allocation, regression ? " REGRESSION" : ""));
+    }
+    System.exit(regressions != 0 ? 1 : 0);
+  }
+
+  private static Map<String, JsonNode> load(File file) throws IOException {
+    Map<String, JsonNode> results = new LinkedHashMap<>();
+    for (JsonNode result : new ObjectMapper().readTree(file)) {
+      StringBuilder key = new StringBuilder(result.get("benchmark").asText()).append(' ')
+        .append(result.get("mode").asText());
+      JsonNode params = result.get("params");
+      if (params != null) {
+        Iterator<Map.Entry<String, JsonNode>> fields = params.fields();
+        while (fields.hasNext()) {
+          Map.Entry<String, JsonNode> param = fields.next();
+          key.append(' ').append(param.getKey()).append('=').append(param.getValue().asText());
+        }
+      }
+      results.put(key.toString(), result);
+    }
+    return results;
+  }
+
+  private static Double getAllocation(JsonNode result) {
+    JsonNode metrics = result.get("secondaryMetrics");
+    if (metrics == null) {
+      return null;
+    }
+    Iterator<Map.Entry<String, JsonNode>> fields = metrics.fields();
+    while (fields.hasNext()) {
+      Map.Entry<String, JsonNode> metric = fields.next();
+      // older JMH versions prefix profiler metrics with a middle dot
+      if (metric.getKey().endsWith(ALLOCATION_METRIC)) {
+        return metric.getValue().get("score").asDouble();
+      }
+    }
+    return null;
+  }
+}
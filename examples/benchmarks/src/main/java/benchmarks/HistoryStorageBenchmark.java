@@ -0,0 +1,96 @@
+package benchmarks;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import cloud.metaapi.sdk.clients.meta_api.models.MetatraderDeal;
+import cloud.metaapi.sdk.clients.meta_api.models.MetatraderOrder;
+import cloud.metaapi.sdk.meta_api.MemoryHistoryStorage;
+import cloud.metaapi.sdk.util.JsonMapper;
+
+/**
+ * Inserting the history of an account into an empty memory history storage as during the first synchronization.
+ * Records arrive in time order from a single instance, and out of order when several instances synchronize the
+ * same history
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class HistoryStorageBenchmark {
+
+  /**
+   * Number of deals and of history orders
+   */
+  @Param({"1000", "10000"})
+  public int records;
+
+  /**
+   * Whether records arrive in time order
+   */
+  @Param({"true", "false"})
+  public boolean ordered;
+
+  private List<MetatraderDeal> deals = new ArrayList<>();
+  private List<MetatraderOrder> historyOrders = new ArrayList<>();
+
+  @Setup
+  public void setUp() throws IOException {
+    ObjectMapper jsonMapper = JsonMapper.getInstance();
+    ObjectNode deal = (ObjectNode) jsonMapper.readTree(Payloads.read("deal.json"));
+    ObjectNode historyOrder = (ObjectNode) jsonMapper.readTree(Payloads.read("history-order.json"));
+    Instant time = Instant.parse(deal.get("time").asText()).minusSeconds(records * 60L);
+    for (int i = 0; i < records; i++) {
+      time = time.plusSeconds(60);
+      historyOrder.put("id", String.valueOf(46000000 + 2 * i));
+      historyOrder.put("positionId", String.valueOf(46000000 + 2 * i - i % 2));
+      historyOrder.put("time", time.minusMillis(80).toString());
+      historyOrder.put("doneTime", time.toString());
+      historyOrders.add(jsonMapper.treeToValue(historyOrder, MetatraderOrder.class));
+      deal.put("id", String.valueOf(33000000 + i));
+      deal.put("orderId", historyOrder.get("id").asText());
+      deal.put("positionId", historyOrder.get("positionId").asText());
+      deal.put("entryType", i % 2 == 0 ? "DEAL_ENTRY_IN" : "DEAL_ENTRY_OUT");
+      deal.put("time", time.toString());
+      deals.add(jsonMapper.treeToValue(deal, MetatraderDeal.class));
+    }
+    if (!ordered) {
+      Collections.shuffle(deals, new Random(1));
+      Collections.shuffle(historyOrders, new Random(2));
+    }
+  }
+
+  @Benchmark
+  public MemoryHistoryStorage insertHistory() {
+    MemoryHistoryStorage historyStorage = new MemoryHistoryStorage();
+    for (MetatraderOrder historyOrder : historyOrders) {
+      historyStorage.onHistoryOrderAdded("0", historyOrder);
+    }
+    for (MetatraderDeal deal : deals) {
+      historyStorage.onDealAdded("0", deal);
+    }
+    return historyStorage;
+  }
+}
@@ -0,0 +1,79 @@
+package benchmarks;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import cloud.metaapi.sdk.clients.models.IsoTime;
+import cloud.metaapi.sdk.util.JsonMapper;
+
+/**
+ * Parsing and formatting of the ISO timestamps carried by every price, tick and history record. Parsing via
+ * {@link Instant#parse} is the baseline
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class IsoTimeBenchmark {
+
+  private ObjectMapper jsonMapper = JsonMapper.getInstance();
+  private String[] times;
+  private String[] quotedTimes;
+  private IsoTime[] isoTimes;
+  private int index = 0;
+
+  @Setup
+  public void setUp() throws IOException {
+    JsonNode ticks = jsonMapper.readTree(Payloads.read("ticks-packet.json")).get("ticks");
+    times = new String[ticks.size()];
+    quotedTimes = new String[times.length];
+    isoTimes = new IsoTime[times.length];
+    for (int i = 0; i < times.length; i++) {
+      times[i] = ticks.get(i).get("time").asText();
+      quotedTimes[i] = '"' + times[i] + '"';
+      isoTimes[i] = new IsoTime(times[i]);
+    }
+  }
+
+  @Benchmark
+  public Instant parseInstant() {
+    return Instant.parse(next(times));
+  }
+
+  @Benchmark
+  public IsoTime parseIsoTime() {
+    return new IsoTime(next(times));
+  }
+
+  @Benchmark
+  public IsoTime deserializeIsoTime() throws IOException {
+    return jsonMapper.readValue(next(quotedTimes), IsoTime.class);
+  }
+
+  @Benchmark
+  public String formatIsoTime() {
+    return next(isoTimes).getIsoString();
+  }
+
+  private <T> T next(T[] values) {
+    index = index + 1 < values.length ? index + 1 : 0;
+    return values[index];
+  }
+}
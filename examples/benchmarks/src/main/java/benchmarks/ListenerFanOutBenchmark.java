@@ -0,0 +1,73 @@
+package benchmarks;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import cloud.metaapi.sdk.clients.meta_api.SynchronizationListener;
+import cloud.metaapi.sdk.clients.meta_api.models.MetatraderSymbolPrice;
+import cloud.metaapi.sdk.meta_api.MemoryHistoryStorage;
+import cloud.metaapi.sdk.meta_api.TerminalState;
+import cloud.metaapi.sdk.util.JsonMapper;
+import io.vertx.core.CompositeFuture;
+import io.vertx.core.Future;
+
+/**
+ * Fan-out of a price update to the synchronization listeners of a connection, i.e. the terminal state, the history
+ * storage and application listeners, and joining their futures before the next update is processed
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ListenerFanOutBenchmark {
+
+  /**
+   * Number of application listeners in addition to the terminal state and the history storage
+   */
+  @Param({"0", "4", "16"})
+  public int applicationListeners;
+
+  private List<SynchronizationListener> listeners = new ArrayList<>();
+  private MetatraderSymbolPrice price;
+
+  @Setup
+  public void setUp() throws IOException {
+    ObjectMapper jsonMapper = JsonMapper.getInstance();
+    JsonNode packet = jsonMapper.readTree(Payloads.read("prices-packet.json"));
+    price = jsonMapper.treeToValue(packet.get("prices").get(0), MetatraderSymbolPrice.class);
+    listeners.add(new TerminalState());
+    listeners.add(new MemoryHistoryStorage());
+    for (int i = 0; i < applicationListeners; i++) {
+      listeners.add(new SynchronizationListener() {});
+    }
+  }
+
+  @Benchmark
+  @SuppressWarnings("rawtypes")
+  public CompositeFuture onSymbolPriceUpdated() {
+    List<Future> results = new ArrayList<>(listeners.size());
+    for (SynchronizationListener listener : listeners) {
+      results.add(listener.onSymbolPriceUpdated("0", price));
+    }
+    return CompositeFuture.join(results);
+  }
+}
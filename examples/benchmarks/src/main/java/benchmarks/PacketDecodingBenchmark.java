@@ -0,0 +1,73 @@
+package benchmarks;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import cloud.metaapi.sdk.clients.meta_api.models.MetatraderSymbolPrice;
+import cloud.metaapi.sdk.clients.meta_api.models.MetatraderTick;
+import cloud.metaapi.sdk.util.JsonMapper;
+
+/**
+ * Decoding of recorded {@code prices} synchronization packets into SDK models the way the websocket client does
+ * it, i.e. parsing the packet into a tree and converting its elements. The tree-only benchmark separates the
+ * parsing cost from the conversion cost
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PacketDecodingBenchmark {
+
+  private ObjectMapper jsonMapper = JsonMapper.getInstance();
+  private String pricesPacket;
+  private String ticksPacket;
+
+  @Setup
+  public void setUp() {
+    pricesPacket = Payloads.read("prices-packet.json");
+    ticksPacket = Payloads.read("ticks-packet.json");
+  }
+
+  @Benchmark
+  public JsonNode parsePricesPacketTree() throws IOException {
+    return jsonMapper.readTree(pricesPacket);
+  }
+
+  @Benchmark
+  public List<MetatraderSymbolPrice> decodePrices() throws IOException {
+    JsonNode packet = jsonMapper.readTree(pricesPacket);
+    List<MetatraderSymbolPrice> prices = new ArrayList<>();
+    for (JsonNode price : packet.get("prices")) {
+      prices.add(jsonMapper.treeToValue(price, MetatraderSymbolPrice.class));
+    }
+    return prices;
+  }
+
+  @Benchmark
+  public List<MetatraderTick> decodeTicks() throws IOException {
+    JsonNode packet = jsonMapper.readTree(ticksPacket);
+    List<MetatraderTick> ticks = new ArrayList<>();
+    for (JsonNode tick : packet.get("ticks")) {
+      ticks.add(jsonMapper.treeToValue(tick, MetatraderTick.class));
+    }
+    return ticks;
+  }
+}
@@ -0,0 +1,37 @@
+package benchmarks;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Loads recorded websocket packets and REST records from the {@code payloads} resource directory
+ */
+public class Payloads {
+
+  private Payloads() {}
+
+  /**
+   * Reads a payload
+   * @param name payload file name
+   * @return payload text
+   */
+  public static String read(String name) {
+    try (InputStream input = Payloads.class.getResourceAsStream("/payloads/" + name)) {
+      if (input == null) {
+        throw new IllegalArgumentException("Payload not found: " + name);
+      }
+      ByteArrayOutputStream output = new ByteArrayOutputStream();
+      byte[] buffer = new byte[8192];
+      int length;
+      while ((length = input.read(buffer)) != -1) {
+        output.write(buffer, 0, length);
+      }
+      return new String(output.toByteArray(), StandardCharsets.UTF_8);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+}
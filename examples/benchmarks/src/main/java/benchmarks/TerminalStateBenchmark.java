@@ -0,0 +1,99 @@
+package benchmarks;
+
+import java.io.IOException;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import cloud.metaapi.sdk.clients.meta_api.models.MetatraderSymbolPrice;
+import cloud.metaapi.sdk.meta_api.TerminalState;
+import cloud.metaapi.sdk.util.JsonMapper;
+import io.vertx.core.Future;
+
+/**
+ * Price updates and reads of the terminal state, alone and with one streaming thread updating prices while
+ * several application threads read them
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Group)
+public class TerminalStateBenchmark {
+
+  private TerminalState terminalState;
+  private MetatraderSymbolPrice[] prices;
+  private String[] symbols;
+
+  /**
+   * Position of a thread in the recorded prices
+   */
+  @State(Scope.Thread)
+  public static class Cursor {
+    public int index = 0;
+
+    /**
+     * Advances to the next recorded price, wrapping around at the end
+     * @param length number of recorded prices
+     * @return index of the price
+     */
+    public int next(int length) {
+      index = index + 1 < length ? index + 1 : 0;
+      return index;
+    }
+  }
+
+  @Setup
+  public void setUp() throws IOException {
+    ObjectMapper jsonMapper = JsonMapper.getInstance();
+    JsonNode packet = jsonMapper.readTree(Payloads.read("prices-packet.json"));
+    prices = new MetatraderSymbolPrice[packet.get("prices").size()];
+    symbols = new String[prices.length];
+    terminalState = new TerminalState();
+    for (int i = 0; i < prices.length; i++) {
+      prices[i] = jsonMapper.treeToValue(packet.get("prices").get(i), MetatraderSymbolPrice.class);
+      symbols[i] = prices[i].symbol;
+      terminalState.onSymbolPriceUpdated("0", prices[i]);
+    }
+  }
+
+  @Benchmark
+  public Future<Void> update(Cursor cursor) {
+    return terminalState.onSymbolPriceUpdated("0", prices[cursor.next(prices.length)]);
+  }
+
+  @Benchmark
+  public Optional<MetatraderSymbolPrice> read(Cursor cursor) {
+    return terminalState.getPrice(symbols[cursor.next(symbols.length)]);
+  }
+
+  @Benchmark
+  @Group("concurrent")
+  @GroupThreads(1)
+  public Future<Void> concurrentUpdate(Cursor cursor) {
+    return update(cursor);
+  }
+
+  @Benchmark
+  @Group("concurrent")
+  @GroupThreads(3)
+  public Optional<MetatraderSymbolPrice> concurrentRead(Cursor cursor) {
+    return read(cursor);
+  }
+}
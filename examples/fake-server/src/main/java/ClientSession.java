@@ -0,0 +1,462 @@
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * Serves the streaming API requests an SDK client sends over one socket.io connection. Handles subscriptions,
+ * synchronization, RPC and trade requests of the accounts the client subscribed to and streams their market data
+ * and status packets
+ */
+public class ClientSession {
+
+  private static final String HOST = "ps-mpa-0";
+  private static final int INSTANCE_INDEX = 0;
+  private static final int HISTORY_PAGE_SIZE = 1000;
+
+  /**
+   * Account subscribed to via the session
+   */
+  private static class Subscription {
+    public FakeAccount account;
+    public Map<String, Set<String>> marketData = new LinkedHashMap<>();
+  }
+
+  private FakeMetaApiServer server;
+  private EngineIoSession socket;
+  private ObjectMapper jsonMapper;
+  private Map<String, Subscription> subscriptions = new LinkedHashMap<>();
+  private long sequenceNumber = 0;
+
+  /**
+   * Constructs the session
+   * @param server fake server
+   * @param jsonMapper JSON mapper
+   */
+  public ClientSession(FakeMetaApiServer server, ObjectMapper jsonMapper) {
+    this.server = server;
+    this.jsonMapper = jsonMapper;
+  }
+
+  /**
+   * Sets the socket to send packets to
+   * @param socket socket
+   */
+  public void setSocket(EngineIoSession socket) {
+    this.socket = socket;
+  }
+
+  /**
+   * Returns the socket packets are sent to
+   * @return socket
+   */
+  public EngineIoSession getSocket() {
+    return socket;
+  }
+
+  /**
+   * Handles a socket.io event received from the client
+   * @param event event name
+   * @param payload event argument
+   */
+  public void onEvent(String event, JsonNode payload) {
+    if (event.equals("request") && payload != null && payload.isObject()) {
+      server.countRequest();
+      long receivedAt = System.currentTimeMillis();
+      server.delay(() -> handleRequest((ObjectNode) payload, receivedAt));
+    }
+  }
+
+  /**
+   * Streams market data of the subscribed symbols, invoked on every market data tick of the server
+   */
+  public void streamMarketData() {
+    List<ObjectNode> packets = new ArrayList<>();
+    synchronized (this) {
+      for (Subscription subscription : subscriptions.values()) {
+        if (subscription.marketData.isEmpty()) {
+          continue;
+        }
+        ObjectNode packet = createPacket("prices", subscription.account.getId());
+        ArrayNode prices = packet.putArray("prices");
+        ArrayNode ticks = null;
+        ArrayNode books = null;
+        ArrayNode candles = null;
+        MarketSimulator market = server.getMarket();
+        for (Map.Entry<String, Set<String>> entry : subscription.marketData.entrySet()) {
+          String symbol = entry.getKey();
+          prices.add(market.getPrice(symbol));
+          if (entry.getValue().contains("ticks")) {
+            ticks = ticks != null ? ticks : packet.putArray("ticks");
+            ticks.add(market.getTick(symbol));
+          }
+          if (entry.getValue().contains("marketDepth")) {
+            books = books != null ? books : packet.putArray("books");
+            books.add(market.getBook(symbol, server.getOptions().bookDepth));
+          }
+          if (entry.getValue().contains("candles")) {
+            candles = candles != null ? candles : packet.putArray("candles");
+            candles.add(market.getCandle(symbol));
+          }
+        }
+        ObjectNode information = subscription.account.getAccountInformation();
+        packet.set("equity", information.get("equity"));
+        packet.set("margin", information.get("margin"));
+        packet.set("freeMargin", information.get("freeMargin"));
+        if (information.has("marginLevel")) {
+          packet.set("marginLevel", information.get("marginLevel"));
+        }
+        packet.put("sequenceTimestamp", System.currentTimeMillis());
+        packet.put("sequenceNumber", ++sequenceNumber);
+        packets.add(packet);
+      }
+    }
+    for (ObjectNode packet : packets) {
+      emit("synchronization", packet);
+    }
+  }
+
+  /**
+   * Sends status packets of the subscribed accounts, invoked once a second
+   */
+  public void streamStatus() {
+    List<String> accountIds;
+    synchronized (this) {
+      accountIds = new ArrayList<>(subscriptions.keySet());
+    }
+    for (String accountId : accountIds) {
+      ObjectNode packet = createPacket("status", accountId);
+      packet.put("connected", true);
+      packet.put("authenticated", true);
+      emit("synchronization", packet);
+    }
+  }
+
+  private void handleRequest(ObjectNode request, long receivedAt) {
+    String type = request.path("type").asText();
+    String accountId = request.path("accountId").asText(null);
+    String requestId = request.path("requestId").asText(null);
+    if (server.shouldRejectRequest()) {
+      sendError(accountId, requestId, "TooManyRequestsError", "You have used all your request quota",
+        server.createTooManyRequestsMetadata());
+      return;
+    }
+    FakeAccount account = accountId != null ? server.getAccount(accountId) : null;
+    if (account == null) {
+      sendError(accountId, requestId, "NotFoundError", "Account " + accountId + " not found", null);
+      return;
+    }
+    if (!account.getState().equals("DEPLOYED")) {
+      sendError(accountId, requestId, "NotFoundError", "Account " + accountId + " is not deployed", null);
+      return;
+    }
+    ObjectNode response = createResponse(request, receivedAt);
+    switch (type) {
+      case "subscribe":
+        synchronized (this) {
+          subscriptions.computeIfAbsent(accountId, id -> {
+            Subscription subscription = new Subscription();
+            subscription.account = account;
+            return subscription;
+          });
+        }
+        sendResponse(response);
+        ObjectNode authenticated = createPacket("authenticated", accountId);
+        authenticated.put("replicas", 1);
+        emit("synchronization", authenticated);
+        break;
+      case "unsubscribe":
+        synchronized (this) {
+          subscriptions.remove(accountId);
+        }
+        sendResponse(response);
+        break;
+      case "synchronize":
+        sendResponse(response);
+        synchronize(account, request);
+        break;
+      case "waitSynchronized":
+        sendResponse(response);
+        break;
+      case "subscribeToMarketData":
+      case "unsubscribeFromMarketData":
+        if (!updateMarketDataSubscription(accountId, request, type.equals("subscribeToMarketData"))) {
+          sendError(accountId, requestId, "ValidationError", "Unknown symbol " + request.path("symbol").asText(),
+            null);
+          return;
+        }
+        sendResponse(response);
+        if (type.equals("subscribeToMarketData")) {
+          ObjectNode packet = createPacket("prices", accountId);
+          packet.putArray("prices").add(server.getMarket().getPrice(request.get("symbol").asText()));
+          emit("synchronization", packet);
+        }
+        break;
+      case "getAccountInformation":
+        response.set("accountInformation", account.getAccountInformation());
+        sendResponse(response);
+        break;
+      case "getPositions":
+        response.set("positions", toArray(account.getPositions()));
+        sendResponse(response);
+        break;
+      case "getPosition":
+      case "getOrder": {
+        boolean position = type.equals("getPosition");
+        String id = request.path(position ? "positionId" : "orderId").asText();
+        ObjectNode record = findById(position ? account.getPositions() : account.getOrders(), id);
+        if (record == null) {
+          sendError(accountId, requestId, "NotFoundError", (position ? "Position " : "Order ") + id
+            + " not found", null);
+          return;
+        }
+        response.set(position ? "position" : "order", record);
+        sendResponse(response);
+        break;
+      }
+      case "getOrders":
+        response.set("orders", toArray(account.getOrders()));
+        sendResponse(response);
+        break;
+      case "getHistoryOrdersByTicket":
+      case "getHistoryOrdersByPosition":
+      case "getHistoryOrdersByTimeRange":
+        response.set("historyOrders", toArray(filterHistory(account.getHistoryOrders(0), request)));
+        response.put("synchronizing", false);
+        sendResponse(response);
+        break;
+      case "getDealsByTicket":
+      case "getDealsByPosition":
+      case "getDealsByTimeRange":
+        response.set("deals", toArray(filterHistory(account.getDeals(0), request)));
+        response.put("synchronizing", false);
+        sendResponse(response);
+        break;
+      case "getSymbols": {
+        ArrayNode symbols = response.putArray("symbols");
+        for (String symbol : server.getMarket().getSymbols()) {
+          symbols.add(symbol);
+        }
+        sendResponse(response);
+        break;
+      }
+      case "getSymbolSpecification":
+      case "getSymbolPrice":
+      case "getCandle":
+      case "getTick":
+      case "getBook": {
+        String symbol = request.path("symbol").asText();
+        if (!server.getMarket().hasSymbol(symbol)) {
+          sendError(accountId, requestId, "NotFoundError", "Symbol " + symbol + " not found", null);
+          return;
+        }
+        MarketSimulator market = server.getMarket();
+        if (type.equals("getSymbolSpecification")) {
+          response.set("specification", market.getSpecification(symbol));
+        } else if (type.equals("getSymbolPrice")) {
+          response.set("price", market.getPrice(symbol));
+        } else if (type.equals("getCandle")) {
+          response.set("candle", market.getCandle(symbol));
+        } else if (type.equals("getTick")) {
+          response.set("tick", market.getTick(symbol));
+        } else {
+          response.set("book", market.getBook(symbol, server.getOptions().bookDepth));
+        }
+        sendResponse(response);
+        break;
+      }
+      case "trade": {
+        FakeAccount.TradeResult result = account.trade(request.path("trade"));
+        response.set("response", result.response);
+        sendResponse(response);
+        if (result.update != null) {
+          result.update.put("accountId", accountId);
+          result.update.put("host", HOST);
+          result.update.put("instanceIndex", INSTANCE_INDEX);
+          emit("synchronization", result.update);
+        }
+        break;
+      }
+      default:
+        sendError(accountId, requestId, "ValidationError", "Request type " + type + " is not supported by the "
+          + "fake server", null);
+        break;
+    }
+  }
+
+  private void synchronize(FakeAccount account, ObjectNode request) {
+    String accountId = account.getId();
+    String synchronizationId = request.path("requestId").asText();
+    ObjectNode started = createSynchronizationPacket("synchronizationStarted", accountId, synchronizationId);
+    started.put("specificationsUpdated", true);
+    started.put("positionsUpdated", true);
+    started.put("ordersUpdated", true);
+    emit("synchronization", started);
+    ObjectNode information = createSynchronizationPacket("accountInformation", accountId, synchronizationId);
+    information.set("accountInformation", account.getAccountInformation());
+    emit("synchronization", information);
+    ObjectNode specifications = createSynchronizationPacket("specifications", accountId, synchronizationId);
+    ArrayNode specificationList = specifications.putArray("specifications");
+    for (String symbol : server.getMarket().getSymbols()) {
+      specificationList.add(server.getMarket().getSpecification(symbol));
+    }
+    specifications.putArray("removedSymbols");
+    emit("synchronization", specifications);
+    ObjectNode positions = createSynchronizationPacket("positions", accountId, synchronizationId);
+    positions.set("positions", toArray(account.getPositions()));
+    emit("synchronization", positions);
+    ObjectNode orders = createSynchronizationPacket("orders", accountId, synchronizationId);
+    orders.set("orders", toArray(account.getOrders()));
+    emit("synchronization", orders);
+    sendHistory(accountId, synchronizationId, "historyOrders",
+      account.getHistoryOrders(parseTime(request.path("startingHistoryOrderTime").asText(null))));
+    sendHistory(accountId, synchronizationId, "deals",
+      account.getDeals(parseTime(request.path("startingDealTime").asText(null))));
+    emit("synchronization", createSynchronizationPacket("orderSynchronizationFinished", accountId,
+      synchronizationId));
+    emit("synchronization", createSynchronizationPacket("dealSynchronizationFinished", accountId,
+      synchronizationId));
+  }
+
+  private void sendHistory(String accountId, String synchronizationId, String type, List<ObjectNode> records) {
+    for (int from = 0; from < records.size(); from += HISTORY_PAGE_SIZE) {
+      ObjectNode packet = createSynchronizationPacket(type, accountId, synchronizationId);
+      packet.set(type, toArray(records.subList(from, Math.min(from + HISTORY_PAGE_SIZE, records.size()))));
+      emit("synchronization", packet);
+    }
+  }
+
+  private synchronized boolean updateMarketDataSubscription(String accountId, ObjectNode request,
+    boolean subscribe) {
+    String symbol = request.path("symbol").asText();
+    if (!server.getMarket().hasSymbol(symbol)) {
+      return false;
+    }
+    Subscription subscription = subscriptions.get(accountId);
+    if (subscription == null) {
+      return true;
+    }
+    JsonNode types = request.path(subscribe ? "subscriptions" : "unsubscriptions");
+    Set<String> symbolTypes = subscription.marketData.computeIfAbsent(symbol, key -> new LinkedHashSet<>());
+    if (!types.isArray() || types.size() == 0) {
+      if (subscribe) {
+        symbolTypes.add("quotes");
+      } else {
+        symbolTypes.clear();
+      }
+    }
+    for (JsonNode subscriptionType : types) {
+      if (subscribe) {
+        symbolTypes.add(subscriptionType.path("type").asText());
+      } else {
+        symbolTypes.remove(subscriptionType.path("type").asText());
+      }
+    }
+    if (symbolTypes.isEmpty()) {
+      subscription.marketData.remove(symbol);
+    }
+    return true;
+  }
+
+  private List<ObjectNode> filterHistory(List<ObjectNode> records, ObjectNode request) {
+    String ticket = request.path("ticket").asText(null);
+    String positionId = request.path("positionId").asText(null);
+    String startTime = request.path("startTime").asText(null);
+    String endTime = request.path("endTime").asText(null);
+    int offset = request.path("offset").asInt(0);
+    int limit = request.path("limit").asInt(Integer.MAX_VALUE);
+    List<ObjectNode> result = new ArrayList<>();
+    for (ObjectNode record : records) {
+      long time = parseTime(record.has("doneTime") ? record.get("doneTime").asText() : record.get("time").asText());
+      if ((ticket == null || ticket.equals(record.path("id").asText()))
+        && (positionId == null || positionId.equals(record.path("positionId").asText()))
+        && (startTime == null || time >= parseTime(startTime)) && (endTime == null || time <= parseTime(endTime))) {
+        result.add(record);
+      }
+    }
+    return result.subList(Math.min(offset, result.size()), (int) Math.min((long) offset + limit, result.size()));
+  }
+
+  private ObjectNode findById(List<ObjectNode> records, String id) {
+    for (ObjectNode record : records) {
+      if (record.path("id").asText().equals(id)) {
+        return record;
+      }
+    }
+    return null;
+  }
+
+  private ObjectNode createPacket(String type, String accountId) {
+    ObjectNode packet = jsonMapper.createObjectNode();
+    packet.put("type", type);
+    packet.put("accountId", accountId);
+    packet.put("host", HOST);
+    packet.put("instanceIndex", INSTANCE_INDEX);
+    return packet;
+  }
+
+  private ObjectNode createSynchronizationPacket(String type, String accountId, String synchronizationId) {
+    ObjectNode packet = createPacket(type, accountId);
+    packet.put("synchronizationId", synchronizationId);
+    return packet;
+  }
+
+  private ObjectNode createResponse(ObjectNode request, long receivedAt) {
+    ObjectNode response = jsonMapper.createObjectNode();
+    response.put("type", "response");
+    response.put("accountId", request.path("accountId").asText());
+    response.put("requestId", request.path("requestId").asText());
+    JsonNode timestamps = request.get("timestamps");
+    if (timestamps != null && timestamps.isObject()) {
+      ObjectNode responseTimestamps = ((ObjectNode) timestamps).deepCopy();
+      responseTimestamps.put("serverProcessingStarted", MarketSimulator.formatTime(receivedAt));
+      response.set("timestamps", responseTimestamps);
+    }
+    return response;
+  }
+
+  private void sendResponse(ObjectNode response) {
+    JsonNode timestamps = response.get("timestamps");
+    if (timestamps != null) {
+      ((ObjectNode) timestamps).put("serverProcessingFinished",
+        MarketSimulator.formatTime(System.currentTimeMillis()));
+    }
+    emit("response", response);
+  }
+
+  private void sendError(String accountId, String requestId, String error, String message, ObjectNode metadata) {
+    ObjectNode packet = jsonMapper.createObjectNode();
+    packet.put("id", 1);
+    packet.put("error", error);
+    packet.put("message", message);
+    if (metadata != null) {
+      packet.set("metadata", metadata);
+    }
+    packet.put("accountId", accountId);
+    packet.put("requestId", requestId);
+    emit("processingError", packet);
+  }
+
+  private void emit(String event, ObjectNode packet) {
+    server.countPacket();
+    socket.emit(event, packet);
+  }
+
+  private ArrayNode toArray(List<ObjectNode> records) {
+    ArrayNode result = jsonMapper.createArrayNode();
+    result.addAll(records);
+    return result;
+  }
+
+  private long parseTime(String time) {
+    return time != null ? Instant.parse(time).toEpochMilli() : 0;
+  }
+}
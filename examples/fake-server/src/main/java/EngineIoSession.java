@@ -0,0 +1,352 @@
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.function.BiConsumer;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import io.vertx.core.http.HttpMethod;
+import io.vertx.core.http.HttpServerRequest;
+import io.vertx.core.http.ServerWebSocket;
+
+/**
+ * Server side of an engine.io protocol 3 session carrying socket.io protocol 4 packets, which is what the
+ * socket.io 2 client of the SDK speaks. The session starts either on a websocket, or on HTTP long-polling and is
+ * then upgraded to a websocket. Only events of the default namespace are supported, which is all the SDK uses
+ */
+public class EngineIoSession {
+
+  private static final char OPEN = '0';
+  private static final char CLOSE = '1';
+  private static final char PING = '2';
+  private static final char PONG = '3';
+  private static final char MESSAGE = '4';
+  private static final char UPGRADE = '5';
+  private static final char NOOP = '6';
+  private static final char SOCKET_CONNECT = '0';
+  private static final char SOCKET_DISCONNECT = '1';
+  private static final char SOCKET_EVENT = '2';
+  private static final char SOCKET_ACK = '3';
+
+  private String id;
+  private long pingInterval;
+  private long pingTimeout;
+  private ObjectMapper jsonMapper;
+  private BiConsumer<String, JsonNode> eventHandler;
+  private Runnable closeHandler;
+  private ServerWebSocket webSocket;
+  private ServerWebSocket probingWebSocket;
+  private Queue<String> pollingQueue = new ArrayDeque<>();
+  private HttpServerRequest poll;
+  private volatile long lastReceivedAt = System.currentTimeMillis();
+  private boolean closed = false;
+
+  /**
+   * Constructs the session
+   * @param id session id
+   * @param pingInterval interval of client pings in milliseconds
+   * @param pingTimeout time to wait for a ping after the interval in milliseconds
+   * @param jsonMapper JSON mapper
+   * @param eventHandler handler of received socket.io events, receiving the event name and its first argument
+   * @param closeHandler handler invoked once the session is closed
+   */
+  public EngineIoSession(String id, long pingInterval, long pingTimeout, ObjectMapper jsonMapper,
+    BiConsumer<String, JsonNode> eventHandler, Runnable closeHandler) {
+    this.id = id;
+    this.pingInterval = pingInterval;
+    this.pingTimeout = pingTimeout;
+    this.jsonMapper = jsonMapper;
+    this.eventHandler = eventHandler;
+    this.closeHandler = closeHandler;
+  }
+
+  /**
+   * Returns session id
+   * @return session id
+   */
+  public String getId() {
+    return id;
+  }
+
+  /**
+   * Returns whether no packet was received within the ping interval and timeout
+   * @param now current time in epoch milliseconds
+   * @return whether the session timed out
+   */
+  public boolean isTimedOut(long now) {
+    return now - lastReceivedAt > pingInterval + pingTimeout;
+  }
+
+  /**
+   * Starts the session on a websocket
+   * @param webSocket websocket
+   */
+  public synchronized void open(ServerWebSocket webSocket) {
+    this.webSocket = webSocket;
+    webSocket.textMessageHandler(this::onWebSocketMessage);
+    webSocket.closeHandler(v -> close());
+    send(OPEN + handshake(false));
+    send(MESSAGE + "" + SOCKET_CONNECT);
+  }
+
+  /**
+   * Starts the session on HTTP long-polling by responding to the first poll
+   * @param request first polling request
+   */
+  public synchronized void open(HttpServerRequest request) {
+    send(OPEN + handshake(true));
+    send(MESSAGE + "" + SOCKET_CONNECT);
+    handlePolling(request);
+  }
+
+  /**
+   * Starts upgrading a polling session to a websocket
+   * @param webSocket websocket opened with the session id
+   */
+  public synchronized void upgrade(ServerWebSocket webSocket) {
+    probingWebSocket = webSocket;
+    webSocket.textMessageHandler(message -> onProbeMessage(webSocket, message));
+    webSocket.closeHandler(v -> {
+      synchronized (this) {
+        if (this.webSocket == webSocket) {
+          close();
+        }
+      }
+    });
+  }
+
+  /**
+   * Handles a polling request of the session, i.e. a GET request waiting for packets or a POST request carrying
+   * packets
+   * @param request polling request
+   */
+  public synchronized void handlePolling(HttpServerRequest request) {
+    if (request.method().equals(HttpMethod.POST)) {
+      request.bodyHandler(body -> {
+        try {
+          for (String packet : decodePayload(body.toString())) {
+            onPacket(packet);
+          }
+          respond(request, "ok");
+        } catch (IllegalArgumentException e) {
+          request.response().setStatusCode(400).end(e.getMessage());
+        }
+      });
+      return;
+    }
+    if (poll != null) {
+      respond(poll, String.valueOf(NOOP));
+    }
+    poll = request;
+    if (closed) {
+      flushPoll(String.valueOf(CLOSE));
+    } else if (!pollingQueue.isEmpty() || webSocket != null) {
+      flushPoll(null);
+    }
+  }
+
+  /**
+   * Emits a socket.io event
+   * @param event event name
+   * @param payload event argument
+   */
+  public void emit(String event, JsonNode payload) {
+    ArrayNode packet = jsonMapper.createArrayNode();
+    packet.add(event);
+    packet.add(payload);
+    send(MESSAGE + "" + SOCKET_EVENT + packet.toString());
+  }
+
+  /**
+   * Closes the session and its transport. The client will reconnect
+   */
+  public void close() {
+    ServerWebSocket closedWebSocket;
+    synchronized (this) {
+      if (closed) {
+        return;
+      }
+      closed = true;
+      closedWebSocket = webSocket;
+      flushPoll(String.valueOf(CLOSE));
+    }
+    if (closedWebSocket != null) {
+      try {
+        closedWebSocket.close();
+      } catch (Exception err) {
+        // already closed by the client
+      }
+    }
+    closeHandler.run();
+  }
+
+  private synchronized void send(String packet) {
+    if (closed) {
+      return;
+    }
+    if (webSocket != null) {
+      webSocket.writeTextMessage(packet);
+    } else {
+      pollingQueue.add(packet);
+      if (poll != null) {
+        flushPoll(null);
+      }
+    }
+  }
+
+  private void flushPoll(String lastPacket) {
+    if (poll == null) {
+      return;
+    }
+    StringBuilder payload = new StringBuilder();
+    String packet;
+    while ((packet = pollingQueue.poll()) != null) {
+      payload.append(packet.length()).append(':').append(packet);
+    }
+    if (lastPacket != null || payload.length() == 0) {
+      String last = lastPacket != null ? lastPacket : String.valueOf(NOOP);
+      payload.append(last.length()).append(':').append(last);
+    }
+    respond(poll, payload.toString());
+    poll = null;
+  }
+
+  private void respond(HttpServerRequest request, String body) {
+    try {
+      request.response().putHeader("Content-Type", "text/plain; charset=UTF-8").end(body);
+    } catch (IllegalStateException e) {
+      // the client has closed the request
+    }
+  }
+
+  private void onWebSocketMessage(String message) {
+    onPacket(message);
+  }
+
+  private void onProbeMessage(ServerWebSocket probe, String message) {
+    lastReceivedAt = System.currentTimeMillis();
+    if (message.equals(PING + "probe")) {
+      probe.writeTextMessage(PONG + "probe");
+    } else if (message.equals(String.valueOf(UPGRADE))) {
+      synchronized (this) {
+        if (closed || probingWebSocket != probe) {
+          probe.close();
+          return;
+        }
+        probingWebSocket = null;
+        // let the pending poll return, then continue on the websocket only
+        flushPoll(null);
+        webSocket = probe;
+        probe.textMessageHandler(this::onWebSocketMessage);
+        String packet;
+        while ((packet = pollingQueue.poll()) != null) {
+          probe.writeTextMessage(packet);
+        }
+      }
+    } else {
+      onPacket(message);
+    }
+  }
+
+  private void onPacket(String packet) {
+    lastReceivedAt = System.currentTimeMillis();
+    if (packet.isEmpty()) {
+      return;
+    }
+    switch (packet.charAt(0)) {
+      case PING:
+        send(PONG + packet.substring(1));
+        break;
+      case MESSAGE:
+        onSocketIoPacket(packet.substring(1));
+        break;
+      case CLOSE:
+        close();
+        break;
+      default:
+        break;
+    }
+  }
+
+  private void onSocketIoPacket(String packet) {
+    if (packet.isEmpty()) {
+      return;
+    }
+    char type = packet.charAt(0);
+    int position = 1;
+    // skip the namespace, only the default namespace is served
+    if (position < packet.length() && packet.charAt(position) == '/') {
+      int end = packet.indexOf(',', position);
+      position = end != -1 ? end + 1 : packet.length();
+    }
+    int ackStart = position;
+    while (position < packet.length() && Character.isDigit(packet.charAt(position))) {
+      position++;
+    }
+    String ackId = position > ackStart ? packet.substring(ackStart, position) : null;
+    if (type == SOCKET_CONNECT) {
+      send(MESSAGE + "" + SOCKET_CONNECT);
+    } else if (type == SOCKET_DISCONNECT) {
+      close();
+    } else if (type == SOCKET_EVENT) {
+      JsonNode event;
+      try {
+        event = jsonMapper.readTree(packet.substring(position));
+      } catch (IOException e) {
+        System.err.println("Fake server received invalid socket.io event: " + packet);
+        return;
+      }
+      if (ackId != null) {
+        send(MESSAGE + "" + SOCKET_ACK + ackId + "[]");
+      }
+      if (event.isArray() && event.size() > 0) {
+        eventHandler.accept(event.get(0).asText(), event.size() > 1 ? event.get(1) : null);
+      }
+    }
+  }
+
+  private String handshake(boolean polling) {
+    ObjectNode handshake = jsonMapper.createObjectNode();
+    handshake.put("sid", id);
+    ArrayNode upgrades = handshake.putArray("upgrades");
+    if (polling) {
+      upgrades.add("websocket");
+    }
+    handshake.put("pingInterval", pingInterval);
+    handshake.put("pingTimeout", pingTimeout);
+    return handshake.toString();
+  }
+
+  /**
+   * Decodes an engine.io protocol 3 text payload, i.e. packets prefixed with their length and a colon
+   * @param payload payload
+   * @return packets
+   */
+  static List<String> decodePayload(String payload) {
+    List<String> packets = new ArrayList<>();
+    int position = 0;
+    while (position < payload.length()) {
+      int colon = payload.indexOf(':', position);
+      if (colon == -1) {
+        throw new IllegalArgumentException("Invalid polling payload");
+      }
+      int length;
+      try {
+        length = Integer.parseInt(payload.substring(position, colon));
+      } catch (NumberFormatException e) {
+        throw new IllegalArgumentException("Invalid polling payload");
+      }
+      if (colon + 1 + length > payload.length()) {
+        throw new IllegalArgumentException("Invalid polling payload");
+      }
+      packets.add(payload.substring(colon + 1, colon + 1 + length));
+      position = colon + 1 + length;
+    }
+    return packets;
+  }
+}
@@ -0,0 +1,529 @@
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * Simulated MetaTrader account of the fake server. Keeps the deployment state, balance, positions, pending orders
+ * and history, executes trades at the prices of the {@link MarketSimulator} and reports the changes in the format
+ * of {@code update} synchronization packets
+ */
+public class FakeAccount {
+
+  private static final long DAY_IN_MILLISECONDS = 24 * 60 * 60 * 1000;
+
+  /**
+   * Result of a trade
+   */
+  public static class TradeResult {
+    /**
+     * Trade response in the format of the {@code response} field of a trade response packet
+     */
+    public ObjectNode response;
+    /**
+     * Changes caused by the trade in the format of an {@code update} packet, or {@code null} if the trade failed
+     */
+    public ObjectNode update;
+  }
+
+  private ObjectMapper jsonMapper = new ObjectMapper();
+  private MarketSimulator market;
+  private String id;
+  private String name;
+  private String login;
+  private String state = "DEPLOYED";
+  private String connectionStatus = "CONNECTED";
+  private double balance = 0;
+  private long nextTicket;
+  private Map<String, ObjectNode> positions = new LinkedHashMap<>();
+  private Map<String, ObjectNode> orders = new LinkedHashMap<>();
+  private List<ObjectNode> historyOrders = new ArrayList<>();
+  private List<ObjectNode> deals = new ArrayList<>();
+
+  /**
+   * Constructs the account with a synthetic history of the last 30 days
+   * @param id account id
+   * @param number account number used to derive the login, tickets and history
+   * @param market market to trade on
+   * @param historyDeals number of deals in the history
+   */
+  public FakeAccount(String id, int number, MarketSimulator market, int historyDeals) {
+    this.id = id;
+    this.name = "Fake account " + number;
+    this.login = String.valueOf(50000000 + number);
+    this.market = market;
+    this.nextTicket = 10000000L * (number + 1);
+    Random random = new Random(number);
+    long now = System.currentTimeMillis();
+    long time = now - 30 * DAY_IN_MILLISECONDS;
+    ObjectNode deposit = createDeal(time, "DEAL_TYPE_BALANCE", null, null, 0, 0, 10000, null, null);
+    deposit.put("comment", "Deposit");
+    deals.add(deposit);
+    balance = 10000;
+    List<String> symbols = market.getSymbols();
+    long step = 30 * DAY_IN_MILLISECONDS / Math.max(historyDeals, 1);
+    for (int i = 1; i + 1 < historyDeals; i += 2) {
+      String symbol = symbols.get(random.nextInt(symbols.size()));
+      boolean buy = random.nextBoolean();
+      double volume = 0.01 * (1 + random.nextInt(10));
+      double openPrice = market.getBid(symbol) * (1 + random.nextGaussian() * 0.002);
+      double profit = Math.round(random.nextGaussian() * 2000 * volume) / 100.0;
+      String positionId = String.valueOf(nextTicket++);
+      time += step;
+      historyOrders.add(createOrder(time, positionId, buy ? "ORDER_TYPE_BUY" : "ORDER_TYPE_SELL",
+        "ORDER_STATE_FILLED", symbol, volume, openPrice, positionId));
+      deals.add(createDeal(time, buy ? "DEAL_TYPE_BUY" : "DEAL_TYPE_SELL", "DEAL_ENTRY_IN", symbol, volume,
+        openPrice, 0, positionId, positionId));
+      time += step;
+      String closeOrderId = String.valueOf(nextTicket++);
+      historyOrders.add(createOrder(time, closeOrderId, buy ? "ORDER_TYPE_SELL" : "ORDER_TYPE_BUY",
+        "ORDER_STATE_FILLED", symbol, volume, openPrice, positionId));
+      deals.add(createDeal(time, buy ? "DEAL_TYPE_SELL" : "DEAL_TYPE_BUY", "DEAL_ENTRY_OUT", symbol, volume,
+        openPrice, profit, positionId, closeOrderId));
+      balance += profit;
+    }
+  }
+
+  /**
+   * Returns account id
+   * @return account id
+   */
+  public String getId() {
+    return id;
+  }
+
+  /**
+   * Returns deployment state
+   * @return deployment state
+   */
+  public synchronized String getState() {
+    return state;
+  }
+
+  /**
+   * Sets deployment state and the matching connection status
+   * @param state deployment state
+   */
+  public synchronized void setState(String state) {
+    this.state = state;
+    this.connectionStatus = "DEPLOYED".equals(state) ? "CONNECTED" : "DISCONNECTED";
+  }
+
+  /**
+   * Sets account name
+   * @param name account name
+   */
+  public synchronized void setName(String name) {
+    this.name = name;
+  }
+
+  /**
+   * Returns the account in the format of the provisioning API
+   * @return account
+   */
+  public synchronized ObjectNode toJson() {
+    ObjectNode account = jsonMapper.createObjectNode();
+    account.put("_id", id);
+    account.put("name", name);
+    account.put("type", "cloud");
+    account.put("login", login);
+    account.put("server", "FakeBroker-Demo");
+    account.put("provisioningProfileId", "fake-provisioning-profile");
+    account.put("application", "MetaApi");
+    account.put("magic", 0);
+    account.put("state", state);
+    account.put("connectionStatus", connectionStatus);
+    account.put("reliability", "regular");
+    account.put("platform", "mt5");
+    return account;
+  }
+
+  /**
+   * Returns account information
+   * @return account information
+   */
+  public synchronized ObjectNode getAccountInformation() {
+    double equity = balance;
+    double margin = 0;
+    for (ObjectNode position : positions.values()) {
+      updateProfit(position);
+      equity += position.get("profit").asDouble();
+      margin += position.get("volume").asDouble() * market.getContractSize(position.get("symbol").asText())
+        * position.get("openPrice").asDouble() / 100;
+    }
+    ObjectNode information = jsonMapper.createObjectNode();
+    information.put("platform", "mt5");
+    information.put("broker", "Fake Broker Ltd");
+    information.put("currency", "USD");
+    information.put("server", "FakeBroker-Demo");
+    information.put("balance", round(balance));
+    information.put("equity", round(equity));
+    information.put("margin", round(margin));
+    information.put("freeMargin", round(equity - margin));
+    information.put("leverage", 100);
+    if (margin != 0) {
+      information.put("marginLevel", round(equity / margin * 100));
+    }
+    information.put("tradeAllowed", true);
+    information.put("marginMode", "ACCOUNT_MARGIN_MODE_RETAIL_HEDGING");
+    information.put("name", name);
+    information.put("login", Long.parseLong(login));
+    information.put("credit", 0);
+    return information;
+  }
+
+  /**
+   * Returns open positions with current prices and profits
+   * @return positions
+   */
+  public synchronized List<ObjectNode> getPositions() {
+    List<ObjectNode> result = new ArrayList<>();
+    for (ObjectNode position : positions.values()) {
+      updateProfit(position);
+      result.add(position.deepCopy());
+    }
+    return result;
+  }
+
+  /**
+   * Returns pending orders
+   * @return orders
+   */
+  public synchronized List<ObjectNode> getOrders() {
+    List<ObjectNode> result = new ArrayList<>();
+    for (ObjectNode order : orders.values()) {
+      result.add(order.deepCopy());
+    }
+    return result;
+  }
+
+  /**
+   * Returns history orders done at or after a time
+   * @param from start time in epoch milliseconds
+   * @return history orders in time order
+   */
+  public synchronized List<ObjectNode> getHistoryOrders(long from) {
+    return filterByTime(historyOrders, from);
+  }
+
+  /**
+   * Returns deals done at or after a time
+   * @param from start time in epoch milliseconds
+   * @return deals in time order
+   */
+  public synchronized List<ObjectNode> getDeals(long from) {
+    return filterByTime(deals, from);
+  }
+
+  /**
+   * Executes a trade request
+   * @param trade {@code trade} field of the trade request packet
+   * @return trade result
+   */
+  public synchronized TradeResult trade(JsonNode trade) {
+    String actionType = trade.path("actionType").asText();
+    String symbol = trade.path("symbol").asText(null);
+    double volume = trade.path("volume").asDouble();
+    long now = System.currentTimeMillis();
+    ObjectNode update = createUpdate();
+    switch (actionType) {
+      case "ORDER_TYPE_BUY":
+      case "ORDER_TYPE_SELL": {
+        if (symbol == null || !market.hasSymbol(symbol)) {
+          return failure(10013, "TRADE_RETCODE_INVALID", "Unknown symbol " + symbol);
+        }
+        if (!(volume > 0)) {
+          return failure(10014, "TRADE_RETCODE_INVALID_VOLUME", "Invalid volume " + volume);
+        }
+        boolean buy = actionType.equals("ORDER_TYPE_BUY");
+        double price = buy ? market.getAsk(symbol) : market.getBid(symbol);
+        String orderId = String.valueOf(nextTicket++);
+        ObjectNode position = jsonMapper.createObjectNode();
+        position.put("id", orderId);
+        position.put("type", buy ? "POSITION_TYPE_BUY" : "POSITION_TYPE_SELL");
+        position.put("symbol", symbol);
+        position.put("magic", 0);
+        position.put("time", MarketSimulator.formatTime(now));
+        position.put("brokerTime", MarketSimulator.formatBrokerTime(now));
+        position.put("updateTime", MarketSimulator.formatTime(now));
+        position.put("openPrice", price);
+        position.put("volume", volume);
+        position.put("swap", 0);
+        position.put("commission", 0);
+        position.put("realizedProfit", 0);
+        copyProtection(trade, position);
+        copyComments(trade, position);
+        positions.put(orderId, position);
+        updateProfit(position);
+        ObjectNode historyOrder = createOrder(now, orderId, actionType, "ORDER_STATE_FILLED", symbol, volume, price,
+          orderId);
+        copyComments(trade, historyOrder);
+        ObjectNode deal = createDeal(now, buy ? "DEAL_TYPE_BUY" : "DEAL_TYPE_SELL", "DEAL_ENTRY_IN", symbol, volume,
+          price, 0, orderId, orderId);
+        copyComments(trade, deal);
+        historyOrders.add(historyOrder);
+        deals.add(deal);
+        update.withArray("updatedPositions").add(position.deepCopy());
+        update.withArray("historyOrders").add(historyOrder.deepCopy());
+        update.withArray("deals").add(deal.deepCopy());
+        return success(10009, "TRADE_RETCODE_DONE", orderId, orderId, update);
+      }
+      case "ORDER_TYPE_BUY_LIMIT":
+      case "ORDER_TYPE_SELL_LIMIT":
+      case "ORDER_TYPE_BUY_STOP":
+      case "ORDER_TYPE_SELL_STOP":
+      case "ORDER_TYPE_BUY_STOP_LIMIT":
+      case "ORDER_TYPE_SELL_STOP_LIMIT": {
+        if (symbol == null || !market.hasSymbol(symbol)) {
+          return failure(10013, "TRADE_RETCODE_INVALID", "Unknown symbol " + symbol);
+        }
+        if (!(volume > 0)) {
+          return failure(10014, "TRADE_RETCODE_INVALID_VOLUME", "Invalid volume " + volume);
+        }
+        if (!trade.hasNonNull("openPrice")) {
+          return failure(10015, "TRADE_RETCODE_INVALID_PRICE", "Open price is required");
+        }
+        String orderId = String.valueOf(nextTicket++);
+        ObjectNode order = createOrder(now, orderId, actionType, "ORDER_STATE_PLACED", symbol, volume,
+          trade.get("openPrice").asDouble(), null);
+        order.put("currentPrice", actionType.contains("BUY") ? market.getAsk(symbol) : market.getBid(symbol));
+        order.put("currentVolume", volume);
+        if (trade.hasNonNull("stopLimitPrice")) {
+          order.put("stopLimitPrice", trade.get("stopLimitPrice").asDouble());
+        }
+        copyProtection(trade, order);
+        copyComments(trade, order);
+        orders.put(orderId, order);
+        update.withArray("updatedOrders").add(order.deepCopy());
+        return success(10008, "TRADE_RETCODE_PLACED", orderId, null, update);
+      }
+      case "POSITION_MODIFY": {
+        ObjectNode position = positions.get(trade.path("positionId").asText());
+        if (position == null) {
+          return failure(4753, "ERR_TRADE_POSITION_NOT_FOUND", "Position not found");
+        }
+        copyProtection(trade, position);
+        position.put("updateTime", MarketSimulator.formatTime(now));
+        updateProfit(position);
+        update.withArray("updatedPositions").add(position.deepCopy());
+        return success(10009, "TRADE_RETCODE_DONE", null, position.get("id").asText(), update);
+      }
+      case "POSITION_PARTIAL":
+      case "POSITION_CLOSE_ID": {
+        ObjectNode position = positions.get(trade.path("positionId").asText());
+        if (position == null) {
+          return failure(4753, "ERR_TRADE_POSITION_NOT_FOUND", "Position not found");
+        }
+        double closeVolume = actionType.equals("POSITION_PARTIAL") ? volume : position.get("volume").asDouble();
+        if (!(closeVolume > 0) || closeVolume > position.get("volume").asDouble() + 1e-9) {
+          return failure(10014, "TRADE_RETCODE_INVALID_VOLUME", "Invalid volume " + closeVolume);
+        }
+        String orderId = closePosition(position, closeVolume, trade, now, update);
+        return success(10009, "TRADE_RETCODE_DONE", orderId, position.get("id").asText(), update);
+      }
+      case "POSITIONS_CLOSE_SYMBOL": {
+        String orderId = null;
+        for (ObjectNode position : new ArrayList<>(positions.values())) {
+          if (position.get("symbol").asText().equals(symbol)) {
+            orderId = closePosition(position, position.get("volume").asDouble(), trade, now, update);
+          }
+        }
+        if (orderId == null) {
+          return failure(4753, "ERR_TRADE_POSITION_NOT_FOUND", "No positions of " + symbol);
+        }
+        return success(10009, "TRADE_RETCODE_DONE", orderId, null, update);
+      }
+      case "ORDER_MODIFY": {
+        ObjectNode order = orders.get(trade.path("orderId").asText());
+        if (order == null) {
+          return failure(4754, "ERR_TRADE_ORDER_NOT_FOUND", "Order not found");
+        }
+        if (trade.hasNonNull("openPrice")) {
+          order.put("openPrice", trade.get("openPrice").asDouble());
+        }
+        copyProtection(trade, order);
+        update.withArray("updatedOrders").add(order.deepCopy());
+        return success(10009, "TRADE_RETCODE_DONE", order.get("id").asText(), null, update);
+      }
+      case "ORDER_CANCEL": {
+        ObjectNode order = orders.remove(trade.path("orderId").asText());
+        if (order == null) {
+          return failure(4754, "ERR_TRADE_ORDER_NOT_FOUND", "Order not found");
+        }
+        order.put("state", "ORDER_STATE_CANCELED");
+        order.put("doneTime", MarketSimulator.formatTime(now));
+        order.put("doneBrokerTime", MarketSimulator.formatBrokerTime(now));
+        historyOrders.add(order);
+        update.withArray("completedOrderIds").add(order.get("id").asText());
+        update.withArray("historyOrders").add(order.deepCopy());
+        return success(10009, "TRADE_RETCODE_DONE", order.get("id").asText(), null, update);
+      }
+      default:
+        return failure(10013, "TRADE_RETCODE_INVALID", "Unsupported action type " + actionType);
+    }
+  }
+
+  private String closePosition(ObjectNode position, double volume, JsonNode trade, long now, ObjectNode update) {
+    updateProfit(position);
+    String symbol = position.get("symbol").asText();
+    boolean buy = position.get("type").asText().equals("POSITION_TYPE_BUY");
+    double price = buy ? market.getBid(symbol) : market.getAsk(symbol);
+    double profit = round((buy ? 1 : -1) * (price - position.get("openPrice").asDouble()) * volume
+      * market.getContractSize(symbol));
+    String orderId = String.valueOf(nextTicket++);
+    String positionId = position.get("id").asText();
+    ObjectNode historyOrder = createOrder(now, orderId, buy ? "ORDER_TYPE_SELL" : "ORDER_TYPE_BUY",
+      "ORDER_STATE_FILLED", symbol, volume, price, positionId);
+    copyComments(trade, historyOrder);
+    ObjectNode deal = createDeal(now, buy ? "DEAL_TYPE_SELL" : "DEAL_TYPE_BUY", "DEAL_ENTRY_OUT", symbol, volume,
+      price, profit, positionId, orderId);
+    copyComments(trade, deal);
+    historyOrders.add(historyOrder);
+    deals.add(deal);
+    balance += profit;
+    double remaining = round(position.get("volume").asDouble() - volume);
+    if (remaining > 0) {
+      position.put("volume", remaining);
+      position.put("realizedProfit", round(position.get("realizedProfit").asDouble() + profit));
+      position.put("updateTime", MarketSimulator.formatTime(now));
+      updateProfit(position);
+      update.withArray("updatedPositions").add(position.deepCopy());
+    } else {
+      positions.remove(positionId);
+      update.withArray("removedPositionIds").add(positionId);
+    }
+    update.withArray("historyOrders").add(historyOrder.deepCopy());
+    update.withArray("deals").add(deal.deepCopy());
+    return orderId;
+  }
+
+  private ObjectNode createUpdate() {
+    ObjectNode update = jsonMapper.createObjectNode();
+    update.put("type", "update");
+    return update;
+  }
+
+  private TradeResult success(int numericCode, String stringCode, String orderId, String positionId,
+    ObjectNode update) {
+    TradeResult result = new TradeResult();
+    result.response = jsonMapper.createObjectNode();
+    result.response.put("numericCode", numericCode);
+    result.response.put("stringCode", stringCode);
+    result.response.put("message", "Request completed");
+    if (orderId != null) {
+      result.response.put("orderId", orderId);
+    }
+    if (positionId != null) {
+      result.response.put("positionId", positionId);
+    }
+    update.set("accountInformation", getAccountInformation());
+    result.update = update;
+    return result;
+  }
+
+  private TradeResult failure(int numericCode, String stringCode, String message) {
+    TradeResult result = new TradeResult();
+    result.response = jsonMapper.createObjectNode();
+    result.response.put("numericCode", numericCode);
+    result.response.put("stringCode", stringCode);
+    result.response.put("message", message);
+    return result;
+  }
+
+  private ObjectNode createOrder(long time, String id, String type, String state, String symbol, double volume,
+    double openPrice, String positionId) {
+    ObjectNode order = jsonMapper.createObjectNode();
+    order.put("id", id);
+    order.put("type", type);
+    order.put("state", state);
+    order.put("magic", 0);
+    order.put("time", MarketSimulator.formatTime(time));
+    order.put("brokerTime", MarketSimulator.formatBrokerTime(time));
+    if (state.equals("ORDER_STATE_FILLED")) {
+      order.put("doneTime", MarketSimulator.formatTime(time));
+      order.put("doneBrokerTime", MarketSimulator.formatBrokerTime(time));
+      order.put("currentVolume", 0);
+    }
+    order.put("symbol", symbol);
+    order.put("openPrice", openPrice);
+    order.put("volume", volume);
+    if (positionId != null) {
+      order.put("positionId", positionId);
+    }
+    order.put("fillingMode", "ORDER_FILLING_FOK");
+    order.put("expirationType", "ORDER_TIME_GTC");
+    return order;
+  }
+
+  private ObjectNode createDeal(long time, String type, String entryType, String symbol, double volume,
+    double price, double profit, String positionId, String orderId) {
+    ObjectNode deal = jsonMapper.createObjectNode();
+    deal.put("id", String.valueOf(nextTicket++));
+    deal.put("type", type);
+    if (entryType != null) {
+      deal.put("entryType", entryType);
+      deal.put("symbol", symbol);
+      deal.put("magic", 0);
+      deal.put("volume", volume);
+      deal.put("price", price);
+      deal.put("commission", 0);
+      deal.put("swap", 0);
+      deal.put("positionId", positionId);
+      deal.put("orderId", orderId);
+    }
+    deal.put("time", MarketSimulator.formatTime(time));
+    deal.put("brokerTime", MarketSimulator.formatBrokerTime(time));
+    deal.put("profit", profit);
+    return deal;
+  }
+
+  private void updateProfit(ObjectNode position) {
+    String symbol = position.get("symbol").asText();
+    boolean buy = position.get("type").asText().equals("POSITION_TYPE_BUY");
+    double currentPrice = buy ? market.getBid(symbol) : market.getAsk(symbol);
+    double profit = round((buy ? 1 : -1) * (currentPrice - position.get("openPrice").asDouble())
+      * position.get("volume").asDouble() * market.getContractSize(symbol));
+    position.put("currentPrice", currentPrice);
+    position.put("currentTickValue", 1);
+    position.put("profit", profit);
+    position.put("unrealizedProfit", profit);
+  }
+
+  private void copyProtection(JsonNode trade, ObjectNode target) {
+    for (String field : new String[] {"stopLoss", "takeProfit"}) {
+      if (trade.hasNonNull(field)) {
+        target.put(field, trade.get(field).asDouble());
+      }
+    }
+  }
+
+  private void copyComments(JsonNode trade, ObjectNode target) {
+    for (String field : new String[] {"comment", "clientId"}) {
+      if (trade.hasNonNull(field)) {
+        target.put(field, trade.get(field).asText());
+      }
+    }
+  }
+
+  private List<ObjectNode> filterByTime(List<ObjectNode> records, long from) {
+    List<ObjectNode> result = new ArrayList<>();
+    String fromTime = MarketSimulator.formatTime(from);
+    for (ObjectNode record : records) {
+      // times have the same format, so comparing them as strings compares them in time
+      String time = record.has("doneTime") ? record.get("doneTime").asText() : record.get("time").asText();
+      if (time.compareTo(fromTime) >= 0) {
+        result.add(record.deepCopy());
+      }
+    }
+    return result;
+  }
+
+  private double round(double value) {
+    return Math.round(value * 100) / 100.0;
+  }
+}
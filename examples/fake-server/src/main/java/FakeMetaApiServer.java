@@ -0,0 +1,482 @@
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpServer;
+import io.vertx.core.http.HttpServerOptions;
+import io.vertx.core.http.HttpServerRequest;
+import io.vertx.core.http.ServerWebSocket;
+import io.vertx.core.net.PfxOptions;
+
+/**
+ * Embeddable stand-in for the MetaApi servers, for load and soak testing integrations without a token or deployed
+ * accounts. It serves the provisioning REST API and the socket.io streaming API on one port for any number of
+ * simulated accounts, synthesizes prices, ticks, books, candles, history and trade results, and can inject
+ * latency, disconnects and rate limit errors. Point the SDK at it with {@code MetaApi.Options.domain} set to
+ * {@link Options#domain}, after making the {@code mt-provisioning-api-v1} and {@code mt-client-api-v1} subdomains
+ * of the domain host resolve to the server address, and trusting the self-signed certificate generated on the
+ * first start, see {@link #getKeyStorePath()}
+ */
+public class FakeMetaApiServer {
+
+  private static final long PING_INTERVAL_IN_MILLISECONDS = 25000;
+  private static final long PING_TIMEOUT_IN_MILLISECONDS = 60000;
+
+  /**
+   * Fake server options
+   */
+  public static class Options {
+    /**
+     * Address to listen on. Default is 127.0.0.1
+     */
+    public String host = "127.0.0.1";
+    /**
+     * Port to listen on. Default is 8443
+     */
+    public int port = 8443;
+    /**
+     * Domain the SDK is configured with, including the port unless it is 443. The certificate is issued for the
+     * subdomains of its host. Default is localhost:8443
+     */
+    public String domain = "localhost:8443";
+    /**
+     * Token clients must authenticate with, or {@code null} to accept any token. Default is null
+     */
+    public String token;
+    /**
+     * Number of simulated accounts. Default is 1000
+     */
+    public int accounts = 1000;
+    /**
+     * Simulated symbols. Default is EURUSD, GBPUSD, USDJPY and XAUUSD
+     */
+    public List<String> symbols = Arrays.asList("EURUSD", "GBPUSD", "USDJPY", "XAUUSD");
+    /**
+     * Number of deals in the synthetic history of each account. Default is 100
+     */
+    public int historyDeals = 100;
+    /**
+     * Number of market data packets per second sent for every account with market data subscriptions. Default is
+     * 10
+     */
+    public double marketDataPerSecond = 10;
+    /**
+     * Number of order book levels per side. Default is 10
+     */
+    public int bookDepth = 10;
+    /**
+     * Delay added to every request in milliseconds. Default is 0
+     */
+    public long latencyInMilliseconds = 0;
+    /**
+     * Maximum random delay added to the latency in milliseconds. Default is 0
+     */
+    public long latencyJitterInMilliseconds = 0;
+    /**
+     * Interval to close a random streaming connection at in milliseconds, or 0 to never close connections.
+     * Default is 0
+     */
+    public long disconnectIntervalInMilliseconds = 0;
+    /**
+     * Fraction of requests answered with a too many requests error. Default is 0
+     */
+    public double tooManyRequestsRate = 0;
+    /**
+     * Time clients are asked to wait before retrying a rejected request in milliseconds. Default is 1000
+     */
+    public long retryAfterInMilliseconds = 1000;
+    /**
+     * Time it takes to deploy or undeploy an account in milliseconds. Default is 1000
+     */
+    public long deployDelayInMilliseconds = 1000;
+    /**
+     * Whether to serve HTTPS. The SDK only connects via HTTPS. Default is true
+     */
+    public boolean ssl = true;
+    /**
+     * PKCS12 key store with the server certificate, generated if it does not exist. Default is fake-metaapi.p12
+     */
+    public String keyStorePath = "fake-metaapi.p12";
+    /**
+     * Key store password. Default is fake-metaapi
+     */
+    public String keyStorePassword = "fake-metaapi";
+  }
+
+  /**
+   * Load metrics of the server
+   */
+  public static class Metrics {
+    /**
+     * Number of open streaming connections
+     */
+    public int sessions;
+    /**
+     * Number of received REST and streaming requests
+     */
+    public long requests;
+    /**
+     * Number of requests rejected with a too many requests error
+     */
+    public long rejectedRequests;
+    /**
+     * Number of sent streaming packets
+     */
+    public long packets;
+    /**
+     * Number of injected disconnects
+     */
+    public long disconnects;
+  }
+
+  private Vertx vertx;
+  private Options options;
+  private ObjectMapper jsonMapper = new ObjectMapper();
+  private MarketSimulator market;
+  private ProvisioningApi provisioningApi;
+  private Map<String, FakeAccount> accounts = new ConcurrentSkipListMap<>();
+  private Map<String, ClientSession> sessions = new ConcurrentHashMap<>();
+  private AtomicInteger accountCount = new AtomicInteger();
+  private AtomicLong requests = new AtomicLong();
+  private AtomicLong rejectedRequests = new AtomicLong();
+  private AtomicLong packets = new AtomicLong();
+  private AtomicLong disconnects = new AtomicLong();
+  private HttpServer httpServer;
+  private List<Long> timerIds = new ArrayList<>();
+
+  /**
+   * Constructs the server and its accounts
+   * @param vertx Vert.x instance to run the server on
+   * @param options server options
+   */
+  public FakeMetaApiServer(Vertx vertx, Options options) {
+    this.vertx = vertx;
+    this.options = options;
+    this.market = new MarketSimulator(options.symbols);
+    this.provisioningApi = new ProvisioningApi(this, jsonMapper);
+    for (int i = 0; i < options.accounts; i++) {
+      createAccount(null);
+    }
+  }
+
+  /**
+   * Starts listening and streaming
+   * @return future resolving when the server listens
+   */
+  public Future<Void> start() {
+    HttpServerOptions httpOptions = new HttpServerOptions().setHost(options.host).setPort(options.port);
+    if (options.ssl) {
+      generateKeyStore();
+      httpOptions.setSsl(true).setKeyCertOptions(new PfxOptions().setPath(options.keyStorePath)
+        .setPassword(options.keyStorePassword));
+    }
+    httpServer = vertx.createHttpServer(httpOptions)
+      .webSocketHandler(this::handleWebSocket)
+      .requestHandler(this::handleRequest);
+    return httpServer.listen().map(server -> {
+      long marketDataPeriod = Math.max(1, Math.round(1000 / options.marketDataPerSecond));
+      timerIds.add(vertx.setPeriodic(marketDataPeriod, id -> {
+        market.step(System.currentTimeMillis());
+        for (ClientSession session : sessions.values()) {
+          session.streamMarketData();
+        }
+      }));
+      timerIds.add(vertx.setPeriodic(1000, id -> {
+        long now = System.currentTimeMillis();
+        for (ClientSession session : sessions.values()) {
+          if (session.getSocket().isTimedOut(now)) {
+            session.getSocket().close();
+          } else {
+            session.streamStatus();
+          }
+        }
+      }));
+      if (options.disconnectIntervalInMilliseconds > 0) {
+        timerIds.add(vertx.setPeriodic(options.disconnectIntervalInMilliseconds, id -> disconnectRandomSession()));
+      }
+      return null;
+    });
+  }
+
+  /**
+   * Stops the server and closes all connections
+   * @return future resolving when the server is closed
+   */
+  public Future<Void> close() {
+    for (long timerId : timerIds) {
+      vertx.cancelTimer(timerId);
+    }
+    timerIds.clear();
+    for (ClientSession session : new ArrayList<>(sessions.values())) {
+      session.getSocket().close();
+    }
+    return httpServer != null ? httpServer.close() : Future.succeededFuture();
+  }
+
+  /**
+   * Returns server options
+   * @return options
+   */
+  public Options getOptions() {
+    return options;
+  }
+
+  /**
+   * Returns path of the key store with the self-signed server certificate, which clients have to trust, e.g. via
+   * the {@code javax.net.ssl.trustStore} system property
+   * @return key store path
+   */
+  public Path getKeyStorePath() {
+    return Paths.get(options.keyStorePath);
+  }
+
+  /**
+   * Returns the simulated market
+   * @return market
+   */
+  public MarketSimulator getMarket() {
+    return market;
+  }
+
+  /**
+   * Returns ids of the simulated accounts in order
+   * @return account ids
+   */
+  public Set<String> getAccountIds() {
+    return accounts.keySet();
+  }
+
+  /**
+   * Returns a simulated account
+   * @param accountId account id
+   * @return account, or {@code null} if there is no such account
+   */
+  public FakeAccount getAccount(String accountId) {
+    return accounts.get(accountId);
+  }
+
+  /**
+   * Adds a simulated account
+   * @param name account name, or {@code null} for the default name
+   * @return account
+   */
+  public FakeAccount createAccount(String name) {
+    int number = accountCount.getAndIncrement();
+    FakeAccount account = new FakeAccount(String.format("fake-account-%06d", number), number, market,
+      options.historyDeals);
+    if (name != null) {
+      account.setName(name);
+    }
+    accounts.put(account.getId(), account);
+    return account;
+  }
+
+  /**
+   * Removes a simulated account
+   * @param accountId account id
+   */
+  public void removeAccount(String accountId) {
+    accounts.remove(accountId);
+  }
+
+  /**
+   * Deploys, undeploys or redeploys an account. The deployment state changes after the deploy delay
+   * @param account account
+   * @param action deploy, undeploy or redeploy
+   */
+  public void changeDeployment(FakeAccount account, String action) {
+    boolean deploy = !action.equals("undeploy");
+    account.setState(deploy ? "DEPLOYING" : "UNDEPLOYING");
+    vertx.setTimer(Math.max(1, options.deployDelayInMilliseconds),
+      id -> account.setState(deploy ? "DEPLOYED" : "UNDEPLOYED"));
+  }
+
+  /**
+   * Returns load metrics
+   * @return metrics
+   */
+  public Metrics getMetrics() {
+    Metrics metrics = new Metrics();
+    metrics.sessions = sessions.size();
+    metrics.requests = requests.get();
+    metrics.rejectedRequests = rejectedRequests.get();
+    metrics.packets = packets.get();
+    metrics.disconnects = disconnects.get();
+    return metrics;
+  }
+
+  boolean isAuthorized(String token) {
+    return options.token == null || options.token.equals(token);
+  }
+
+  boolean shouldRejectRequest() {
+    if (options.tooManyRequestsRate > 0 && ThreadLocalRandom.current().nextDouble() < options.tooManyRequestsRate) {
+      rejectedRequests.incrementAndGet();
+      return true;
+    }
+    return false;
+  }
+
+  ObjectNode createTooManyRequestsMetadata() {
+    ObjectNode metadata = jsonMapper.createObjectNode();
+    metadata.put("periodInMinutes", 1);
+    metadata.put("requestsPerPeriodAllowed", 1000);
+    metadata.put("recommendedRetryTime", MarketSimulator.formatTime(System.currentTimeMillis()
+      + options.retryAfterInMilliseconds));
+    metadata.put("type", "LIMIT_REQUEST_RATE_PER_USER");
+    return metadata;
+  }
+
+  void delay(Runnable action) {
+    long delay = options.latencyInMilliseconds + (options.latencyJitterInMilliseconds > 0
+      ? ThreadLocalRandom.current().nextLong(options.latencyJitterInMilliseconds + 1) : 0);
+    if (delay > 0) {
+      vertx.setTimer(delay, id -> action.run());
+    } else {
+      action.run();
+    }
+  }
+
+  void countRequest() {
+    requests.incrementAndGet();
+  }
+
+  void countPacket() {
+    packets.incrementAndGet();
+  }
+
+  private void handleRequest(HttpServerRequest request) {
+    if (!request.path().startsWith("/ws")) {
+      provisioningApi.handle(request);
+      return;
+    }
+    if (!isAuthorized(request.getParam("auth-token"))) {
+      request.response().setStatusCode(401).end();
+      return;
+    }
+    String sessionId = request.getParam("sid");
+    if (sessionId == null) {
+      createSession().getSocket().open(request);
+      return;
+    }
+    ClientSession session = sessions.get(sessionId);
+    if (session == null) {
+      request.response().setStatusCode(400).putHeader("Content-Type", "application/json")
+        .end("{\"code\":1,\"message\":\"Session ID unknown\"}");
+      return;
+    }
+    session.getSocket().handlePolling(request);
+  }
+
+  private void handleWebSocket(ServerWebSocket webSocket) {
+    Map<String, String> query = parseQuery(webSocket.query());
+    if (!webSocket.path().startsWith("/ws") || !isAuthorized(query.get("auth-token"))) {
+      webSocket.close();
+      return;
+    }
+    String sessionId = query.get("sid");
+    if (sessionId == null) {
+      createSession().getSocket().open(webSocket);
+      return;
+    }
+    ClientSession session = sessions.get(sessionId);
+    if (session == null) {
+      webSocket.close();
+      return;
+    }
+    session.getSocket().upgrade(webSocket);
+  }
+
+  private ClientSession createSession() {
+    String sessionId = UUID.randomUUID().toString().replace("-", "");
+    ClientSession session = new ClientSession(this, jsonMapper);
+    session.setSocket(new EngineIoSession(sessionId, PING_INTERVAL_IN_MILLISECONDS, PING_TIMEOUT_IN_MILLISECONDS,
+      jsonMapper, session::onEvent, () -> sessions.remove(sessionId)));
+    sessions.put(sessionId, session);
+    return session;
+  }
+
+  private void disconnectRandomSession() {
+    List<ClientSession> openSessions = new ArrayList<>(sessions.values());
+    if (!openSessions.isEmpty()) {
+      disconnects.incrementAndGet();
+      openSessions.get(ThreadLocalRandom.current().nextInt(openSessions.size())).getSocket().close();
+    }
+  }
+
+  private Map<String, String> parseQuery(String query) {
+    Map<String, String> result = new HashMap<>();
+    if (query == null) {
+      return result;
+    }
+    for (String parameter : query.split("&")) {
+      int separator = parameter.indexOf('=');
+      if (separator > 0) {
+        try {
+          result.put(URLDecoder.decode(parameter.substring(0, separator), "UTF-8"),
+            URLDecoder.decode(parameter.substring(separator + 1), "UTF-8"));
+        } catch (UnsupportedEncodingException e) {
+          throw new UncheckedIOException(e);
+        }
+      }
+    }
+    return result;
+  }
+
+  private void generateKeyStore() {
+    Path keyStorePath = getKeyStorePath();
+    if (Files.exists(keyStorePath)) {
+      return;
+    }
+    String host = options.domain.replaceFirst(":\\d+$", "");
+    String subjectAlternativeNames = "dns:" + host + ",dns:mt-provisioning-api-v1." + host
+      + ",dns:mt-client-api-v1." + host + ",ip:127.0.0.1";
+    try {
+      Process process = new ProcessBuilder(Paths.get(System.getProperty("java.home"), "bin", "keytool").toString(),
+        "-genkeypair", "-alias", "fake-metaapi", "-keyalg", "RSA", "-keysize", "2048", "-validity", "3650",
+        "-dname", "CN=" + host, "-ext", "SAN=" + subjectAlternativeNames, "-storetype", "PKCS12",
+        "-keystore", keyStorePath.toString(), "-storepass", options.keyStorePassword,
+        "-keypass", options.keyStorePassword).redirectErrorStream(true).start();
+      ByteArrayOutputStream output = new ByteArrayOutputStream();
+      try (InputStream input = process.getInputStream()) {
+        byte[] buffer = new byte[4096];
+        int length;
+        while ((length = input.read(buffer)) != -1) {
+          output.write(buffer, 0, length);
+        }
+      }
+      if (process.waitFor() != 0) {
+        throw new IOException("keytool failed: " + new String(output.toByteArray(), StandardCharsets.UTF_8));
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException(e);
+    }
+  }
+}
@@ -0,0 +1,105 @@
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+import cloud.metaapi.sdk.clients.meta_api.SynchronizationListener;
+import cloud.metaapi.sdk.clients.meta_api.models.MetatraderSymbolPrice;
+import cloud.metaapi.sdk.meta_api.MetaApi;
+import cloud.metaapi.sdk.meta_api.MetaApiConnection;
+import cloud.metaapi.sdk.meta_api.MetatraderAccount;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+
+/**
+ * Note: for information on how to use this example code please read
+ * https://metaapi.cloud/docs/client/usingCodeExamples
+ *
+ * Runs the SDK against a local {@link FakeMetaApiServer} instead of the MetaApi servers. The SDK addresses the
+ * servers as subdomains of the configured domain, so add the following line to /etc/hosts before running:
+ * 127.0.0.1 mt-provisioning-api-v1.localhost mt-client-api-v1.localhost
+ *
+ * <p>The example is also the end-to-end check of the fake server: with a compatible SDK version it prints the
+ * number of synchronized connections followed by a growing number of received prices. The server was written
+ * against the SDK protocol but has not been run against an SDK build yet, so run this example first when
+ * upgrading the SDK or changing the server, and compare the packets with the MetaApi servers if synchronization
+ * does not complete
+ */
+public class FakeServerExample {
+
+  private static int accounts = Integer.parseInt(getEnvOrDefault("ACCOUNTS", "1000"));
+  private static int connections = Integer.parseInt(getEnvOrDefault("CONNECTIONS", "10"));
+  private static String symbol = getEnvOrDefault("SYMBOL", "EURUSD");
+  private static long durationInSeconds = Long.parseLong(getEnvOrDefault("DURATION_IN_SECONDS", "60"));
+
+  public static void main(String[] args) {
+    try {
+      Vertx vertx = Vertx.vertx();
+
+      // start the fake server, generating a self-signed certificate on the first run
+      FakeMetaApiServer.Options serverOptions = new FakeMetaApiServer.Options();
+      serverOptions.accounts = accounts;
+      serverOptions.latencyInMilliseconds = 5;
+      serverOptions.latencyJitterInMilliseconds = 20;
+      FakeMetaApiServer server = new FakeMetaApiServer(vertx, serverOptions);
+      server.start().toCompletionStage().toCompletableFuture().get();
+      System.out.println("Fake server listening on " + serverOptions.host + ":" + serverOptions.port
+        + " with " + accounts + " accounts");
+
+      // trust the self-signed certificate of the fake server
+      System.setProperty("javax.net.ssl.trustStore", server.getKeyStorePath().toAbsolutePath().toString());
+      System.setProperty("javax.net.ssl.trustStorePassword", serverOptions.keyStorePassword);
+      System.setProperty("javax.net.ssl.trustStoreType", "PKCS12");
+
+      // connect the SDK to the fake server, any token is accepted
+      MetaApi api = new MetaApi("fake-token", new MetaApi.Options() {{domain = serverOptions.domain;}});
+      LongAdder prices = new LongAdder();
+      SynchronizationListener priceCounter = new SynchronizationListener() {
+        @Override
+        public Future<Void> onSymbolPriceUpdated(String instanceIndex, MetatraderSymbolPrice price) {
+          prices.increment();
+          return Future.succeededFuture();
+        }
+      };
+
+      // connect to the first accounts and stream prices on each of them
+      List<MetaApiConnection> openConnections = new ArrayList<>();
+      Iterator<String> accountIds = server.getAccountIds().iterator();
+      long startedAt = System.currentTimeMillis();
+      for (int i = 0; i < connections && accountIds.hasNext(); i++) {
+        MetatraderAccount account = api.getMetatraderAccountApi().getAccount(accountIds.next())
+          .toCompletionStage().toCompletableFuture().get();
+        MetaApiConnection connection = account.connect().toCompletionStage().toCompletableFuture().get();
+        connection.addSynchronizationListener(priceCounter);
+        connection.waitSynchronized().toCompletionStage().toCompletableFuture().get();
+        connection.subscribeToMarketData(symbol).toCompletionStage().toCompletableFuture().get();
+        openConnections.add(connection);
+      }
+      System.out.println("Synchronized " + openConnections.size() + " connections in "
+        + (System.currentTimeMillis() - startedAt) + "ms");
+
+      // report client and server side load every 10 seconds
+      for (long elapsed = 0; elapsed < durationInSeconds; elapsed += 10) {
+        Thread.sleep(10000);
+        FakeMetaApiServer.Metrics metrics = server.getMetrics();
+        System.out.println("prices received: " + prices.sum() + ", sessions: " + metrics.sessions
+          + ", requests: " + metrics.requests + ", packets sent: " + metrics.packets);
+      }
+
+      for (MetaApiConnection connection : openConnections) {
+        connection.close().toCompletionStage().toCompletableFuture().get();
+      }
+      api.close();
+      server.close().toCompletionStage().toCompletableFuture().get();
+
+    } catch (Exception err) {
+      System.err.println(err);
+    }
+    System.exit(0);
+  }
+
+  private static String getEnvOrDefault(String name, String defaultValue) {
+    String result = System.getenv(name);
+    return (result != null ? result : defaultValue);
+  }
+}
@@ -0,0 +1,291 @@
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * Synthetic market shared by all accounts of the fake server. Mid prices of the symbols follow a random walk which
+ * is advanced on every market data tick of the server, and prices, ticks, books, candles and specifications are
+ * derived from them in the MetaApi packet format
+ */
+public class MarketSimulator {
+
+  private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'")
+    .withZone(ZoneOffset.UTC);
+  private static final DateTimeFormatter BROKER_TIME_FORMAT = DateTimeFormatter.ofPattern(
+    "yyyy-MM-dd HH:mm:ss.SSS").withZone(ZoneOffset.ofHours(2));
+  private static final long CANDLE_INTERVAL_IN_MILLISECONDS = 60 * 1000;
+
+  /**
+   * State of a simulated symbol
+   */
+  private static class Symbol {
+    public String name;
+    public int digits;
+    public double point;
+    public double contractSize;
+    public int spreadInPoints;
+    public double volatility;
+    public double mid;
+    public long time;
+    public long candleTime;
+    public double candleOpen;
+    public double candleHigh;
+    public double candleLow;
+    public long candleTickVolume;
+  }
+
+  private ObjectMapper jsonMapper = new ObjectMapper();
+  private Map<String, Symbol> symbols = new LinkedHashMap<>();
+  private Random random = new Random(1);
+
+  /**
+   * Constructs the market
+   * @param symbolNames names of the simulated symbols. Majors, gold and bitcoin start from realistic prices, other
+   * symbols are quoted around 1 with 5 digits
+   */
+  public MarketSimulator(List<String> symbolNames) {
+    long now = System.currentTimeMillis();
+    for (String name : symbolNames) {
+      Symbol symbol = new Symbol();
+      symbol.name = name;
+      symbol.digits = 5;
+      symbol.contractSize = 100000;
+      symbol.spreadInPoints = 8;
+      symbol.volatility = 0.00005;
+      symbol.mid = 1;
+      switch (name) {
+        case "EURUSD": symbol.mid = 1.09; break;
+        case "GBPUSD": symbol.mid = 1.27; break;
+        case "AUDUSD": symbol.mid = 0.65; break;
+        case "USDCAD": symbol.mid = 1.36; break;
+        case "USDCHF": symbol.mid = 0.88; break;
+        case "USDJPY": symbol.mid = 149.8; symbol.digits = 3; break;
+        case "XAUUSD": symbol.mid = 2030; symbol.digits = 2; symbol.contractSize = 100; symbol.spreadInPoints = 30;
+          break;
+        case "BTCUSD": symbol.mid = 42800; symbol.digits = 2; symbol.contractSize = 1; symbol.spreadInPoints = 1500;
+          symbol.volatility = 0.0002; break;
+        default: break;
+      }
+      symbol.point = Math.pow(10, -symbol.digits);
+      symbol.time = now;
+      startCandle(symbol, now);
+      symbols.put(name, symbol);
+    }
+  }
+
+  /**
+   * Returns names of the simulated symbols
+   * @return symbol names
+   */
+  public synchronized List<String> getSymbols() {
+    return new ArrayList<>(symbols.keySet());
+  }
+
+  /**
+   * Returns whether a symbol is simulated
+   * @param symbol symbol
+   * @return whether the symbol is simulated
+   */
+  public synchronized boolean hasSymbol(String symbol) {
+    return symbols.containsKey(symbol);
+  }
+
+  /**
+   * Advances the prices of all symbols
+   * @param time current time in epoch milliseconds
+   */
+  public synchronized void step(long time) {
+    for (Symbol symbol : symbols.values()) {
+      symbol.mid = round(symbol, symbol.mid * Math.exp(symbol.volatility * random.nextGaussian()));
+      symbol.time = time;
+      if (time >= symbol.candleTime + CANDLE_INTERVAL_IN_MILLISECONDS) {
+        startCandle(symbol, time);
+      }
+      symbol.candleHigh = Math.max(symbol.candleHigh, getBid(symbol));
+      symbol.candleLow = Math.min(symbol.candleLow, getBid(symbol));
+      symbol.candleTickVolume++;
+    }
+  }
+
+  /**
+   * Returns current bid price
+   * @param symbol symbol
+   * @return bid price
+   */
+  public synchronized double getBid(String symbol) {
+    return getBid(symbols.get(symbol));
+  }
+
+  /**
+   * Returns current ask price
+   * @param symbol symbol
+   * @return ask price
+   */
+  public synchronized double getAsk(String symbol) {
+    return getAsk(symbols.get(symbol));
+  }
+
+  /**
+   * Returns contract size of a symbol
+   * @param symbol symbol
+   * @return contract size
+   */
+  public synchronized double getContractSize(String symbol) {
+    return symbols.get(symbol).contractSize;
+  }
+
+  /**
+   * Returns current price in the format of {@code prices} packets
+   * @param symbol symbol
+   * @return price
+   */
+  public synchronized ObjectNode getPrice(String symbol) {
+    Symbol state = symbols.get(symbol);
+    ObjectNode price = jsonMapper.createObjectNode();
+    price.put("symbol", symbol);
+    price.put("bid", getBid(state));
+    price.put("ask", getAsk(state));
+    price.put("profitTickValue", state.point * state.contractSize);
+    price.put("lossTickValue", state.point * state.contractSize);
+    price.put("accountCurrencyExchangeRate", 1);
+    price.put("time", formatTime(state.time));
+    price.put("brokerTime", formatBrokerTime(state.time));
+    return price;
+  }
+
+  /**
+   * Returns current tick in the format of {@code prices} packets
+   * @param symbol symbol
+   * @return tick
+   */
+  public synchronized ObjectNode getTick(String symbol) {
+    Symbol state = symbols.get(symbol);
+    ObjectNode tick = jsonMapper.createObjectNode();
+    tick.put("symbol", symbol);
+    tick.put("time", formatTime(state.time));
+    tick.put("brokerTime", formatBrokerTime(state.time));
+    tick.put("bid", getBid(state));
+    tick.put("ask", getAsk(state));
+    return tick;
+  }
+
+  /**
+   * Returns current order book in the format of {@code prices} packets
+   * @param symbol symbol
+   * @param depth number of levels per side
+   * @return order book
+   */
+  public synchronized ObjectNode getBook(String symbol, int depth) {
+    Symbol state = symbols.get(symbol);
+    ObjectNode book = jsonMapper.createObjectNode();
+    book.put("symbol", symbol);
+    book.put("time", formatTime(state.time));
+    book.put("brokerTime", formatBrokerTime(state.time));
+    ArrayNode entries = book.putArray("book");
+    for (int i = depth - 1; i >= 0; i--) {
+      entries.addObject().put("type", "BOOK_TYPE_SELL").put("price", round(state, getAsk(state) + i * state.point))
+        .put("volume", 1 + (i * 7 + state.time / 100) % 10);
+    }
+    for (int i = 0; i < depth; i++) {
+      entries.addObject().put("type", "BOOK_TYPE_BUY").put("price", round(state, getBid(state) - i * state.point))
+        .put("volume", 1 + (i * 5 + state.time / 100) % 10);
+    }
+    return book;
+  }
+
+  /**
+   * Returns current 1 minute candle in the format of {@code prices} packets
+   * @param symbol symbol
+   * @return candle
+   */
+  public synchronized ObjectNode getCandle(String symbol) {
+    Symbol state = symbols.get(symbol);
+    ObjectNode candle = jsonMapper.createObjectNode();
+    candle.put("symbol", symbol);
+    candle.put("timeframe", "1m");
+    candle.put("time", formatTime(state.candleTime));
+    candle.put("brokerTime", formatBrokerTime(state.candleTime));
+    candle.put("open", state.candleOpen);
+    candle.put("high", state.candleHigh);
+    candle.put("low", state.candleLow);
+    candle.put("close", getBid(state));
+    candle.put("tickVolume", state.candleTickVolume);
+    candle.put("spread", state.spreadInPoints);
+    candle.put("volume", 0);
+    return candle;
+  }
+
+  /**
+   * Returns symbol specification
+   * @param symbol symbol
+   * @return symbol specification
+   */
+  public synchronized ObjectNode getSpecification(String symbol) {
+    Symbol state = symbols.get(symbol);
+    ObjectNode specification = jsonMapper.createObjectNode();
+    specification.put("symbol", symbol);
+    specification.put("tickSize", state.point);
+    specification.put("digits", state.digits);
+    specification.put("minVolume", 0.01);
+    specification.put("maxVolume", 100);
+    specification.put("volumeStep", 0.01);
+    specification.put("contractSize", state.contractSize);
+    specification.put("executionMode", "SYMBOL_TRADE_EXECUTION_MARKET");
+    specification.put("tradeMode", "SYMBOL_TRADE_MODE_FULL");
+    specification.putArray("fillingModes").add("SYMBOL_FILLING_FOK").add("SYMBOL_FILLING_IOC");
+    specification.putArray("allowedExpirationModes").add("SYMBOL_EXPIRATION_GTC");
+    specification.putArray("allowedOrderTypes").add("SYMBOL_ORDER_MARKET").add("SYMBOL_ORDER_LIMIT")
+      .add("SYMBOL_ORDER_STOP").add("SYMBOL_ORDER_SL").add("SYMBOL_ORDER_TP");
+    specification.put("path", "Fake\\" + symbol);
+    specification.put("description", symbol + " simulated by the fake server");
+    return specification;
+  }
+
+  /**
+   * Formats a time as MetaApi ISO time
+   * @param time time in epoch milliseconds
+   * @return ISO time with milliseconds
+   */
+  public static String formatTime(long time) {
+    return TIME_FORMAT.format(Instant.ofEpochMilli(time));
+  }
+
+  /**
+   * Formats a time as broker time of the fake broker, which is in the UTC+2 time zone
+   * @param time time in epoch milliseconds
+   * @return broker time
+   */
+  public static String formatBrokerTime(long time) {
+    return BROKER_TIME_FORMAT.format(Instant.ofEpochMilli(time));
+  }
+
+  private void startCandle(Symbol symbol, long time) {
+    symbol.candleTime = time - time % CANDLE_INTERVAL_IN_MILLISECONDS;
+    symbol.candleOpen = getBid(symbol);
+    symbol.candleHigh = symbol.candleOpen;
+    symbol.candleLow = symbol.candleOpen;
+    symbol.candleTickVolume = 0;
+  }
+
+  private double getBid(Symbol symbol) {
+    return round(symbol, symbol.mid - symbol.spreadInPoints / 2 * symbol.point);
+  }
+
+  private double getAsk(Symbol symbol) {
+    return round(symbol, getBid(symbol) + symbol.spreadInPoints * symbol.point);
+  }
+
+  private double round(Symbol symbol, double price) {
+    double factor = Math.pow(10, symbol.digits);
+    return Math.round(price * factor) / factor;
+  }
+}
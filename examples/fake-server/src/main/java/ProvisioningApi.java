@@ -0,0 +1,170 @@
+import java.io.IOException;
+import java.util.List;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.core.http.HttpServerRequest;
+
+/**
+ * Provisioning REST API of the fake server. Serves the account endpoints the SDK uses to find, create, deploy and
+ * undeploy accounts, and the endpoint reporting the domain of the streaming API
+ */
+public class ProvisioningApi {
+
+  private static final String ACCOUNTS_PATH = "/users/current/accounts";
+  private static final String SERVERS_PATH = "/users/current/servers/mt-client-api";
+
+  private FakeMetaApiServer server;
+  private ObjectMapper jsonMapper;
+
+  /**
+   * Constructs the API
+   * @param server fake server
+   * @param jsonMapper JSON mapper
+   */
+  public ProvisioningApi(FakeMetaApiServer server, ObjectMapper jsonMapper) {
+    this.server = server;
+    this.jsonMapper = jsonMapper;
+  }
+
+  /**
+   * Handles a REST request
+   * @param request request
+   */
+  public void handle(HttpServerRequest request) {
+    server.countRequest();
+    if (!server.isAuthorized(request.getHeader("auth-token"))) {
+      sendError(request, 401, "UnauthorizedError", "Authorization token invalid");
+      return;
+    }
+    if (server.shouldRejectRequest()) {
+      request.response().putHeader("Retry-After",
+        String.valueOf(Math.max(1, server.getOptions().retryAfterInMilliseconds / 1000)));
+      sendError(request, 429, "TooManyRequestsError", "You have used all your request quota",
+        server.createTooManyRequestsMetadata());
+      return;
+    }
+    request.bodyHandler(body -> server.delay(() -> route(request, body)));
+  }
+
+  private void route(HttpServerRequest request, Buffer body) {
+    String path = request.path();
+    HttpMethod method = request.method();
+    if (path.equals(SERVERS_PATH) && method.equals(HttpMethod.GET)) {
+      ObjectNode settings = jsonMapper.createObjectNode();
+      settings.put("hostname", "mt-client-api-v1");
+      settings.put("domain", server.getOptions().domain);
+      settings.put("url", "https://mt-client-api-v1." + server.getOptions().domain);
+      send(request, 200, settings);
+    } else if (path.equals(ACCOUNTS_PATH) && method.equals(HttpMethod.GET)) {
+      send(request, 200, listAccounts(request));
+    } else if (path.equals(ACCOUNTS_PATH) && method.equals(HttpMethod.POST)) {
+      JsonNode account = parse(body);
+      FakeAccount created = server.createAccount(account.path("name").asText("Fake account"));
+      send(request, 201, jsonMapper.createObjectNode().put("id", created.getId()).put("state", created.getState()));
+    } else if (path.startsWith(ACCOUNTS_PATH + "/")) {
+      String[] segments = path.substring(ACCOUNTS_PATH.length() + 1).split("/");
+      FakeAccount account = server.getAccount(segments[0]);
+      if (account == null || segments.length > 2) {
+        sendError(request, 404, "NotFoundError", "Account " + segments[0] + " not found");
+      } else if (segments.length == 1) {
+        if (method.equals(HttpMethod.GET)) {
+          send(request, 200, account.toJson());
+        } else if (method.equals(HttpMethod.PUT)) {
+          JsonNode update = parse(body);
+          if (update.hasNonNull("name")) {
+            account.setName(update.get("name").asText());
+          }
+          send(request, 204, null);
+        } else if (method.equals(HttpMethod.DELETE)) {
+          server.removeAccount(account.getId());
+          send(request, 204, null);
+        } else {
+          sendError(request, 404, "NotFoundError", "Not found");
+        }
+      } else if (method.equals(HttpMethod.POST) && (segments[1].equals("deploy") || segments[1].equals("undeploy")
+        || segments[1].equals("redeploy"))) {
+        server.changeDeployment(account, segments[1]);
+        send(request, 204, null);
+      } else {
+        sendError(request, 404, "NotFoundError", "Not found");
+      }
+    } else {
+      sendError(request, 404, "NotFoundError", "Not found");
+    }
+  }
+
+  private ArrayNode listAccounts(HttpServerRequest request) {
+    int offset = parseInt(request.getParam("offset"), 0);
+    int limit = parseInt(request.getParam("limit"), 1000);
+    String query = request.getParam("query");
+    List<String> states = request.params().getAll("state");
+    List<String> connectionStatuses = request.params().getAll("connectionStatus");
+    ArrayNode result = jsonMapper.createArrayNode();
+    int skipped = 0;
+    for (String accountId : server.getAccountIds()) {
+      FakeAccount account = server.getAccount(accountId);
+      if (account == null) {
+        continue;
+      }
+      ObjectNode json = account.toJson();
+      if ((query == null || json.get("name").asText().contains(query) || json.get("login").asText().contains(query))
+        && (states.isEmpty() || states.contains(json.get("state").asText()))
+        && (connectionStatuses.isEmpty() || connectionStatuses.contains(json.get("connectionStatus").asText()))) {
+        if (skipped++ < offset) {
+          continue;
+        }
+        if (result.size() == limit) {
+          break;
+        }
+        result.add(json);
+      }
+    }
+    return result;
+  }
+
+  private JsonNode parse(Buffer body) {
+    try {
+      return body.length() != 0 ? jsonMapper.readTree(body.toString()) : jsonMapper.createObjectNode();
+    } catch (IOException e) {
+      return jsonMapper.createObjectNode();
+    }
+  }
+
+  private int parseInt(String value, int defaultValue) {
+    try {
+      return value != null ? Integer.parseInt(value) : defaultValue;
+    } catch (NumberFormatException e) {
+      return defaultValue;
+    }
+  }
+
+  private void sendError(HttpServerRequest request, int status, String error, String message) {
+    sendError(request, status, error, message, null);
+  }
+
+  private void sendError(HttpServerRequest request, int status, String error, String message, ObjectNode metadata) {
+    ObjectNode body = jsonMapper.createObjectNode();
+    body.put("id", 1);
+    body.put("error", error);
+    body.put("message", message);
+    if (metadata != null) {
+      body.set("metadata", metadata);
+    }
+    send(request, status, body);
+  }
+
+  private void send(HttpServerRequest request, int status, JsonNode body) {
+    request.response().setStatusCode(status);
+    if (body != null) {
+      request.response().putHeader("Content-Type", "application/json").end(body.toString());
+    } else {
+      request.response().end();
+    }
+  }
+}
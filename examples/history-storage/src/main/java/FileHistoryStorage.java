@@ -0,0 +1,243 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import cloud.metaapi.sdk.clients.meta_api.models.MetatraderDeal;
+import cloud.metaapi.sdk.clients.meta_api.models.MetatraderOrder;
+import cloud.metaapi.sdk.util.JsonMapper;
+import io.vertx.core.Future;
+
+/**
+ * History storage persisted to local files, so that the history of previous runs is available without waiting
+ * for synchronization. Every added record is appended to a log file, and once the log grows large enough the
+ * whole history is written to a snapshot file and the log is truncated. Files are written by a background thread,
+ * so synchronization is not slowed down by disk writes, and the log is flushed whenever the writer has caught up.
+ * Resetting the storage deletes the files as well.
+ *
+ * <p>On construction the snapshot and the log are replayed into the storage through the same callbacks
+ * synchronization uses, under instance index 0 of a connection with a single instance. The SDK then reports the
+ * latest loaded records as the last history order and deal times, but whether it requests only newer history
+ * depends on the SDK version and has to be checked against the SDK in use. Use a separate directory per account
+ */
+public class FileHistoryStorage extends IndexedHistoryStorage {
+
+  private static final String HISTORY_ORDER = "O";
+  private static final String DEAL = "D";
+  private static final String LOADED_INSTANCE_INDEX = "0";
+
+  private Path snapshotPath;
+  private Path logPath;
+  private int snapshotThreshold;
+  private int logSize = 0;
+  private boolean loading = false;
+  private BufferedWriter log;
+  private ObjectMapper jsonMapper = JsonMapper.getInstance();
+  private ExecutorService writer = Executors.newSingleThreadExecutor(runnable -> {
+    Thread thread = new Thread(runnable, "file-history-storage");
+    thread.setDaemon(true);
+    return thread;
+  });
+  private AtomicInteger pendingWrites = new AtomicInteger();
+
+  /**
+   * Constructs the storage, writing a snapshot after every 10000 logged records
+   * @param directory directory to store files in
+   */
+  public FileHistoryStorage(Path directory) {
+    this(directory, 10000);
+  }
+
+  /**
+   * Constructs the storage
+   * @param directory directory to store files in
+   * @param snapshotThreshold number of logged records after which a snapshot is written
+   */
+  public FileHistoryStorage(Path directory, int snapshotThreshold) {
+    this.snapshotPath = directory.resolve("history.snapshot");
+    this.logPath = directory.resolve("history.log");
+    this.snapshotThreshold = snapshotThreshold;
+    try {
+      Files.createDirectories(directory);
+      load(snapshotPath);
+      logSize = load(logPath);
+      log = Files.newBufferedWriter(logPath, StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+        StandardOpenOption.APPEND);
+      if (!endsWithNewLine(logPath)) {
+        // terminate an incomplete last record so that it does not corrupt the next one
+        log.newLine();
+        log.flush();
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  @Override
+  public Future<Void> onHistoryOrderAdded(String instanceIndex, MetatraderOrder historyOrder) {
+    synchronized (this) {
+      Future<Void> result = super.onHistoryOrderAdded(instanceIndex, historyOrder);
+      append(HISTORY_ORDER, historyOrder);
+      return result;
+    }
+  }
+
+  @Override
+  public Future<Void> onDealAdded(String instanceIndex, MetatraderDeal deal) {
+    synchronized (this) {
+      Future<Void> result = super.onDealAdded(instanceIndex, deal);
+      append(DEAL, deal);
+      return result;
+    }
+  }
+
+  /**
+   * Removes all history orders and deals, deleting the files
+   */
+  @Override
+  public synchronized void reset() {
+    super.reset();
+    logSize = 0;
+    submit(() -> {
+      log.close();
+      Files.deleteIfExists(snapshotPath);
+      log = Files.newBufferedWriter(logPath, StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+    });
+  }
+
+  /**
+   * Schedules writing a snapshot of the whole history, after which the log is truncated
+   */
+  public synchronized void snapshot() {
+    // the history is captured here, so that records logged before and after the snapshot are on the right side
+    List<MetatraderOrder> historyOrders = getHistoryOrdersSortedByTime();
+    List<MetatraderDeal> deals = getDealsSortedByTime();
+    logSize = 0;
+    submit(() -> {
+      Path tempPath = snapshotPath.resolveSibling(snapshotPath.getFileName() + ".tmp");
+      try (BufferedWriter writer = Files.newBufferedWriter(tempPath, StandardCharsets.UTF_8)) {
+        for (MetatraderOrder order : historyOrders) {
+          write(writer, HISTORY_ORDER, order);
+        }
+        for (MetatraderDeal deal : deals) {
+          write(writer, DEAL, deal);
+        }
+      }
+      Files.move(tempPath, snapshotPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      log.close();
+      log = Files.newBufferedWriter(logPath, StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+    });
+  }
+
+  /**
+   * Waits until all records are written, then flushes and closes the log file
+   * @throws InterruptedException if interrupted while waiting
+   */
+  public void close() throws InterruptedException {
+    synchronized (this) {
+      submit(() -> {
+        log.close();
+        log = null;
+      });
+      writer.shutdown();
+    }
+    writer.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+  }
+
+  private void append(String type, Object record) {
+    if (loading) {
+      return;
+    }
+    submit(() -> write(log, type, record));
+    if (++logSize >= snapshotThreshold) {
+      snapshot();
+    }
+  }
+
+  private void submit(IoTask task) {
+    if (writer.isShutdown()) {
+      return;
+    }
+    pendingWrites.incrementAndGet();
+    writer.execute(() -> {
+      boolean caughtUp = pendingWrites.decrementAndGet() == 0;
+      try {
+        task.run();
+        // flush once the writer has caught up, so that bursts of records are written together
+        if (caughtUp && log != null) {
+          log.flush();
+        }
+      } catch (IOException e) {
+        System.err.println("Failed to write history to " + logPath.getParent() + ": " + e);
+      }
+    });
+  }
+
+  private void write(BufferedWriter writer, String type, Object record) throws IOException {
+    writer.write(type);
+    writer.write(' ');
+    writer.write(jsonMapper.writeValueAsString(record));
+    writer.newLine();
+  }
+
+  private boolean endsWithNewLine(Path path) throws IOException {
+    try (SeekableByteChannel channel = Files.newByteChannel(path, StandardOpenOption.READ)) {
+      if (channel.size() == 0) {
+        return true;
+      }
+      ByteBuffer lastByte = ByteBuffer.allocate(1);
+      channel.position(channel.size() - 1).read(lastByte);
+      return lastByte.get(0) == '\n';
+    }
+  }
+
+  private int load(Path path) throws IOException {
+    if (!Files.exists(path)) {
+      return 0;
+    }
+    int count = 0;
+    loading = true;
+    try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        try {
+          if (line.startsWith(HISTORY_ORDER + " ")) {
+            onHistoryOrderAdded(LOADED_INSTANCE_INDEX, jsonMapper.readValue(line.substring(2),
+              MetatraderOrder.class));
+          } else if (line.startsWith(DEAL + " ")) {
+            onDealAdded(LOADED_INSTANCE_INDEX, jsonMapper.readValue(line.substring(2), MetatraderDeal.class));
+          } else {
+            continue;
+          }
+          count++;
+        } catch (IOException e) {
+          // the last line may be incomplete if the process was stopped while writing it
+          System.err.println("Skipping unreadable history record in " + path + ": " + e.getMessage());
+        }
+      }
+    } finally {
+      loading = false;
+    }
+    return count;
+  }
+
+  private interface IoTask {
+    void run() throws IOException;
+  }
+}
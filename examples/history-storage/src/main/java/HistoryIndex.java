@@ -0,0 +1,228 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+/**
+ * Index of history records, i.e. history orders or deals. Records are kept sorted by time, with hash indexes by
+ * ticket and by position id. Time range queries use binary search, ticket and position queries are hash lookups.
+ * Records arriving in time order, as they do during synchronization, are inserted in constant time. Adding a
+ * record with a known ticket replaces the previous version. The index is safe for concurrent reads and writes
+ * @param <T> record type
+ */
+public class HistoryIndex<T> {
+
+  private Function<T, String> getTicket;
+  private Function<T, String> getPositionId;
+  private ToLongFunction<T> getTime;
+  private List<T> records = new ArrayList<>();
+  private long[] times = new long[16];
+  private Map<String, T> byTicket = new HashMap<>();
+  private Map<String, List<T>> byPositionId = new HashMap<>();
+  private ReadWriteLock lock = new ReentrantReadWriteLock();
+
+  /**
+   * Constructs the index
+   * @param getTicket function returning record ticket
+   * @param getPositionId function returning record position id, or {@code null} if the record has no position
+   * @param getTime function returning record time in epoch milliseconds
+   */
+  public HistoryIndex(Function<T, String> getTicket, Function<T, String> getPositionId, ToLongFunction<T> getTime) {
+    this.getTicket = getTicket;
+    this.getPositionId = getPositionId;
+    this.getTime = getTime;
+  }
+
+  /**
+   * Adds or replaces a record
+   * @param record record to add
+   */
+  public void add(T record) {
+    lock.writeLock().lock();
+    try {
+      T previous = byTicket.put(getTicket.apply(record), record);
+      if (previous != null) {
+        removeFromTimeIndex(previous);
+        removeFromPositionIndex(previous);
+      }
+      insertIntoTimeIndex(record);
+      String positionId = getPositionId.apply(record);
+      if (positionId != null) {
+        byPositionId.computeIfAbsent(positionId, key -> new ArrayList<>()).add(record);
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Returns record by ticket
+   * @param ticket ticket
+   * @return record, or {@code null} if not found
+   */
+  public T getByTicket(String ticket) {
+    lock.readLock().lock();
+    try {
+      return byTicket.get(ticket);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Returns records of a position in the order they were added
+   * @param positionId position id
+   * @return records of the position
+   */
+  public List<T> getByPosition(String positionId) {
+    lock.readLock().lock();
+    try {
+      List<T> result = byPositionId.get(positionId);
+      return result != null ? new ArrayList<>(result) : Collections.emptyList();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Returns records within a time range sorted by time
+   * @param from start of the time range in epoch milliseconds, inclusive
+   * @param to end of the time range in epoch milliseconds, exclusive
+   * @param offset number of records to skip
+   * @param limit maximum number of records to return
+   * @return records within the time range
+   */
+  public List<T> getByTimeRange(long from, long to, int offset, int limit) {
+    lock.readLock().lock();
+    try {
+      int start = Math.min(lowerBound(from) + offset, records.size());
+      int end = Math.max(start, Math.min(lowerBound(to), start + limit));
+      return new ArrayList<>(records.subList(start, end));
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Returns all records sorted by time
+   * @return all records
+   */
+  public List<T> getAll() {
+    lock.readLock().lock();
+    try {
+      return new ArrayList<>(records);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Returns time of the latest record
+   * @return time of the latest record in epoch milliseconds, or {@code null} if there are no records
+   */
+  public Long getLastTime() {
+    lock.readLock().lock();
+    try {
+      return records.isEmpty() ? null : times[records.size() - 1];
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Returns number of records
+   * @return number of records
+   */
+  public int size() {
+    lock.readLock().lock();
+    try {
+      return records.size();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Removes all records
+   */
+  public void clear() {
+    lock.writeLock().lock();
+    try {
+      records.clear();
+      byTicket.clear();
+      byPositionId.clear();
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  private void insertIntoTimeIndex(T record) {
+    long time = getTime.applyAsLong(record);
+    int size = records.size();
+    // insert after records with the same time to preserve the arrival order
+    int index = size == 0 || times[size - 1] <= time ? size : upperBound(time);
+    if (size == times.length) {
+      long[] newTimes = new long[times.length * 2];
+      System.arraycopy(times, 0, newTimes, 0, size);
+      times = newTimes;
+    }
+    System.arraycopy(times, index, times, index + 1, size - index);
+    times[index] = time;
+    records.add(index, record);
+  }
+
+  private void removeFromTimeIndex(T record) {
+    long time = getTime.applyAsLong(record);
+    for (int i = lowerBound(time); i < records.size() && times[i] == time; i++) {
+      if (records.get(i) == record) {
+        records.remove(i);
+        System.arraycopy(times, i + 1, times, i, records.size() - i);
+        return;
+      }
+    }
+  }
+
+  private void removeFromPositionIndex(T record) {
+    String positionId = getPositionId.apply(record);
+    List<T> positionRecords = positionId != null ? byPositionId.get(positionId) : null;
+    if (positionRecords != null) {
+      positionRecords.remove(record);
+      if (positionRecords.isEmpty()) {
+        byPositionId.remove(positionId);
+      }
+    }
+  }
+
+  private int lowerBound(long time) {
+    int low = 0;
+    int high = records.size();
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      if (times[middle] < time) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+    return low;
+  }
+
+  private int upperBound(long time) {
+    int low = 0;
+    int high = records.size();
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      if (times[middle] <= time) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+    return low;
+  }
+}
@@ -0,0 +1,88 @@
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Date;
+import java.util.List;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+
+import cloud.metaapi.sdk.clients.meta_api.models.MetatraderAccountDto.ConnectionStatus;
+import cloud.metaapi.sdk.clients.meta_api.models.MetatraderAccountDto.DeploymentState;
+import cloud.metaapi.sdk.clients.meta_api.models.MetatraderDeal;
+import cloud.metaapi.sdk.clients.models.IsoTime;
+import cloud.metaapi.sdk.meta_api.MetaApi;
+import cloud.metaapi.sdk.meta_api.MetaApiConnection;
+import cloud.metaapi.sdk.meta_api.MetatraderAccount;
+import cloud.metaapi.sdk.util.JsonMapper;
+import io.vertx.core.Vertx;
+
+/**
+ * Note: for information on how to use this example code please read
+ * https://metaapi.cloud/docs/client/usingCodeExamples
+ */
+public class HistoryStorageExample {
+
+  private static String token = getEnvOrDefault("TOKEN", "<put in your token here>");
+  private static String accountId = getEnvOrDefault("ACCOUNT_ID", "<put in your account id here>");
+  private static String historyDirectory = getEnvOrDefault("HISTORY_DIRECTORY", "history");
+
+  public static void main(String[] args) {
+    try {
+      MetaApi api = new MetaApi(token, Vertx.vertx());
+      MetatraderAccount account = api.getMetatraderAccountApi().getAccount(accountId).toCompletionStage().toCompletableFuture().get();
+
+      // wait until account is deployed and connected to broker
+      System.out.println("Deploying account");
+      if (account.getState() != DeploymentState.DEPLOYED) {
+        account.deploy().toCompletionStage().toCompletableFuture().get();
+      } else {
+        System.out.println("Account already deployed");
+      }
+      System.out.println("Waiting for API server to connect to broker (may take couple of minutes)");
+      if (account.getConnectionStatus() != ConnectionStatus.CONNECTED) {
+        account.waitConnected().toCompletionStage().toCompletableFuture().get();
+      }
+
+      // connect to MetaApi API using the file history storage, so that the next run only synchronizes the
+      // history added since this one
+      FileHistoryStorage historyStorage = new FileHistoryStorage(Paths.get(historyDirectory, accountId));
+      MetaApiConnection connection = account.connect(historyStorage).toCompletionStage().toCompletableFuture().get();
+
+      // wait until terminal state synchronized to the local state
+      System.out.println("Waiting for SDK to synchronize to terminal state (may take some "
+        + "time depending on your history size)");
+      connection.waitSynchronized().toCompletionStage().toCompletableFuture().get();
+
+      // query the local history storage
+      System.out.println("last deal time: " + historyStorage.getLastDealTime());
+      System.out.println("last history order time: " + historyStorage.getLastHistoryOrderTime());
+      long startedAt = Date.from(Instant.now()).getTime();
+      List<MetatraderDeal> deals = historyStorage.getDealsByTimeRange(
+        new IsoTime(Date.from(Instant.now().minus(7, ChronoUnit.DAYS))), new IsoTime(Date.from(Instant.now())),
+        0, 1000);
+      System.out.println("deals of the last 7 days: " + deals.size());
+      if (!deals.isEmpty() && deals.get(0).positionId != null) {
+        String positionId = deals.get(0).positionId;
+        System.out.println("deals of position " + positionId + ": "
+          + asJson(historyStorage.getDealsByPosition(positionId)));
+        System.out.println("history orders of position " + positionId + ": "
+          + asJson(historyStorage.getHistoryOrdersByPosition(positionId)));
+      }
+      System.out.println("Queries took " + (Date.from(Instant.now()).getTime() - startedAt) + "ms");
+      historyStorage.close();
+
+    } catch (Exception err) {
+      System.err.println(err);
+    }
+    System.exit(0);
+  }
+
+  private static String getEnvOrDefault(String name, String defaultValue) {
+    String result = System.getenv(name);
+    return (result != null ? result : defaultValue);
+  }
+
+  private static String asJson(Object object) throws JsonProcessingException {
+    return JsonMapper.getInstance().writeValueAsString(object);
+  }
+}
@@ -0,0 +1,142 @@
+import java.time.Instant;
+import java.util.List;
+
+import cloud.metaapi.sdk.clients.meta_api.models.MetatraderDeal;
+import cloud.metaapi.sdk.clients.meta_api.models.MetatraderOrder;
+import cloud.metaapi.sdk.clients.models.IsoTime;
+import cloud.metaapi.sdk.meta_api.MemoryHistoryStorage;
+import io.vertx.core.Future;
+
+/**
+ * In-memory history storage which additionally indexes history orders and deals by time, ticket and position
+ * id, so that they can be queried in logarithmic or constant time instead of scanning the whole history. Pass it
+ * to {@code account.connect(historyStorage)}
+ */
+public class IndexedHistoryStorage extends MemoryHistoryStorage {
+
+  private HistoryIndex<MetatraderOrder> historyOrders = new HistoryIndex<>(order -> order.id,
+    order -> order.positionId, IndexedHistoryStorage::getTime);
+  private HistoryIndex<MetatraderDeal> deals = new HistoryIndex<>(deal -> deal.id, deal -> deal.positionId,
+    deal -> deal.time.getDate().getTime());
+
+  @Override
+  public Future<Void> onHistoryOrderAdded(String instanceIndex, MetatraderOrder historyOrder) {
+    historyOrders.add(historyOrder);
+    return super.onHistoryOrderAdded(instanceIndex, historyOrder);
+  }
+
+  @Override
+  public Future<Void> onDealAdded(String instanceIndex, MetatraderDeal deal) {
+    deals.add(deal);
+    return super.onDealAdded(instanceIndex, deal);
+  }
+
+  /**
+   * Removes all history orders and deals, from the storage and from the indexes
+   */
+  @Override
+  public void reset() {
+    super.reset();
+    historyOrders.clear();
+    deals.clear();
+  }
+
+  /**
+   * Returns history order by ticket
+   * @param ticket order ticket
+   * @return history order, or {@code null} if not found
+   */
+  public MetatraderOrder getHistoryOrderByTicket(String ticket) {
+    return historyOrders.getByTicket(ticket);
+  }
+
+  /**
+   * Returns history orders of a position
+   * @param positionId position id
+   * @return history orders of the position
+   */
+  public List<MetatraderOrder> getHistoryOrdersByPosition(String positionId) {
+    return historyOrders.getByPosition(positionId);
+  }
+
+  /**
+   * Returns history orders completed within a time range, sorted by done time
+   * @param startTime start of the time range, inclusive
+   * @param endTime end of the time range, exclusive
+   * @param offset number of orders to skip
+   * @param limit maximum number of orders to return
+   * @return history orders
+   */
+  public List<MetatraderOrder> getHistoryOrdersByTimeRange(IsoTime startTime, IsoTime endTime, int offset,
+    int limit) {
+    return historyOrders.getByTimeRange(startTime.getDate().getTime(), endTime.getDate().getTime(), offset, limit);
+  }
+
+  /**
+   * Returns deal by ticket
+   * @param ticket deal ticket
+   * @return deal, or {@code null} if not found
+   */
+  public MetatraderDeal getDealByTicket(String ticket) {
+    return deals.getByTicket(ticket);
+  }
+
+  /**
+   * Returns deals of a position
+   * @param positionId position id
+   * @return deals of the position
+   */
+  public List<MetatraderDeal> getDealsByPosition(String positionId) {
+    return deals.getByPosition(positionId);
+  }
+
+  /**
+   * Returns deals within a time range, sorted by time
+   * @param startTime start of the time range, inclusive
+   * @param endTime end of the time range, exclusive
+   * @param offset number of deals to skip
+   * @param limit maximum number of deals to return
+   * @return deals
+   */
+  public List<MetatraderDeal> getDealsByTimeRange(IsoTime startTime, IsoTime endTime, int offset, int limit) {
+    return deals.getByTimeRange(startTime.getDate().getTime(), endTime.getDate().getTime(), offset, limit);
+  }
+
+  /**
+   * Returns all history orders sorted by done time
+   * @return history orders
+   */
+  public List<MetatraderOrder> getHistoryOrdersSortedByTime() {
+    return historyOrders.getAll();
+  }
+
+  /**
+   * Returns all deals sorted by time
+   * @return deals
+   */
+  public List<MetatraderDeal> getDealsSortedByTime() {
+    return deals.getAll();
+  }
+
+  /**
+   * Returns time of the latest history order
+   * @return done time of the latest history order, or {@code null} if there are no history orders
+   */
+  public Instant getLastHistoryOrderTime() {
+    Long time = historyOrders.getLastTime();
+    return time != null ? Instant.ofEpochMilli(time) : null;
+  }
+
+  /**
+   * Returns time of the latest deal
+   * @return time of the latest deal, or {@code null} if there are no deals
+   */
+  public Instant getLastDealTime() {
+    Long time = deals.getLastTime();
+    return time != null ? Instant.ofEpochMilli(time) : null;
+  }
+
+  private static long getTime(MetatraderOrder order) {
+    return (order.doneTime != null ? order.doneTime : order.time).getDate().getTime();
+  }
+}
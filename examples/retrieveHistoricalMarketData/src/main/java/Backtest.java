@@ -0,0 +1,265 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Event-driven backtest of strategies written against {@link TradingConnection}. Cached ticks and candles of any
+ * number of symbols are merged by time and streamed to the strategy through a {@link BacktestConnection}, which
+ * executes its orders and keeps its account. The market data is only read, so a parameter sweep runs one backtest
+ * per parameter set in parallel on the same data
+ */
+public class Backtest {
+
+  /**
+   * Strategy factory
+   * @param <P> type of the strategy parameters
+   */
+  public interface StrategyFactory<P> {
+    /**
+     * Starts a strategy on a connection, usually by adding a synchronization listener which trades on prices.
+     * Invoked before the first price of a run
+     * @param connection connection to trade on
+     * @param parameters strategy parameters
+     */
+    void start(TradingConnection connection, P parameters);
+  }
+
+  /**
+   * Symbol options
+   */
+  public static class SymbolOptions {
+    /**
+     * Contract size, i.e. units of the base asset in a lot. Default is 100000
+     */
+    public double contractSize = 100000;
+    /**
+     * Price point. Default is 0.00001
+     */
+    public double point = 0.00001;
+    /**
+     * Minimum order volume in lots. Default is 0.01
+     */
+    public double minVolume = 0.01;
+    /**
+     * Maximum order volume in lots. Default is 100
+     */
+    public double maxVolume = 100;
+    /**
+     * Order volume step in lots. Default is 0.01
+     */
+    public double volumeStep = 0.01;
+    /**
+     * Spread in points used for candles without a spread and ticks without an ask price. Default is 0
+     */
+    public double defaultSpreadInPoints = 0;
+  }
+
+  /**
+   * Backtest options
+   */
+  public static class Options {
+    /**
+     * Initial balance. Default is 10000
+     */
+    public double initialBalance = 10000;
+    /**
+     * Account currency, which is assumed to be the quote currency of all symbols. Default is USD
+     */
+    public String currency = "USD";
+    /**
+     * Account leverage. Default is 100
+     */
+    public double leverage = 100;
+    /**
+     * Margin level in percent below which positions are closed. Default is 50
+     */
+    public double stopOutLevel = 50;
+    /**
+     * Commission charged per lot on every deal, in the account currency. Default is 0
+     */
+    public double commissionPerLot = 0;
+    /**
+     * Slippage in points of market orders, stop orders, stop losses and stop outs. Default is 0
+     */
+    public double slippageInPoints = 0;
+    /**
+     * Options of the symbols by symbol. Default is empty
+     */
+    public Map<String, SymbolOptions> symbols = new HashMap<>();
+    /**
+     * Options of the symbols missing in the symbols map
+     */
+    public SymbolOptions defaultSymbolOptions = new SymbolOptions();
+    /**
+     * Maximum number of backtests run in parallel by a sweep. Default is the number of available processors
+     */
+    public int parallelism = Runtime.getRuntime().availableProcessors();
+  }
+
+  private Options options;
+  private List<TimeSeriesColumns> series = new ArrayList<>();
+
+  /**
+   * Constructs the backtest with default options
+   */
+  public Backtest() {
+    this(new Options());
+  }
+
+  /**
+   * Constructs the backtest
+   * @param options backtest options
+   */
+  public Backtest(Options options) {
+    this.options = options;
+  }
+
+  /**
+   * Adds ticks of a symbol to stream. The ticks must not be modified while backtests are running
+   * @param ticks ticks
+   * @return this backtest
+   */
+  public Backtest addTicks(TickColumns ticks) {
+    return addSeries(ticks);
+  }
+
+  /**
+   * Adds candles of a symbol to stream. Each candle is streamed as four prices spread evenly across the candle:
+   * the open price at the open time, then the low and the high price in the order implied by the candle
+   * direction, then the close price right before the close time, followed by the candle itself. This way no
+   * candle is known before the ticks and candles of other series which happened within it. The candles must not
+   * be modified while backtests are running
+   * @param candles candles
+   * @return this backtest
+   * @throws IllegalArgumentException if the candle timeframe is invalid
+   */
+  public Backtest addCandles(CandleColumns candles) {
+    CandleColumns.getTimeframeLength(candles.getTimeframe());
+    return addSeries(candles);
+  }
+
+  /**
+   * Runs a backtest on the calling thread
+   * @param <P> type of the strategy parameters
+   * @param factory strategy factory
+   * @param parameters strategy parameters
+   * @return backtest result
+   */
+  public <P> BacktestResult<P> run(StrategyFactory<P> factory, P parameters) {
+    long startTime = System.currentTimeMillis();
+    BacktestConnection connection = new BacktestConnection(options);
+    int count = series.size();
+    BacktestConnection.SymbolState[] symbols = new BacktestConnection.SymbolState[count];
+    for (int i = 0; i < count; i++) {
+      TimeSeriesColumns columns = series.get(i);
+      symbols[i] = connection.getSymbol(columns instanceof TickColumns ? ((TickColumns) columns).getSymbol()
+        : ((CandleColumns) columns).getSymbol());
+    }
+    factory.start(connection, parameters);
+    connection.start();
+    // position of every series is its record index and, for candles, the step of the candle price path
+    int[] positions = new int[count];
+    int[] steps = new int[count];
+    long[] times = new long[count];
+    for (int i = 0; i < count; i++) {
+      times[i] = getEventTime(series.get(i), 0, 0);
+    }
+    while (true) {
+      int next = -1;
+      long nextTime = Long.MAX_VALUE;
+      for (int i = 0; i < count; i++) {
+        if (times[i] < nextTime) {
+          next = i;
+          nextTime = times[i];
+        }
+      }
+      if (next == -1) {
+        break;
+      }
+      TimeSeriesColumns columns = series.get(next);
+      int index = positions[next];
+      int step = steps[next];
+      if (columns instanceof TickColumns || step == 3) {
+        positions[next]++;
+        steps[next] = 0;
+      } else {
+        steps[next]++;
+      }
+      times[next] = getEventTime(columns, positions[next], steps[next]);
+      BacktestConnection.SymbolState symbol = symbols[next];
+      if (columns instanceof TickColumns) {
+        TickColumns ticks = (TickColumns) columns;
+        double bid = ticks.getBid(index);
+        double ask = ticks.getAsk(index);
+        // ticks of last deals only carry no quotes, keep the previous ones
+        bid = Double.isNaN(bid) ? symbol.bid : bid;
+        ask = Double.isNaN(ask) ? (Double.isNaN(symbol.ask) ? bid + symbol.options.defaultSpreadInPoints
+          * symbol.point : symbol.ask) : ask;
+        if (!Double.isNaN(bid) && !Double.isNaN(ask)) {
+          connection.processTick(symbol, nextTime, bid, ask, ticks.getLast(index), ticks.getVolume(index));
+        }
+      } else {
+        connection.processCandleStep(symbol, (CandleColumns) columns, index, step, nextTime);
+      }
+    }
+    BacktestResult<P> result = new BacktestResult<>();
+    result.parameters = parameters;
+    connection.fillResult(result);
+    result.durationInMilliseconds = System.currentTimeMillis() - startTime;
+    return result;
+  }
+
+  /**
+   * Runs a backtest per parameter set in parallel, on at most {@link Options#parallelism} threads
+   * @param <P> type of the strategy parameters
+   * @param factory strategy factory. It is invoked concurrently, so strategies must not share mutable state
+   * @param parameters strategy parameter sets
+   * @return completable future resolving with the results in the order of the parameter sets, or failing with
+   * the first error thrown by a strategy
+   */
+  public <P> CompletableFuture<List<BacktestResult<P>>> sweep(StrategyFactory<P> factory, List<P> parameters) {
+    AtomicInteger threadCount = new AtomicInteger();
+    ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(options.parallelism,
+      parameters.size())), runnable -> {
+        Thread thread = new Thread(runnable, "backtest-" + threadCount.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+      });
+    List<CompletableFuture<BacktestResult<P>>> runs = new ArrayList<>(parameters.size());
+    for (P parameterSet : parameters) {
+      runs.add(CompletableFuture.supplyAsync(() -> run(factory, parameterSet), executor));
+    }
+    return CompletableFuture.allOf(runs.toArray(new CompletableFuture<?>[0])).thenApply(v -> {
+      List<BacktestResult<P>> results = new ArrayList<>(runs.size());
+      for (CompletableFuture<BacktestResult<P>> run : runs) {
+        results.add(run.join());
+      }
+      return results;
+    }).whenComplete((results, err) -> executor.shutdownNow());
+  }
+
+  private static long getEventTime(TimeSeriesColumns columns, int index, int step) {
+    if (index >= columns.size()) {
+      return Long.MAX_VALUE;
+    }
+    long time = columns.getTime(index);
+    if (columns instanceof TickColumns || step == 0) {
+      return time;
+    }
+    long closeTime = ((CandleColumns) columns).getCloseTime(index);
+    return step == 3 ? closeTime - 1 : time + (closeTime - time) * step / 3;
+  }
+
+  private Backtest addSeries(TimeSeriesColumns columns) {
+    if (!columns.isSorted()) {
+      throw new IllegalArgumentException("Backtest data must be sorted by time");
+    }
+    series.add(columns);
+    return this;
+  }
+}
@@ -0,0 +1,949 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+
+import cloud.metaapi.sdk.clients.meta_api.SynchronizationListener;
+import cloud.metaapi.sdk.clients.meta_api.TradeException;
+import cloud.metaapi.sdk.clients.meta_api.models.MarketTradeOptions;
+import cloud.metaapi.sdk.clients.meta_api.models.MetatraderAccountInformation;
+import cloud.metaapi.sdk.clients.meta_api.models.MetatraderCandle;
+import cloud.metaapi.sdk.clients.meta_api.models.MetatraderDeal;
+import cloud.metaapi.sdk.clients.meta_api.models.MetatraderOrder;
+import cloud.metaapi.sdk.clients.meta_api.models.MetatraderPosition;
+import cloud.metaapi.sdk.clients.meta_api.models.MetatraderSymbolPrice;
+import cloud.metaapi.sdk.clients.meta_api.models.MetatraderSymbolSpecification;
+import cloud.metaapi.sdk.clients.meta_api.models.MetatraderTick;
+import cloud.metaapi.sdk.clients.meta_api.models.MetatraderTradeResponse;
+import cloud.metaapi.sdk.clients.meta_api.models.PendingTradeOptions;
+import cloud.metaapi.sdk.clients.meta_api.models.TradeOptions;
+import cloud.metaapi.sdk.clients.models.IsoTime;
+
+/**
+ * Simulated {@link TradingConnection} of a backtest run by {@link Backtest}. It holds a hedging account with
+ * positions and pending orders, and a matching engine which executes them against historical prices: market
+ * orders fill at the current ask or bid, limit orders and take profits fill at the market price once it reaches
+ * the order price, stop orders and stop losses fill at the market price once it crosses the order price, so gaps
+ * are filled at the worse price. The configured slippage is applied to market orders, stop orders, stop losses
+ * and stop outs. Balance, equity and margin are recalculated on every price, and positions are closed starting
+ * from the most unprofitable one while the margin level is below the stop out level. Profits are calculated in
+ * the quote currency of the symbol, which is assumed to be the account currency.
+ *
+ * <p>Synchronization listeners receive the same events as from a live connection: prices with the current equity
+ * and margin, ticks or candles, and account information, position, order, history order and deal updates on every
+ * execution, so that a {@code TerminalState} or a strategy keeping its own state stays in sync. Everything runs
+ * on the backtest thread and all returned futures are already completed, so strategies may wait for results
+ */
+public class BacktestConnection implements TradingConnection {
+
+  private static final String INSTANCE_INDEX = "0";
+  private static final CompletableFuture<Void> COMPLETED = CompletableFuture.completedFuture(null);
+
+  /**
+   * Current price of a symbol
+   */
+  static class SymbolState {
+    public String symbol;
+    public Backtest.SymbolOptions options;
+    public double point;
+    public double bid = Double.NaN;
+    public double ask = Double.NaN;
+    public long time;
+
+    public SymbolState(String symbol, Backtest.SymbolOptions options) {
+      this.symbol = symbol;
+      this.options = options;
+      this.point = options.point;
+    }
+  }
+
+  private static class Position {
+    public String id;
+    public SymbolState symbol;
+    public boolean buy;
+    public double volume;
+    public double openPrice;
+    public double stopLoss = Double.NaN;
+    public double takeProfit = Double.NaN;
+    public double margin;
+    public double profit;
+    public double realizedProfit;
+    public double commission;
+    public long time;
+    public long updateTime;
+    public Integer magic;
+    public String comment;
+    public String clientId;
+  }
+
+  private static class Order {
+    public String id;
+    public SymbolState symbol;
+    public MetatraderOrder.OrderType type;
+    public double volume;
+    public double openPrice;
+    public double stopLoss = Double.NaN;
+    public double takeProfit = Double.NaN;
+    public long time;
+    public Integer magic;
+    public String comment;
+    public String clientId;
+  }
+
+  private Backtest.Options options;
+  private SynchronizationListener[] listeners = new SynchronizationListener[0];
+  private Map<String, SymbolState> symbols = new LinkedHashMap<>();
+  private Map<String, Position> positions = new LinkedHashMap<>();
+  private Map<String, Order> orders = new LinkedHashMap<>();
+  private List<Position> triggeredPositions = new ArrayList<>();
+  private List<Order> triggeredOrders = new ArrayList<>();
+  private List<MetatraderDeal> deals = new ArrayList<>();
+  private long nextTicket = 1;
+  private long time;
+  private long priceCount = 0;
+  private double balance;
+  private double equity;
+  private double margin = 0;
+  private double peakEquity;
+  private double maxDrawdown = 0;
+  private double maxDrawdownPercent = 0;
+
+  /**
+   * Constructs the connection
+   * @param options backtest options
+   */
+  BacktestConnection(Backtest.Options options) {
+    this.options = options;
+    this.balance = options.initialBalance;
+    this.equity = options.initialBalance;
+    this.peakEquity = options.initialBalance;
+  }
+
+  /**
+   * Returns current simulated time
+   * @return epoch milliseconds
+   */
+  public long getTime() {
+    return time;
+  }
+
+  @Override
+  public void addSynchronizationListener(SynchronizationListener listener) {
+    SynchronizationListener[] newListeners = Arrays.copyOf(listeners, listeners.length + 1);
+    newListeners[listeners.length] = listener;
+    listeners = newListeners;
+  }
+
+  @Override
+  public void removeSynchronizationListener(SynchronizationListener listener) {
+    for (int i = 0; i < listeners.length; i++) {
+      if (listeners[i] == listener) {
+        SynchronizationListener[] newListeners = new SynchronizationListener[listeners.length - 1];
+        System.arraycopy(listeners, 0, newListeners, 0, i);
+        System.arraycopy(listeners, i + 1, newListeners, i, listeners.length - i - 1);
+        listeners = newListeners;
+        return;
+      }
+    }
+  }
+
+  /**
+   * Does nothing, the backtest streams prices of all symbols it was given data of
+   * @param symbol symbol
+   * @return completed future
+   */
+  @Override
+  public CompletableFuture<Void> subscribeToMarketData(String symbol) {
+    return COMPLETED;
+  }
+
+  @Override
+  public CompletableFuture<MetatraderAccountInformation> getAccountInformation() {
+    return CompletableFuture.completedFuture(toAccountInformation());
+  }
+
+  @Override
+  public CompletableFuture<List<MetatraderPosition>> getPositions() {
+    List<MetatraderPosition> result = new ArrayList<>(positions.size());
+    for (Position position : positions.values()) {
+      result.add(toModel(position));
+    }
+    return CompletableFuture.completedFuture(result);
+  }
+
+  @Override
+  public CompletableFuture<MetatraderPosition> getPosition(String positionId) {
+    Position position = positions.get(positionId);
+    if (position == null) {
+      return failed(new NoSuchElementException("Position " + positionId + " not found"));
+    }
+    return CompletableFuture.completedFuture(toModel(position));
+  }
+
+  @Override
+  public CompletableFuture<List<MetatraderOrder>> getOrders() {
+    List<MetatraderOrder> result = new ArrayList<>(orders.size());
+    for (Order order : orders.values()) {
+      result.add(toModel(order));
+    }
+    return CompletableFuture.completedFuture(result);
+  }
+
+  @Override
+  public CompletableFuture<MetatraderTradeResponse> createMarketBuyOrder(String symbol, double volume,
+    Double stopLoss, Double takeProfit, MarketTradeOptions options) {
+    return createMarketOrder(symbol, true, volume, stopLoss, takeProfit, options);
+  }
+
+  @Override
+  public CompletableFuture<MetatraderTradeResponse> createMarketSellOrder(String symbol, double volume,
+    Double stopLoss, Double takeProfit, MarketTradeOptions options) {
+    return createMarketOrder(symbol, false, volume, stopLoss, takeProfit, options);
+  }
+
+  @Override
+  public CompletableFuture<MetatraderTradeResponse> createLimitBuyOrder(String symbol, double volume,
+    double openPrice, Double stopLoss, Double takeProfit, PendingTradeOptions options) {
+    return createPendingOrder(symbol, MetatraderOrder.OrderType.ORDER_TYPE_BUY_LIMIT, volume, openPrice, stopLoss,
+      takeProfit, options);
+  }
+
+  @Override
+  public CompletableFuture<MetatraderTradeResponse> createLimitSellOrder(String symbol, double volume,
+    double openPrice, Double stopLoss, Double takeProfit, PendingTradeOptions options) {
+    return createPendingOrder(symbol, MetatraderOrder.OrderType.ORDER_TYPE_SELL_LIMIT, volume, openPrice, stopLoss,
+      takeProfit, options);
+  }
+
+  @Override
+  public CompletableFuture<MetatraderTradeResponse> createStopBuyOrder(String symbol, double volume,
+    double openPrice, Double stopLoss, Double takeProfit, PendingTradeOptions options) {
+    return createPendingOrder(symbol, MetatraderOrder.OrderType.ORDER_TYPE_BUY_STOP, volume, openPrice, stopLoss,
+      takeProfit, options);
+  }
+
+  @Override
+  public CompletableFuture<MetatraderTradeResponse> createStopSellOrder(String symbol, double volume,
+    double openPrice, Double stopLoss, Double takeProfit, PendingTradeOptions options) {
+    return createPendingOrder(symbol, MetatraderOrder.OrderType.ORDER_TYPE_SELL_STOP, volume, openPrice, stopLoss,
+      takeProfit, options);
+  }
+
+  @Override
+  public CompletableFuture<MetatraderTradeResponse> modifyPosition(String positionId, Double stopLoss,
+    Double takeProfit) {
+    Position position = positions.get(positionId);
+    if (position == null) {
+      return rejected("Position not found", 4753, "ERR_TRADE_POSITION_NOT_FOUND");
+    }
+    double price = position.buy ? position.symbol.bid : position.symbol.ask;
+    if (!validStops(position.buy, price, stopLoss, takeProfit)) {
+      return rejected("Invalid stops", 10016, "TRADE_RETCODE_INVALID_STOPS");
+    }
+    position.stopLoss = value(stopLoss);
+    position.takeProfit = value(takeProfit);
+    position.updateTime = time;
+    emitPositionUpdated(position);
+    return done(null, positionId);
+  }
+
+  @Override
+  public CompletableFuture<MetatraderTradeResponse> closePositionPartially(String positionId, double volume,
+    MarketTradeOptions options) {
+    Position position = positions.get(positionId);
+    if (position == null) {
+      return rejected("Position not found", 4753, "ERR_TRADE_POSITION_NOT_FOUND");
+    }
+    if (!validVolume(position.symbol, volume) || volume > position.volume + 1e-9) {
+      return rejected("Invalid volume", 10014, "TRADE_RETCODE_INVALID_VOLUME");
+    }
+    String orderId = close(position, volume, fillPrice(position.symbol, !position.buy, true), comment(options));
+    emitAccountInformation();
+    return done(orderId, positionId);
+  }
+
+  @Override
+  public CompletableFuture<MetatraderTradeResponse> closePosition(String positionId, MarketTradeOptions options) {
+    Position position = positions.get(positionId);
+    if (position == null) {
+      return rejected("Position not found", 4753, "ERR_TRADE_POSITION_NOT_FOUND");
+    }
+    String orderId = close(position, position.volume, fillPrice(position.symbol, !position.buy, true),
+      comment(options));
+    emitAccountInformation();
+    return done(orderId, positionId);
+  }
+
+  @Override
+  public CompletableFuture<MetatraderTradeResponse> closePositionsBySymbol(String symbol,
+    MarketTradeOptions options) {
+    List<Position> symbolPositions = new ArrayList<>();
+    for (Position position : positions.values()) {
+      if (position.symbol.symbol.equals(symbol)) {
+        symbolPositions.add(position);
+      }
+    }
+    if (symbolPositions.isEmpty()) {
+      return rejected("Position not found", 4753, "ERR_TRADE_POSITION_NOT_FOUND");
+    }
+    for (Position position : symbolPositions) {
+      close(position, position.volume, fillPrice(position.symbol, !position.buy, true), comment(options));
+    }
+    emitAccountInformation();
+    return done(null, null);
+  }
+
+  @Override
+  public CompletableFuture<MetatraderTradeResponse> modifyOrder(String orderId, double openPrice, Double stopLoss,
+    Double takeProfit) {
+    Order order = orders.get(orderId);
+    if (order == null) {
+      return rejected("Order not found", 4754, "ERR_TRADE_ORDER_NOT_FOUND");
+    }
+    if (!validOrderPrice(order.symbol, order.type, openPrice)) {
+      return rejected("Invalid price", 10015, "TRADE_RETCODE_INVALID_PRICE");
+    }
+    if (!validStops(isBuy(order.type), openPrice, stopLoss, takeProfit)) {
+      return rejected("Invalid stops", 10016, "TRADE_RETCODE_INVALID_STOPS");
+    }
+    order.openPrice = openPrice;
+    order.stopLoss = value(stopLoss);
+    order.takeProfit = value(takeProfit);
+    emitOrderUpdated(order);
+    return done(orderId, null);
+  }
+
+  @Override
+  public CompletableFuture<MetatraderTradeResponse> cancelOrder(String orderId) {
+    Order order = orders.remove(orderId);
+    if (order == null) {
+      return rejected("Order not found", 4754, "ERR_TRADE_ORDER_NOT_FOUND");
+    }
+    completeOrder(order, MetatraderOrder.OrderState.ORDER_STATE_CANCELED, null);
+    return done(orderId, null);
+  }
+
+  /**
+   * Announces the account and symbols to the listeners, like a connection does on synchronization
+   */
+  void start() {
+    for (SynchronizationListener listener : listeners) {
+      listener.onConnected(INSTANCE_INDEX, 1);
+    }
+    emitAccountInformation();
+    for (SymbolState symbol : symbols.values()) {
+      MetatraderSymbolSpecification specification = new MetatraderSymbolSpecification();
+      specification.symbol = symbol.symbol;
+      specification.tickSize = symbol.point;
+      specification.digits = (int) Math.max(0, Math.round(-Math.log10(symbol.point)));
+      specification.minVolume = symbol.options.minVolume;
+      specification.maxVolume = symbol.options.maxVolume;
+      specification.volumeStep = symbol.options.volumeStep;
+      for (SynchronizationListener listener : listeners) {
+        listener.onSymbolSpecificationUpdated(INSTANCE_INDEX, specification);
+      }
+    }
+  }
+
+  /**
+   * Returns state of a symbol, creating it on first use
+   * @param symbol symbol
+   * @return symbol state
+   */
+  SymbolState getSymbol(String symbol) {
+    return symbols.computeIfAbsent(symbol, key -> new SymbolState(key,
+      options.symbols.getOrDefault(key, options.defaultSymbolOptions)));
+  }
+
+  /**
+   * Processes a historical tick: executes triggered orders, updates the account and notifies the listeners
+   * @param symbol symbol state
+   * @param time tick time in epoch milliseconds
+   * @param bid bid price
+   * @param ask ask price
+   * @param last last deal price
+   * @param volume last deal volume
+   */
+  void processTick(SymbolState symbol, long time, double bid, double ask, double last, double volume) {
+    MetatraderSymbolPrice price = processPrice(symbol, time, bid, ask);
+    if (listeners.length != 0) {
+      MetatraderTick tick = new MetatraderTick();
+      tick.symbol = symbol.symbol;
+      tick.time = price.time;
+      tick.bid = bid;
+      tick.ask = ask;
+      tick.last = Double.isNaN(last) ? null : last;
+      tick.volume = Double.isNaN(volume) ? null : volume;
+      List<MetatraderTick> ticks = Collections.singletonList(tick);
+      Double marginLevel = getMarginLevel();
+      for (SynchronizationListener listener : listeners) {
+        listener.onTicksUpdated(INSTANCE_INDEX, ticks, equity, margin, equity - margin, marginLevel, null);
+      }
+    }
+  }
+
+  /**
+   * Processes a step of the price path of a historical candle: the open price, the high or low price, the low or
+   * high price and the close price, in the order implied by the candle direction. The listeners are notified of the
+   * completed candle after its close price
+   * @param symbol symbol state
+   * @param candles candles
+   * @param index index of the candle
+   * @param step step of the price path, from 0 to 3
+   * @param time time of the step in epoch milliseconds
+   */
+  void processCandleStep(SymbolState symbol, CandleColumns candles, int index, int step, long time) {
+    double spread = candles.getSpread(index);
+    spread = (Double.isNaN(spread) ? symbol.options.defaultSpreadInPoints : spread) * symbol.point;
+    double open = candles.getOpen(index);
+    double close = candles.getClose(index);
+    boolean bullish = close >= open;
+    double price = step == 0 ? open : step == 3 ? close
+      : (step == 1) == bullish ? candles.getLow(index) : candles.getHigh(index);
+    processPrice(symbol, time, price, price + spread);
+    if (step == 3 && listeners.length != 0) {
+      MetatraderCandle candle = new MetatraderCandle();
+      candle.symbol = symbol.symbol;
+      candle.timeframe = candles.getTimeframe();
+      candle.time = new IsoTime(new Date(candles.getTime(index)));
+      candle.open = open;
+      candle.high = candles.getHigh(index);
+      candle.low = candles.getLow(index);
+      candle.close = close;
+      candle.tickVolume = value(candles.getTickVolume(index));
+      candle.spread = value(candles.getSpread(index));
+      candle.volume = value(candles.getVolume(index));
+      List<MetatraderCandle> candleList = Collections.singletonList(candle);
+      Double marginLevel = getMarginLevel();
+      for (SynchronizationListener listener : listeners) {
+        listener.onCandlesUpdated(INSTANCE_INDEX, candleList, equity, margin, equity - margin, marginLevel, null);
+      }
+    }
+  }
+
+  /**
+   * Fills a backtest result with the final account state and statistics
+   * @param result result to fill
+   */
+  void fillResult(BacktestResult<?> result) {
+    result.initialBalance = options.initialBalance;
+    result.balance = balance;
+    result.equity = equity;
+    result.maxDrawdown = maxDrawdown;
+    result.maxDrawdownPercent = maxDrawdownPercent;
+    result.priceCount = priceCount;
+    result.deals = deals;
+    Map<String, MetatraderDeal> entryDeals = new HashMap<>();
+    for (MetatraderDeal deal : deals) {
+      if (deal.entryType == MetatraderDeal.DealEntryType.DEAL_ENTRY_IN) {
+        entryDeals.put(deal.positionId, deal);
+      } else {
+        // the entry commission is attributed to the closing deals in proportion to their volume
+        MetatraderDeal entryDeal = entryDeals.get(deal.positionId);
+        double profit = deal.profit + deal.commission + entryDeal.commission * deal.volume / entryDeal.volume;
+        result.tradeCount++;
+        if (profit > 0) {
+          result.winningTradeCount++;
+          result.grossProfit += profit;
+        } else {
+          result.grossLoss -= profit;
+        }
+      }
+    }
+  }
+
+  private MetatraderSymbolPrice processPrice(SymbolState symbol, long time, double bid, double ask) {
+    this.time = time;
+    symbol.time = time;
+    symbol.bid = bid;
+    symbol.ask = ask;
+    priceCount++;
+    if (!orders.isEmpty()) {
+      matchOrders(symbol);
+    }
+    if (!positions.isEmpty()) {
+      matchStops(symbol);
+    }
+    updateEquity();
+    if (listeners.length == 0) {
+      return null;
+    }
+    MetatraderSymbolPrice price = new MetatraderSymbolPrice();
+    price.symbol = symbol.symbol;
+    price.time = new IsoTime(new Date(time));
+    price.bid = bid;
+    price.ask = ask;
+    price.profitTickValue = symbol.options.contractSize * symbol.point;
+    price.lossTickValue = price.profitTickValue;
+    List<MetatraderSymbolPrice> prices = Collections.singletonList(price);
+    Double marginLevel = getMarginLevel();
+    for (SynchronizationListener listener : listeners) {
+      listener.onSymbolPriceUpdated(INSTANCE_INDEX, price);
+      listener.onSymbolPricesUpdated(INSTANCE_INDEX, prices, equity, margin, equity - margin, marginLevel, null);
+    }
+    return price;
+  }
+
+  private void matchOrders(SymbolState symbol) {
+    triggeredOrders.clear();
+    for (Order order : orders.values()) {
+      if (order.symbol == symbol && isTriggered(order)) {
+        triggeredOrders.add(order);
+      }
+    }
+    for (Order order : triggeredOrders) {
+      // a listener notified of an earlier execution may have canceled the order
+      if (orders.remove(order.id) == null) {
+        continue;
+      }
+      boolean buy = isBuy(order.type);
+      boolean stop = order.type == MetatraderOrder.OrderType.ORDER_TYPE_BUY_STOP
+        || order.type == MetatraderOrder.OrderType.ORDER_TYPE_SELL_STOP;
+      double price = fillPrice(symbol, buy, stop);
+      if (requiredMargin(symbol, order.volume, price) > equity - margin) {
+        completeOrder(order, MetatraderOrder.OrderState.ORDER_STATE_REJECTED, null);
+        continue;
+      }
+      Position position = open(symbol, buy, order.volume, price, order.stopLoss, order.takeProfit, order.id,
+        order.type, order.magic, order.comment, order.clientId);
+      completeOrder(order, MetatraderOrder.OrderState.ORDER_STATE_FILLED, position);
+      emitPositionUpdated(position);
+      emitAccountInformation();
+    }
+  }
+
+  private void matchStops(SymbolState symbol) {
+    triggeredPositions.clear();
+    for (Position position : positions.values()) {
+      if (position.symbol == symbol && (isStopLossHit(position) || isTakeProfitHit(position))) {
+        triggeredPositions.add(position);
+      }
+    }
+    for (Position position : triggeredPositions) {
+      if (!positions.containsKey(position.id)) {
+        continue;
+      }
+      boolean stopLoss = isStopLossHit(position);
+      close(position, position.volume, fillPrice(symbol, !position.buy, stopLoss), stopLoss ? "[sl]" : "[tp]");
+      emitAccountInformation();
+    }
+  }
+
+  private void updateEquity() {
+    double profit = 0;
+    for (Position position : positions.values()) {
+      position.profit = profit(position, position.volume);
+      profit += position.profit;
+    }
+    equity = balance + profit;
+    if (equity > peakEquity) {
+      peakEquity = equity;
+    } else if (peakEquity - equity > maxDrawdown) {
+      maxDrawdown = peakEquity - equity;
+      maxDrawdownPercent = Math.max(maxDrawdownPercent, maxDrawdown / peakEquity * 100);
+    }
+    while (margin > 0 && equity / margin * 100 < options.stopOutLevel && !positions.isEmpty()) {
+      Position worst = null;
+      for (Position position : positions.values()) {
+        if (worst == null || position.profit < worst.profit) {
+          worst = position;
+        }
+      }
+      close(worst, worst.volume, fillPrice(worst.symbol, !worst.buy, true), "[so]");
+      emitAccountInformation();
+    }
+  }
+
+  private CompletableFuture<MetatraderTradeResponse> createMarketOrder(String symbolName, boolean buy,
+    double volume, Double stopLoss, Double takeProfit, TradeOptions tradeOptions) {
+    SymbolState symbol = symbols.get(symbolName);
+    if (symbol == null || Double.isNaN(symbol.bid)) {
+      return rejected("Market is closed", 10018, "TRADE_RETCODE_MARKET_CLOSED");
+    }
+    if (!validVolume(symbol, volume)) {
+      return rejected("Invalid volume", 10014, "TRADE_RETCODE_INVALID_VOLUME");
+    }
+    if (!validStops(buy, buy ? symbol.bid : symbol.ask, stopLoss, takeProfit)) {
+      return rejected("Invalid stops", 10016, "TRADE_RETCODE_INVALID_STOPS");
+    }
+    double price = fillPrice(symbol, buy, true);
+    if (requiredMargin(symbol, volume, price) > equity - margin) {
+      return rejected("No money", 10019, "TRADE_RETCODE_NO_MONEY");
+    }
+    String orderId = nextTicket();
+    Position position = open(symbol, buy, volume, price, value(stopLoss), value(takeProfit), orderId,
+      buy ? MetatraderOrder.OrderType.ORDER_TYPE_BUY : MetatraderOrder.OrderType.ORDER_TYPE_SELL,
+      tradeOptions != null ? tradeOptions.magic : null, comment(tradeOptions),
+      tradeOptions != null ? tradeOptions.clientId : null);
+    emitHistoryOrder(orderId, position.buy ? MetatraderOrder.OrderType.ORDER_TYPE_BUY
+      : MetatraderOrder.OrderType.ORDER_TYPE_SELL, MetatraderOrder.OrderState.ORDER_STATE_FILLED, symbol, volume,
+      price, position.id, position.magic, position.comment, position.clientId, time);
+    emitPositionUpdated(position);
+    emitAccountInformation();
+    return done(orderId, position.id);
+  }
+
+  private CompletableFuture<MetatraderTradeResponse> createPendingOrder(String symbolName,
+    MetatraderOrder.OrderType type, double volume, double openPrice, Double stopLoss, Double takeProfit,
+    TradeOptions tradeOptions) {
+    SymbolState symbol = symbols.get(symbolName);
+    if (symbol == null || Double.isNaN(symbol.bid)) {
+      return rejected("Market is closed", 10018, "TRADE_RETCODE_MARKET_CLOSED");
+    }
+    if (!validVolume(symbol, volume)) {
+      return rejected("Invalid volume", 10014, "TRADE_RETCODE_INVALID_VOLUME");
+    }
+    if (!validOrderPrice(symbol, type, openPrice)) {
+      return rejected("Invalid price", 10015, "TRADE_RETCODE_INVALID_PRICE");
+    }
+    if (!validStops(isBuy(type), openPrice, stopLoss, takeProfit)) {
+      return rejected("Invalid stops", 10016, "TRADE_RETCODE_INVALID_STOPS");
+    }
+    Order order = new Order();
+    order.id = nextTicket();
+    order.symbol = symbol;
+    order.type = type;
+    order.volume = volume;
+    order.openPrice = openPrice;
+    order.stopLoss = value(stopLoss);
+    order.takeProfit = value(takeProfit);
+    order.time = time;
+    order.magic = tradeOptions != null ? tradeOptions.magic : null;
+    order.comment = comment(tradeOptions);
+    order.clientId = tradeOptions != null ? tradeOptions.clientId : null;
+    orders.put(order.id, order);
+    emitOrderUpdated(order);
+    MetatraderTradeResponse response = new MetatraderTradeResponse();
+    response.numericCode = 10008;
+    response.stringCode = "TRADE_RETCODE_PLACED";
+    response.message = "Order placed";
+    response.orderId = order.id;
+    return CompletableFuture.completedFuture(response);
+  }
+
+  private Position open(SymbolState symbol, boolean buy, double volume, double price, double stopLoss,
+    double takeProfit, String orderId, MetatraderOrder.OrderType orderType, Integer magic, String comment,
+    String clientId) {
+    Position position = new Position();
+    position.id = orderId;
+    position.symbol = symbol;
+    position.buy = buy;
+    position.volume = volume;
+    position.openPrice = price;
+    position.stopLoss = stopLoss;
+    position.takeProfit = takeProfit;
+    position.margin = requiredMargin(symbol, volume, price);
+    position.time = time;
+    position.updateTime = time;
+    position.magic = magic;
+    position.comment = comment;
+    position.clientId = clientId;
+    double commission = -options.commissionPerLot * volume;
+    position.commission = commission;
+    balance += commission;
+    margin += position.margin;
+    positions.put(position.id, position);
+    position.profit = profit(position, volume);
+    addDeal(position, buy, MetatraderDeal.DealEntryType.DEAL_ENTRY_IN, volume, price, 0, commission, orderId,
+      comment);
+    return position;
+  }
+
+  private String close(Position position, double volume, double price, String comment) {
+    String orderId = nextTicket();
+    double profit = (position.buy ? price - position.openPrice : position.openPrice - price) * volume
+      * position.symbol.options.contractSize;
+    double commission = -options.commissionPerLot * volume;
+    balance += profit + commission;
+    double closedMargin = position.margin * Math.min(1, volume / position.volume);
+    margin -= closedMargin;
+    position.margin -= closedMargin;
+    position.volume -= volume;
+    position.realizedProfit += profit;
+    position.commission += commission;
+    position.updateTime = time;
+    MetatraderOrder.OrderType type = position.buy ? MetatraderOrder.OrderType.ORDER_TYPE_SELL
+      : MetatraderOrder.OrderType.ORDER_TYPE_BUY;
+    emitHistoryOrder(orderId, type, MetatraderOrder.OrderState.ORDER_STATE_FILLED, position.symbol, volume, price,
+      position.id, position.magic, comment, position.clientId, time);
+    addDeal(position, !position.buy, MetatraderDeal.DealEntryType.DEAL_ENTRY_OUT, volume, price, profit,
+      commission, orderId, comment);
+    if (position.volume <= 1e-9) {
+      margin -= position.margin;
+      positions.remove(position.id);
+      for (SynchronizationListener listener : listeners) {
+        listener.onPositionRemoved(INSTANCE_INDEX, position.id);
+      }
+    } else {
+      position.profit = profit(position, position.volume);
+      emitPositionUpdated(position);
+    }
+    updateEquity();
+    return orderId;
+  }
+
+  private void addDeal(Position position, boolean buy, MetatraderDeal.DealEntryType entryType, double volume,
+    double price, double profit, double commission, String orderId, String comment) {
+    MetatraderDeal deal = new MetatraderDeal();
+    deal.id = nextTicket();
+    deal.type = buy ? MetatraderDeal.DealType.DEAL_TYPE_BUY : MetatraderDeal.DealType.DEAL_TYPE_SELL;
+    deal.entryType = entryType;
+    deal.symbol = position.symbol.symbol;
+    deal.magic = position.magic;
+    deal.time = new IsoTime(new Date(time));
+    deal.volume = volume;
+    deal.price = price;
+    deal.commission = commission;
+    deal.swap = 0.0;
+    deal.profit = profit;
+    deal.positionId = position.id;
+    deal.orderId = orderId;
+    deal.comment = comment;
+    deal.clientId = position.clientId;
+    deals.add(deal);
+    for (SynchronizationListener listener : listeners) {
+      listener.onDealAdded(INSTANCE_INDEX, deal);
+    }
+  }
+
+  private void completeOrder(Order order, MetatraderOrder.OrderState state, Position position) {
+    for (SynchronizationListener listener : listeners) {
+      listener.onOrderCompleted(INSTANCE_INDEX, order.id);
+    }
+    emitHistoryOrder(order.id, order.type, state, order.symbol, order.volume,
+      position != null ? position.openPrice : order.openPrice, position != null ? position.id : null, order.magic,
+      order.comment, order.clientId, order.time);
+  }
+
+  private void emitHistoryOrder(String id, MetatraderOrder.OrderType type, MetatraderOrder.OrderState state,
+    SymbolState symbol, double volume, double price, String positionId, Integer magic, String comment,
+    String clientId, long orderTime) {
+    if (listeners.length == 0) {
+      return;
+    }
+    MetatraderOrder order = new MetatraderOrder();
+    order.id = id;
+    order.type = type;
+    order.state = state;
+    order.symbol = symbol.symbol;
+    order.magic = magic;
+    order.time = new IsoTime(new Date(orderTime));
+    order.doneTime = new IsoTime(new Date(time));
+    order.openPrice = price;
+    order.volume = volume;
+    order.currentVolume = state == MetatraderOrder.OrderState.ORDER_STATE_FILLED ? 0 : volume;
+    order.positionId = positionId;
+    order.comment = comment;
+    order.clientId = clientId;
+    for (SynchronizationListener listener : listeners) {
+      listener.onHistoryOrderAdded(INSTANCE_INDEX, order);
+    }
+  }
+
+  private void emitPositionUpdated(Position position) {
+    if (listeners.length == 0) {
+      return;
+    }
+    MetatraderPosition model = toModel(position);
+    for (SynchronizationListener listener : listeners) {
+      listener.onPositionUpdated(INSTANCE_INDEX, model);
+    }
+  }
+
+  private void emitOrderUpdated(Order order) {
+    if (listeners.length == 0) {
+      return;
+    }
+    MetatraderOrder model = toModel(order);
+    for (SynchronizationListener listener : listeners) {
+      listener.onOrderUpdated(INSTANCE_INDEX, model);
+    }
+  }
+
+  private void emitAccountInformation() {
+    if (listeners.length == 0) {
+      return;
+    }
+    MetatraderAccountInformation accountInformation = toAccountInformation();
+    for (SynchronizationListener listener : listeners) {
+      listener.onAccountInformationUpdated(INSTANCE_INDEX, accountInformation);
+    }
+  }
+
+  private MetatraderAccountInformation toAccountInformation() {
+    MetatraderAccountInformation accountInformation = new MetatraderAccountInformation();
+    accountInformation.platform = "mt5";
+    accountInformation.broker = "Backtest";
+    accountInformation.currency = options.currency;
+    accountInformation.name = "Backtest";
+    accountInformation.balance = balance;
+    accountInformation.equity = equity;
+    accountInformation.margin = margin;
+    accountInformation.freeMargin = equity - margin;
+    accountInformation.leverage = options.leverage;
+    accountInformation.marginLevel = getMarginLevel();
+    return accountInformation;
+  }
+
+  private MetatraderPosition toModel(Position position) {
+    MetatraderPosition model = new MetatraderPosition();
+    model.id = position.id;
+    model.type = position.buy ? MetatraderPosition.PositionType.POSITION_TYPE_BUY
+      : MetatraderPosition.PositionType.POSITION_TYPE_SELL;
+    model.symbol = position.symbol.symbol;
+    model.magic = position.magic;
+    model.time = new IsoTime(new Date(position.time));
+    model.updateTime = new IsoTime(new Date(position.updateTime));
+    model.openPrice = position.openPrice;
+    model.currentPrice = position.buy ? position.symbol.bid : position.symbol.ask;
+    model.volume = position.volume;
+    model.stopLoss = value(position.stopLoss);
+    model.takeProfit = value(position.takeProfit);
+    model.swap = 0.0;
+    model.commission = position.commission;
+    model.unrealizedProfit = position.profit;
+    model.realizedProfit = position.realizedProfit + position.commission;
+    model.profit = position.profit + position.realizedProfit + position.commission;
+    model.comment = position.comment;
+    model.clientId = position.clientId;
+    return model;
+  }
+
+  private MetatraderOrder toModel(Order order) {
+    MetatraderOrder model = new MetatraderOrder();
+    model.id = order.id;
+    model.type = order.type;
+    model.state = MetatraderOrder.OrderState.ORDER_STATE_PLACED;
+    model.symbol = order.symbol.symbol;
+    model.magic = order.magic;
+    model.time = new IsoTime(new Date(order.time));
+    model.openPrice = order.openPrice;
+    model.currentPrice = isBuy(order.type) ? order.symbol.ask : order.symbol.bid;
+    model.stopLoss = value(order.stopLoss);
+    model.takeProfit = value(order.takeProfit);
+    model.volume = order.volume;
+    model.currentVolume = order.volume;
+    model.comment = order.comment;
+    model.clientId = order.clientId;
+    return model;
+  }
+
+  private boolean isTriggered(Order order) {
+    switch (order.type) {
+      case ORDER_TYPE_BUY_LIMIT:
+        return order.symbol.ask <= order.openPrice;
+      case ORDER_TYPE_SELL_LIMIT:
+        return order.symbol.bid >= order.openPrice;
+      case ORDER_TYPE_BUY_STOP:
+        return order.symbol.ask >= order.openPrice;
+      case ORDER_TYPE_SELL_STOP:
+        return order.symbol.bid <= order.openPrice;
+      default:
+        return false;
+    }
+  }
+
+  private boolean isStopLossHit(Position position) {
+    return position.buy ? position.symbol.bid <= position.stopLoss : position.symbol.ask >= position.stopLoss;
+  }
+
+  private boolean isTakeProfitHit(Position position) {
+    return position.buy ? position.symbol.bid >= position.takeProfit : position.symbol.ask <= position.takeProfit;
+  }
+
+  private double fillPrice(SymbolState symbol, boolean buy, boolean slipped) {
+    double slippage = slipped ? options.slippageInPoints * symbol.point : 0;
+    return buy ? symbol.ask + slippage : symbol.bid - slippage;
+  }
+
+  private double profit(Position position, double volume) {
+    double price = position.buy ? position.symbol.bid : position.symbol.ask;
+    return (position.buy ? price - position.openPrice : position.openPrice - price) * volume
+      * position.symbol.options.contractSize;
+  }
+
+  private double requiredMargin(SymbolState symbol, double volume, double price) {
+    return volume * symbol.options.contractSize * price / options.leverage;
+  }
+
+  private Double getMarginLevel() {
+    return margin > 0 ? equity / margin * 100 : null;
+  }
+
+  private boolean validVolume(SymbolState symbol, double volume) {
+    Backtest.SymbolOptions symbolOptions = symbol.options;
+    double steps = volume / symbolOptions.volumeStep;
+    return volume >= symbolOptions.minVolume - 1e-9 && volume <= symbolOptions.maxVolume + 1e-9
+      && Math.abs(steps - Math.round(steps)) < 1e-6;
+  }
+
+  private boolean validOrderPrice(SymbolState symbol, MetatraderOrder.OrderType type, double openPrice) {
+    switch (type) {
+      case ORDER_TYPE_BUY_LIMIT:
+        return openPrice < symbol.ask;
+      case ORDER_TYPE_SELL_LIMIT:
+        return openPrice > symbol.bid;
+      case ORDER_TYPE_BUY_STOP:
+        return openPrice > symbol.ask;
+      case ORDER_TYPE_SELL_STOP:
+        return openPrice < symbol.bid;
+      default:
+        return false;
+    }
+  }
+
+  private static boolean validStops(boolean buy, double price, Double stopLoss, Double takeProfit) {
+    if (stopLoss != null && (buy ? stopLoss >= price : stopLoss <= price)) {
+      return false;
+    }
+    return takeProfit == null || (buy ? takeProfit > price : takeProfit < price);
+  }
+
+  private static boolean isBuy(MetatraderOrder.OrderType type) {
+    return type == MetatraderOrder.OrderType.ORDER_TYPE_BUY || type == MetatraderOrder.OrderType.ORDER_TYPE_BUY_LIMIT
+      || type == MetatraderOrder.OrderType.ORDER_TYPE_BUY_STOP;
+  }
+
+  private String nextTicket() {
+    return String.valueOf(nextTicket++);
+  }
+
+  private static String comment(TradeOptions options) {
+    return options != null ? options.comment : null;
+  }
+
+  private static double value(Double value) {
+    return value != null ? value : Double.NaN;
+  }
+
+  private static Double value(double value) {
+    return Double.isNaN(value) ? null : value;
+  }
+
+  private static CompletableFuture<MetatraderTradeResponse> done(String orderId, String positionId) {
+    MetatraderTradeResponse response = new MetatraderTradeResponse();
+    response.numericCode = 10009;
+    response.stringCode = "TRADE_RETCODE_DONE";
+    response.message = "Request completed";
+    response.orderId = orderId;
+    response.positionId = positionId;
+    return CompletableFuture.completedFuture(response);
+  }
+
+  private static CompletableFuture<MetatraderTradeResponse> rejected(String message, int numericCode,
+    String stringCode) {
+    return failed(new TradeException(message, numericCode, stringCode));
+  }
+
+  private static <T> CompletableFuture<T> failed(Throwable error) {
+    CompletableFuture<T> result = new CompletableFuture<>();
+    result.completeExceptionally(error);
+    return result;
+  }
+}
@@ -0,0 +1,151 @@
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import cloud.metaapi.sdk.clients.meta_api.SynchronizationListener;
+import cloud.metaapi.sdk.clients.meta_api.models.MetatraderAccountDto.ConnectionStatus;
+import cloud.metaapi.sdk.clients.meta_api.models.MetatraderAccountDto.DeploymentState;
+import cloud.metaapi.sdk.clients.meta_api.models.MetatraderCandle;
+import cloud.metaapi.sdk.clients.meta_api.models.MetatraderTradeResponse;
+import cloud.metaapi.sdk.meta_api.MetaApi;
+import cloud.metaapi.sdk.meta_api.MetatraderAccount;
+
+/**
+ * Backtests a moving average crossover strategy on cached candles, sweeping the moving average periods. The
+ * strategy only uses {@link TradingConnection}, so it can run live on a {@link MetaApiTradingConnection} as is
+ */
+public class BacktestExample {
+
+  private static String token = getEnvOrDefault("TOKEN", "<put in your token here>");
+  private static String accountId = getEnvOrDefault("ACCOUNT_ID", "<put in your account id here>");
+  private static String symbol = getEnvOrDefault("SYMBOL", "EURUSD");
+  private static String apiDomain = getEnvOrDefault("DOMAIN", "agiliumtrade.agiliumtrade.ai");
+  private static String cacheDirectory = getEnvOrDefault("CACHE_DIRECTORY", "historical-data-cache");
+
+  public static void main(String[] args) {
+    try {
+      MetaApi api = new MetaApi(token, new MetaApi.Options() {{domain = apiDomain;}});
+
+      MetatraderAccount account = api.getMetatraderAccountApi().getAccount(accountId).join();
+
+      // wait until account is deployed and connected to broker
+      System.out.println("Deploying account");
+      if (account.getState() != DeploymentState.DEPLOYED) {
+        account.deploy().join();
+      } else {
+        System.out.println("Account already deployed");
+      }
+      System.out.println("Waiting for API server to connect to broker (may take couple of minutes)");
+      if (account.getConnectionStatus() != ConnectionStatus.CONNECTED) {
+        account.waitConnected().join();
+      }
+
+      HistoricalDataCache.Options cacheOptions = new HistoricalDataCache.Options();
+      cacheOptions.directory = cacheDirectory;
+      HistoricalDataCache cache = new HistoricalDataCache(account, cacheOptions);
+      Instant to = Instant.now().truncatedTo(ChronoUnit.DAYS);
+      System.out.println("Retrieving " + symbol + " 1m candles of the last 30 days");
+      CandleColumns candles = cache.getCandles(symbol, "1m", to.minus(30, ChronoUnit.DAYS), to).join();
+      System.out.println("Retrieved " + candles.size() + " candles");
+
+      Backtest.Options options = new Backtest.Options();
+      options.commissionPerLot = 7;
+      options.defaultSymbolOptions.defaultSpreadInPoints = 10;
+      Backtest backtest = new Backtest(options).addCandles(candles);
+
+      List<int[]> parameters = new ArrayList<>();
+      for (int fastPeriod = 5; fastPeriod <= 50; fastPeriod += 5) {
+        for (int slowPeriod = fastPeriod * 2; slowPeriod <= 200; slowPeriod += 10) {
+          parameters.add(new int[] {fastPeriod, slowPeriod});
+        }
+      }
+      System.out.println("Running " + parameters.size() + " backtests on " + options.parallelism + " threads");
+      long startedAt = System.currentTimeMillis();
+      List<BacktestResult<int[]>> results = backtest.<int[]>sweep((connection, periods) ->
+        connection.addSynchronizationListener(new MovingAverageCrossover(connection, symbol, periods[0],
+          periods[1], 0.1)), parameters).join();
+      System.out.println("Backtests took " + (System.currentTimeMillis() - startedAt) + "ms");
+
+      results.sort(Comparator.comparingDouble(result -> -result.getNetProfit()));
+      System.out.println("Best parameters:");
+      for (BacktestResult<int[]> result : results.subList(0, Math.min(5, results.size()))) {
+        System.out.println(String.format("fast %d, slow %d: net profit %.2f, max drawdown %.2f%%, %d trades, "
+          + "profit factor %.2f", result.parameters[0], result.parameters[1], result.getNetProfit(),
+          result.maxDrawdownPercent, result.tradeCount, result.getProfitFactor()));
+      }
+
+    } catch (Exception err) {
+      System.err.println(err);
+    }
+    System.exit(0);
+  }
+
+  /**
+   * Strategy holding a position in the direction of the fast moving average relative to the slow one
+   */
+  private static class MovingAverageCrossover extends SynchronizationListener {
+
+    private TradingConnection connection;
+    private String symbol;
+    private double volume;
+    private double[] closes;
+    private int count = 0;
+    private int fastPeriod;
+    private double fastSum = 0;
+    private double slowSum = 0;
+    private String positionId;
+    private boolean holdingLong;
+
+    public MovingAverageCrossover(TradingConnection connection, String symbol, int fastPeriod, int slowPeriod,
+      double volume) {
+      this.connection = connection;
+      this.symbol = symbol;
+      this.fastPeriod = fastPeriod;
+      this.closes = new double[slowPeriod];
+      this.volume = volume;
+    }
+
+    @Override
+    public CompletableFuture<Void> onCandlesUpdated(String instanceIndex, List<MetatraderCandle> candles,
+      Double equity, Double margin, Double freeMargin, Double marginLevel, Double accountCurrencyExchangeRate) {
+      for (MetatraderCandle candle : candles) {
+        if (candle.symbol.equals(symbol)) {
+          onClose(candle.close);
+        }
+      }
+      return CompletableFuture.completedFuture(null);
+    }
+
+    private void onClose(double close) {
+      int slowPeriod = closes.length;
+      fastSum += close - (count >= fastPeriod ? closes[(count - fastPeriod) % slowPeriod] : 0);
+      slowSum += close - (count >= slowPeriod ? closes[count % slowPeriod] : 0);
+      closes[count % slowPeriod] = close;
+      if (++count < slowPeriod) {
+        return;
+      }
+      boolean bullish = fastSum / fastPeriod > slowSum / slowPeriod;
+      if (positionId != null && bullish == holdingLong) {
+        return;
+      }
+      // the position may have been stopped out, and the order may be rejected for lack of money, in which case
+      // it is retried on the next candle
+      if (positionId != null) {
+        connection.closePosition(positionId, null).exceptionally(err -> null).join();
+      }
+      MetatraderTradeResponse response = (bullish
+        ? connection.createMarketBuyOrder(symbol, volume, null, null, null)
+        : connection.createMarketSellOrder(symbol, volume, null, null, null)).exceptionally(err -> null).join();
+      positionId = response != null ? response.positionId : null;
+      holdingLong = bullish;
+    }
+  }
+
+  private static String getEnvOrDefault(String name, String defaultValue) {
+    String result = System.getenv(name);
+    return (result != null ? result : defaultValue);
+  }
+}
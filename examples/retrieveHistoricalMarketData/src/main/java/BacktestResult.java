@@ -0,0 +1,87 @@
+import java.util.List;
+
+import cloud.metaapi.sdk.clients.meta_api.models.MetatraderDeal;
+
+/**
+ * Result of a backtest run by {@link Backtest}. Money values are in the account currency
+ * @param <P> type of the strategy parameters
+ */
+public class BacktestResult<P> {
+  /**
+   * Strategy parameters of the run
+   */
+  public P parameters;
+  /**
+   * Initial balance
+   */
+  public double initialBalance;
+  /**
+   * Balance at the end of the run
+   */
+  public double balance;
+  /**
+   * Equity at the end of the run, including profit of the positions left open
+   */
+  public double equity;
+  /**
+   * Maximum drop of equity from its previous peak
+   */
+  public double maxDrawdown;
+  /**
+   * Maximum drop of equity from its previous peak relative to the peak, in percent
+   */
+  public double maxDrawdownPercent;
+  /**
+   * Number of deals closing positions
+   */
+  public int tradeCount;
+  /**
+   * Number of deals closing positions with a positive profit
+   */
+  public int winningTradeCount;
+  /**
+   * Sum of profits of the deals closing positions with a positive profit. The profit of a deal includes its
+   * commission and the entry commission of the volume it closes
+   */
+  public double grossProfit;
+  /**
+   * Sum of losses of the deals closing positions with a negative profit, as a positive number. The profit of a
+   * deal includes its commission and the entry commission of the volume it closes
+   */
+  public double grossLoss;
+  /**
+   * Number of prices the strategy was run on
+   */
+  public long priceCount;
+  /**
+   * Wall clock duration of the run in milliseconds
+   */
+  public long durationInMilliseconds;
+  /**
+   * All deals of the run in execution order
+   */
+  public List<MetatraderDeal> deals;
+
+  /**
+   * Returns profit of the run
+   * @return equity minus initial balance
+   */
+  public double getNetProfit() {
+    return equity - initialBalance;
+  }
+
+  /**
+   * Returns ratio of gross profit to gross loss
+   * @return profit factor, or {@link Double#POSITIVE_INFINITY} if there were no losing trades
+   */
+  public double getProfitFactor() {
+    return grossLoss != 0 ? grossProfit / grossLoss : grossProfit != 0 ? Double.POSITIVE_INFINITY : 0;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("%s: net profit %.2f, max drawdown %.2f (%.2f%%), %d trades, %d won, profit factor %.2f",
+      parameters, getNetProfit(), maxDrawdown, maxDrawdownPercent, tradeCount, winningTradeCount,
+      getProfitFactor());
+  }
+}
@@ -0,0 +1,155 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Date;
+
+import cloud.metaapi.sdk.clients.meta_api.models.MetatraderAccountDto.ConnectionStatus;
+import cloud.metaapi.sdk.clients.meta_api.models.MetatraderAccountDto.DeploymentState;
+import cloud.metaapi.sdk.meta_api.MetaApi;
+import cloud.metaapi.sdk.meta_api.MetatraderAccount;
+
+public class BulkDownloadHistoricalTicks {
+
+  // the output file starts with the time range, followed by time, bid, ask, last and volume of each tick
+  private static final int HEADER_SIZE = 2 * 8;
+  private static final int TICK_RECORD_SIZE = 8 + 4 * 8;
+
+  private static String token = getEnvOrDefault("TOKEN", "<put in your token here>");
+  private static String accountId = getEnvOrDefault("ACCOUNT_ID", "<put in your account id here>");
+  private static String symbol = getEnvOrDefault("SYMBOL", "EURUSD");
+  private static String apiDomain = getEnvOrDefault("DOMAIN", "agiliumtrade.agiliumtrade.ai");
+  private static String checkpointFile = getEnvOrDefault("CHECKPOINT_FILE", "ticks-download.checkpoint");
+  private static String outputFile = getEnvOrDefault("OUTPUT_FILE", "ticks-download.ticks");
+  // ISO 8601 time range, such as 2020-04-15T00:00:00Z, by default the range of the interrupted download in the
+  // output file is resumed, or the last 7 days are downloaded
+  private static String fromTime = getEnvOrDefault("FROM", null);
+  private static String toTime = getEnvOrDefault("TO", null);
+
+  public static void main(String[] args) {
+    try (FileChannel output = FileChannel.open(Paths.get(outputFile), StandardOpenOption.CREATE,
+      StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+      MetaApi api = new MetaApi(token, new MetaApi.Options() {{domain = apiDomain;}});
+
+      MetatraderAccount account = api.getMetatraderAccountApi().getAccount(accountId).join();
+
+      // wait until account is deployed and connected to broker
+      System.out.println("Deploying account");
+      if (account.getState() != DeploymentState.DEPLOYED) {
+        account.deploy().join();
+      } else {
+        System.out.println("Account already deployed");
+      }
+      System.out.println("Waiting for API server to connect to broker (may take couple of minutes)");
+      if (account.getConnectionStatus() != ConnectionStatus.CONNECTED) {
+        account.waitConnected().join();
+      }
+
+      // the time range is kept in the output file, so a resumed download asks for the same range as the
+      // interrupted one, which the checkpoint file is matched against
+      Instant from;
+      Instant to;
+      ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+      boolean hasHeader = output.size() >= HEADER_SIZE && output.read(header, 0) == HEADER_SIZE;
+      header.flip();
+      if (fromTime != null && toTime != null) {
+        from = Instant.parse(fromTime);
+        to = Instant.parse(toTime);
+      } else if (hasHeader) {
+        from = Instant.ofEpochMilli(header.getLong(0));
+        to = Instant.ofEpochMilli(header.getLong(8));
+      } else {
+        to = Instant.now().truncatedTo(ChronoUnit.HOURS);
+        from = to.minus(7, ChronoUnit.DAYS);
+      }
+      if (!hasHeader || header.getLong(0) != from.toEpochMilli() || header.getLong(8) != to.toEpochMilli()) {
+        output.truncate(0);
+        header.clear();
+        header.putLong(from.toEpochMilli()).putLong(to.toEpochMilli()).flip();
+        output.write(header, 0);
+      }
+
+      // download ticks in parallel hourly windows, the download resumes from the checkpoint file if it was
+      // interrupted
+      System.out.println("Downloading ticks for " + symbol + " from " + from + " to " + to);
+      long startedAt = Date.from(Instant.now()).getTime();
+      HistoricalTicksDownloader.Options options = new HistoricalTicksDownloader.Options();
+      options.maxConcurrency = 4;
+      options.checkpointFile = checkpointFile;
+      HistoricalTicksDownloader downloader = new HistoricalTicksDownloader(account, options);
+      // ticks of the window the download was interrupted in may have been written before the checkpoint was,
+      // they are delivered again and are dropped from the output first
+      Instant resumeTime = downloader.getResumeTime(symbol, from, to);
+      truncateFrom(output, resumeTime.toEpochMilli());
+      if (resumeTime.isAfter(from)) {
+        System.out.println("Resuming from " + resumeTime + " with " + countTicks(output) + " ticks downloaded");
+      }
+      // the API to retrieve historical market data is currently available for G1 only
+      // historical ticks can be retrieved from MT5 only
+      // each window is written and synced to the output file before the checkpoint moves past it
+      long count = downloader.download(symbol, from, to, ticks -> {
+        System.out.println("Downloaded " + ticks.size() + " historical ticks for " + symbol + " up to "
+          + ticks.get(ticks.size() - 1).time);
+        TickColumns columns = new TickColumns(symbol, ticks.size());
+        columns.appendAll(ticks);
+        ByteBuffer buffer = ByteBuffer.allocate(columns.size() * TICK_RECORD_SIZE);
+        for (int i = 0; i < columns.size(); i++) {
+          buffer.putLong(columns.getTime(i)).putDouble(columns.getBid(i)).putDouble(columns.getAsk(i))
+            .putDouble(columns.getLast(i)).putDouble(columns.getVolume(i));
+        }
+        buffer.flip();
+        try {
+          long position = output.size();
+          while (buffer.hasRemaining()) {
+            position += output.write(buffer, position);
+          }
+          output.force(false);
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      }).join();
+      System.out.println("Downloaded " + count + " ticks in this run, " + countTicks(output)
+        + " ticks in total are in " + outputFile);
+      if (countTicks(output) != 0) {
+        ByteBuffer last = ByteBuffer.allocate(TICK_RECORD_SIZE);
+        output.read(last, output.size() - TICK_RECORD_SIZE);
+        last.flip();
+        System.out.println("Last tick time is " + Instant.ofEpochMilli(last.getLong()) + ", bid is "
+          + last.getDouble() + ", ask is " + last.getDouble());
+      }
+      System.out.println("Took " + (Date.from(Instant.now()).getTime() - startedAt) + "ms");
+
+    } catch (Exception err) {
+      System.err.println(err);
+    }
+    System.exit(0);
+  }
+
+  private static long countTicks(FileChannel output) throws IOException {
+    return (output.size() - HEADER_SIZE) / TICK_RECORD_SIZE;
+  }
+
+  // drops ticks from the time on, ticks are written in time order, so only the end of the file is scanned
+  private static void truncateFrom(FileChannel output, long time) throws IOException {
+    long count = countTicks(output);
+    ByteBuffer tickTime = ByteBuffer.allocate(8);
+    while (count > 0) {
+      tickTime.clear();
+      output.read(tickTime, HEADER_SIZE + (count - 1) * TICK_RECORD_SIZE);
+      if (tickTime.getLong(0) < time) {
+        break;
+      }
+      count--;
+    }
+    output.truncate(HEADER_SIZE + count * TICK_RECORD_SIZE);
+  }
+
+  private static String getEnvOrDefault(String name, String defaultValue) {
+    String result = System.getenv(name);
+    return (result != null ? result : defaultValue);
+  }
+}
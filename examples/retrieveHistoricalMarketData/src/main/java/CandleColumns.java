@@ -0,0 +1,240 @@
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.List;
+
+import cloud.metaapi.sdk.clients.meta_api.models.MetatraderCandle;
+
+/**
+ * Columnar storage of historical candles of a single symbol and timeframe. A candle takes 64 bytes of primitive
+ * columns instead of a {@link MetatraderCandle} object graph. Missing values are stored as {@link Double#NaN}
+ */
+public class CandleColumns extends TimeSeriesColumns {
+
+  private String symbol;
+  private String timeframe;
+  private double[] opens;
+  private double[] highs;
+  private double[] lows;
+  private double[] closes;
+  private double[] tickVolumes;
+  private double[] spreads;
+  private double[] volumes;
+
+  /**
+   * Constructs the columns
+   * @param symbol symbol of the candles
+   * @param timeframe timeframe of the candles, e.g. 1m
+   * @param initialCapacity initial number of candles the columns can hold before growing
+   */
+  public CandleColumns(String symbol, String timeframe, int initialCapacity) {
+    super(initialCapacity);
+    this.symbol = symbol;
+    this.timeframe = timeframe;
+    opens = new double[times.length];
+    highs = new double[times.length];
+    lows = new double[times.length];
+    closes = new double[times.length];
+    tickVolumes = new double[times.length];
+    spreads = new double[times.length];
+    volumes = new double[times.length];
+  }
+
+  /**
+   * Constructs the columns
+   * @param symbol symbol of the candles
+   * @param timeframe timeframe of the candles, e.g. 1m
+   */
+  public CandleColumns(String symbol, String timeframe) {
+    this(symbol, timeframe, 1024);
+  }
+
+  /**
+   * Returns symbol of the candles
+   * @return symbol
+   */
+  public String getSymbol() {
+    return symbol;
+  }
+
+  /**
+   * Returns timeframe of the candles
+   * @return timeframe
+   */
+  public String getTimeframe() {
+    return timeframe;
+  }
+
+  /**
+   * Returns close time of a candle, i.e. the open time of the next candle of the timeframe
+   * @param index candle index
+   * @return close time in epoch milliseconds
+   */
+  public long getCloseTime(int index) {
+    long time = getTime(index);
+    if (timeframe.endsWith("mn")) {
+      return Instant.ofEpochMilli(time).atOffset(ZoneOffset.UTC)
+        .plusMonths(Integer.parseInt(timeframe.substring(0, timeframe.length() - 2))).toInstant().toEpochMilli();
+    }
+    return time + getTimeframeLength(timeframe);
+  }
+
+  /**
+   * Returns length of a MetaApi candle timeframe, e.g. 15m, 4h, 1d, 1w or 1mn. A month is counted as 31 days,
+   * i.e. as the longest month
+   * @param timeframe timeframe
+   * @return timeframe length in milliseconds
+   * @throws IllegalArgumentException if the timeframe is invalid
+   */
+  public static long getTimeframeLength(String timeframe) {
+    int unitStart = 0;
+    while (unitStart < timeframe.length() && Character.isDigit(timeframe.charAt(unitStart))) {
+      unitStart++;
+    }
+    if (unitStart == 0 || unitStart > 9) {
+      throw new IllegalArgumentException("Invalid timeframe " + timeframe);
+    }
+    long count = Long.parseLong(timeframe.substring(0, unitStart));
+    switch (timeframe.substring(unitStart)) {
+      case "m":
+        return count * 60 * 1000;
+      case "h":
+        return count * 60 * 60 * 1000;
+      case "d":
+        return count * 24 * 60 * 60 * 1000;
+      case "w":
+        return count * 7 * 24 * 60 * 60 * 1000;
+      case "mn":
+        return count * 31 * 24 * 60 * 60 * 1000;
+      default:
+        throw new IllegalArgumentException("Invalid timeframe " + timeframe);
+    }
+  }
+
+  /**
+   * Appends a candle
+   * @param time candle open time in epoch milliseconds
+   * @param open open price
+   * @param high high price
+   * @param low low price
+   * @param close close price
+   * @param tickVolume tick volume
+   * @param spread spread in points
+   * @param volume trade volume
+   */
+  public void append(long time, double open, double high, double low, double close, double tickVolume,
+    double spread, double volume) {
+    int index = add(time);
+    opens[index] = open;
+    highs[index] = high;
+    lows[index] = low;
+    closes[index] = close;
+    tickVolumes[index] = tickVolume;
+    spreads[index] = spread;
+    volumes[index] = volume;
+  }
+
+  /**
+   * Appends a candle. The candle object is not retained so it can be garbage collected right away
+   * @param candle candle to append
+   */
+  public void append(MetatraderCandle candle) {
+    append(candle.time.getDate().getTime(), value(candle.open), value(candle.high), value(candle.low),
+      value(candle.close), value(candle.tickVolume), value(candle.spread), value(candle.volume));
+  }
+
+  /**
+   * Appends candles
+   * @param candles candles to append
+   */
+  public void appendAll(List<MetatraderCandle> candles) {
+    for (MetatraderCandle candle : candles) {
+      append(candle);
+    }
+  }
+
+  /**
+   * Returns open price
+   * @param index candle index
+   * @return open price
+   */
+  public double getOpen(int index) {
+    return opens[index];
+  }
+
+  /**
+   * Returns high price
+   * @param index candle index
+   * @return high price
+   */
+  public double getHigh(int index) {
+    return highs[index];
+  }
+
+  /**
+   * Returns low price
+   * @param index candle index
+   * @return low price
+   */
+  public double getLow(int index) {
+    return lows[index];
+  }
+
+  /**
+   * Returns close price
+   * @param index candle index
+   * @return close price
+   */
+  public double getClose(int index) {
+    return closes[index];
+  }
+
+  /**
+   * Returns tick volume
+   * @param index candle index
+   * @return tick volume
+   */
+  public double getTickVolume(int index) {
+    return tickVolumes[index];
+  }
+
+  /**
+   * Returns spread in points
+   * @param index candle index
+   * @return spread
+   */
+  public double getSpread(int index) {
+    return spreads[index];
+  }
+
+  /**
+   * Returns trade volume
+   * @param index candle index
+   * @return trade volume
+   */
+  public double getVolume(int index) {
+    return volumes[index];
+  }
+
+  @Override
+  protected void resize(int capacity) {
+    opens = Arrays.copyOf(opens, capacity);
+    highs = Arrays.copyOf(highs, capacity);
+    lows = Arrays.copyOf(lows, capacity);
+    closes = Arrays.copyOf(closes, capacity);
+    tickVolumes = Arrays.copyOf(tickVolumes, capacity);
+    spreads = Arrays.copyOf(spreads, capacity);
+    volumes = Arrays.copyOf(volumes, capacity);
+  }
+
+  @Override
+  protected void reorder(int[] order) {
+    opens = reorder(opens, order);
+    highs = reorder(highs, order);
+    lows = reorder(lows, order);
+    closes = reorder(closes, order);
+    tickVolumes = reorder(tickVolumes, order);
+    spreads = reorder(spreads, order);
+    volumes = reorder(volumes, order);
+  }
+}
@@ -0,0 +1,161 @@
+import java.time.Instant;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+
+import cloud.metaapi.sdk.clients.meta_api.models.MetatraderCandle;
+import cloud.metaapi.sdk.clients.models.IsoTime;
+import cloud.metaapi.sdk.meta_api.MetatraderAccount;
+
+/**
+ * Lazily iterates over historical candles of a time range. Since the API returns candles preceding a start
+ * time, the range is walked backwards, i.e. candles are returned from the newest to the oldest one. Pages are
+ * requested until an empty page is received or the start of the range is reached. Each page is requested as soon
+ * as the page before it is received, so that it downloads while the current page is being consumed, but at most
+ * one page ahead of the current one is kept in memory
+ */
+public class HistoricalCandlesIterator implements Iterator<MetatraderCandle> {
+
+  private MetatraderAccount account;
+  private String symbol;
+  private String timeframe;
+  private long from;
+  private int pageSize;
+  private List<MetatraderCandle> page = Collections.emptyList();
+  private int index = -1;
+  private Page nextPage;
+
+  /**
+   * Requested page
+   */
+  private static class Page {
+    public long startTime;
+    public CompletableFuture<List<MetatraderCandle>> candles;
+    public Page following;
+  }
+
+  /**
+   * Constructs the iterator, requesting the first page right away
+   * @param account MetaTrader account to retrieve candles of
+   * @param symbol symbol to retrieve candles for
+   * @param timeframe candle timeframe, e.g. 1m
+   * @param from start of the time range, inclusive
+   * @param to end of the time range, exclusive
+   * @param pageSize number of candles requested per page, at most 1000
+   */
+  public HistoricalCandlesIterator(MetatraderAccount account, String symbol, String timeframe, Instant from,
+    Instant to, int pageSize) {
+    this.account = account;
+    this.symbol = symbol;
+    this.timeframe = timeframe;
+    this.from = from.toEpochMilli();
+    this.pageSize = pageSize;
+    if (this.from < to.toEpochMilli()) {
+      synchronized (this) {
+        nextPage = requestPage(to.toEpochMilli() - 1);
+      }
+    }
+  }
+
+  /**
+   * Constructs the iterator requesting 1000 candles per page
+   * @param account MetaTrader account to retrieve candles of
+   * @param symbol symbol to retrieve candles for
+   * @param timeframe candle timeframe, e.g. 1m
+   * @param from start of the time range, inclusive
+   * @param to end of the time range, exclusive
+   */
+  public HistoricalCandlesIterator(MetatraderAccount account, String symbol, String timeframe, Instant from,
+    Instant to) {
+    this(account, symbol, timeframe, from, to, 1000);
+  }
+
+  @Override
+  public boolean hasNext() {
+    while (index < 0) {
+      Page received;
+      synchronized (this) {
+        received = nextPage;
+      }
+      if (received == null) {
+        return false;
+      }
+      List<MetatraderCandle> candles = received.candles.join();
+      synchronized (this) {
+        if (nextPage != received) {
+          // closed while waiting
+          return false;
+        }
+        // the following page may not have been requested yet if the page was joined before its callback ran
+        prefetch(received);
+        nextPage = received.following;
+        if (nextPage != null) {
+          prefetch(nextPage);
+        }
+      }
+      page = candles;
+      index = candles.size() - 1;
+      while (index >= 0 && getTime(candles.get(index)) > received.startTime) {
+        index--;
+      }
+    }
+    return getTime(page.get(index)) >= from;
+  }
+
+  @Override
+  public MetatraderCandle next() {
+    if (!hasNext()) {
+      throw new NoSuchElementException();
+    }
+    return page.get(index--);
+  }
+
+  /**
+   * Cancels the pages being prefetched. Call it when abandoning the iteration before it is exhausted
+   */
+  public synchronized void close() {
+    if (nextPage != null) {
+      nextPage.candles.cancel(false);
+      if (nextPage.following != null) {
+        nextPage.following.candles.cancel(false);
+      }
+      nextPage = null;
+    }
+    index = -1;
+  }
+
+  private Page requestPage(long startTime) {
+    Page requested = new Page();
+    requested.startTime = startTime;
+    requested.candles = account.getHistoricalCandles(symbol, timeframe, new IsoTime(new Date(startTime)),
+      pageSize);
+    requested.candles.thenRun(() -> prefetch(requested));
+    return requested;
+  }
+
+  /**
+   * Requests the page following a received page, unless the page is further ahead than the next page
+   */
+  private synchronized void prefetch(Page received) {
+    if (received != nextPage || received.following != null || !received.candles.isDone()
+      || received.candles.isCompletedExceptionally()) {
+      return;
+    }
+    List<MetatraderCandle> candles = received.candles.join();
+    // candles are sorted by time, the range goes on before the oldest candle unless no candles preceding the start
+    // time were returned
+    if (!candles.isEmpty()) {
+      long firstTime = getTime(candles.get(0));
+      if (firstTime > from && firstTime <= received.startTime) {
+        received.following = requestPage(firstTime - 1);
+      }
+    }
+  }
+
+  private static long getTime(MetatraderCandle candle) {
+    return candle.time.getDate().getTime();
+  }
+}
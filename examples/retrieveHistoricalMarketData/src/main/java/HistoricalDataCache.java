@@ -0,0 +1,418 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import cloud.metaapi.sdk.meta_api.MetatraderAccount;
+
+/**
+ * Local disk cache of historical market data of an account. Downloaded ticks and candles are appended to a binary
+ * file per symbol or symbol and timeframe, together with an index of the time ranges the file covers. Requests
+ * are served from memory-mapped files, and only the time ranges missing in the cache are downloaded. Ticks newer
+ * than the cache margin and candles closing within it are returned but not cached, since the server may not have
+ * all of the ticks yet and the candles may still change
+ */
+public class HistoricalDataCache {
+
+  private static final int TICK_RECORD_SIZE = 8 + 4 * 8;
+  private static final int CANDLE_RECORD_SIZE = 8 + 7 * 8;
+  private static final int INDEX_RECORD_SIZE = 4 * 8;
+
+  /**
+   * Cache options
+   */
+  public static class Options {
+    /**
+     * Cache directory. Default is historical-data-cache in the working directory
+     */
+    public String directory = "historical-data-cache";
+    /**
+     * Ticks newer than this number of milliseconds before the current time and candles closing after it are not
+     * cached. Default is 1 minute
+     */
+    public long cacheMarginInMilliseconds = 60 * 1000;
+    /**
+     * Options of tick downloads
+     */
+    public HistoricalTicksDownloader.Options tickDownloadOptions = new HistoricalTicksDownloader.Options();
+  }
+
+  private MetatraderAccount account;
+  private Options options;
+  private HistoricalTicksDownloader ticksDownloader;
+  private Map<String, SeriesFile> files = new ConcurrentHashMap<>();
+  // candle pages are retrieved by blocking on the SDK and files are synced and mapped, which must happen neither
+  // on the common pool nor on the SDK threads completing downloads
+  private ExecutorService executor = Executors.newCachedThreadPool(runnable -> {
+    Thread thread = new Thread(runnable, "historical-data-cache");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  /**
+   * Constructs the cache with default options
+   * @param account MetaTrader account to cache market data of
+   */
+  public HistoricalDataCache(MetatraderAccount account) {
+    this(account, new Options());
+  }
+
+  /**
+   * Constructs the cache
+   * @param account MetaTrader account to cache market data of
+   * @param options cache options
+   */
+  public HistoricalDataCache(MetatraderAccount account, Options options) {
+    this.account = account;
+    this.options = options;
+    this.ticksDownloader = new HistoricalTicksDownloader(account, options.tickDownloadOptions);
+  }
+
+  /**
+   * Returns ticks of a time range, downloading the ranges missing in the cache
+   * @param symbol symbol to retrieve ticks for
+   * @param from start of the time range, inclusive
+   * @param to end of the time range, exclusive
+   * @return completable future resolving with ticks sorted by time
+   */
+  public CompletableFuture<TickColumns> getTicks(String symbol, Instant from, Instant to) {
+    SeriesFile file;
+    try {
+      file = getFile(sanitize(symbol) + ".ticks", TICK_RECORD_SIZE);
+    } catch (UncheckedIOException e) {
+      return failed(e.getCause());
+    }
+    return file.run(() -> {
+      long start = from.toEpochMilli();
+      long end = to.toEpochMilli();
+      long cutoff = Math.min(end, System.currentTimeMillis() - options.cacheMarginInMilliseconds);
+      TickColumns uncached = new TickColumns(symbol, 16);
+      CompletableFuture<Void> result = CompletableFuture.completedFuture(null);
+      for (long[] gap : file.findGaps(start, end)) {
+        result = result.thenCompose(v -> {
+          TickColumns ticks = new TickColumns(symbol);
+          return ticksDownloader.download(symbol, Instant.ofEpochMilli(gap[0]), Instant.ofEpochMilli(gap[1]),
+            ticks::appendAll).thenAcceptAsync(count -> {
+              int split = storeTicks(file, ticks, gap[0], Math.min(gap[1], Math.max(gap[0], cutoff)));
+              for (int i = split; i < ticks.size(); i++) {
+                uncached.append(ticks.getTime(i), ticks.getBid(i), ticks.getAsk(i), ticks.getLast(i),
+                  ticks.getVolume(i));
+              }
+            }, executor);
+        });
+      }
+      return result.thenApplyAsync(v -> {
+        TickColumns ticks = new TickColumns(symbol);
+        readTicks(file, ticks, start, end);
+        for (int i = 0; i < uncached.size(); i++) {
+          ticks.append(uncached.getTime(i), uncached.getBid(i), uncached.getAsk(i), uncached.getLast(i),
+            uncached.getVolume(i));
+        }
+        ticks.sortByTime();
+        return ticks;
+      }, executor);
+    });
+  }
+
+  /**
+   * Returns candles of a time range, downloading the ranges missing in the cache
+   * @param symbol symbol to retrieve candles for
+   * @param timeframe candle timeframe, e.g. 1m
+   * @param from start of the time range, inclusive
+   * @param to end of the time range, exclusive
+   * @return completable future resolving with candles sorted by time
+   */
+  public CompletableFuture<CandleColumns> getCandles(String symbol, String timeframe, Instant from, Instant to) {
+    SeriesFile file;
+    long timeframeLength;
+    try {
+      file = getFile(sanitize(symbol) + "." + sanitize(timeframe) + ".candles", CANDLE_RECORD_SIZE);
+      timeframeLength = CandleColumns.getTimeframeLength(timeframe);
+    } catch (UncheckedIOException e) {
+      return failed(e.getCause());
+    } catch (IllegalArgumentException e) {
+      return failed(e);
+    }
+    return file.run(() -> CompletableFuture.supplyAsync(() -> {
+      long start = from.toEpochMilli();
+      long end = to.toEpochMilli();
+      // only candles which closed before the cache margin are final
+      long cutoff = Math.min(end, System.currentTimeMillis() - options.cacheMarginInMilliseconds - timeframeLength);
+      CandleColumns uncached = new CandleColumns(symbol, timeframe, 16);
+      for (long[] gap : file.findGaps(start, end)) {
+        CandleColumns candles = new CandleColumns(symbol, timeframe);
+        HistoricalCandlesIterator iterator = new HistoricalCandlesIterator(account, symbol, timeframe,
+          Instant.ofEpochMilli(gap[0]), Instant.ofEpochMilli(gap[1]));
+        while (iterator.hasNext()) {
+          candles.append(iterator.next());
+        }
+        candles.sortByTime();
+        int split = storeCandles(file, candles, gap[0], Math.min(gap[1], Math.max(gap[0], cutoff)));
+        copyCandles(candles, split, candles.size(), uncached);
+      }
+      CandleColumns candles = new CandleColumns(symbol, timeframe);
+      readCandles(file, candles, start, end);
+      copyCandles(uncached, 0, uncached.size(), candles);
+      candles.sortByTime();
+      return candles;
+    }, executor));
+  }
+
+  private SeriesFile getFile(String name, int recordSize) {
+    return files.computeIfAbsent(name, key -> {
+      try {
+        Path directory = Paths.get(options.directory, sanitize(account.getId()));
+        Files.createDirectories(directory);
+        return new SeriesFile(directory.resolve(name), directory.resolve(name + ".index"), recordSize);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    });
+  }
+
+  private static <T> CompletableFuture<T> failed(Throwable error) {
+    CompletableFuture<T> result = new CompletableFuture<>();
+    result.completeExceptionally(error);
+    return result;
+  }
+
+  private int storeTicks(SeriesFile file, TickColumns ticks, long from, long to) {
+    int count = ticks.lowerBound(to);
+    ByteBuffer buffer = ByteBuffer.allocate(count * TICK_RECORD_SIZE);
+    for (int i = 0; i < count; i++) {
+      buffer.putLong(ticks.getTime(i)).putDouble(ticks.getBid(i)).putDouble(ticks.getAsk(i))
+        .putDouble(ticks.getLast(i)).putDouble(ticks.getVolume(i));
+    }
+    file.append(from, to, buffer, count);
+    return count;
+  }
+
+  private int storeCandles(SeriesFile file, CandleColumns candles, long from, long to) {
+    int count = candles.lowerBound(to);
+    ByteBuffer buffer = ByteBuffer.allocate(count * CANDLE_RECORD_SIZE);
+    for (int i = 0; i < count; i++) {
+      buffer.putLong(candles.getTime(i)).putDouble(candles.getOpen(i)).putDouble(candles.getHigh(i))
+        .putDouble(candles.getLow(i)).putDouble(candles.getClose(i)).putDouble(candles.getTickVolume(i))
+        .putDouble(candles.getSpread(i)).putDouble(candles.getVolume(i));
+    }
+    file.append(from, to, buffer, count);
+    return count;
+  }
+
+  private void readTicks(SeriesFile file, TickColumns ticks, long from, long to) {
+    for (Segment segment : file.getSegments(from, to)) {
+      MappedByteBuffer buffer = file.map(segment);
+      for (int i = findRecord(buffer, TICK_RECORD_SIZE, segment.count, from); i < segment.count; i++) {
+        buffer.position(i * TICK_RECORD_SIZE);
+        long time = buffer.getLong();
+        if (time >= to) {
+          break;
+        }
+        ticks.append(time, buffer.getDouble(), buffer.getDouble(), buffer.getDouble(), buffer.getDouble());
+      }
+    }
+  }
+
+  private void readCandles(SeriesFile file, CandleColumns candles, long from, long to) {
+    for (Segment segment : file.getSegments(from, to)) {
+      MappedByteBuffer buffer = file.map(segment);
+      for (int i = findRecord(buffer, CANDLE_RECORD_SIZE, segment.count, from); i < segment.count; i++) {
+        buffer.position(i * CANDLE_RECORD_SIZE);
+        long time = buffer.getLong();
+        if (time >= to) {
+          break;
+        }
+        candles.append(time, buffer.getDouble(), buffer.getDouble(), buffer.getDouble(), buffer.getDouble(),
+          buffer.getDouble(), buffer.getDouble(), buffer.getDouble());
+      }
+    }
+  }
+
+  private static int findRecord(ByteBuffer buffer, int recordSize, int count, long time) {
+    int low = 0;
+    int high = count;
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      if (buffer.getLong(middle * recordSize) < time) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+    return low;
+  }
+
+  private static void copyCandles(CandleColumns source, int from, int to, CandleColumns target) {
+    for (int i = from; i < to; i++) {
+      target.append(source.getTime(i), source.getOpen(i), source.getHigh(i), source.getLow(i),
+        source.getClose(i), source.getTickVolume(i), source.getSpread(i), source.getVolume(i));
+    }
+  }
+
+  private static String sanitize(String name) {
+    return name.replaceAll("[^A-Za-z0-9._-]", "_");
+  }
+
+  private static class Segment {
+    public long from;
+    public long to;
+    public long offset;
+    public int count;
+
+    public Segment(long from, long to, long offset, int count) {
+      this.from = from;
+      this.to = to;
+      this.offset = offset;
+      this.count = count;
+    }
+  }
+
+  /**
+   * Append-only data file of a series together with its index of covered time ranges. Operations on the file
+   * are executed one after another, so that concurrent requests do not download the same gaps twice
+   */
+  private static class SeriesFile {
+    private Path dataPath;
+    private Path indexPath;
+    private int recordSize;
+    private List<Segment> segments = new ArrayList<>();
+    private long dataSize = 0;
+    private CompletableFuture<?> tail = CompletableFuture.completedFuture(null);
+
+    public SeriesFile(Path dataPath, Path indexPath, int recordSize) throws IOException {
+      this.dataPath = dataPath;
+      this.indexPath = indexPath;
+      this.recordSize = recordSize;
+      long dataLength = Files.exists(dataPath) ? Files.size(dataPath) : 0;
+      long indexLength = 0;
+      if (Files.exists(indexPath)) {
+        ByteBuffer index = ByteBuffer.wrap(Files.readAllBytes(indexPath));
+        while (index.remaining() >= INDEX_RECORD_SIZE) {
+          Segment segment = new Segment(index.getLong(), index.getLong(), index.getLong(), (int) index.getLong());
+          // segments which data was not completely written are discarded and downloaded again
+          if (segment.offset != dataSize || segment.offset + (long) segment.count * recordSize > dataLength) {
+            break;
+          }
+          addSegment(segment);
+          dataSize = segment.offset + (long) segment.count * recordSize;
+          indexLength += INDEX_RECORD_SIZE;
+        }
+      }
+      // drop whatever follows the valid prefix, so that appends neither follow a stale index record nor leave
+      // half-written data which a later index record could claim
+      truncate(indexPath, indexLength);
+      truncate(dataPath, dataSize);
+    }
+
+    private static void truncate(Path path, long size) throws IOException {
+      if (Files.exists(path) && Files.size(path) > size) {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+          channel.truncate(size);
+          channel.force(false);
+        }
+      }
+    }
+
+    public synchronized <T> CompletableFuture<T> run(Task<T> task) {
+      CompletableFuture<T> result = tail.handle((v, err) -> null).thenCompose(v -> task.run());
+      tail = result;
+      return result;
+    }
+
+    public synchronized List<long[]> findGaps(long from, long to) {
+      List<long[]> gaps = new ArrayList<>();
+      long cursor = from;
+      for (Segment segment : segments) {
+        if (segment.to <= cursor) {
+          continue;
+        }
+        if (segment.from >= to) {
+          break;
+        }
+        if (segment.from > cursor) {
+          gaps.add(new long[] {cursor, segment.from});
+        }
+        cursor = Math.max(cursor, segment.to);
+      }
+      if (cursor < to) {
+        gaps.add(new long[] {cursor, to});
+      }
+      return gaps;
+    }
+
+    public synchronized List<Segment> getSegments(long from, long to) {
+      List<Segment> result = new ArrayList<>();
+      for (Segment segment : segments) {
+        if (segment.to > from && segment.from < to && segment.count != 0) {
+          result.add(segment);
+        }
+      }
+      return result;
+    }
+
+    public synchronized void append(long from, long to, ByteBuffer records, int count) {
+      if (from >= to) {
+        return;
+      }
+      try {
+        records.flip();
+        try (FileChannel channel = FileChannel.open(dataPath, StandardOpenOption.CREATE,
+          StandardOpenOption.WRITE)) {
+          channel.position(dataSize);
+          while (records.hasRemaining()) {
+            channel.write(records);
+          }
+          channel.force(false);
+        }
+        Segment segment = new Segment(from, to, dataSize, count);
+        ByteBuffer index = ByteBuffer.allocate(INDEX_RECORD_SIZE);
+        index.putLong(from).putLong(to).putLong(dataSize).putLong(count).flip();
+        try (FileChannel channel = FileChannel.open(indexPath, StandardOpenOption.CREATE,
+          StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+          while (index.hasRemaining()) {
+            channel.write(index);
+          }
+          channel.force(false);
+        }
+        addSegment(segment);
+        dataSize += (long) count * recordSize;
+      } catch (IOException e) {
+        throw new CompletionException(e);
+      }
+    }
+
+    public MappedByteBuffer map(Segment segment) {
+      try (FileChannel channel = FileChannel.open(dataPath, StandardOpenOption.READ)) {
+        return channel.map(FileChannel.MapMode.READ_ONLY, segment.offset, (long) segment.count * recordSize);
+      } catch (IOException e) {
+        throw new CompletionException(e);
+      }
+    }
+
+    private void addSegment(Segment segment) {
+      int index = segments.size();
+      while (index > 0 && segments.get(index - 1).from > segment.from) {
+        index--;
+      }
+      segments.add(index, segment);
+    }
+  }
+
+  private interface Task<T> {
+    CompletableFuture<T> run();
+  }
+}
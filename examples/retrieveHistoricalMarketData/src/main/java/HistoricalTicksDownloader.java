@@ -0,0 +1,270 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import cloud.metaapi.sdk.clients.meta_api.models.MetatraderTick;
+import cloud.metaapi.sdk.clients.models.IsoTime;
+import cloud.metaapi.sdk.meta_api.MetatraderAccount;
+
+/**
+ * Downloads historical ticks of a time range in bulk. The range is split into windows which are fetched
+ * concurrently, while the ticks are delivered to the consumer window by window in time order. Progress can be
+ * checkpointed to a file so that an interrupted download resumes from the last delivered window
+ */
+public class HistoricalTicksDownloader {
+
+  private static ScheduledExecutorService retryScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+    Thread thread = new Thread(r, "historical-ticks-retry");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  /**
+   * Downloader options
+   */
+  public static class Options {
+    /**
+     * Length of a window the time range is split into, in milliseconds. Default is 1 hour
+     */
+    public long windowInMilliseconds = 60 * 60 * 1000;
+    /**
+     * Maximum number of windows fetched at the same time. Keep it low enough to stay within the
+     * API rate limits. Default is 4
+     */
+    public int maxConcurrency = 4;
+    /**
+     * Number of ticks requested per page. Default is 1000 which is the maximum allowed by the API
+     */
+    public int pageSize = 1000;
+    /**
+     * Number of times a failed page request is retried before the download fails. Default is 5
+     */
+    public int maxRetries = 5;
+    /**
+     * Delay before the first retry in milliseconds, doubled on every next retry. Default is 1000
+     */
+    public long retryDelayInMilliseconds = 1000;
+    /**
+     * Path to the checkpoint file, or {@code null} to disable checkpointing. If the file contains a
+     * checkpoint of the same symbol and time range, the download resumes from it
+     */
+    public String checkpointFile;
+  }
+
+  private MetatraderAccount account;
+  private Options options;
+
+  /**
+   * Constructs the downloader with default options
+   * @param account MetaTrader account to download ticks of
+   */
+  public HistoricalTicksDownloader(MetatraderAccount account) {
+    this(account, new Options());
+  }
+
+  /**
+   * Constructs the downloader
+   * @param account MetaTrader account to download ticks of
+   * @param options downloader options
+   */
+  public HistoricalTicksDownloader(MetatraderAccount account, Options options) {
+    this.account = account;
+    this.options = options;
+  }
+
+  /**
+   * Downloads ticks of a symbol within a time range. The consumer is invoked once per window, sequentially
+   * and in time order, so it does not need to be thread-safe
+   * @param symbol symbol to download ticks for
+   * @param from start of the time range, inclusive
+   * @param to end of the time range, exclusive
+   * @param consumer consumer of downloaded ticks
+   * @return completable future resolving with the number of ticks delivered to the consumer
+   */
+  public CompletableFuture<Long> download(String symbol, Instant from, Instant to,
+    Consumer<List<MetatraderTick>> consumer) {
+    Download download = new Download(symbol, from.toEpochMilli(), to.toEpochMilli(), consumer);
+    try {
+      download.next = readCheckpoint(download);
+    } catch (IOException e) {
+      download.result.completeExceptionally(e);
+      return download.result;
+    }
+    pump(download);
+    return download.result;
+  }
+
+  /**
+   * Returns the time a download of a time range resumes from. Ticks before it were delivered to the consumer
+   * before the download was interrupted and are not delivered again, while ticks from it on are
+   * @param symbol symbol to download ticks for
+   * @param from start of the time range, inclusive
+   * @param to end of the time range, exclusive
+   * @return resume time, or the start of the time range if no progress of it is checkpointed
+   * @throws IOException if the checkpoint file could not be read
+   */
+  public Instant getResumeTime(String symbol, Instant from, Instant to) throws IOException {
+    return Instant.ofEpochMilli(readCheckpoint(new Download(symbol, from.toEpochMilli(), to.toEpochMilli(), null)));
+  }
+
+  private void pump(Download download) {
+    while (true) {
+      while (download.inFlight.size() < options.maxConcurrency && download.next < download.to) {
+        long start = download.next;
+        long end = Math.min(start + options.windowInMilliseconds, download.to);
+        download.inFlight.add(new Window(end, fetchWindow(download.symbol, start, end)));
+        download.next = end;
+      }
+      Window head = download.inFlight.peek();
+      if (head == null) {
+        download.result.complete(download.count);
+        return;
+      }
+      if (!head.ticks.isDone()) {
+        head.ticks.whenComplete((ticks, err) -> pump(download));
+        return;
+      }
+      download.inFlight.poll();
+      try {
+        List<MetatraderTick> ticks = head.ticks.join();
+        if (!ticks.isEmpty()) {
+          download.consumer.accept(ticks);
+        }
+        download.count += ticks.size();
+        writeCheckpoint(download, head.end);
+      } catch (Throwable err) {
+        download.inFlight.forEach(window -> window.ticks.cancel(false));
+        download.result.completeExceptionally(err);
+        return;
+      }
+    }
+  }
+
+  private CompletableFuture<List<MetatraderTick>> fetchWindow(String symbol, long start, long end) {
+    List<MetatraderTick> ticks = new ArrayList<>();
+    return fetchPages(symbol, start, 0, end, ticks).thenApply(v -> ticks);
+  }
+
+  private CompletableFuture<Void> fetchPages(String symbol, long startTime, int offset, long end,
+    List<MetatraderTick> result) {
+    return fetchPage(symbol, startTime, offset, 0).thenCompose(page -> {
+      for (MetatraderTick tick : page) {
+        if (getTime(tick) >= end) {
+          return CompletableFuture.completedFuture(null);
+        }
+        result.add(tick);
+      }
+      if (page.size() < options.pageSize) {
+        return CompletableFuture.completedFuture(null);
+      }
+      // the next page starts at the last tick time, skipping the ticks with that time we already have
+      long lastTime = getTime(page.get(page.size() - 1));
+      int nextOffset = 0;
+      while (nextOffset < page.size() && getTime(page.get(page.size() - 1 - nextOffset)) == lastTime) {
+        nextOffset++;
+      }
+      if (lastTime == startTime) {
+        nextOffset += offset;
+      }
+      return fetchPages(symbol, lastTime, nextOffset, end, result);
+    });
+  }
+
+  private CompletableFuture<List<MetatraderTick>> fetchPage(String symbol, long startTime, int offset,
+    int attempt) {
+    return account.getHistoricalTicks(symbol, new IsoTime(new Date(startTime)), offset, options.pageSize)
+      .handle((ticks, err) -> {
+        if (err == null) {
+          return CompletableFuture.completedFuture(ticks);
+        }
+        if (attempt >= options.maxRetries) {
+          CompletableFuture<List<MetatraderTick>> failed = new CompletableFuture<>();
+          failed.completeExceptionally(err);
+          return failed;
+        }
+        CompletableFuture<List<MetatraderTick>> retry = new CompletableFuture<>();
+        retryScheduler.schedule(() -> fetchPage(symbol, startTime, offset, attempt + 1)
+          .whenComplete((result, retryErr) -> {
+            if (retryErr != null) {
+              retry.completeExceptionally(retryErr);
+            } else {
+              retry.complete(result);
+            }
+          }), options.retryDelayInMilliseconds << attempt, TimeUnit.MILLISECONDS);
+        return retry;
+      }).thenCompose(Function.identity());
+  }
+
+  private long readCheckpoint(Download download) throws IOException {
+    if (options.checkpointFile == null) {
+      return download.from;
+    }
+    Path path = Paths.get(options.checkpointFile);
+    if (!Files.exists(path)) {
+      return download.from;
+    }
+    String[] checkpoint = new String(Files.readAllBytes(path), StandardCharsets.UTF_8).trim().split("\t");
+    if (checkpoint.length == 4 && checkpoint[0].equals(download.symbol)
+      && Long.parseLong(checkpoint[1]) == download.from && Long.parseLong(checkpoint[2]) == download.to) {
+      return Long.parseLong(checkpoint[3]);
+    }
+    return download.from;
+  }
+
+  private void writeCheckpoint(Download download, long time) throws IOException {
+    if (options.checkpointFile == null) {
+      return;
+    }
+    Path path = Paths.get(options.checkpointFile);
+    Path tempPath = Paths.get(options.checkpointFile + ".tmp");
+    String checkpoint = download.symbol + "\t" + download.from + "\t" + download.to + "\t" + time;
+    Files.write(tempPath, checkpoint.getBytes(StandardCharsets.UTF_8));
+    Files.move(tempPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  private static long getTime(MetatraderTick tick) {
+    return tick.time.getDate().getTime();
+  }
+
+  private static class Window {
+    public long end;
+    public CompletableFuture<List<MetatraderTick>> ticks;
+
+    public Window(long end, CompletableFuture<List<MetatraderTick>> ticks) {
+      this.end = end;
+      this.ticks = ticks;
+    }
+  }
+
+  private static class Download {
+    public String symbol;
+    public long from;
+    public long to;
+    public long next;
+    public long count = 0;
+    public Consumer<List<MetatraderTick>> consumer;
+    public ArrayDeque<Window> inFlight = new ArrayDeque<>();
+    public CompletableFuture<Long> result = new CompletableFuture<>();
+
+    public Download(String symbol, long from, long to, Consumer<List<MetatraderTick>> consumer) {
+      this.symbol = symbol;
+      this.from = from;
+      this.to = to;
+      this.consumer = consumer;
+    }
+  }
+}
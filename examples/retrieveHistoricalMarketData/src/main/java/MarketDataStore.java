@@ -0,0 +1,106 @@
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import cloud.metaapi.sdk.clients.meta_api.models.MetatraderCandle;
+import cloud.metaapi.sdk.clients.meta_api.models.MetatraderTick;
+
+/**
+ * In-memory columnar store of historical market data of multiple symbols. Ticks are kept per symbol in
+ * {@link TickColumns} and candles per symbol and timeframe in {@link CandleColumns}. The append methods can be
+ * used directly as consumers of the historical download helpers, e.g.
+ * {@code downloader.download(symbol, from, to, store::appendTicks)}, so that only the page being appended exists
+ * as model objects. Columns of a symbol must not be appended from several threads at the same time
+ */
+public class MarketDataStore {
+
+  private Map<String, TickColumns> ticks = new ConcurrentHashMap<>();
+  private Map<String, CandleColumns> candles = new ConcurrentHashMap<>();
+
+  /**
+   * Appends ticks, distributing them by symbol
+   * @param ticks ticks to append
+   */
+  public void appendTicks(List<MetatraderTick> ticks) {
+    TickColumns columns = null;
+    for (MetatraderTick tick : ticks) {
+      if (columns == null || !columns.getSymbol().equals(tick.symbol)) {
+        columns = getTicks(tick.symbol);
+      }
+      columns.append(tick);
+    }
+  }
+
+  /**
+   * Appends candles, distributing them by symbol and timeframe
+   * @param candles candles to append
+   */
+  public void appendCandles(List<MetatraderCandle> candles) {
+    CandleColumns columns = null;
+    for (MetatraderCandle candle : candles) {
+      if (columns == null || !columns.getSymbol().equals(candle.symbol)
+        || !columns.getTimeframe().equals(candle.timeframe)) {
+        columns = getCandles(candle.symbol, candle.timeframe);
+      }
+      columns.append(candle);
+    }
+  }
+
+  /**
+   * Appends a candle
+   * @param candle candle to append
+   */
+  public void appendCandle(MetatraderCandle candle) {
+    getCandles(candle.symbol, candle.timeframe).append(candle);
+  }
+
+  /**
+   * Returns tick columns of a symbol, creating empty ones if the symbol has no ticks yet
+   * @param symbol symbol
+   * @return tick columns
+   */
+  public TickColumns getTicks(String symbol) {
+    return ticks.computeIfAbsent(symbol, TickColumns::new);
+  }
+
+  /**
+   * Returns candle columns of a symbol and timeframe, creating empty ones if there are no candles yet
+   * @param symbol symbol
+   * @param timeframe candle timeframe, e.g. 1m
+   * @return candle columns
+   */
+  public CandleColumns getCandles(String symbol, String timeframe) {
+    return candles.computeIfAbsent(symbol + ":" + timeframe, key -> new CandleColumns(symbol, timeframe));
+  }
+
+  /**
+   * Returns tick columns of all symbols
+   * @return tick columns
+   */
+  public Collection<TickColumns> getAllTicks() {
+    return ticks.values();
+  }
+
+  /**
+   * Returns candle columns of all symbols and timeframes
+   * @return candle columns
+   */
+  public Collection<CandleColumns> getAllCandles() {
+    return candles.values();
+  }
+
+  /**
+   * Sorts all columns by time and shrinks them to their size. Call it once downloads are finished
+   */
+  public void compact() {
+    for (TickColumns columns : ticks.values()) {
+      columns.sortByTime();
+      columns.trimToSize();
+    }
+    for (CandleColumns columns : candles.values()) {
+      columns.sortByTime();
+      columns.trimToSize();
+    }
+  }
+}
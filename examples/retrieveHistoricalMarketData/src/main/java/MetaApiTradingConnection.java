@@ -0,0 +1,140 @@
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import cloud.metaapi.sdk.clients.meta_api.SynchronizationListener;
+import cloud.metaapi.sdk.clients.meta_api.models.MarketTradeOptions;
+import cloud.metaapi.sdk.clients.meta_api.models.MetatraderAccountInformation;
+import cloud.metaapi.sdk.clients.meta_api.models.MetatraderOrder;
+import cloud.metaapi.sdk.clients.meta_api.models.MetatraderPosition;
+import cloud.metaapi.sdk.clients.meta_api.models.MetatraderTradeResponse;
+import cloud.metaapi.sdk.clients.meta_api.models.PendingTradeOptions;
+import cloud.metaapi.sdk.meta_api.MetaApiConnection;
+
+/**
+ * {@link TradingConnection} of a live account, delegating to a {@link MetaApiConnection}
+ */
+public class MetaApiTradingConnection implements TradingConnection {
+
+  private MetaApiConnection connection;
+
+  /**
+   * Constructs the connection
+   * @param connection MetaApi connection to delegate to
+   */
+  public MetaApiTradingConnection(MetaApiConnection connection) {
+    this.connection = connection;
+  }
+
+  /**
+   * Returns MetaApi connection the calls are delegated to
+   * @return MetaApi connection
+   */
+  public MetaApiConnection getConnection() {
+    return connection;
+  }
+
+  @Override
+  public void addSynchronizationListener(SynchronizationListener listener) {
+    connection.addSynchronizationListener(listener);
+  }
+
+  @Override
+  public void removeSynchronizationListener(SynchronizationListener listener) {
+    connection.removeSynchronizationListener(listener);
+  }
+
+  @Override
+  public CompletableFuture<Void> subscribeToMarketData(String symbol) {
+    return connection.subscribeToMarketData(symbol);
+  }
+
+  @Override
+  public CompletableFuture<MetatraderAccountInformation> getAccountInformation() {
+    return connection.getAccountInformation();
+  }
+
+  @Override
+  public CompletableFuture<List<MetatraderPosition>> getPositions() {
+    return connection.getPositions();
+  }
+
+  @Override
+  public CompletableFuture<MetatraderPosition> getPosition(String positionId) {
+    return connection.getPosition(positionId);
+  }
+
+  @Override
+  public CompletableFuture<List<MetatraderOrder>> getOrders() {
+    return connection.getOrders();
+  }
+
+  @Override
+  public CompletableFuture<MetatraderTradeResponse> createMarketBuyOrder(String symbol, double volume,
+    Double stopLoss, Double takeProfit, MarketTradeOptions options) {
+    return connection.createMarketBuyOrder(symbol, volume, stopLoss, takeProfit, options);
+  }
+
+  @Override
+  public CompletableFuture<MetatraderTradeResponse> createMarketSellOrder(String symbol, double volume,
+    Double stopLoss, Double takeProfit, MarketTradeOptions options) {
+    return connection.createMarketSellOrder(symbol, volume, stopLoss, takeProfit, options);
+  }
+
+  @Override
+  public CompletableFuture<MetatraderTradeResponse> createLimitBuyOrder(String symbol, double volume,
+    double openPrice, Double stopLoss, Double takeProfit, PendingTradeOptions options) {
+    return connection.createLimitBuyOrder(symbol, volume, openPrice, stopLoss, takeProfit, options);
+  }
+
+  @Override
+  public CompletableFuture<MetatraderTradeResponse> createLimitSellOrder(String symbol, double volume,
+    double openPrice, Double stopLoss, Double takeProfit, PendingTradeOptions options) {
+    return connection.createLimitSellOrder(symbol, volume, openPrice, stopLoss, takeProfit, options);
+  }
+
+  @Override
+  public CompletableFuture<MetatraderTradeResponse> createStopBuyOrder(String symbol, double volume,
+    double openPrice, Double stopLoss, Double takeProfit, PendingTradeOptions options) {
+    return connection.createStopBuyOrder(symbol, volume, openPrice, stopLoss, takeProfit, options);
+  }
+
+  @Override
+  public CompletableFuture<MetatraderTradeResponse> createStopSellOrder(String symbol, double volume,
+    double openPrice, Double stopLoss, Double takeProfit, PendingTradeOptions options) {
+    return connection.createStopSellOrder(symbol, volume, openPrice, stopLoss, takeProfit, options);
+  }
+
+  @Override
+  public CompletableFuture<MetatraderTradeResponse> modifyPosition(String positionId, Double stopLoss,
+    Double takeProfit) {
+    return connection.modifyPosition(positionId, stopLoss, takeProfit);
+  }
+
+  @Override
+  public CompletableFuture<MetatraderTradeResponse> closePositionPartially(String positionId, double volume,
+    MarketTradeOptions options) {
+    return connection.closePositionPartially(positionId, volume, options);
+  }
+
+  @Override
+  public CompletableFuture<MetatraderTradeResponse> closePosition(String positionId, MarketTradeOptions options) {
+    return connection.closePosition(positionId, options);
+  }
+
+  @Override
+  public CompletableFuture<MetatraderTradeResponse> closePositionsBySymbol(String symbol,
+    MarketTradeOptions options) {
+    return connection.closePositionsBySymbol(symbol, options);
+  }
+
+  @Override
+  public CompletableFuture<MetatraderTradeResponse> modifyOrder(String orderId, double openPrice, Double stopLoss,
+    Double takeProfit) {
+    return connection.modifyOrder(orderId, openPrice, stopLoss, takeProfit);
+  }
+
+  @Override
+  public CompletableFuture<MetatraderTradeResponse> cancelOrder(String orderId) {
+    return connection.cancelOrder(orderId);
+  }
+}
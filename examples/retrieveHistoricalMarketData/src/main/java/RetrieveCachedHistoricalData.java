@@ -0,0 +1,65 @@
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Date;
+
+import cloud.metaapi.sdk.clients.meta_api.models.MetatraderAccountDto.ConnectionStatus;
+import cloud.metaapi.sdk.clients.meta_api.models.MetatraderAccountDto.DeploymentState;
+import cloud.metaapi.sdk.meta_api.MetaApi;
+import cloud.metaapi.sdk.meta_api.MetatraderAccount;
+
+public class RetrieveCachedHistoricalData {
+
+  private static String token = getEnvOrDefault("TOKEN", "<put in your token here>");
+  private static String accountId = getEnvOrDefault("ACCOUNT_ID", "<put in your account id here>");
+  private static String symbol = getEnvOrDefault("SYMBOL", "EURUSD");
+  private static String apiDomain = getEnvOrDefault("DOMAIN", "agiliumtrade.agiliumtrade.ai");
+  private static String cacheDirectory = getEnvOrDefault("CACHE_DIRECTORY", "historical-data-cache");
+
+  public static void main(String[] args) {
+    try {
+      MetaApi api = new MetaApi(token, new MetaApi.Options() {{domain = apiDomain;}});
+
+      MetatraderAccount account = api.getMetatraderAccountApi().getAccount(accountId).join();
+
+      // wait until account is deployed and connected to broker
+      System.out.println("Deploying account");
+      if (account.getState() != DeploymentState.DEPLOYED) {
+        account.deploy().join();
+      } else {
+        System.out.println("Account already deployed");
+      }
+      System.out.println("Waiting for API server to connect to broker (may take couple of minutes)");
+      if (account.getConnectionStatus() != ConnectionStatus.CONNECTED) {
+        account.waitConnected().join();
+      }
+
+      HistoricalDataCache.Options options = new HistoricalDataCache.Options();
+      options.directory = cacheDirectory;
+      HistoricalDataCache cache = new HistoricalDataCache(account, options);
+      Instant to = Instant.now().truncatedTo(ChronoUnit.DAYS);
+
+      // only the first run downloads the data, next runs read it from the cache
+      System.out.println("Retrieving " + symbol + " 1m candles of the last 30 days");
+      long startedAt = Date.from(Instant.now()).getTime();
+      CandleColumns candles = cache.getCandles(symbol, "1m", to.minus(30, ChronoUnit.DAYS), to).join();
+      System.out.println("Retrieved " + candles.size() + " candles, took "
+        + (Date.from(Instant.now()).getTime() - startedAt) + "ms");
+
+      // historical ticks can be retrieved from MT5 only
+      System.out.println("Retrieving " + symbol + " ticks of the last day");
+      startedAt = Date.from(Instant.now()).getTime();
+      TickColumns ticks = cache.getTicks(symbol, to.minus(1, ChronoUnit.DAYS), to).join();
+      System.out.println("Retrieved " + ticks.size() + " ticks, took "
+        + (Date.from(Instant.now()).getTime() - startedAt) + "ms");
+
+    } catch (Exception err) {
+      System.err.println(err);
+    }
+    System.exit(0);
+  }
+
+  private static String getEnvOrDefault(String name, String defaultValue) {
+    String result = System.getenv(name);
+    return (result != null ? result : defaultValue);
+  }
+}
@@ -1,14 +1,12 @@
 import java.time.Instant;
-import java.util.ArrayList;
+import java.time.temporal.ChronoUnit;
 import java.util.Date;
-import java.util.List;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 
 import cloud.metaapi.sdk.clients.meta_api.models.MetatraderAccountDto.ConnectionStatus;
 import cloud.metaapi.sdk.clients.meta_api.models.MetatraderAccountDto.DeploymentState;
 import cloud.metaapi.sdk.clients.meta_api.models.MetatraderCandle;
-import cloud.metaapi.sdk.clients.models.IsoTime;
 import cloud.metaapi.sdk.meta_api.MetaApi;
 import cloud.metaapi.sdk.meta_api.MetatraderAccount;
 import cloud.metaapi.sdk.util.JsonMapper;
@@ -38,27 +36,27 @@ public class RetrieveHistoricalCandles {
         account.waitConnected().join();
       }
 
-      // retrieve last 10K 1m candles
+      // retrieve 1m candles of the last 10K minutes
       int pages = 10;
-      System.out.println("Downloading " + pages + "K latest candles for " + symbol);
+      System.out.println("Downloading " + symbol + " candles of the last " + pages + "K minutes");
       long startedAt = Date.from(Instant.now()).getTime();
-      IsoTime startTime = null;
-      List<MetatraderCandle> candles = new ArrayList<>();
-      for (int i = 0; i < pages; i++) {
-        // the API to retrieve historical market data is currently available for G1 and MT4 G2 only
-        List<MetatraderCandle> newCandles = account.getHistoricalCandles(symbol, "1m", startTime).join();
-        System.out.println("Downloaded " + newCandles.size() + " historical candles for " + symbol);
-        if (newCandles.size() != 0) {
-          candles = newCandles;
-        }
-        if (!candles.isEmpty()) {
-          startTime = candles.get(0).time;
-          startTime.setTime(startTime.getDate().toInstant().minusSeconds(60));
-          System.out.println("First candle time is " + startTime);
+      Instant to = Instant.now();
+      Instant from = to.minus(pages * 1000, ChronoUnit.MINUTES);
+      // the API to retrieve historical market data is currently available for G1 and MT4 G2 only
+      // candles are iterated from the newest to the oldest one, the next page is downloaded in background
+      HistoricalCandlesIterator candles = new HistoricalCandlesIterator(account, symbol, "1m", from, to);
+      MetatraderCandle firstCandle = null;
+      int count = 0;
+      while (candles.hasNext()) {
+        firstCandle = candles.next();
+        if (++count % 1000 == 0) {
+          System.out.println("Downloaded " + count + " historical candles for " + symbol
+            + ", first candle time is " + firstCandle.time);
         }
       }
-      if (!candles.isEmpty()) {
-        System.out.println("First candle is " + asJson(candles.get(0)));
+      System.out.println("Downloaded " + count + " historical candles for " + symbol);
+      if (firstCandle != null) {
+        System.out.println("First candle is " + asJson(firstCandle));
       }
       System.out.println("Took " + (Date.from(Instant.now()).getTime() - startedAt) + "ms");
       
@@ -53,9 +53,10 @@ public class RetrieveHistoricalTicks {
         System.out.println("Downloaded " + ticks.size() + " historical ticks for " + symbol);
         if (!ticks.isEmpty()) {
           startTime = ticks.get(ticks.size() - 1).time;
+          long lastTime = startTime.getDate().getTime();
           offset = 0;
           while (ticks.size() - 1 - offset >= 0 &&
-            ticks.get(ticks.size() - 1 - offset).time.getDate().equals(startTime.getDate())) {
+            ticks.get(ticks.size() - 1 - offset).time.getDate().getTime() == lastTime) {
             offset++;
           }
           System.out.println("First tick time is " + startTime + ", offset is " + offset);
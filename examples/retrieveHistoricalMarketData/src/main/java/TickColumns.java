@@ -0,0 +1,133 @@
+import java.util.Arrays;
+import java.util.List;
+
+import cloud.metaapi.sdk.clients.meta_api.models.MetatraderTick;
+
+/**
+ * Columnar storage of historical ticks of a single symbol. A tick takes 40 bytes of primitive columns instead of
+ * a {@link MetatraderTick} object graph. Missing values are stored as {@link Double#NaN}
+ */
+public class TickColumns extends TimeSeriesColumns {
+
+  private String symbol;
+  private double[] bids;
+  private double[] asks;
+  private double[] lasts;
+  private double[] volumes;
+
+  /**
+   * Constructs the columns
+   * @param symbol symbol of the ticks
+   * @param initialCapacity initial number of ticks the columns can hold before growing
+   */
+  public TickColumns(String symbol, int initialCapacity) {
+    super(initialCapacity);
+    this.symbol = symbol;
+    bids = new double[times.length];
+    asks = new double[times.length];
+    lasts = new double[times.length];
+    volumes = new double[times.length];
+  }
+
+  /**
+   * Constructs the columns
+   * @param symbol symbol of the ticks
+   */
+  public TickColumns(String symbol) {
+    this(symbol, 1024);
+  }
+
+  /**
+   * Returns symbol of the ticks
+   * @return symbol
+   */
+  public String getSymbol() {
+    return symbol;
+  }
+
+  /**
+   * Appends a tick
+   * @param time tick time in epoch milliseconds
+   * @param bid bid price
+   * @param ask ask price
+   * @param last last deal price
+   * @param volume volume of the last deal
+   */
+  public void append(long time, double bid, double ask, double last, double volume) {
+    int index = add(time);
+    bids[index] = bid;
+    asks[index] = ask;
+    lasts[index] = last;
+    volumes[index] = volume;
+  }
+
+  /**
+   * Appends a tick. The tick object is not retained so it can be garbage collected right away
+   * @param tick tick to append
+   */
+  public void append(MetatraderTick tick) {
+    append(tick.time.getDate().getTime(), value(tick.bid), value(tick.ask), value(tick.last), value(tick.volume));
+  }
+
+  /**
+   * Appends ticks
+   * @param ticks ticks to append
+   */
+  public void appendAll(List<MetatraderTick> ticks) {
+    for (MetatraderTick tick : ticks) {
+      append(tick);
+    }
+  }
+
+  /**
+   * Returns bid price
+   * @param index tick index
+   * @return bid price
+   */
+  public double getBid(int index) {
+    return bids[index];
+  }
+
+  /**
+   * Returns ask price
+   * @param index tick index
+   * @return ask price
+   */
+  public double getAsk(int index) {
+    return asks[index];
+  }
+
+  /**
+   * Returns last deal price
+   * @param index tick index
+   * @return last deal price
+   */
+  public double getLast(int index) {
+    return lasts[index];
+  }
+
+  /**
+   * Returns volume of the last deal
+   * @param index tick index
+   * @return volume
+   */
+  public double getVolume(int index) {
+    return volumes[index];
+  }
+
+  @Override
+  protected void resize(int capacity) {
+    bids = Arrays.copyOf(bids, capacity);
+    asks = Arrays.copyOf(asks, capacity);
+    lasts = Arrays.copyOf(lasts, capacity);
+    volumes = Arrays.copyOf(volumes, capacity);
+  }
+
+  @Override
+  protected void reorder(int[] order) {
+    bids = reorder(bids, order);
+    asks = reorder(asks, order);
+    lasts = reorder(lasts, order);
+    volumes = reorder(volumes, order);
+  }
+}
@@ -0,0 +1,183 @@
+import java.util.Arrays;
+
+/**
+ * Base class of columnar time series containers. Every record occupies the same index in the epoch millis time
+ * column and in the value columns defined by subclasses, so that records are kept as primitives instead of
+ * model objects
+ */
+public abstract class TimeSeriesColumns {
+
+  protected long[] times;
+  protected int size = 0;
+  private boolean sorted = true;
+
+  /**
+   * Constructs the container
+   * @param initialCapacity initial number of records the columns can hold before growing
+   */
+  protected TimeSeriesColumns(int initialCapacity) {
+    times = new long[Math.max(initialCapacity, 16)];
+  }
+
+  /**
+   * Returns number of records
+   * @return number of records
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Returns record time
+   * @param index record index
+   * @return record time in epoch milliseconds
+   */
+  public long getTime(int index) {
+    return times[index];
+  }
+
+  /**
+   * Returns index of the first record with time not earlier than the specified one, or {@link #size()} if there
+   * is no such record. Requires the records to be sorted by time, see {@link #sortByTime()}
+   * @param time time in epoch milliseconds
+   * @return record index
+   */
+  public int lowerBound(long time) {
+    int low = 0;
+    int high = size;
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      if (times[middle] < time) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * Returns whether records are sorted by time
+   * @return whether records are sorted by time
+   */
+  public boolean isSorted() {
+    return sorted;
+  }
+
+  /**
+   * Sorts records by time. The sort is stable, so records with equal time keep their relative order. Records
+   * appended in reverse time order, e.g. from {@link HistoricalCandlesIterator}, are reversed in linear time
+   */
+  public void sortByTime() {
+    if (sorted) {
+      return;
+    }
+    int[] order = new int[size];
+    boolean descending = true;
+    for (int i = 1; i < size && descending; i++) {
+      descending = times[i] < times[i - 1];
+    }
+    for (int i = 0; i < size; i++) {
+      order[i] = descending ? size - 1 - i : i;
+    }
+    if (!descending) {
+      mergeSort(order, new int[size], 0, size);
+    }
+    times = reorder(times, order);
+    reorder(order);
+    sorted = true;
+  }
+
+  /**
+   * Shrinks the columns to the number of records
+   */
+  public void trimToSize() {
+    if (times.length != size) {
+      times = Arrays.copyOf(times, size);
+      resize(size);
+    }
+  }
+
+  /**
+   * Reserves space for the next record, growing the columns if needed, and returns its index
+   * @param time record time in epoch milliseconds
+   * @return index of the record to write
+   */
+  protected int add(long time) {
+    if (size == times.length) {
+      int capacity = Math.max(times.length + (times.length >> 1), 16);
+      times = Arrays.copyOf(times, capacity);
+      resize(capacity);
+    }
+    if (size != 0 && time < times[size - 1]) {
+      sorted = false;
+    }
+    times[size] = time;
+    return size++;
+  }
+
+  /**
+   * Resizes value columns to the new capacity
+   * @param capacity new capacity
+   */
+  protected abstract void resize(int capacity);
+
+  /**
+   * Reorders value columns so that the record at index {@code order[i]} moves to index {@code i}
+   * @param order new record order
+   */
+  protected abstract void reorder(int[] order);
+
+  /**
+   * Returns a column reordered so that the value at index {@code order[i]} moves to index {@code i}
+   * @param column column to reorder
+   * @param order new record order
+   * @return reordered column
+   */
+  protected static double[] reorder(double[] column, int[] order) {
+    double[] result = new double[column.length];
+    for (int i = 0; i < order.length; i++) {
+      result[i] = column[order[i]];
+    }
+    return result;
+  }
+
+  /**
+   * Converts a model value to a column value
+   * @param number model value or {@code null}
+   * @return column value, {@link Double#NaN} if the value is missing
+   */
+  protected static double value(Number number) {
+    return number != null ? number.doubleValue() : Double.NaN;
+  }
+
+  private static long[] reorder(long[] column, int[] order) {
+    long[] result = new long[column.length];
+    for (int i = 0; i < order.length; i++) {
+      result[i] = column[order[i]];
+    }
+    return result;
+  }
+
+  private void mergeSort(int[] order, int[] buffer, int from, int to) {
+    if (to - from < 2) {
+      return;
+    }
+    int middle = (from + to) >>> 1;
+    mergeSort(order, buffer, from, middle);
+    mergeSort(order, buffer, middle, to);
+    if (times[order[middle - 1]] <= times[order[middle]]) {
+      return;
+    }
+    System.arraycopy(order, from, buffer, from, to - from);
+    int left = from;
+    int right = middle;
+    for (int i = from; i < to; i++) {
+      if (right >= to || (left < middle && times[buffer[left]] <= times[buffer[right]])) {
+        order[i] = buffer[left++];
+      } else {
+        order[i] = buffer[right++];
+      }
+    }
+  }
+}
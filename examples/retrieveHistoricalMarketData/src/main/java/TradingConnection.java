@@ -0,0 +1,192 @@
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import cloud.metaapi.sdk.clients.meta_api.SynchronizationListener;
+import cloud.metaapi.sdk.clients.meta_api.models.MarketTradeOptions;
+import cloud.metaapi.sdk.clients.meta_api.models.MetatraderAccountInformation;
+import cloud.metaapi.sdk.clients.meta_api.models.MetatraderOrder;
+import cloud.metaapi.sdk.clients.meta_api.models.MetatraderPosition;
+import cloud.metaapi.sdk.clients.meta_api.models.MetatraderTradeResponse;
+import cloud.metaapi.sdk.clients.meta_api.models.PendingTradeOptions;
+
+/**
+ * Subset of the {@code MetaApiConnection} API used by trading strategies. Writing a strategy against this
+ * interface lets the same code trade a live account via {@link MetaApiTradingConnection} and run in backtests via
+ * {@link BacktestConnection}. Methods have the same signatures and semantics as the {@code MetaApiConnection}
+ * methods of the same names, failed trades complete exceptionally with a {@code TradeException}
+ */
+public interface TradingConnection {
+
+  /**
+   * Adds a synchronization listener
+   * @param listener synchronization listener
+   */
+  void addSynchronizationListener(SynchronizationListener listener);
+
+  /**
+   * Removes a synchronization listener
+   * @param listener synchronization listener
+   */
+  void removeSynchronizationListener(SynchronizationListener listener);
+
+  /**
+   * Subscribes to market data of a symbol
+   * @param symbol symbol
+   * @return completable future resolving when the subscription is made
+   */
+  CompletableFuture<Void> subscribeToMarketData(String symbol);
+
+  /**
+   * Returns account information
+   * @return completable future resolving with account information
+   */
+  CompletableFuture<MetatraderAccountInformation> getAccountInformation();
+
+  /**
+   * Returns open positions
+   * @return completable future resolving with open positions
+   */
+  CompletableFuture<List<MetatraderPosition>> getPositions();
+
+  /**
+   * Returns an open position
+   * @param positionId position id
+   * @return completable future resolving with the position
+   */
+  CompletableFuture<MetatraderPosition> getPosition(String positionId);
+
+  /**
+   * Returns pending orders
+   * @return completable future resolving with pending orders
+   */
+  CompletableFuture<List<MetatraderOrder>> getOrders();
+
+  /**
+   * Creates a market buy order
+   * @param symbol symbol
+   * @param volume order volume
+   * @param stopLoss stop loss price, or {@code null}
+   * @param takeProfit take profit price, or {@code null}
+   * @param options trade options, or {@code null}
+   * @return completable future resolving with the trade result
+   */
+  CompletableFuture<MetatraderTradeResponse> createMarketBuyOrder(String symbol, double volume, Double stopLoss,
+    Double takeProfit, MarketTradeOptions options);
+
+  /**
+   * Creates a market sell order
+   * @param symbol symbol
+   * @param volume order volume
+   * @param stopLoss stop loss price, or {@code null}
+   * @param takeProfit take profit price, or {@code null}
+   * @param options trade options, or {@code null}
+   * @return completable future resolving with the trade result
+   */
+  CompletableFuture<MetatraderTradeResponse> createMarketSellOrder(String symbol, double volume, Double stopLoss,
+    Double takeProfit, MarketTradeOptions options);
+
+  /**
+   * Creates a limit buy order
+   * @param symbol symbol
+   * @param volume order volume
+   * @param openPrice order limit price
+   * @param stopLoss stop loss price, or {@code null}
+   * @param takeProfit take profit price, or {@code null}
+   * @param options trade options, or {@code null}
+   * @return completable future resolving with the trade result
+   */
+  CompletableFuture<MetatraderTradeResponse> createLimitBuyOrder(String symbol, double volume, double openPrice,
+    Double stopLoss, Double takeProfit, PendingTradeOptions options);
+
+  /**
+   * Creates a limit sell order
+   * @param symbol symbol
+   * @param volume order volume
+   * @param openPrice order limit price
+   * @param stopLoss stop loss price, or {@code null}
+   * @param takeProfit take profit price, or {@code null}
+   * @param options trade options, or {@code null}
+   * @return completable future resolving with the trade result
+   */
+  CompletableFuture<MetatraderTradeResponse> createLimitSellOrder(String symbol, double volume, double openPrice,
+    Double stopLoss, Double takeProfit, PendingTradeOptions options);
+
+  /**
+   * Creates a stop buy order
+   * @param symbol symbol
+   * @param volume order volume
+   * @param openPrice order stop price
+   * @param stopLoss stop loss price, or {@code null}
+   * @param takeProfit take profit price, or {@code null}
+   * @param options trade options, or {@code null}
+   * @return completable future resolving with the trade result
+   */
+  CompletableFuture<MetatraderTradeResponse> createStopBuyOrder(String symbol, double volume, double openPrice,
+    Double stopLoss, Double takeProfit, PendingTradeOptions options);
+
+  /**
+   * Creates a stop sell order
+   * @param symbol symbol
+   * @param volume order volume
+   * @param openPrice order stop price
+   * @param stopLoss stop loss price, or {@code null}
+   * @param takeProfit take profit price, or {@code null}
+   * @param options trade options, or {@code null}
+   * @return completable future resolving with the trade result
+   */
+  CompletableFuture<MetatraderTradeResponse> createStopSellOrder(String symbol, double volume, double openPrice,
+    Double stopLoss, Double takeProfit, PendingTradeOptions options);
+
+  /**
+   * Modifies stop loss and take profit of a position
+   * @param positionId position id
+   * @param stopLoss stop loss price, or {@code null} to remove it
+   * @param takeProfit take profit price, or {@code null} to remove it
+   * @return completable future resolving with the trade result
+   */
+  CompletableFuture<MetatraderTradeResponse> modifyPosition(String positionId, Double stopLoss, Double takeProfit);
+
+  /**
+   * Closes a part of a position
+   * @param positionId position id
+   * @param volume volume to close
+   * @param options trade options, or {@code null}
+   * @return completable future resolving with the trade result
+   */
+  CompletableFuture<MetatraderTradeResponse> closePositionPartially(String positionId, double volume,
+    MarketTradeOptions options);
+
+  /**
+   * Closes a position
+   * @param positionId position id
+   * @param options trade options, or {@code null}
+   * @return completable future resolving with the trade result
+   */
+  CompletableFuture<MetatraderTradeResponse> closePosition(String positionId, MarketTradeOptions options);
+
+  /**
+   * Closes all positions of a symbol
+   * @param symbol symbol
+   * @param options trade options, or {@code null}
+   * @return completable future resolving with the trade result
+   */
+  CompletableFuture<MetatraderTradeResponse> closePositionsBySymbol(String symbol, MarketTradeOptions options);
+
+  /**
+   * Modifies a pending order
+   * @param orderId order id
+   * @param openPrice order price
+   * @param stopLoss stop loss price, or {@code null} to remove it
+   * @param takeProfit take profit price, or {@code null} to remove it
+   * @return completable future resolving with the trade result
+   */
+  CompletableFuture<MetatraderTradeResponse> modifyOrder(String orderId, double openPrice, Double stopLoss,
+    Double takeProfit);
+
+  /**
+   * Cancels a pending order
+   * @param orderId order id
+   * @return completable future resolving with the trade result
+   */
+  CompletableFuture<MetatraderTradeResponse> cancelOrder(String orderId);
+}
@@ -0,0 +1,81 @@
+import cloud.metaapi.sdk.clients.meta_api.models.MetatraderAccountDto.ConnectionStatus;
+import cloud.metaapi.sdk.clients.meta_api.models.MetatraderAccountDto.DeploymentState;
+import cloud.metaapi.sdk.meta_api.MetaApi;
+import cloud.metaapi.sdk.meta_api.MetaApiConnection;
+import cloud.metaapi.sdk.meta_api.MetatraderAccount;
+import io.vertx.core.Vertx;
+
+/**
+ * Note: for information on how to use this example code please read
+ * https://metaapi.cloud/docs/client/usingCodeExamples
+ */
+public class BatchTradeExample {
+
+  private static String token = getEnvOrDefault("TOKEN", "<put in your token here>");
+  private static String accountId = getEnvOrDefault("ACCOUNT_ID", "<put in your account id here>");
+  private static String symbol = getEnvOrDefault("SYMBOL", "GBPUSD");
+
+  public static void main(String[] args) {
+    try {
+      MetaApi api = new MetaApi(token, Vertx.vertx());
+      MetatraderAccount account = api.getMetatraderAccountApi().getAccount(accountId).toCompletionStage().toCompletableFuture().get();
+
+      // wait until account is deployed and connected to broker
+      System.out.println("Deploying account");
+      if (account.getState() != DeploymentState.DEPLOYED) {
+        account.deploy().toCompletionStage().toCompletableFuture().get();
+      } else {
+        System.out.println("Account already deployed");
+      }
+      System.out.println("Waiting for API server to connect to broker (may take couple of minutes)");
+      if (account.getConnectionStatus() != ConnectionStatus.CONNECTED) {
+        account.waitConnected().toCompletionStage().toCompletableFuture().get();
+      }
+
+      // connect to MetaApi API
+      MetaApiConnection connection = account.connect().toCompletionStage().toCompletableFuture().get();
+      connection.waitSynchronized().toCompletionStage().toCompletableFuture().get();
+
+      // submit several pending orders far from the market in one batch
+      BatchTrader trader = new BatchTrader();
+      TradeBatch batch = new TradeBatch();
+      for (int i = 1; i <= 5; i++) {
+        batch.add(connection, TradeAction.createLimitBuyOrder(symbol, 0.01, 0.5 + i * 0.01, null, null, null));
+      }
+      TradeBatchResult result = trader.execute(batch).toCompletionStage().toCompletableFuture().get();
+      printResult(result);
+
+      // cancel the created orders in another batch
+      TradeBatch cancellations = new TradeBatch();
+      for (TradeBatchResult.Item item : result.items) {
+        if (item.succeeded() && item.response.orderId != null) {
+          cancellations.add(connection, TradeAction.cancelOrder(item.response.orderId));
+        }
+      }
+      printResult(trader.execute(cancellations).toCompletionStage().toCompletableFuture().get());
+    } catch (Exception err) {
+      System.err.println(err);
+    }
+    System.exit(0);
+  }
+
+  private static void printResult(TradeBatchResult result) {
+    for (TradeBatchResult.Item item : result.items) {
+      if (item.succeeded()) {
+        System.out.println(item.action + ": " + item.response.stringCode + " in "
+          + item.latencyInMilliseconds + "ms");
+      } else if (item.getTradeException() != null) {
+        System.out.println(item.action + ": failed with " + item.getTradeException().stringCode);
+      } else {
+        System.out.println(item.action + ": failed with " + item.error);
+      }
+    }
+    System.out.println(result.succeeded + " succeeded, " + result.failed + " failed in "
+      + result.totalLatencyInMilliseconds + "ms, mean latency " + result.meanLatencyInMilliseconds + "ms");
+  }
+
+  private static String getEnvOrDefault(String name, String defaultValue) {
+    String result = System.getenv(name);
+    return (result != null ? result : defaultValue);
+  }
+}
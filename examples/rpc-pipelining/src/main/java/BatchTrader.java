@@ -0,0 +1,155 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+import cloud.metaapi.sdk.clients.meta_api.models.MetatraderTradeResponse;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+
+/**
+ * Submits batches of trade actions. Requests of a batch are sent without waiting for the responses of the previous
+ * ones, so that they are pipelined over the websocket connections of the SDK, while at most
+ * {@link Options#maxConcurrency} requests of a batch are in flight at the same time. A batch never fails as a
+ * whole, instead the result of every action is reported separately
+ */
+public class BatchTrader {
+
+  /**
+   * Batch trader options
+   */
+  public static class Options {
+    /**
+     * Maximum number of requests of a batch in flight at the same time. Default is 10
+     */
+    public int maxConcurrency = 10;
+    /**
+     * Scheduler to send the requests through, so that they share rate limits with other requests of the account,
+     * or {@code null} to send them directly. Requests are scheduled using the account id as the lane key
+     */
+    public RequestScheduler scheduler;
+    /**
+     * Monitor to record latencies of the requests in as {@link LatencyMonitor.Stage#TRADE}, or {@code null}
+     */
+    public LatencyMonitor latencyMonitor;
+  }
+
+  private Options options;
+
+  /**
+   * Constructs the trader with default options
+   */
+  public BatchTrader() {
+    this(new Options());
+  }
+
+  /**
+   * Constructs the trader
+   * @param options trader options
+   */
+  public BatchTrader(Options options) {
+    this.options = options;
+  }
+
+  /**
+   * Submits a trade batch
+   * @param batch trade batch
+   * @return future resolving with the batch result when responses to all actions are received
+   */
+  public Future<TradeBatchResult> execute(TradeBatch batch) {
+    return new Execution(batch).start();
+  }
+
+  private class Execution {
+    private List<TradeBatch.Item> items;
+    private List<TradeBatchResult.Item> results = new ArrayList<>();
+    private Promise<TradeBatchResult> promise = Promise.promise();
+    private long startedAt = System.nanoTime();
+    private int nextIndex = 0;
+    private int completed = 0;
+
+    Execution(TradeBatch batch) {
+      this.items = batch.getItems();
+      for (TradeBatch.Item item : items) {
+        TradeBatchResult.Item result = new TradeBatchResult.Item();
+        result.connection = item.connection;
+        result.action = item.action;
+        results.add(result);
+      }
+    }
+
+    Future<TradeBatchResult> start() {
+      if (items.isEmpty()) {
+        complete();
+      }
+      for (int i = 0; i < Math.max(options.maxConcurrency, 1); i++) {
+        sendNext();
+      }
+      return promise.future();
+    }
+
+    private void sendNext() {
+      int index;
+      synchronized (this) {
+        if (nextIndex == items.size()) {
+          return;
+        }
+        index = nextIndex++;
+      }
+      TradeBatch.Item item = items.get(index);
+      TradeBatchResult.Item result = results.get(index);
+      long[] sentAt = new long[] {System.nanoTime()};
+      Supplier<Future<MetatraderTradeResponse>> request = () -> {
+        sentAt[0] = System.nanoTime();
+        return item.action.execute(item.connection);
+      };
+      Future<MetatraderTradeResponse> response;
+      try {
+        response = options.scheduler != null ? options.scheduler.schedule(item.connection.getAccount().getId(),
+          request) : request.get();
+      } catch (Throwable err) {
+        response = Future.failedFuture(err);
+      }
+      response.onComplete(res -> {
+        long latencyInNanoseconds = System.nanoTime() - sentAt[0];
+        result.latencyInMilliseconds = latencyInNanoseconds / 1e6;
+        if (options.latencyMonitor != null) {
+          options.latencyMonitor.record(LatencyMonitor.Stage.TRADE, item.connection.getAccount().getId(),
+            latencyInNanoseconds / 1000);
+        }
+        if (res.succeeded()) {
+          result.response = res.result();
+        } else {
+          result.error = res.cause();
+        }
+        boolean last;
+        synchronized (this) {
+          last = ++completed == items.size();
+        }
+        if (last) {
+          complete();
+        } else {
+          sendNext();
+        }
+      });
+    }
+
+    private void complete() {
+      TradeBatchResult batchResult = new TradeBatchResult();
+      batchResult.items = results;
+      double latencySum = 0;
+      for (TradeBatchResult.Item result : results) {
+        if (result.succeeded()) {
+          batchResult.succeeded++;
+        } else {
+          batchResult.failed++;
+        }
+        latencySum += result.latencyInMilliseconds;
+        batchResult.maxLatencyInMilliseconds = Math.max(batchResult.maxLatencyInMilliseconds,
+          result.latencyInMilliseconds);
+      }
+      batchResult.meanLatencyInMilliseconds = results.isEmpty() ? 0 : latencySum / results.size();
+      batchResult.totalLatencyInMilliseconds = (System.nanoTime() - startedAt) / 1e6;
+      promise.complete(batchResult);
+    }
+  }
+}
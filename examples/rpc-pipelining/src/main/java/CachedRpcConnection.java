@@ -0,0 +1,189 @@
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import cloud.metaapi.sdk.clients.meta_api.models.MetatraderAccountInformation;
+import cloud.metaapi.sdk.clients.meta_api.models.MetatraderOrder;
+import cloud.metaapi.sdk.clients.meta_api.models.MetatraderPosition;
+import cloud.metaapi.sdk.clients.meta_api.models.MetatraderSymbolSpecification;
+import cloud.metaapi.sdk.meta_api.MetaApiConnection;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+
+/**
+ * Caching wrapper of RPC reads of a {@link MetaApiConnection}. Responses are cached for a short time configured per
+ * method, and concurrent identical calls share a single request in flight. Failed responses are not cached. The
+ * cache holds a bounded number of entries and evicts the least recently used ones. Returned objects are shared
+ * between callers, so they must not be modified
+ */
+public class CachedRpcConnection {
+
+  /**
+   * Cache options. A time to live of 0 disables caching of completed responses of the method, while concurrent
+   * calls still share a single request
+   */
+  public static class Options {
+    /**
+     * Time to live of symbol specifications in milliseconds. Default is 1 minute
+     */
+    public long symbolSpecificationTtlInMilliseconds = 60 * 1000;
+    /**
+     * Time to live of the symbol list in milliseconds. Default is 1 minute
+     */
+    public long symbolsTtlInMilliseconds = 60 * 1000;
+    /**
+     * Time to live of account information in milliseconds. Default is 1 second
+     */
+    public long accountInformationTtlInMilliseconds = 1000;
+    /**
+     * Time to live of positions in milliseconds. Default is 1 second
+     */
+    public long positionsTtlInMilliseconds = 1000;
+    /**
+     * Time to live of orders in milliseconds. Default is 1 second
+     */
+    public long ordersTtlInMilliseconds = 1000;
+    /**
+     * Maximum number of cached responses. Default is 1000
+     */
+    public int maxEntries = 1000;
+  }
+
+  private static class Entry {
+    public Future<?> response;
+    public volatile long expiresAt = Long.MAX_VALUE;
+  }
+
+  private MetaApiConnection connection;
+  private Options options;
+  private Map<String, Entry> cache;
+
+  /**
+   * Constructs the cache with default options
+   * @param connection connection to send requests via
+   */
+  public CachedRpcConnection(MetaApiConnection connection) {
+    this(connection, new Options());
+  }
+
+  /**
+   * Constructs the cache
+   * @param connection connection to send requests via
+   * @param options cache options
+   */
+  public CachedRpcConnection(MetaApiConnection connection, Options options) {
+    this.connection = connection;
+    this.options = options;
+    this.cache = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+        return size() > options.maxEntries;
+      }
+    };
+  }
+
+  /**
+   * Returns wrapped connection
+   * @return connection
+   */
+  public MetaApiConnection getConnection() {
+    return connection;
+  }
+
+  /**
+   * Returns symbol specification, see {@link MetaApiConnection#getSymbolSpecification}
+   * @param symbol symbol
+   * @return future resolving with the symbol specification
+   */
+  public Future<MetatraderSymbolSpecification> getSymbolSpecification(String symbol) {
+    return get("specification:" + symbol, options.symbolSpecificationTtlInMilliseconds,
+      () -> connection.getSymbolSpecification(symbol));
+  }
+
+  /**
+   * Returns symbols available on the account, see {@link MetaApiConnection#getSymbols}
+   * @return future resolving with the symbols
+   */
+  public Future<List<String>> getSymbols() {
+    return get("symbols", options.symbolsTtlInMilliseconds, connection::getSymbols);
+  }
+
+  /**
+   * Returns account information, see {@link MetaApiConnection#getAccountInformation}
+   * @return future resolving with the account information
+   */
+  public Future<MetatraderAccountInformation> getAccountInformation() {
+    return get("accountInformation", options.accountInformationTtlInMilliseconds,
+      connection::getAccountInformation);
+  }
+
+  /**
+   * Returns open positions, see {@link MetaApiConnection#getPositions}
+   * @return future resolving with the positions
+   */
+  public Future<List<MetatraderPosition>> getPositions() {
+    return get("positions", options.positionsTtlInMilliseconds, connection::getPositions);
+  }
+
+  /**
+   * Returns pending orders, see {@link MetaApiConnection#getOrders}
+   * @return future resolving with the orders
+   */
+  public Future<List<MetatraderOrder>> getOrders() {
+    return get("orders", options.ordersTtlInMilliseconds, connection::getOrders);
+  }
+
+  /**
+   * Drops cached account information, positions and orders, e.g. after a trade. Requests in flight are not
+   * affected
+   */
+  public synchronized void invalidateTradingState() {
+    cache.remove("accountInformation");
+    cache.remove("positions");
+    cache.remove("orders");
+  }
+
+  /**
+   * Drops all cached responses. Requests in flight are not affected
+   */
+  public synchronized void invalidateAll() {
+    cache.clear();
+  }
+
+  @SuppressWarnings("unchecked")
+  private <T> Future<T> get(String key, long ttl, Supplier<Future<T>> request) {
+    Entry entry;
+    Promise<T> promise = Promise.promise();
+    synchronized (this) {
+      entry = cache.get(key);
+      if (entry != null && entry.expiresAt > System.currentTimeMillis()) {
+        return (Future<T>) entry.response;
+      }
+      entry = new Entry();
+      entry.response = promise.future();
+      cache.put(key, entry);
+    }
+    Entry newEntry = entry;
+    Future<T> response;
+    try {
+      response = request.get();
+    } catch (Throwable err) {
+      response = Future.failedFuture(err);
+    }
+    response.onComplete(res -> {
+      if (res.succeeded()) {
+        newEntry.expiresAt = System.currentTimeMillis() + ttl;
+        promise.complete(res.result());
+      } else {
+        synchronized (this) {
+          cache.remove(key, newEntry);
+        }
+        promise.fail(res.cause());
+      }
+    });
+    return promise.future();
+  }
+}
@@ -0,0 +1,66 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import cloud.metaapi.sdk.clients.meta_api.models.MetatraderAccountDto.ConnectionStatus;
+import cloud.metaapi.sdk.clients.meta_api.models.MetatraderAccountDto.DeploymentState;
+import cloud.metaapi.sdk.meta_api.MetaApi;
+import cloud.metaapi.sdk.meta_api.MetaApiConnection;
+import cloud.metaapi.sdk.meta_api.MetatraderAccount;
+import io.vertx.core.Vertx;
+
+/**
+ * Note: for information on how to use this example code please read
+ * https://metaapi.cloud/docs/client/usingCodeExamples
+ */
+public class CachedRpcExample {
+
+  private static String token = getEnvOrDefault("TOKEN", "<put in your token here>");
+  private static String accountId = getEnvOrDefault("ACCOUNT_ID", "<put in your account id here>");
+  private static String symbol = getEnvOrDefault("SYMBOL", "EURUSD");
+
+  public static void main(String[] args) {
+    try {
+      MetaApi api = new MetaApi(token, Vertx.vertx());
+      MetatraderAccount account = api.getMetatraderAccountApi().getAccount(accountId).toCompletionStage().toCompletableFuture().get();
+
+      // wait until account is deployed and connected to broker
+      System.out.println("Deploying account");
+      if (account.getState() != DeploymentState.DEPLOYED) {
+        account.deploy().toCompletionStage().toCompletableFuture().get();
+      } else {
+        System.out.println("Account already deployed");
+      }
+      System.out.println("Waiting for API server to connect to broker (may take couple of minutes)");
+      if (account.getConnectionStatus() != ConnectionStatus.CONNECTED) {
+        account.waitConnected().toCompletionStage().toCompletableFuture().get();
+      }
+
+      // connect to MetaApi API
+      MetaApiConnection connection = account.connect().toCompletionStage().toCompletableFuture().get();
+      connection.waitSynchronized().toCompletionStage().toCompletableFuture().get();
+
+      // 100 concurrent reads of the same data result in a single request per method
+      CachedRpcConnection cachedConnection = new CachedRpcConnection(connection);
+      long startedAt = System.currentTimeMillis();
+      List<CompletableFuture<?>> requests = new ArrayList<>();
+      for (int i = 0; i < 100; i++) {
+        requests.add(cachedConnection.getSymbolSpecification(symbol).toCompletionStage().toCompletableFuture());
+        requests.add(cachedConnection.getAccountInformation().toCompletionStage().toCompletableFuture());
+        requests.add(cachedConnection.getPositions().toCompletionStage().toCompletableFuture());
+      }
+      CompletableFuture.allOf(requests.toArray(new CompletableFuture<?>[0])).get();
+      System.out.println(requests.size() + " reads took " + (System.currentTimeMillis() - startedAt) + "ms");
+      System.out.println("positions: " + cachedConnection.getPositions().toCompletionStage().toCompletableFuture()
+        .get().size());
+    } catch (Exception err) {
+      System.err.println(err);
+    }
+    System.exit(0);
+  }
+
+  private static String getEnvOrDefault(String name, String defaultValue) {
+    String result = System.getenv(name);
+    return (result != null ? result : defaultValue);
+  }
+}
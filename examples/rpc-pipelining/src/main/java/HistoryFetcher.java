@@ -0,0 +1,220 @@
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+
+import cloud.metaapi.sdk.clients.meta_api.models.MetatraderDeal;
+import cloud.metaapi.sdk.clients.meta_api.models.MetatraderOrder;
+import cloud.metaapi.sdk.clients.models.IsoTime;
+import cloud.metaapi.sdk.meta_api.MetaApiConnection;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+
+/**
+ * Fetches history orders and deals of a long time range. The range is split into windows which are fetched
+ * concurrently page by page, while the records are delivered to the consumer window by window in time order. The
+ * server may answer while it is still synchronizing the history, in which case the window could be incomplete, so
+ * it is fetched again once the connection is synchronized
+ */
+public class HistoryFetcher {
+
+  /**
+   * Fetcher options
+   */
+  public static class Options {
+    /**
+     * Length of a window the time range is split into, in milliseconds. Default is 7 days
+     */
+    public long windowInMilliseconds = 7L * 24 * 60 * 60 * 1000;
+    /**
+     * Maximum number of windows fetched at the same time. Default is 4
+     */
+    public int maxConcurrency = 4;
+    /**
+     * Number of records requested per page. Default is 1000
+     */
+    public int pageSize = 1000;
+    /**
+     * Scheduler to send the requests through, or {@code null} to send them directly. Requests are scheduled
+     * using the account id as the lane key
+     */
+    public RequestScheduler scheduler;
+  }
+
+  private interface PageRequest<T> {
+    Future<Page<T>> fetch(IsoTime startTime, IsoTime endTime, int offset, int limit);
+  }
+
+  private static class Page<T> {
+    public List<T> records;
+    public boolean synchronizing;
+
+    public Page(List<T> records, boolean synchronizing) {
+      this.records = records;
+      this.synchronizing = synchronizing;
+    }
+  }
+
+  private MetaApiConnection connection;
+  private Options options;
+
+  /**
+   * Constructs the fetcher with default options
+   * @param connection connection to the account to fetch history of
+   */
+  public HistoryFetcher(MetaApiConnection connection) {
+    this(connection, new Options());
+  }
+
+  /**
+   * Constructs the fetcher
+   * @param connection connection to the account to fetch history of
+   * @param options fetcher options
+   */
+  public HistoryFetcher(MetaApiConnection connection, Options options) {
+    this.connection = connection;
+    this.options = options;
+  }
+
+  /**
+   * Fetches history orders within a time range. The consumer is invoked once per window, sequentially and in time
+   * order, so it does not need to be thread-safe
+   * @param startTime start of the time range
+   * @param endTime end of the time range
+   * @param consumer consumer of history orders
+   * @return future resolving with the number of history orders delivered to the consumer
+   */
+  public Future<Long> fetchHistoryOrders(IsoTime startTime, IsoTime endTime,
+    Consumer<List<MetatraderOrder>> consumer) {
+    return fetch(startTime, endTime, (start, end, offset, limit) -> connection
+      .getHistoryOrdersByTimeRange(start, end, offset, limit)
+      .map(orders -> new Page<>(orders.historyOrders, orders.synchronizing)),
+      order -> order.id, order -> (order.doneTime != null ? order.doneTime : order.time).getDate().getTime(),
+      consumer);
+  }
+
+  /**
+   * Fetches deals within a time range. The consumer is invoked once per window, sequentially and in time order, so
+   * it does not need to be thread-safe
+   * @param startTime start of the time range
+   * @param endTime end of the time range
+   * @param consumer consumer of deals
+   * @return future resolving with the number of deals delivered to the consumer
+   */
+  public Future<Long> fetchDeals(IsoTime startTime, IsoTime endTime, Consumer<List<MetatraderDeal>> consumer) {
+    return fetch(startTime, endTime, (start, end, offset, limit) -> connection
+      .getDealsByTimeRange(start, end, offset, limit).map(deals -> new Page<>(deals.deals, deals.synchronizing)),
+      deal -> deal.id, deal -> deal.time.getDate().getTime(), consumer);
+  }
+
+  private <T> Future<Long> fetch(IsoTime startTime, IsoTime endTime, PageRequest<T> pageRequest,
+    Function<T, String> id, ToLongFunction<T> time, Consumer<List<T>> consumer) {
+    Fetch<T> fetch = new Fetch<>();
+    fetch.next = startTime.getDate().getTime();
+    fetch.to = endTime.getDate().getTime();
+    fetch.pageRequest = pageRequest;
+    fetch.id = id;
+    fetch.time = time;
+    fetch.consumer = consumer;
+    pump(fetch);
+    return fetch.result.future();
+  }
+
+  private <T> void pump(Fetch<T> fetch) {
+    while (true) {
+      while (fetch.inFlight.size() < options.maxConcurrency && fetch.next < fetch.to) {
+        long start = fetch.next;
+        long end = Math.min(start + options.windowInMilliseconds, fetch.to);
+        fetch.inFlight.add(fetchWindow(fetch.pageRequest, new IsoTime(new Date(start)), new IsoTime(new Date(end)),
+          false));
+        fetch.next = end;
+      }
+      Future<List<T>> head = fetch.inFlight.peek();
+      if (head == null) {
+        fetch.result.complete(fetch.count);
+        return;
+      }
+      if (!head.isComplete()) {
+        head.onComplete(res -> pump(fetch));
+        return;
+      }
+      fetch.inFlight.poll();
+      try {
+        if (head.failed()) {
+          throw head.cause();
+        }
+        // windows share their boundaries, so records at a boundary may be returned by both windows
+        List<T> records = new ArrayList<>();
+        Set<String> ids = new HashSet<>();
+        for (T record : head.result()) {
+          String recordId = fetch.id.apply(record);
+          if (!fetch.previousIds.contains(recordId) && ids.add(recordId)) {
+            records.add(record);
+          }
+        }
+        records.sort(Comparator.comparingLong(fetch.time));
+        fetch.previousIds = ids;
+        if (!records.isEmpty()) {
+          fetch.consumer.accept(records);
+        }
+        fetch.count += records.size();
+      } catch (Throwable err) {
+        fetch.result.fail(err);
+        return;
+      }
+    }
+  }
+
+  private <T> Future<List<T>> fetchWindow(PageRequest<T> pageRequest, IsoTime start, IsoTime end,
+    boolean refetch) {
+    List<T> records = new ArrayList<>();
+    return fetchPages(pageRequest, start, end, 0, records).compose(synchronizing -> {
+      if (!synchronizing) {
+        return Future.succeededFuture(records);
+      }
+      if (refetch) {
+        return Future.failedFuture(new IllegalStateException("History from " + start + " to " + end
+          + " is still synchronizing after the connection was synchronized"));
+      }
+      return connection.waitSynchronized().compose(v -> fetchWindow(pageRequest, start, end, true));
+    });
+  }
+
+  // resolves with whether the server was synchronizing, in which case the pages fetched so far may be incomplete
+  private <T> Future<Boolean> fetchPages(PageRequest<T> pageRequest, IsoTime start, IsoTime end, int offset,
+    List<T> result) {
+    Supplier<Future<Page<T>>> request = () -> pageRequest.fetch(start, end, offset, options.pageSize);
+    Future<Page<T>> page = options.scheduler != null
+      ? options.scheduler.schedule(connection.getAccount().getId(), request) : request.get();
+    return page.compose(fetched -> {
+      if (fetched.synchronizing) {
+        return Future.succeededFuture(true);
+      }
+      result.addAll(fetched.records);
+      if (fetched.records.size() < options.pageSize) {
+        return Future.succeededFuture(false);
+      }
+      return fetchPages(pageRequest, start, end, offset + fetched.records.size(), result);
+    });
+  }
+
+  private static class Fetch<T> {
+    public long next;
+    public long to;
+    public long count = 0;
+    public PageRequest<T> pageRequest;
+    public Function<T, String> id;
+    public ToLongFunction<T> time;
+    public Consumer<List<T>> consumer;
+    public Set<String> previousIds = new HashSet<>();
+    public ArrayDeque<Future<List<T>>> inFlight = new ArrayDeque<>();
+    public Promise<Long> result = Promise.promise();
+  }
+}
@@ -0,0 +1,69 @@
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Date;
+
+import cloud.metaapi.sdk.clients.meta_api.models.MetatraderAccountDto.ConnectionStatus;
+import cloud.metaapi.sdk.clients.meta_api.models.MetatraderAccountDto.DeploymentState;
+import cloud.metaapi.sdk.clients.meta_api.models.MetatraderDeal;
+import cloud.metaapi.sdk.clients.models.IsoTime;
+import cloud.metaapi.sdk.meta_api.MetaApi;
+import cloud.metaapi.sdk.meta_api.MetaApiConnection;
+import cloud.metaapi.sdk.meta_api.MetatraderAccount;
+import io.vertx.core.Vertx;
+
+/**
+ * Note: for information on how to use this example code please read
+ * https://metaapi.cloud/docs/client/usingCodeExamples
+ */
+public class HistoryFetcherExample {
+
+  private static String token = getEnvOrDefault("TOKEN", "<put in your token here>");
+  private static String accountId = getEnvOrDefault("ACCOUNT_ID", "<put in your account id here>");
+
+  public static void main(String[] args) {
+    try {
+      Vertx vertx = Vertx.vertx();
+      MetaApi api = new MetaApi(token, vertx);
+      MetatraderAccount account = api.getMetatraderAccountApi().getAccount(accountId).toCompletionStage().toCompletableFuture().get();
+
+      // wait until account is deployed and connected to broker
+      System.out.println("Deploying account");
+      if (account.getState() != DeploymentState.DEPLOYED) {
+        account.deploy().toCompletionStage().toCompletableFuture().get();
+      } else {
+        System.out.println("Account already deployed");
+      }
+      System.out.println("Waiting for API server to connect to broker (may take couple of minutes)");
+      if (account.getConnectionStatus() != ConnectionStatus.CONNECTED) {
+        account.waitConnected().toCompletionStage().toCompletableFuture().get();
+      }
+
+      // connect to MetaApi API
+      MetaApiConnection connection = account.connect().toCompletionStage().toCompletableFuture().get();
+      connection.waitSynchronized().toCompletionStage().toCompletableFuture().get();
+
+      // fetch deals of the last year in weekly windows, several windows at a time
+      HistoryFetcher.Options options = new HistoryFetcher.Options();
+      options.scheduler = new RequestScheduler(vertx, new RequestScheduler.Options());
+      HistoryFetcher fetcher = new HistoryFetcher(connection, options);
+      double[] profit = new double[1];
+      long startedAt = System.currentTimeMillis();
+      long count = fetcher.fetchDeals(new IsoTime(Date.from(Instant.now().minus(365, ChronoUnit.DAYS))),
+        new IsoTime(Date.from(Instant.now())), deals -> {
+          for (MetatraderDeal deal : deals) {
+            profit[0] += deal.profit;
+          }
+        }).toCompletionStage().toCompletableFuture().get();
+      System.out.println("Fetched " + count + " deals with total profit " + profit[0] + " in "
+        + (System.currentTimeMillis() - startedAt) + "ms");
+    } catch (Exception err) {
+      System.err.println(err);
+    }
+    System.exit(0);
+  }
+
+  private static String getEnvOrDefault(String name, String defaultValue) {
+    String result = System.getenv(name);
+    return (result != null ? result : defaultValue);
+  }
+}
@@ -0,0 +1,93 @@
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Fixed-memory latency histogram which many threads can record into without locking. Latencies are counted in
+ * microseconds in logarithmic buckets, each power of two range being split into 32 linear sub-buckets, so that
+ * percentiles are reported with a relative error below 1/32, i.e. about 3%. Latencies up to about 19 hours are
+ * counted, longer ones are counted as the maximum. Recording updates a bucket and a few counters and does not
+ * allocate
+ */
+public class LatencyHistogram {
+
+  static final int SUB_BUCKET_BITS = 5;
+  static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+  static final long MAX_VALUE = (1L << 36) - 1;
+  static final int BUCKET_COUNT = getBucketIndex(MAX_VALUE) + 1;
+
+  private AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+  private LongAdder recorded = new LongAdder();
+  private LongAdder sum = new LongAdder();
+  private AtomicLong max = new AtomicLong();
+
+  /**
+   * Records a latency
+   * @param latencyInMicroseconds latency in microseconds
+   */
+  public void record(long latencyInMicroseconds) {
+    long value = Math.min(Math.max(latencyInMicroseconds, 0), MAX_VALUE);
+    counts.incrementAndGet(getBucketIndex(value));
+    sum.add(value);
+    recorded.increment();
+    long currentMax = max.get();
+    while (value > currentMax && !max.compareAndSet(currentMax, value)) {
+      currentMax = max.get();
+    }
+  }
+
+  /**
+   * Returns a snapshot of the latencies recorded so far
+   * @param startTime start of the snapshot interval in epoch milliseconds
+   * @param endTime end of the snapshot interval in epoch milliseconds
+   * @return snapshot
+   */
+  public LatencySnapshot getSnapshot(long startTime, long endTime) {
+    long[] bucketCounts = new long[BUCKET_COUNT];
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      bucketCounts[i] = counts.get(i);
+    }
+    return new LatencySnapshot(startTime, endTime, bucketCounts, sum.sum(), max.get());
+  }
+
+  /**
+   * Returns a snapshot of the latencies recorded so far and resets the histogram. Every recorded latency is
+   * included in exactly one snapshot, latencies recorded while draining are included either in this snapshot or
+   * in the next one
+   * @param startTime start of the snapshot interval in epoch milliseconds
+   * @param endTime end of the snapshot interval in epoch milliseconds
+   * @return snapshot
+   */
+  public LatencySnapshot drain(long startTime, long endTime) {
+    if (recorded.sumThenReset() == 0) {
+      return new LatencySnapshot(startTime, endTime, new long[0], 0, 0);
+    }
+    long[] bucketCounts = new long[BUCKET_COUNT];
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      if (counts.get(i) != 0) {
+        bucketCounts[i] = counts.getAndSet(i, 0);
+      }
+    }
+    return new LatencySnapshot(startTime, endTime, bucketCounts, sum.sumThenReset(), max.getAndSet(0));
+  }
+
+  static int getBucketIndex(long value) {
+    if (value < 2 * SUB_BUCKET_COUNT) {
+      return (int) value;
+    }
+    int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+    return (shift << SUB_BUCKET_BITS) + (int) (value >>> shift);
+  }
+
+  static long getBucketLowerBound(int index) {
+    if (index < 2 * SUB_BUCKET_COUNT) {
+      return index;
+    }
+    int shift = (index >> SUB_BUCKET_BITS) - 1;
+    return (long) (index - (shift << SUB_BUCKET_BITS)) << shift;
+  }
+
+  static long getBucketUpperBound(int index) {
+    return index + 1 < BUCKET_COUNT ? getBucketLowerBound(index + 1) - 1 : MAX_VALUE;
+  }
+}
@@ -0,0 +1,246 @@
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import io.vertx.core.Vertx;
+
+/**
+ * Collects latencies of the node per stage and per account in {@link LatencyHistogram}s and keeps rolling windows
+ * of the last minute, 5 minutes and hour. Recording only touches the lock-free histogram of the current minute, so
+ * the monitor can stay enabled in production. Once a minute a Vert.x timer schedules draining the histograms into
+ * immutable {@link LatencySnapshot}s, which runs on a dedicated thread, since with many accounts it takes too long
+ * for an event loop. The hour window has a resolution of 5 minutes and covers from 56 to
+ * 60 minutes. Snapshots of accounts and of other nodes can be merged via {@link LatencySnapshot#merge}
+ */
+public class LatencyMonitor {
+
+  private static final long MINUTE_IN_MILLISECONDS = 60 * 1000;
+  private static final int MINUTES = 5;
+  private static final int FIVE_MINUTES = 12;
+
+  /**
+   * Measured stage
+   */
+  public enum Stage {
+    /**
+     * RPC request from sending it to receiving the response
+     */
+    REQUEST,
+    /**
+     * Trade request from sending it to receiving the response
+     */
+    TRADE,
+    /**
+     * Symbol price from the broker to the client
+     */
+    PRICE,
+    /**
+     * Terminal state update from the broker to the client
+     */
+    UPDATE
+  }
+
+  /**
+   * Rolling window
+   */
+  public enum Window {
+    /**
+     * Last complete minute
+     */
+    ONE_MINUTE,
+    /**
+     * Last 5 complete minutes
+     */
+    FIVE_MINUTES,
+    /**
+     * Last hour with a resolution of 5 minutes
+     */
+    ONE_HOUR
+  }
+
+  /**
+   * Latency monitor options
+   */
+  public static class Options {
+    /**
+     * Whether to keep latencies per account in addition to the latencies of the node. Each recorded stage of an
+     * account takes 8 KB for the histogram of the current minute plus the windows, whose size depends on the spread
+     * of the latencies. Default is true
+     */
+    public boolean trackAccounts = true;
+  }
+
+  /**
+   * Histogram of the current minute and the snapshots of the previous ones
+   */
+  private static class RollingHistogram {
+    public LatencyHistogram histogram = new LatencyHistogram();
+    public LatencySnapshot[] minutes = new LatencySnapshot[MINUTES];
+    public LatencySnapshot[] fiveMinutes = new LatencySnapshot[FIVE_MINUTES];
+    public LatencySnapshot currentFiveMinutes;
+    public long rotations = 0;
+
+    public synchronized void rotate(long startTime, long endTime) {
+      LatencySnapshot minute = histogram.drain(startTime, endTime);
+      minutes[(int) (rotations % MINUTES)] = minute;
+      currentFiveMinutes = currentFiveMinutes != null ? currentFiveMinutes.merge(minute) : minute;
+      rotations++;
+      if (rotations % MINUTES == 0) {
+        fiveMinutes[(int) ((rotations / MINUTES - 1) % FIVE_MINUTES)] = currentFiveMinutes;
+        currentFiveMinutes = null;
+      }
+    }
+
+    public synchronized LatencySnapshot getSnapshot(Window window, long now) {
+      LatencySnapshot result = new LatencySnapshot(now, now);
+      if (window == Window.ONE_MINUTE) {
+        return rotations != 0 ? minutes[(int) ((rotations - 1) % MINUTES)] : result;
+      }
+      if (window == Window.FIVE_MINUTES) {
+        return merge(result, minutes, minutes.length);
+      }
+      if (currentFiveMinutes != null) {
+        return merge(currentFiveMinutes, fiveMinutes, FIVE_MINUTES - 1);
+      }
+      return merge(result, fiveMinutes, FIVE_MINUTES);
+    }
+
+    private LatencySnapshot merge(LatencySnapshot result, LatencySnapshot[] ring, int count) {
+      long last = ring == minutes ? rotations - 1 : rotations / MINUTES - 1;
+      for (long i = last; i > last - count && i >= 0; i--) {
+        result = result.merge(ring[(int) (i % ring.length)]);
+      }
+      return result;
+    }
+  }
+
+  private Vertx vertx;
+  private Options options;
+  private long timerId;
+  private ExecutorService rotator = Executors.newSingleThreadExecutor(runnable -> {
+    Thread thread = new Thread(runnable, "latency-monitor");
+    thread.setDaemon(true);
+    return thread;
+  });
+  private long minuteStartedAt = System.currentTimeMillis();
+  private RollingHistogram[] node = new RollingHistogram[Stage.values().length];
+  private Map<String, AtomicReferenceArray<RollingHistogram>> accounts = new ConcurrentHashMap<>();
+
+  /**
+   * Constructs the monitor with default options and starts rotating the windows
+   * @param vertx Vert.x instance used to rotate the windows
+   */
+  public LatencyMonitor(Vertx vertx) {
+    this(vertx, new Options());
+  }
+
+  /**
+   * Constructs the monitor and starts rotating the windows
+   * @param vertx Vert.x instance used to rotate the windows
+   * @param options monitor options
+   */
+  public LatencyMonitor(Vertx vertx, Options options) {
+    this.vertx = vertx;
+    this.options = options;
+    for (int i = 0; i < node.length; i++) {
+      node[i] = new RollingHistogram();
+    }
+    timerId = vertx.setPeriodic(MINUTE_IN_MILLISECONDS, id -> {
+      long now = System.currentTimeMillis();
+      rotator.execute(() -> rotate(now));
+    });
+  }
+
+  /**
+   * Records a latency. Does not lock and does not allocate unless it is the first latency of the account stage
+   * @param stage measured stage
+   * @param accountId account id, or {@code null} to record the latency of the node only
+   * @param latencyInMicroseconds latency in microseconds
+   */
+  public void record(Stage stage, String accountId, long latencyInMicroseconds) {
+    node[stage.ordinal()].histogram.record(latencyInMicroseconds);
+    if (options.trackAccounts && accountId != null) {
+      AtomicReferenceArray<RollingHistogram> stages = accounts.get(accountId);
+      if (stages == null) {
+        stages = accounts.computeIfAbsent(accountId, id -> new AtomicReferenceArray<>(Stage.values().length));
+      }
+      RollingHistogram histogram = stages.get(stage.ordinal());
+      if (histogram == null) {
+        stages.compareAndSet(stage.ordinal(), null, new RollingHistogram());
+        histogram = stages.get(stage.ordinal());
+      }
+      histogram.histogram.record(latencyInMicroseconds);
+    }
+  }
+
+  /**
+   * Returns latencies of the node
+   * @param stage measured stage
+   * @param window rolling window
+   * @return latency snapshot
+   */
+  public LatencySnapshot getSnapshot(Stage stage, Window window) {
+    return node[stage.ordinal()].getSnapshot(window, System.currentTimeMillis());
+  }
+
+  /**
+   * Returns latencies of an account
+   * @param stage measured stage
+   * @param accountId account id
+   * @param window rolling window
+   * @return latency snapshot, empty if no latencies of the account stage were recorded
+   */
+  public LatencySnapshot getSnapshot(Stage stage, String accountId, Window window) {
+    AtomicReferenceArray<RollingHistogram> stages = accounts.get(accountId);
+    RollingHistogram histogram = stages != null ? stages.get(stage.ordinal()) : null;
+    long now = System.currentTimeMillis();
+    return histogram != null ? histogram.getSnapshot(window, now) : new LatencySnapshot(now, now);
+  }
+
+  /**
+   * Returns ids of the accounts latencies were recorded for
+   * @return account ids
+   */
+  public Set<String> getAccountIds() {
+    return Collections.unmodifiableSet(accounts.keySet());
+  }
+
+  /**
+   * Removes latencies of an account, e.g. after the account was undeployed
+   * @param accountId account id
+   */
+  public void removeAccount(String accountId) {
+    accounts.remove(accountId);
+  }
+
+  /**
+   * Stops rotating the windows
+   */
+  public void close() {
+    vertx.cancelTimer(timerId);
+    rotator.shutdown();
+  }
+
+  /**
+   * Completes the current minute, invoked on the rotating thread
+   * @param now current time in epoch milliseconds
+   */
+  synchronized void rotate(long now) {
+    for (RollingHistogram histogram : node) {
+      histogram.rotate(minuteStartedAt, now);
+    }
+    for (AtomicReferenceArray<RollingHistogram> stages : accounts.values()) {
+      for (int i = 0; i < stages.length(); i++) {
+        RollingHistogram histogram = stages.get(i);
+        if (histogram != null) {
+          histogram.rotate(minuteStartedAt, now);
+        }
+      }
+    }
+    minuteStartedAt = now;
+  }
+}
@@ -0,0 +1,93 @@
+import cloud.metaapi.sdk.clients.meta_api.models.MetatraderAccountDto.ConnectionStatus;
+import cloud.metaapi.sdk.clients.meta_api.models.MetatraderAccountDto.DeploymentState;
+import cloud.metaapi.sdk.meta_api.MetaApi;
+import cloud.metaapi.sdk.meta_api.MetaApiConnection;
+import cloud.metaapi.sdk.meta_api.MetatraderAccount;
+import cloud.metaapi.sdk.util.JsonMapper;
+import io.vertx.core.Vertx;
+
+/**
+ * Places and cancels pending orders far from the market in batches, records the trade and request latencies in a
+ * {@link LatencyMonitor} and prints the rolling latency windows once a minute.
+ * Note: for information on how to use this example code please read
+ * https://metaapi.cloud/docs/client/usingCodeExamples
+ */
+public class LatencyMonitorExample {
+
+  private static String token = getEnvOrDefault("TOKEN", "<put in your token here>");
+  private static String accountId = getEnvOrDefault("ACCOUNT_ID", "<put in your account id here>");
+  private static String symbol = getEnvOrDefault("SYMBOL", "GBPUSD");
+  private static int minutes = Integer.parseInt(getEnvOrDefault("MINUTES", "5"));
+
+  public static void main(String[] args) {
+    try {
+      Vertx vertx = Vertx.vertx();
+      MetaApi api = new MetaApi(token, vertx);
+      MetatraderAccount account = api.getMetatraderAccountApi().getAccount(accountId).toCompletionStage().toCompletableFuture().get();
+
+      // wait until account is deployed and connected to broker
+      System.out.println("Deploying account");
+      if (account.getState() != DeploymentState.DEPLOYED) {
+        account.deploy().toCompletionStage().toCompletableFuture().get();
+      } else {
+        System.out.println("Account already deployed");
+      }
+      System.out.println("Waiting for API server to connect to broker (may take couple of minutes)");
+      if (account.getConnectionStatus() != ConnectionStatus.CONNECTED) {
+        account.waitConnected().toCompletionStage().toCompletableFuture().get();
+      }
+
+      // connect to MetaApi API
+      MetaApiConnection connection = account.connect().toCompletionStage().toCompletableFuture().get();
+      connection.waitSynchronized().toCompletionStage().toCompletableFuture().get();
+
+      // the trader records the latency of every trade request in the monitor, and the scheduler it sends them
+      // through records the latency of every attempt
+      LatencyMonitor monitor = new LatencyMonitor(vertx);
+      RequestScheduler.Options schedulerOptions = new RequestScheduler.Options();
+      schedulerOptions.latencyMonitor = monitor;
+      BatchTrader.Options options = new BatchTrader.Options();
+      options.scheduler = new RequestScheduler(vertx, schedulerOptions);
+      options.latencyMonitor = monitor;
+      BatchTrader trader = new BatchTrader(options);
+
+      long endAt = System.currentTimeMillis() + minutes * 60 * 1000L;
+      long printAt = System.currentTimeMillis() + 60 * 1000;
+      while (System.currentTimeMillis() < endAt) {
+        TradeBatch batch = new TradeBatch();
+        for (int i = 1; i <= 5; i++) {
+          batch.add(connection, TradeAction.createLimitBuyOrder(symbol, 0.01, 0.5 + i * 0.01, null, null, null));
+        }
+        TradeBatchResult result = trader.execute(batch).toCompletionStage().toCompletableFuture().get();
+        TradeBatch cancellations = new TradeBatch();
+        for (TradeBatchResult.Item item : result.items) {
+          if (item.succeeded() && item.response.orderId != null) {
+            cancellations.add(connection, TradeAction.cancelOrder(item.response.orderId));
+          }
+        }
+        trader.execute(cancellations).toCompletionStage().toCompletableFuture().get();
+        if (System.currentTimeMillis() >= printAt) {
+          printAt += 60 * 1000;
+          for (LatencyMonitor.Window window : LatencyMonitor.Window.values()) {
+            System.out.println("trade latencies of " + window + ": "
+              + monitor.getSnapshot(LatencyMonitor.Stage.TRADE, window));
+            System.out.println("request latencies of " + window + ": "
+              + monitor.getSnapshot(LatencyMonitor.Stage.REQUEST, window));
+          }
+          System.out.println("account export: " + JsonMapper.getInstance().writeValueAsString(
+            monitor.getSnapshot(LatencyMonitor.Stage.TRADE, accountId, LatencyMonitor.Window.FIVE_MINUTES)));
+        }
+        Thread.sleep(1000);
+      }
+      monitor.close();
+    } catch (Exception err) {
+      System.err.println(err);
+    }
+    System.exit(0);
+  }
+
+  private static String getEnvOrDefault(String name, String defaultValue) {
+    String result = System.getenv(name);
+    return (result != null ? result : defaultValue);
+  }
+}
@@ -0,0 +1,215 @@
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Immutable snapshot of a {@link LatencyHistogram} over a time interval. Snapshots of different histograms, e.g.
+ * of different accounts, connections or nodes, can be merged into one. Only the range of non-empty buckets is
+ * stored, so snapshots of narrow latency distributions are small. The getters are serializable via
+ * {@code JsonMapper} for export to monitoring systems. The export includes the non-empty bucket range along with
+ * the derived values, so that snapshots exported by other nodes can be rebuilt via {@link #fromBuckets} and merged
+ */
+public class LatencySnapshot {
+
+  private static final double[] REPORTED_PERCENTILES = new double[] {50, 90, 99, 99.9};
+
+  private long startTime;
+  private long endTime;
+  private int offset;
+  private long[] counts;
+  private long count;
+  private long sum;
+  private long max;
+
+  /**
+   * Constructs an empty snapshot
+   * @param startTime start of the snapshot interval in epoch milliseconds
+   * @param endTime end of the snapshot interval in epoch milliseconds
+   */
+  public LatencySnapshot(long startTime, long endTime) {
+    this(startTime, endTime, new long[0], 0, 0);
+  }
+
+  LatencySnapshot(long startTime, long endTime, long[] bucketCounts, long sum, long max) {
+    this.startTime = startTime;
+    this.endTime = endTime;
+    int from = 0;
+    int to = bucketCounts.length;
+    while (from < to && bucketCounts[from] == 0) {
+      from++;
+    }
+    while (to > from && bucketCounts[to - 1] == 0) {
+      to--;
+    }
+    this.offset = from;
+    this.counts = Arrays.copyOfRange(bucketCounts, from, to);
+    for (long bucketCount : counts) {
+      this.count += bucketCount;
+    }
+    this.sum = sum;
+    this.max = max;
+  }
+
+  /**
+   * Rebuilds a snapshot from its exported bucket range, e.g. to merge snapshots exported by other nodes
+   * @param startTime start of the snapshot interval in epoch milliseconds
+   * @param endTime end of the snapshot interval in epoch milliseconds
+   * @param bucketOffset index of the first bucket, see {@link #getBucketOffset()}
+   * @param bucketCounts counts of the buckets starting at the offset, see {@link #getBucketCounts()}
+   * @param sumInMicroseconds sum of the latencies, see {@link #getSumInMicroseconds()}
+   * @param maxInMicroseconds maximum latency, see {@link #getMaxInMicroseconds()}
+   * @return snapshot
+   * @throws IllegalArgumentException if the bucket range does not fit the histogram buckets
+   */
+  public static LatencySnapshot fromBuckets(long startTime, long endTime, int bucketOffset, long[] bucketCounts,
+    long sumInMicroseconds, long maxInMicroseconds) {
+    if (bucketOffset < 0 || bucketOffset + bucketCounts.length > LatencyHistogram.BUCKET_COUNT) {
+      throw new IllegalArgumentException("Buckets " + bucketOffset + " to " + (bucketOffset + bucketCounts.length)
+        + " are out of the " + LatencyHistogram.BUCKET_COUNT + " histogram buckets");
+    }
+    long[] counts = new long[bucketOffset + bucketCounts.length];
+    System.arraycopy(bucketCounts, 0, counts, bucketOffset, bucketCounts.length);
+    return new LatencySnapshot(startTime, endTime, counts, sumInMicroseconds, maxInMicroseconds);
+  }
+
+  /**
+   * Merges the snapshot with another one
+   * @param other other snapshot
+   * @return snapshot with the latencies of both snapshots over the interval covering both intervals
+   */
+  public LatencySnapshot merge(LatencySnapshot other) {
+    long[] bucketCounts = new long[LatencyHistogram.BUCKET_COUNT];
+    for (int i = 0; i < counts.length; i++) {
+      bucketCounts[offset + i] += counts[i];
+    }
+    for (int i = 0; i < other.counts.length; i++) {
+      bucketCounts[other.offset + i] += other.counts[i];
+    }
+    return new LatencySnapshot(Math.min(startTime, other.startTime), Math.max(endTime, other.endTime),
+      bucketCounts, sum + other.sum, Math.max(max, other.max));
+  }
+
+  /**
+   * Returns start of the snapshot interval
+   * @return start time in epoch milliseconds
+   */
+  public long getStartTime() {
+    return startTime;
+  }
+
+  /**
+   * Returns end of the snapshot interval
+   * @return end time in epoch milliseconds
+   */
+  public long getEndTime() {
+    return endTime;
+  }
+
+  /**
+   * Returns number of recorded latencies
+   * @return number of latencies
+   */
+  public long getCount() {
+    return count;
+  }
+
+  /**
+   * Returns index of the first non-empty bucket of {@link LatencyHistogram}
+   * @return bucket index, 0 if no latencies were recorded
+   */
+  public int getBucketOffset() {
+    return offset;
+  }
+
+  /**
+   * Returns counts of the buckets from the first to the last non-empty one
+   * @return bucket counts starting at the bucket offset
+   */
+  public long[] getBucketCounts() {
+    return counts.clone();
+  }
+
+  /**
+   * Returns sum of the recorded latencies
+   * @return sum in microseconds
+   */
+  public long getSumInMicroseconds() {
+    return sum;
+  }
+
+  /**
+   * Returns maximum latency
+   * @return maximum latency in microseconds, or 0 if no latencies were recorded
+   */
+  public long getMaxInMicroseconds() {
+    return max;
+  }
+
+  /**
+   * Returns mean latency
+   * @return mean latency in milliseconds, or 0 if no latencies were recorded
+   */
+  public double getMeanInMilliseconds() {
+    return count != 0 ? sum / 1000.0 / count : 0;
+  }
+
+  /**
+   * Returns maximum latency
+   * @return maximum latency in milliseconds, or 0 if no latencies were recorded
+   */
+  public double getMaxInMilliseconds() {
+    return max / 1000.0;
+  }
+
+  /**
+   * Returns a latency percentile
+   * @param percentile percentile, e.g. 99.9
+   * @return latency in milliseconds which the given percentage of latencies does not exceed, or 0 if no latencies
+   * were recorded
+   */
+  public double getPercentileInMilliseconds(double percentile) {
+    if (count == 0) {
+      return 0;
+    }
+    long rank = Math.max((long) Math.ceil(percentile / 100 * count), 1);
+    long seen = 0;
+    for (int i = 0; i < counts.length; i++) {
+      seen += counts[i];
+      if (seen >= rank) {
+        int index = offset + i;
+        long lower = LatencyHistogram.getBucketLowerBound(index);
+        long middle = lower + (LatencyHistogram.getBucketUpperBound(index) - lower) / 2;
+        return Math.min(middle, max) / 1000.0;
+      }
+    }
+    return getMaxInMilliseconds();
+  }
+
+  /**
+   * Returns the p50, p90, p99 and p99.9 latencies
+   * @return latencies in milliseconds by percentile name
+   */
+  public Map<String, Double> getPercentiles() {
+    Map<String, Double> result = new LinkedHashMap<>();
+    for (double percentile : REPORTED_PERCENTILES) {
+      String name = percentile == Math.rint(percentile) ? String.valueOf((long) percentile)
+        : String.valueOf(percentile);
+      result.put("p" + name, getPercentileInMilliseconds(percentile));
+    }
+    return result;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder result = new StringBuilder().append("count ").append(count);
+    if (count != 0) {
+      result.append(", mean ").append(String.format("%.3f", getMeanInMilliseconds())).append("ms");
+      for (Map.Entry<String, Double> percentile : getPercentiles().entrySet()) {
+        result.append(", ").append(percentile.getKey()).append(' ')
+          .append(String.format("%.3f", percentile.getValue())).append("ms");
+      }
+      result.append(", max ").append(String.format("%.3f", getMaxInMilliseconds())).append("ms");
+    }
+    return result.toString();
+  }
+}
@@ -0,0 +1,222 @@
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import cloud.metaapi.sdk.clients.error_handler.TooManyRequestsException;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+
+/**
+ * Client-side scheduler of RPC requests. Requests are grouped into lanes by a key, usually the account id, and
+ * each lane sends its requests without waiting for the previous responses as long as the number of requests in
+ * flight is below {@link Options#maxInFlight} and the lane token bucket has a token. Requests over the limits are
+ * queued in submission order instead of failing, so that callers can issue many concurrent requests without
+ * running into rate limit errors. Requests the server still rejects as too many are retried at the time the server
+ * recommends, or with a growing delay if it does not recommend one, and empty the lane token bucket so that the
+ * rest of the lane slows down too. Lanes are removed once they are idle and their bucket is full again
+ */
+public class RequestScheduler {
+
+  /**
+   * Scheduler options. Set the rate limits according to the limits of your MetaApi subscription
+   */
+  public static class Options {
+    /**
+     * Maximum number of requests of a lane in flight at the same time. Default is 10
+     */
+    public int maxInFlight = 10;
+    /**
+     * Number of requests per second a lane token bucket is refilled with. Default is 10
+     */
+    public double requestsPerSecond = 10;
+    /**
+     * Token bucket capacity, i.e. the number of requests which can be sent at once after the lane was idle.
+     * Default is 10
+     */
+    public int burst = 10;
+    /**
+     * Maximum number of times a request rejected with {@link TooManyRequestsException} is retried. Default is 5
+     */
+    public int maxRetries = 5;
+    /**
+     * Delay before the first retry of a rejected request in milliseconds, doubled on every next retry. Used if the
+     * server does not recommend a retry time. Default is 1000
+     */
+    public long retryDelayInMilliseconds = 1000;
+    /**
+     * Monitor to record latencies of the requests in as {@link LatencyMonitor.Stage#REQUEST}, using the lane key as
+     * the account id, or {@code null}. Every attempt of a retried request is recorded
+     */
+    public LatencyMonitor latencyMonitor;
+  }
+
+  private class Lane {
+    public Object key;
+    public boolean removed = false;
+    public Deque<Runnable> queue = new ArrayDeque<>();
+    public int inFlight = 0;
+    public double tokens = options.burst;
+    public long refilledAt = System.nanoTime();
+    public boolean timerSet = false;
+  }
+
+  private Vertx vertx;
+  private Options options;
+  private Map<Object, Lane> lanes = new ConcurrentHashMap<>();
+
+  /**
+   * Constructs the scheduler
+   * @param vertx Vert.x instance used to schedule delayed requests
+   * @param options scheduler options
+   */
+  public RequestScheduler(Vertx vertx, Options options) {
+    this.vertx = vertx;
+    this.options = options;
+  }
+
+  /**
+   * Schedules a request
+   * @param <T> request result type
+   * @param key lane key, e.g. account id
+   * @param request function sending the request
+   * @return future resolving with the result of the request once it is sent and completed
+   */
+  public <T> Future<T> schedule(Object key, Supplier<Future<T>> request) {
+    Promise<T> promise = Promise.promise();
+    while (true) {
+      Lane lane = lanes.computeIfAbsent(key, k -> {
+        Lane newLane = new Lane();
+        newLane.key = k;
+        return newLane;
+      });
+      synchronized (lane) {
+        // the lane may have been removed after it was looked up, in which case a new one is created
+        if (lane.removed) {
+          continue;
+        }
+        lane.queue.add(createTask(lane, request, promise, 0));
+      }
+      drain(lane);
+      return promise.future();
+    }
+  }
+
+  /**
+   * Returns number of queued requests of a lane
+   * @param key lane key
+   * @return number of queued requests
+   */
+  public int getQueueSize(Object key) {
+    Lane lane = lanes.get(key);
+    if (lane == null) {
+      return 0;
+    }
+    synchronized (lane) {
+      return lane.queue.size();
+    }
+  }
+
+  /**
+   * Returns number of requests of a lane in flight
+   * @param key lane key
+   * @return number of requests in flight
+   */
+  public int getInFlight(Object key) {
+    Lane lane = lanes.get(key);
+    if (lane == null) {
+      return 0;
+    }
+    synchronized (lane) {
+      return lane.inFlight;
+    }
+  }
+
+  private <T> Runnable createTask(Lane lane, Supplier<Future<T>> request, Promise<T> promise, int attempt) {
+    return () -> {
+      Future<T> result;
+      long sentAt = System.nanoTime();
+      try {
+        result = request.get();
+      } catch (Throwable err) {
+        result = Future.failedFuture(err);
+      }
+      result.onComplete(res -> {
+        if (options.latencyMonitor != null) {
+          options.latencyMonitor.record(LatencyMonitor.Stage.REQUEST, String.valueOf(lane.key),
+            (System.nanoTime() - sentAt) / 1000);
+        }
+        boolean retry = res.failed() && res.cause() instanceof TooManyRequestsException
+          && attempt < options.maxRetries;
+        synchronized (lane) {
+          lane.inFlight--;
+          if (retry) {
+            lane.tokens = 0;
+            // keeps the lane from being removed until the retry is queued
+            lane.inFlight++;
+          }
+        }
+        if (retry) {
+          vertx.setTimer(getRetryDelay((TooManyRequestsException) res.cause(), attempt), id -> {
+            synchronized (lane) {
+              lane.inFlight--;
+              lane.queue.addFirst(createTask(lane, request, promise, attempt + 1));
+            }
+            drain(lane);
+          });
+          return;
+        }
+        if (res.succeeded()) {
+          promise.complete(res.result());
+        } else {
+          promise.fail(res.cause());
+        }
+        drain(lane);
+      });
+    };
+  }
+
+  private long getRetryDelay(TooManyRequestsException err, int attempt) {
+    if (err.metadata != null && err.metadata.recommendedRetryTime != null) {
+      return Math.max(err.metadata.recommendedRetryTime.getDate().getTime() - System.currentTimeMillis(), 1);
+    }
+    return options.retryDelayInMilliseconds << attempt;
+  }
+
+  private void drain(Lane lane) {
+    List<Runnable> tasks = new ArrayList<>();
+    synchronized (lane) {
+      long now = System.nanoTime();
+      lane.tokens = Math.min(options.burst, lane.tokens + (now - lane.refilledAt) / 1e9 * options.requestsPerSecond);
+      lane.refilledAt = now;
+      while (!lane.queue.isEmpty() && lane.inFlight < options.maxInFlight && lane.tokens >= 1) {
+        lane.tokens--;
+        lane.inFlight++;
+        tasks.add(lane.queue.poll());
+      }
+      boolean idle = lane.queue.isEmpty() && lane.inFlight == 0;
+      if (idle && lane.tokens >= options.burst) {
+        lane.removed = true;
+        lanes.remove(lane.key, lane);
+      } else if ((idle || (!lane.queue.isEmpty() && lane.tokens < 1)) && !lane.timerSet) {
+        // wait for the next token, or for an idle lane until its bucket is full and it can be removed
+        lane.timerSet = true;
+        long delay = (long) Math.ceil(((idle ? options.burst : 1) - lane.tokens) / options.requestsPerSecond
+          * 1000);
+        vertx.setTimer(Math.max(delay, 1), id -> {
+          synchronized (lane) {
+            lane.timerSet = false;
+          }
+          drain(lane);
+        });
+      }
+    }
+    for (Runnable task : tasks) {
+      task.run();
+    }
+  }
+}
@@ -0,0 +1,91 @@
+import java.time.Instant;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+
+import cloud.metaapi.sdk.clients.meta_api.models.MetatraderAccountDto.ConnectionStatus;
+import cloud.metaapi.sdk.clients.meta_api.models.MetatraderAccountDto.DeploymentState;
+import cloud.metaapi.sdk.clients.meta_api.models.MetatraderAccountInformation;
+import cloud.metaapi.sdk.clients.meta_api.models.MetatraderDeals;
+import cloud.metaapi.sdk.clients.meta_api.models.MetatraderHistoryOrders;
+import cloud.metaapi.sdk.clients.meta_api.models.MetatraderOrder;
+import cloud.metaapi.sdk.clients.meta_api.models.MetatraderPosition;
+import cloud.metaapi.sdk.clients.models.IsoTime;
+import cloud.metaapi.sdk.meta_api.MetaApi;
+import cloud.metaapi.sdk.meta_api.MetaApiConnection;
+import cloud.metaapi.sdk.meta_api.MetatraderAccount;
+import cloud.metaapi.sdk.util.JsonMapper;
+import io.vertx.core.Vertx;
+
+/**
+ * Note: for information on how to use this example code please read
+ * https://metaapi.cloud/docs/client/usingCodeExamples
+ */
+public class RequestSchedulerExample {
+
+  private static String token = getEnvOrDefault("TOKEN", "<put in your token here>");
+  private static String accountId = getEnvOrDefault("ACCOUNT_ID", "<put in your account id here>");
+
+  public static void main(String[] args) {
+    try {
+      Vertx vertx = Vertx.vertx();
+      MetaApi api = new MetaApi(token, vertx);
+      MetatraderAccount account = api.getMetatraderAccountApi().getAccount(accountId).toCompletionStage().toCompletableFuture().get();
+
+      // wait until account is deployed and connected to broker
+      System.out.println("Deploying account");
+      if (account.getState() != DeploymentState.DEPLOYED) {
+        account.deploy().toCompletionStage().toCompletableFuture().get();
+      } else {
+        System.out.println("Account already deployed");
+      }
+      System.out.println("Waiting for API server to connect to broker (may take couple of minutes)");
+      if (account.getConnectionStatus() != ConnectionStatus.CONNECTED) {
+        account.waitConnected().toCompletionStage().toCompletableFuture().get();
+      }
+
+      // connect to MetaApi API
+      MetaApiConnection connection = account.connect().toCompletionStage().toCompletableFuture().get();
+      connection.waitSynchronized().toCompletionStage().toCompletableFuture().get();
+
+      // issue all RPC requests at once, the scheduler pipelines them within the rate limits
+      RequestScheduler scheduler = new RequestScheduler(vertx, new RequestScheduler.Options());
+      IsoTime start = new IsoTime(Date.from(Instant.now().plusSeconds(-90 * 24 * 60 * 60)));
+      IsoTime end = new IsoTime(Date.from(Instant.now()));
+      long startedAt = System.currentTimeMillis();
+      CompletableFuture<MetatraderAccountInformation> accountInformation = scheduler
+        .schedule(accountId, connection::getAccountInformation).toCompletionStage().toCompletableFuture();
+      CompletableFuture<List<MetatraderPosition>> positions = scheduler
+        .schedule(accountId, connection::getPositions).toCompletionStage().toCompletableFuture();
+      CompletableFuture<List<MetatraderOrder>> orders = scheduler
+        .schedule(accountId, connection::getOrders).toCompletionStage().toCompletableFuture();
+      CompletableFuture<MetatraderHistoryOrders> historyOrders = scheduler
+        .schedule(accountId, () -> connection.getHistoryOrdersByTimeRange(start, end, 0, 1000))
+        .toCompletionStage().toCompletableFuture();
+      CompletableFuture<MetatraderDeals> deals = scheduler
+        .schedule(accountId, () -> connection.getDealsByTimeRange(start, end, 0, 1000))
+        .toCompletionStage().toCompletableFuture();
+
+      System.out.println("account information: " + asJson(accountInformation.get()));
+      System.out.println("positions: " + asJson(positions.get()));
+      System.out.println("open orders: " + asJson(orders.get()));
+      System.out.println("history orders (~last 3 months): " + asJson(historyOrders.get()));
+      System.out.println("history deals (~last 3 months): " + asJson(deals.get()));
+      System.out.println("All requests took " + (System.currentTimeMillis() - startedAt) + "ms");
+    } catch (Exception err) {
+      System.err.println(err);
+    }
+    System.exit(0);
+  }
+
+  private static String getEnvOrDefault(String name, String defaultValue) {
+    String result = System.getenv(name);
+    return (result != null ? result : defaultValue);
+  }
+
+  private static String asJson(Object object) throws JsonProcessingException {
+    return JsonMapper.getInstance().writeValueAsString(object);
+  }
+}
@@ -0,0 +1,203 @@
+import java.util.function.Function;
+
+import cloud.metaapi.sdk.clients.meta_api.models.MarketTradeOptions;
+import cloud.metaapi.sdk.clients.meta_api.models.MetatraderTradeResponse;
+import cloud.metaapi.sdk.clients.meta_api.models.PendingTradeOptions;
+import cloud.metaapi.sdk.meta_api.MetaApiConnection;
+import io.vertx.core.Future;
+
+/**
+ * Trade action which can be submitted as a part of a {@link TradeBatch}. Use the static factory methods to create
+ * actions for the trade methods of {@link MetaApiConnection}
+ */
+public class TradeAction {
+
+  private String description;
+  private Function<MetaApiConnection, Future<MetatraderTradeResponse>> request;
+
+  /**
+   * Constructs the action
+   * @param description action description used in logs
+   * @param request function sending the trade request via a connection
+   */
+  public TradeAction(String description, Function<MetaApiConnection, Future<MetatraderTradeResponse>> request) {
+    this.description = description;
+    this.request = request;
+  }
+
+  /**
+   * Creates a market buy order action
+   * @param symbol symbol to trade
+   * @param volume order volume
+   * @param stopLoss stop loss price, or {@code null}
+   * @param takeProfit take profit price, or {@code null}
+   * @param options optional trade options, or {@code null}
+   * @return trade action
+   */
+  public static TradeAction createMarketBuyOrder(String symbol, double volume, Double stopLoss, Double takeProfit,
+    MarketTradeOptions options) {
+    return new TradeAction("market buy " + volume + " " + symbol, connection -> connection
+      .createMarketBuyOrder(symbol, volume, stopLoss, takeProfit, options));
+  }
+
+  /**
+   * Creates a market sell order action
+   * @param symbol symbol to trade
+   * @param volume order volume
+   * @param stopLoss stop loss price, or {@code null}
+   * @param takeProfit take profit price, or {@code null}
+   * @param options optional trade options, or {@code null}
+   * @return trade action
+   */
+  public static TradeAction createMarketSellOrder(String symbol, double volume, Double stopLoss, Double takeProfit,
+    MarketTradeOptions options) {
+    return new TradeAction("market sell " + volume + " " + symbol, connection -> connection
+      .createMarketSellOrder(symbol, volume, stopLoss, takeProfit, options));
+  }
+
+  /**
+   * Creates a limit buy order action
+   * @param symbol symbol to trade
+   * @param volume order volume
+   * @param openPrice order limit price
+   * @param stopLoss stop loss price, or {@code null}
+   * @param takeProfit take profit price, or {@code null}
+   * @param options optional trade options, or {@code null}
+   * @return trade action
+   */
+  public static TradeAction createLimitBuyOrder(String symbol, double volume, double openPrice, Double stopLoss,
+    Double takeProfit, PendingTradeOptions options) {
+    return new TradeAction("limit buy " + volume + " " + symbol + " at " + openPrice, connection -> connection
+      .createLimitBuyOrder(symbol, volume, openPrice, stopLoss, takeProfit, options));
+  }
+
+  /**
+   * Creates a limit sell order action
+   * @param symbol symbol to trade
+   * @param volume order volume
+   * @param openPrice order limit price
+   * @param stopLoss stop loss price, or {@code null}
+   * @param takeProfit take profit price, or {@code null}
+   * @param options optional trade options, or {@code null}
+   * @return trade action
+   */
+  public static TradeAction createLimitSellOrder(String symbol, double volume, double openPrice, Double stopLoss,
+    Double takeProfit, PendingTradeOptions options) {
+    return new TradeAction("limit sell " + volume + " " + symbol + " at " + openPrice, connection -> connection
+      .createLimitSellOrder(symbol, volume, openPrice, stopLoss, takeProfit, options));
+  }
+
+  /**
+   * Creates a stop buy order action
+   * @param symbol symbol to trade
+   * @param volume order volume
+   * @param openPrice order stop price
+   * @param stopLoss stop loss price, or {@code null}
+   * @param takeProfit take profit price, or {@code null}
+   * @param options optional trade options, or {@code null}
+   * @return trade action
+   */
+  public static TradeAction createStopBuyOrder(String symbol, double volume, double openPrice, Double stopLoss,
+    Double takeProfit, PendingTradeOptions options) {
+    return new TradeAction("stop buy " + volume + " " + symbol + " at " + openPrice, connection -> connection
+      .createStopBuyOrder(symbol, volume, openPrice, stopLoss, takeProfit, options));
+  }
+
+  /**
+   * Creates a stop sell order action
+   * @param symbol symbol to trade
+   * @param volume order volume
+   * @param openPrice order stop price
+   * @param stopLoss stop loss price, or {@code null}
+   * @param takeProfit take profit price, or {@code null}
+   * @param options optional trade options, or {@code null}
+   * @return trade action
+   */
+  public static TradeAction createStopSellOrder(String symbol, double volume, double openPrice, Double stopLoss,
+    Double takeProfit, PendingTradeOptions options) {
+    return new TradeAction("stop sell " + volume + " " + symbol + " at " + openPrice, connection -> connection
+      .createStopSellOrder(symbol, volume, openPrice, stopLoss, takeProfit, options));
+  }
+
+  /**
+   * Creates a position modification action
+   * @param positionId position id
+   * @param stopLoss stop loss price, or {@code null}
+   * @param takeProfit take profit price, or {@code null}
+   * @return trade action
+   */
+  public static TradeAction modifyPosition(String positionId, Double stopLoss, Double takeProfit) {
+    return new TradeAction("modify position " + positionId, connection -> connection
+      .modifyPosition(positionId, stopLoss, takeProfit));
+  }
+
+  /**
+   * Creates a partial position close action
+   * @param positionId position id
+   * @param volume volume to close
+   * @param options optional trade options, or {@code null}
+   * @return trade action
+   */
+  public static TradeAction closePositionPartially(String positionId, double volume, MarketTradeOptions options) {
+    return new TradeAction("close " + volume + " of position " + positionId, connection -> connection
+      .closePositionPartially(positionId, volume, options));
+  }
+
+  /**
+   * Creates a position close action
+   * @param positionId position id
+   * @param options optional trade options, or {@code null}
+   * @return trade action
+   */
+  public static TradeAction closePosition(String positionId, MarketTradeOptions options) {
+    return new TradeAction("close position " + positionId, connection -> connection
+      .closePosition(positionId, options));
+  }
+
+  /**
+   * Creates an action closing all positions of a symbol
+   * @param symbol symbol
+   * @param options optional trade options, or {@code null}
+   * @return trade action
+   */
+  public static TradeAction closePositionsBySymbol(String symbol, MarketTradeOptions options) {
+    return new TradeAction("close positions of " + symbol, connection -> connection
+      .closePositionsBySymbol(symbol, options));
+  }
+
+  /**
+   * Creates a pending order modification action
+   * @param orderId order id
+   * @param openPrice order open price
+   * @param stopLoss stop loss price, or {@code null}
+   * @param takeProfit take profit price, or {@code null}
+   * @return trade action
+   */
+  public static TradeAction modifyOrder(String orderId, double openPrice, Double stopLoss, Double takeProfit) {
+    return new TradeAction("modify order " + orderId, connection -> connection
+      .modifyOrder(orderId, openPrice, stopLoss, takeProfit));
+  }
+
+  /**
+   * Creates a pending order cancellation action
+   * @param orderId order id
+   * @return trade action
+   */
+  public static TradeAction cancelOrder(String orderId) {
+    return new TradeAction("cancel order " + orderId, connection -> connection.cancelOrder(orderId));
+  }
+
+  /**
+   * Sends the trade request
+   * @param connection connection to the account to trade on
+   * @return future resolving with the trade response, or failing with {@code TradeException} if the trade failed
+   */
+  public Future<MetatraderTradeResponse> execute(MetaApiConnection connection) {
+    return request.apply(connection);
+  }
+
+  @Override
+  public String toString() {
+    return description;
+  }
+}
@@ -0,0 +1,70 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import cloud.metaapi.sdk.meta_api.MetaApiConnection;
+
+/**
+ * List of trade actions on one or many accounts to be submitted together via {@link BatchTrader}
+ */
+public class TradeBatch {
+
+  /**
+   * Trade action on an account
+   */
+  public static class Item {
+    /**
+     * Connection to the account to trade on
+     */
+    public MetaApiConnection connection;
+    /**
+     * Trade action
+     */
+    public TradeAction action;
+  }
+
+  private List<Item> items = new ArrayList<>();
+
+  /**
+   * Adds a trade action to the batch
+   * @param connection connection to the account to trade on
+   * @param action trade action
+   * @return this batch
+   */
+  public TradeBatch add(MetaApiConnection connection, TradeAction action) {
+    Item item = new Item();
+    item.connection = connection;
+    item.action = action;
+    items.add(item);
+    return this;
+  }
+
+  /**
+   * Adds trade actions on an account to the batch
+   * @param connection connection to the account to trade on
+   * @param actions trade actions
+   * @return this batch
+   */
+  public TradeBatch addAll(MetaApiConnection connection, List<TradeAction> actions) {
+    for (TradeAction action : actions) {
+      add(connection, action);
+    }
+    return this;
+  }
+
+  /**
+   * Returns batch items in the order they were added
+   * @return batch items
+   */
+  public List<Item> getItems() {
+    return Collections.unmodifiableList(items);
+  }
+
+  /**
+   * Returns number of trade actions in the batch
+   * @return number of trade actions
+   */
+  public int size() {
+    return items.size();
+  }
+}
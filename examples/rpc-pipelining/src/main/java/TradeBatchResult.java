@@ -0,0 +1,78 @@
+import java.util.List;
+
+import cloud.metaapi.sdk.clients.meta_api.TradeException;
+import cloud.metaapi.sdk.clients.meta_api.models.MetatraderTradeResponse;
+import cloud.metaapi.sdk.meta_api.MetaApiConnection;
+
+/**
+ * Result of a trade batch submitted via {@link BatchTrader}
+ */
+public class TradeBatchResult {
+
+  /**
+   * Result of a single trade action
+   */
+  public static class Item {
+    /**
+     * Connection to the account the action was submitted to
+     */
+    public MetaApiConnection connection;
+    /**
+     * Trade action
+     */
+    public TradeAction action;
+    /**
+     * Trade response, or {@code null} if the action failed
+     */
+    public MetatraderTradeResponse response;
+    /**
+     * Error if the action failed, or {@code null}. Trade errors reported by the server are {@link TradeException}s
+     */
+    public Throwable error;
+    /**
+     * Time from sending the request to receiving the response in milliseconds
+     */
+    public double latencyInMilliseconds;
+
+    /**
+     * Returns whether the action succeeded
+     * @return whether the action succeeded
+     */
+    public boolean succeeded() {
+      return error == null;
+    }
+
+    /**
+     * Returns trade error reported by the server
+     * @return trade error, or {@code null} if the action succeeded or failed for another reason
+     */
+    public TradeException getTradeException() {
+      return error instanceof TradeException ? (TradeException) error : null;
+    }
+  }
+
+  /**
+   * Action results in the order the actions were added to the batch
+   */
+  public List<Item> items;
+  /**
+   * Number of succeeded actions
+   */
+  public int succeeded;
+  /**
+   * Number of failed actions
+   */
+  public int failed;
+  /**
+   * Time from submitting the batch to receiving the last response in milliseconds
+   */
+  public double totalLatencyInMilliseconds;
+  /**
+   * Mean latency of a single action in milliseconds
+   */
+  public double meanLatencyInMilliseconds;
+  /**
+   * Maximum latency of a single action in milliseconds
+   */
+  public double maxLatencyInMilliseconds;
+}
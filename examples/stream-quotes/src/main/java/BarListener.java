@@ -0,0 +1,11 @@
+/**
+ * Receives bars closed by a {@link CandleAggregator}
+ */
+public interface BarListener {
+
+  /**
+   * Invoked when a bar was closed. Invoked on the streaming thread, so implementations should return quickly
+   * @param series bar series, the closed bar is the bar with index 0
+   */
+  void onBarClosed(BarSeries series);
+}
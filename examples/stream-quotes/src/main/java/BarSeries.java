@@ -0,0 +1,298 @@
+/**
+ * Bars of a symbol built from prices, either time bars of a fixed interval or range bars of a fixed price range.
+ * Closed bars are kept in a ring buffer of primitive arrays, so updating the series takes constant time and does
+ * not allocate. Bars are indexed from the newest closed bar, which has index 0. The series is updated on the
+ * streaming thread and must only be read on it, e.g. from a {@link BarListener}
+ */
+public class BarSeries {
+
+  private int symbolId;
+  private String symbol;
+  private long intervalInMilliseconds;
+  private double range;
+  private int capacity;
+  private int size = 0;
+  private int head = 0;
+  private long[] times;
+  private double[] opens;
+  private double[] highs;
+  private double[] lows;
+  private double[] closes;
+  private double[] volumes;
+  private int[] tickCounts;
+  private boolean hasCurrent = false;
+  private long lastClosedTime = Long.MIN_VALUE;
+  private long currentTime;
+  private double currentOpen;
+  private double currentHigh;
+  private double currentLow;
+  private double currentClose;
+  private double currentVolume;
+  private int currentTickCount;
+
+  /**
+   * Constructs the series
+   * @param symbolId symbol id, see {@link SymbolIds}
+   * @param symbol symbol
+   * @param intervalInMilliseconds bar interval for time bars, or 0 for range bars
+   * @param range bar price range for range bars, or 0 for time bars
+   * @param capacity number of closed bars to keep
+   */
+  BarSeries(int symbolId, String symbol, long intervalInMilliseconds, double range, int capacity) {
+    this.symbolId = symbolId;
+    this.symbol = symbol;
+    this.intervalInMilliseconds = intervalInMilliseconds;
+    this.range = range;
+    this.capacity = capacity;
+    this.times = new long[capacity];
+    this.opens = new double[capacity];
+    this.highs = new double[capacity];
+    this.lows = new double[capacity];
+    this.closes = new double[capacity];
+    this.volumes = new double[capacity];
+    this.tickCounts = new int[capacity];
+  }
+
+  /**
+   * Returns symbol id
+   * @return symbol id
+   */
+  public int getSymbolId() {
+    return symbolId;
+  }
+
+  /**
+   * Returns symbol
+   * @return symbol
+   */
+  public String getSymbol() {
+    return symbol;
+  }
+
+  /**
+   * Returns bar interval
+   * @return bar interval in milliseconds, or 0 for range bars
+   */
+  public long getIntervalInMilliseconds() {
+    return intervalInMilliseconds;
+  }
+
+  /**
+   * Returns bar price range
+   * @return bar price range, or 0 for time bars
+   */
+  public double getRange() {
+    return range;
+  }
+
+  /**
+   * Returns number of kept closed bars
+   * @return number of closed bars
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Returns open time of a closed bar
+   * @param index bar index, 0 is the newest closed bar
+   * @return open time in epoch milliseconds
+   */
+  public long getTime(int index) {
+    return times[slot(index)];
+  }
+
+  /**
+   * Returns open price of a closed bar
+   * @param index bar index, 0 is the newest closed bar
+   * @return open price
+   */
+  public double getOpen(int index) {
+    return opens[slot(index)];
+  }
+
+  /**
+   * Returns high price of a closed bar
+   * @param index bar index, 0 is the newest closed bar
+   * @return high price
+   */
+  public double getHigh(int index) {
+    return highs[slot(index)];
+  }
+
+  /**
+   * Returns low price of a closed bar
+   * @param index bar index, 0 is the newest closed bar
+   * @return low price
+   */
+  public double getLow(int index) {
+    return lows[slot(index)];
+  }
+
+  /**
+   * Returns close price of a closed bar
+   * @param index bar index, 0 is the newest closed bar
+   * @return close price
+   */
+  public double getClose(int index) {
+    return closes[slot(index)];
+  }
+
+  /**
+   * Returns volume of a closed bar
+   * @param index bar index, 0 is the newest closed bar
+   * @return volume, 0 if the prices did not carry volumes
+   */
+  public double getVolume(int index) {
+    return volumes[slot(index)];
+  }
+
+  /**
+   * Returns number of prices of a closed bar
+   * @param index bar index, 0 is the newest closed bar
+   * @return number of prices
+   */
+  public int getTickCount(int index) {
+    return tickCounts[slot(index)];
+  }
+
+  /**
+   * Returns whether a bar is being built
+   * @return whether there is a current bar
+   */
+  public boolean hasCurrentBar() {
+    return hasCurrent;
+  }
+
+  /**
+   * Returns open time of the current bar
+   * @return open time in epoch milliseconds
+   */
+  public long getCurrentTime() {
+    return currentTime;
+  }
+
+  /**
+   * Returns open price of the current bar
+   * @return open price
+   */
+  public double getCurrentOpen() {
+    return currentOpen;
+  }
+
+  /**
+   * Returns high price of the current bar
+   * @return high price
+   */
+  public double getCurrentHigh() {
+    return currentHigh;
+  }
+
+  /**
+   * Returns low price of the current bar
+   * @return low price
+   */
+  public double getCurrentLow() {
+    return currentLow;
+  }
+
+  /**
+   * Returns last price of the current bar
+   * @return last price
+   */
+  public double getCurrentClose() {
+    return currentClose;
+  }
+
+  /**
+   * Returns volume of the current bar
+   * @return volume
+   */
+  public double getCurrentVolume() {
+    return currentVolume;
+  }
+
+  /**
+   * Adds a price to the series
+   * @param time price time in epoch milliseconds
+   * @param price price
+   * @param volume traded volume, or 0
+   * @return whether a bar was closed by the price
+   */
+  boolean update(long time, double price, double volume) {
+    boolean closed = false;
+    if (intervalInMilliseconds != 0) {
+      long barTime = Math.floorDiv(time, intervalInMilliseconds) * intervalInMilliseconds;
+      if (hasCurrent && barTime > currentTime) {
+        closeCurrent();
+        closed = true;
+      }
+      if (hasCurrent ? barTime < currentTime : barTime <= lastClosedTime) {
+        // late price of an already closed bar, which must not reopen it or open a bar out of order
+        return closed;
+      }
+      if (!hasCurrent) {
+        open(barTime, price);
+      }
+    } else {
+      if (hasCurrent && Math.max(currentHigh, price) - Math.min(currentLow, price) > range) {
+        closeCurrent();
+        closed = true;
+      }
+      if (!hasCurrent) {
+        open(time, price);
+      }
+    }
+    currentHigh = Math.max(currentHigh, price);
+    currentLow = Math.min(currentLow, price);
+    currentClose = price;
+    currentVolume += volume;
+    currentTickCount++;
+    return closed;
+  }
+
+  /**
+   * Closes the current time bar if its interval has ended, so that bars close even when no more prices arrive
+   * @param time current time in epoch milliseconds
+   * @return whether the current bar was closed
+   */
+  boolean closeIfEnded(long time) {
+    if (hasCurrent && intervalInMilliseconds != 0 && time >= currentTime + intervalInMilliseconds) {
+      closeCurrent();
+      return true;
+    }
+    return false;
+  }
+
+  private void open(long time, double price) {
+    hasCurrent = true;
+    currentTime = time;
+    currentOpen = price;
+    currentHigh = price;
+    currentLow = price;
+    currentClose = price;
+    currentVolume = 0;
+    currentTickCount = 0;
+  }
+
+  private void closeCurrent() {
+    head = (head + 1) % capacity;
+    times[head] = currentTime;
+    opens[head] = currentOpen;
+    highs[head] = currentHigh;
+    lows[head] = currentLow;
+    closes[head] = currentClose;
+    volumes[head] = currentVolume;
+    tickCounts[head] = currentTickCount;
+    size = Math.min(size + 1, capacity);
+    lastClosedTime = currentTime;
+    hasCurrent = false;
+  }
+
+  private int slot(int index) {
+    if (index < 0 || index >= size) {
+      throw new IndexOutOfBoundsException("Bar " + index + " of " + size);
+    }
+    return (head - index + capacity) % capacity;
+  }
+}
@@ -0,0 +1,73 @@
+import java.util.Arrays;
+
+/**
+ * Mutable order book snapshot with levels stored in primitive arrays. Instances are reused by
+ * {@link MarketDataDecoder}, so that decoding order books does not allocate once the arrays have grown to the book
+ * depth
+ */
+public class BookUpdate {
+  /**
+   * Symbol id, see {@link SymbolIds}
+   */
+  public int symbolId;
+  /**
+   * Symbol
+   */
+  public String symbol;
+  /**
+   * Book time in epoch milliseconds
+   */
+  public long time;
+  /**
+   * Number of bid levels
+   */
+  public int bidCount;
+  /**
+   * Bid level prices, valid up to {@link #bidCount}
+   */
+  public double[] bidPrices = new double[16];
+  /**
+   * Bid level volumes, valid up to {@link #bidCount}
+   */
+  public double[] bidVolumes = new double[16];
+  /**
+   * Number of ask levels
+   */
+  public int askCount;
+  /**
+   * Ask level prices, valid up to {@link #askCount}
+   */
+  public double[] askPrices = new double[16];
+  /**
+   * Ask level volumes, valid up to {@link #askCount}
+   */
+  public double[] askVolumes = new double[16];
+
+  /**
+   * Appends a bid level
+   * @param price level price
+   * @param volume level volume
+   */
+  public void addBid(double price, double volume) {
+    if (bidCount == bidPrices.length) {
+      bidPrices = Arrays.copyOf(bidPrices, bidCount * 2);
+      bidVolumes = Arrays.copyOf(bidVolumes, bidCount * 2);
+    }
+    bidPrices[bidCount] = price;
+    bidVolumes[bidCount++] = volume;
+  }
+
+  /**
+   * Appends an ask level
+   * @param price level price
+   * @param volume level volume
+   */
+  public void addAsk(double price, double volume) {
+    if (askCount == askPrices.length) {
+      askPrices = Arrays.copyOf(askPrices, askCount * 2);
+      askVolumes = Arrays.copyOf(askVolumes, askCount * 2);
+    }
+    askPrices[askCount] = price;
+    askVolumes[askCount++] = volume;
+  }
+}
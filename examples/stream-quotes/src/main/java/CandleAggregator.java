@@ -0,0 +1,251 @@
+import java.util.Arrays;
+import java.util.List;
+
+import cloud.metaapi.sdk.clients.meta_api.SynchronizationListener;
+import cloud.metaapi.sdk.clients.meta_api.models.MetatraderSymbolPrice;
+import cloud.metaapi.sdk.clients.meta_api.models.MetatraderTick;
+import io.vertx.core.Future;
+
+/**
+ * Builds bars locally from the price stream, so that custom timeframes such as 5 or 15 seconds and range bars are
+ * available without subscribing to candles. Each price updates every {@link BarSeries} of its symbol in constant
+ * time without allocating, and closed bars are reported to {@link BarListener}s. Like MetaTrader candles, bars are
+ * built from bid prices, tick bars falling back to the last deal price when the tick has no bid. Register the
+ * aggregator via {@code connection.addSynchronizationListener}, or as a {@link PriceListener} of a
+ * {@link PriceDispatcher} sharing the same symbol ids. Prices and ticks decoded by a {@link MarketDataDecoder} can
+ * be applied via {@link #apply(PriceDispatcher.Quote)} and {@link #apply(TickUpdate)}
+ */
+public class CandleAggregator extends SynchronizationListener implements PriceListener {
+
+  private static final Future<Void> SUCCEEDED = Future.succeededFuture();
+
+  /**
+   * Stream bars are built from
+   */
+  public enum Source {
+    /**
+     * Symbol price updates, which carry no volume
+     */
+    QUOTES,
+    /**
+     * Ticks of the {@code ticks} market data subscription, which carry deal volumes
+     */
+    TICKS
+  }
+
+  private SymbolIds symbolIds;
+  private Source source;
+  private volatile BarListener[] listeners = new BarListener[0];
+  private volatile BarSeries[][] series = new BarSeries[0][];
+
+  /**
+   * Constructs the aggregator building bars from symbol price updates
+   */
+  public CandleAggregator() {
+    this(new SymbolIds(), Source.QUOTES);
+  }
+
+  /**
+   * Constructs the aggregator sharing symbol ids with other components
+   * @param symbolIds symbol ids
+   * @param source stream to build bars from. Prices of the other stream received via synchronization listener
+   * methods are ignored, so that subscribing to both does not count prices twice
+   */
+  public CandleAggregator(SymbolIds symbolIds, Source source) {
+    this.symbolIds = symbolIds;
+    this.source = source;
+  }
+
+  /**
+   * Returns symbol ids used to address bar series
+   * @return symbol ids
+   */
+  public SymbolIds getSymbolIds() {
+    return symbolIds;
+  }
+
+  /**
+   * Adds a time bar series of a symbol. Bars are aligned to multiples of the interval since the epoch and a bar is
+   * closed by the first price of a later interval, or by {@link #closeEndedBars(long)}. Intervals without prices
+   * produce no bars
+   * @param symbol symbol
+   * @param intervalInMilliseconds bar interval in milliseconds, e.g. 5000 for 5 second bars
+   * @param historySize number of closed bars to keep
+   * @return bar series
+   */
+  public BarSeries addTimeBars(String symbol, long intervalInMilliseconds, int historySize) {
+    if (intervalInMilliseconds <= 0) {
+      throw new IllegalArgumentException("Bar interval must be positive: " + intervalInMilliseconds);
+    }
+    return addSeries(symbol, intervalInMilliseconds, 0, historySize);
+  }
+
+  /**
+   * Adds a range bar series of a symbol. A bar is closed by the first price which would extend the difference of
+   * its high and low beyond the range, and that price opens the next bar
+   * @param symbol symbol
+   * @param range bar price range
+   * @param historySize number of closed bars to keep
+   * @return bar series
+   */
+  public BarSeries addRangeBars(String symbol, double range, int historySize) {
+    if (!(range > 0)) {
+      throw new IllegalArgumentException("Bar range must be positive: " + range);
+    }
+    return addSeries(symbol, 0, range, historySize);
+  }
+
+  /**
+   * Removes a bar series
+   * @param barSeries bar series
+   */
+  public synchronized void removeSeries(BarSeries barSeries) {
+    int symbolId = barSeries.getSymbolId();
+    BarSeries[][] newSeries = series.clone();
+    BarSeries[] symbolSeries = symbolId < newSeries.length ? newSeries[symbolId] : null;
+    for (int i = 0; symbolSeries != null && i < symbolSeries.length; i++) {
+      if (symbolSeries[i] == barSeries) {
+        BarSeries[] newSymbolSeries = new BarSeries[symbolSeries.length - 1];
+        System.arraycopy(symbolSeries, 0, newSymbolSeries, 0, i);
+        System.arraycopy(symbolSeries, i + 1, newSymbolSeries, i, symbolSeries.length - i - 1);
+        newSeries[symbolId] = newSymbolSeries;
+        series = newSeries;
+        return;
+      }
+    }
+  }
+
+  /**
+   * Adds a bar listener
+   * @param listener bar listener
+   */
+  public synchronized void addListener(BarListener listener) {
+    BarListener[] newListeners = Arrays.copyOf(listeners, listeners.length + 1);
+    newListeners[listeners.length] = listener;
+    listeners = newListeners;
+  }
+
+  /**
+   * Removes a bar listener
+   * @param listener bar listener
+   */
+  public synchronized void removeListener(BarListener listener) {
+    for (int i = 0; i < listeners.length; i++) {
+      if (listeners[i] == listener) {
+        BarListener[] newListeners = new BarListener[listeners.length - 1];
+        System.arraycopy(listeners, 0, newListeners, 0, i);
+        System.arraycopy(listeners, i + 1, newListeners, i, listeners.length - i - 1);
+        listeners = newListeners;
+        return;
+      }
+    }
+  }
+
+  /**
+   * Adds a price to all bar series of a symbol. Must be invoked on the streaming thread
+   * @param symbolId symbol id
+   * @param time price time in epoch milliseconds
+   * @param price price
+   * @param volume traded volume, or 0
+   */
+  public void update(int symbolId, long time, double price, double volume) {
+    BarSeries[][] allSeries = series;
+    BarSeries[] symbolSeries = symbolId >= 0 && symbolId < allSeries.length ? allSeries[symbolId] : null;
+    if (symbolSeries == null) {
+      return;
+    }
+    for (BarSeries barSeries : symbolSeries) {
+      if (barSeries.update(time, price, volume)) {
+        notifyClosed(barSeries);
+      }
+    }
+  }
+
+  /**
+   * Closes time bars whose interval has ended, so that bars of quiet symbols are reported without waiting for
+   * their next price. Must be invoked on the streaming thread, e.g. from a periodic timer
+   * @param time current time in epoch milliseconds
+   */
+  public void closeEndedBars(long time) {
+    for (BarSeries[] symbolSeries : series) {
+      for (int i = 0; symbolSeries != null && i < symbolSeries.length; i++) {
+        if (symbolSeries[i].closeIfEnded(time)) {
+          notifyClosed(symbolSeries[i]);
+        }
+      }
+    }
+  }
+
+  /**
+   * Adds a decoded price. Must be invoked on the streaming thread
+   * @param quote price quote
+   */
+  public void apply(PriceDispatcher.Quote quote) {
+    update(quote.symbolId, quote.time, quote.bid, 0);
+  }
+
+  /**
+   * Adds a decoded tick. Ticks without a bid and a last price are ignored. Must be invoked on the streaming thread
+   * @param tick tick
+   */
+  public void apply(TickUpdate tick) {
+    double price = !Double.isNaN(tick.bid) ? tick.bid : tick.last;
+    if (!Double.isNaN(price)) {
+      update(tick.symbolId, tick.time, price, !Double.isNaN(tick.volume) ? tick.volume : 0);
+    }
+  }
+
+  @Override
+  public void onPrice(int symbolId, double bid, double ask, long time) {
+    update(symbolId, time, bid, 0);
+  }
+
+  @Override
+  public Future<Void> onSymbolPriceUpdated(String instanceIndex, MetatraderSymbolPrice price) {
+    if (source == Source.QUOTES) {
+      update(symbolIds.getId(price.symbol), price.time.getDate().getTime(), price.bid, 0);
+    }
+    return SUCCEEDED;
+  }
+
+  @Override
+  public Future<Void> onTicksUpdated(String instanceIndex, List<MetatraderTick> ticks, Double equity,
+    Double margin, Double freeMargin, Double marginLevel, Double accountCurrencyExchangeRate) {
+    if (source == Source.TICKS) {
+      for (MetatraderTick tick : ticks) {
+        Double price = tick.bid != null ? tick.bid : tick.last;
+        if (price != null) {
+          update(symbolIds.getId(tick.symbol), tick.time.getDate().getTime(), price,
+            tick.volume != null ? tick.volume : 0);
+        }
+      }
+    }
+    return SUCCEEDED;
+  }
+
+  private synchronized BarSeries addSeries(String symbol, long intervalInMilliseconds, double range,
+    int historySize) {
+    if (historySize <= 0) {
+      throw new IllegalArgumentException("History size must be positive: " + historySize);
+    }
+    int symbolId = symbolIds.getId(symbol);
+    BarSeries barSeries = new BarSeries(symbolId, symbol, intervalInMilliseconds, range, historySize);
+    BarSeries[][] newSeries = Arrays.copyOf(series, Math.max(series.length, symbolId + 1));
+    BarSeries[] symbolSeries = newSeries[symbolId] != null ? newSeries[symbolId] : new BarSeries[0];
+    symbolSeries = Arrays.copyOf(symbolSeries, symbolSeries.length + 1);
+    symbolSeries[symbolSeries.length - 1] = barSeries;
+    newSeries[symbolId] = symbolSeries;
+    series = newSeries;
+    return barSeries;
+  }
+
+  private void notifyClosed(BarSeries barSeries) {
+    for (BarListener listener : listeners) {
+      try {
+        listener.onBarClosed(barSeries);
+      } catch (Throwable err) {
+        System.err.println("Bar listener failed to process " + barSeries.getSymbol() + " bar: " + err);
+      }
+    }
+  }
+}
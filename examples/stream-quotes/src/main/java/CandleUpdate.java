@@ -0,0 +1,49 @@
+/**
+ * Mutable candle. Instances are reused by {@link MarketDataDecoder}, so that decoding candles does not allocate
+ */
+public class CandleUpdate {
+  /**
+   * Symbol id, see {@link SymbolIds}
+   */
+  public int symbolId;
+  /**
+   * Symbol
+   */
+  public String symbol;
+  /**
+   * Timeframe, e.g. 1m
+   */
+  public String timeframe;
+  /**
+   * Candle open time in epoch milliseconds
+   */
+  public long time;
+  /**
+   * Open price
+   */
+  public double open;
+  /**
+   * High price
+   */
+  public double high;
+  /**
+   * Low price
+   */
+  public double low;
+  /**
+   * Close price
+   */
+  public double close;
+  /**
+   * Tick volume
+   */
+  public double tickVolume;
+  /**
+   * Spread in points
+   */
+  public double spread;
+  /**
+   * Trade volume
+   */
+  public double volume;
+}
@@ -0,0 +1,270 @@
+import java.util.AbstractCollection;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import cloud.metaapi.sdk.clients.meta_api.SynchronizationListener;
+import cloud.metaapi.sdk.clients.meta_api.models.MetatraderOrder;
+import cloud.metaapi.sdk.clients.meta_api.models.MetatraderPosition;
+import cloud.metaapi.sdk.clients.meta_api.models.MetatraderSymbolPrice;
+import cloud.metaapi.sdk.clients.meta_api.models.MetatraderSymbolSpecification;
+import io.vertx.core.Future;
+
+/**
+ * Copy of the terminal prices, specifications, positions and orders which can be read from many threads while the
+ * streaming thread updates it. Prices are stored as primitives in one slot per symbol id and are read with a
+ * sequence lock, so price reads never block and do not allocate. Specifications, positions and orders are kept
+ * in concurrent maps. When all positions or orders are replaced on synchronization, a new map is built and
+ * published at once, so readers see either the old or the new ones and never a mix. Register it via
+ * {@code connection.addSynchronizationListener}. Unlike the SDK {@code TerminalState}, it does not track state per
+ * instance index, so updates of all instances are applied to the same state
+ */
+public class ConcurrentTerminalState extends SynchronizationListener {
+
+  private static final Future<Void> SUCCEEDED = Future.succeededFuture();
+
+  /**
+   * Price of a symbol protected by a sequence lock. The sequence is odd while the price is being written, and a
+   * writer makes it odd with a compare-and-set, so updates of several instances never interleave. All fields are
+   * volatile, which keeps the reads of a reader in program order
+   */
+  private static class PriceSlot {
+    public final AtomicLong sequence = new AtomicLong();
+    public volatile double bid;
+    public volatile double ask;
+    public volatile long time;
+  }
+
+  private SymbolIds symbolIds;
+  private volatile PriceSlot[] prices = new PriceSlot[0];
+  private Map<String, MetatraderSymbolSpecification> specifications = new ConcurrentHashMap<>();
+  private volatile Map<String, MetatraderPosition> positions = new ConcurrentHashMap<>();
+  private volatile Map<String, MetatraderOrder> orders = new ConcurrentHashMap<>();
+
+  /**
+   * Constructs the state
+   */
+  public ConcurrentTerminalState() {
+    this(new SymbolIds());
+  }
+
+  /**
+   * Constructs the state sharing symbol ids with other components
+   * @param symbolIds symbol ids
+   */
+  public ConcurrentTerminalState(SymbolIds symbolIds) {
+    this.symbolIds = symbolIds;
+  }
+
+  /**
+   * Returns symbol ids used to address prices
+   * @return symbol ids
+   */
+  public SymbolIds getSymbolIds() {
+    return symbolIds;
+  }
+
+  /**
+   * Reads the latest price of a symbol into a quote object. Never blocks and does not allocate
+   * @param symbolId symbol id
+   * @param quote quote to read the price into
+   * @return whether a price of the symbol was received, if not the quote is left unchanged
+   */
+  public boolean getPrice(int symbolId, PriceDispatcher.Quote quote) {
+    PriceSlot[] slots = prices;
+    PriceSlot slot = symbolId >= 0 && symbolId < slots.length ? slots[symbolId] : null;
+    if (slot == null) {
+      return false;
+    }
+    long sequence;
+    double bid;
+    double ask;
+    long time;
+    do {
+      sequence = slot.sequence.get();
+      bid = slot.bid;
+      ask = slot.ask;
+      time = slot.time;
+    } while ((sequence & 1) != 0 || sequence != slot.sequence.get());
+    if (sequence == 0) {
+      return false;
+    }
+    quote.symbolId = symbolId;
+    quote.symbol = symbolIds.getSymbol(symbolId);
+    quote.bid = bid;
+    quote.ask = ask;
+    quote.time = time;
+    return true;
+  }
+
+  /**
+   * Reads the latest price of a symbol into a quote object. Never blocks and does not allocate
+   * @param symbol symbol
+   * @param quote quote to read the price into
+   * @return whether a price of the symbol was received, if not the quote is left unchanged
+   */
+  public boolean getPrice(String symbol, PriceDispatcher.Quote quote) {
+    return getPrice(symbolIds.findId(symbol), quote);
+  }
+
+  /**
+   * Returns symbol specification
+   * @param symbol symbol
+   * @return symbol specification, or {@code null} if it is not received yet
+   */
+  public MetatraderSymbolSpecification getSpecification(String symbol) {
+    return specifications.get(symbol);
+  }
+
+  /**
+   * Returns a live view of symbol specifications
+   * @return symbol specifications
+   */
+  public Collection<MetatraderSymbolSpecification> getSpecifications() {
+    return Collections.unmodifiableCollection(specifications.values());
+  }
+
+  /**
+   * Returns an open position
+   * @param positionId position id
+   * @return position, or {@code null} if there is no such open position
+   */
+  public MetatraderPosition getPosition(String positionId) {
+    return positions.get(positionId);
+  }
+
+  /**
+   * Returns a live view of open positions
+   * @return open positions
+   */
+  public Collection<MetatraderPosition> getPositions() {
+    return new AbstractCollection<MetatraderPosition>() {
+      @Override
+      public Iterator<MetatraderPosition> iterator() {
+        return Collections.unmodifiableCollection(positions.values()).iterator();
+      }
+
+      @Override
+      public int size() {
+        return positions.size();
+      }
+    };
+  }
+
+  /**
+   * Returns a pending order
+   * @param orderId order id
+   * @return order, or {@code null} if there is no such pending order
+   */
+  public MetatraderOrder getOrder(String orderId) {
+    return orders.get(orderId);
+  }
+
+  /**
+   * Returns a live view of pending orders
+   * @return pending orders
+   */
+  public Collection<MetatraderOrder> getOrders() {
+    return new AbstractCollection<MetatraderOrder>() {
+      @Override
+      public Iterator<MetatraderOrder> iterator() {
+        return Collections.unmodifiableCollection(orders.values()).iterator();
+      }
+
+      @Override
+      public int size() {
+        return orders.size();
+      }
+    };
+  }
+
+  @Override
+  public Future<Void> onSymbolPriceUpdated(String instanceIndex, MetatraderSymbolPrice price) {
+    PriceSlot slot = getOrCreateSlot(symbolIds.getId(price.symbol));
+    // instances may deliver prices of a symbol on different threads, so a writer waits until the sequence is even
+    // and claims the slot by making it odd
+    long sequence;
+    do {
+      sequence = slot.sequence.get();
+    } while ((sequence & 1) != 0 || !slot.sequence.compareAndSet(sequence, sequence + 1));
+    slot.bid = price.bid;
+    slot.ask = price.ask;
+    slot.time = price.time.getDate().getTime();
+    slot.sequence.set(sequence + 2);
+    return SUCCEEDED;
+  }
+
+  @Override
+  public Future<Void> onSymbolSpecificationUpdated(String instanceIndex,
+    MetatraderSymbolSpecification specification) {
+    specifications.put(specification.symbol, specification);
+    return SUCCEEDED;
+  }
+
+  @Override
+  public Future<Void> onPositionsReplaced(String instanceIndex, List<MetatraderPosition> positions) {
+    Map<String, MetatraderPosition> replacement = new ConcurrentHashMap<>(Math.max(16, positions.size() * 2));
+    for (MetatraderPosition position : positions) {
+      replacement.put(position.id, position);
+    }
+    this.positions = replacement;
+    return SUCCEEDED;
+  }
+
+  @Override
+  public Future<Void> onPositionUpdated(String instanceIndex, MetatraderPosition position) {
+    positions.put(position.id, position);
+    return SUCCEEDED;
+  }
+
+  @Override
+  public Future<Void> onPositionRemoved(String instanceIndex, String positionId) {
+    positions.remove(positionId);
+    return SUCCEEDED;
+  }
+
+  @Override
+  public Future<Void> onOrdersReplaced(String instanceIndex, List<MetatraderOrder> orders) {
+    Map<String, MetatraderOrder> replacement = new ConcurrentHashMap<>(Math.max(16, orders.size() * 2));
+    for (MetatraderOrder order : orders) {
+      replacement.put(order.id, order);
+    }
+    this.orders = replacement;
+    return SUCCEEDED;
+  }
+
+  @Override
+  public Future<Void> onOrderUpdated(String instanceIndex, MetatraderOrder order) {
+    orders.put(order.id, order);
+    return SUCCEEDED;
+  }
+
+  @Override
+  public Future<Void> onOrderCompleted(String instanceIndex, String orderId) {
+    orders.remove(orderId);
+    return SUCCEEDED;
+  }
+
+  private PriceSlot getOrCreateSlot(int symbolId) {
+    PriceSlot[] slots = prices;
+    if (symbolId < slots.length && slots[symbolId] != null) {
+      return slots[symbolId];
+    }
+    synchronized (this) {
+      slots = prices;
+      if (symbolId >= slots.length) {
+        slots = Arrays.copyOf(slots, Math.max(symbolId + 1, slots.length * 2));
+      }
+      if (slots[symbolId] == null) {
+        slots[symbolId] = new PriceSlot();
+      }
+      prices = slots;
+      return slots[symbolId];
+    }
+  }
+}
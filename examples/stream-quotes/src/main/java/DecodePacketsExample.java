@@ -0,0 +1,63 @@
+import java.io.BufferedReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+/**
+ * Decodes streaming packets saved one per line in a text file, e.g. captured from the websocket traffic, and
+ * reports the decoding throughput
+ */
+public class DecodePacketsExample {
+
+  private static String packetsFile = getEnvOrDefault("PACKETS_FILE", "packets.txt");
+
+  public static void main(String[] args) {
+    try {
+      long[] counts = new long[4];
+      MarketDataHandler handler = new MarketDataHandler() {
+        @Override
+        public void onPrice(PriceDispatcher.Quote price) {
+          counts[0]++;
+        }
+
+        @Override
+        public void onTick(TickUpdate tick) {
+          counts[1]++;
+        }
+
+        @Override
+        public void onCandle(CandleUpdate candle) {
+          counts[2]++;
+        }
+
+        @Override
+        public void onBook(BookUpdate book) {
+          counts[3]++;
+        }
+      };
+      MarketDataDecoder decoder = new MarketDataDecoder();
+      long packets = 0;
+      long startedAt = System.nanoTime();
+      try (BufferedReader reader = Files.newBufferedReader(Paths.get(packetsFile), StandardCharsets.UTF_8)) {
+        String line;
+        while ((line = reader.readLine()) != null) {
+          if (decoder.decode(line, handler)) {
+            packets++;
+          }
+        }
+      }
+      long elapsed = System.nanoTime() - startedAt;
+      System.out.println("Decoded " + packets + " market data packets with " + counts[0] + " prices, " + counts[1]
+        + " ticks, " + counts[2] + " candles and " + counts[3] + " books of "
+        + decoder.getSymbolIds().size() + " symbols in " + elapsed / 1000000 + "ms");
+    } catch (Exception err) {
+      System.err.println(err);
+    }
+    System.exit(0);
+  }
+
+  private static String getEnvOrDefault(String name, String defaultValue) {
+    String result = System.getenv(name);
+    return (result != null ? result : defaultValue);
+  }
+}
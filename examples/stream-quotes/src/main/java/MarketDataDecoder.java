@@ -0,0 +1,574 @@
+import java.io.IOException;
+import java.util.Arrays;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * Decodes market data packets of the MetaApi streaming protocol, i.e. the {@code prices} synchronization packets
+ * carrying prices, ticks, candles and order books, directly from JSON text. The packet is read token by token
+ * with the Jackson streaming parser instead of being mapped into model objects: unused fields are skipped
+ * without being materialized, timestamps are converted to epoch milliseconds straight from the parser buffer, and
+ * the results are written into objects reused for every packet. Symbols and timeframes are interned, so decoding
+ * packets of already seen symbols does not allocate strings. Packets may be passed either as a plain JSON object
+ * or as a socket.io event frame such as {@code 42["synchronization",{...}]}. Market data is only passed to the
+ * handler once the packet type is known to be {@code prices}; in the rare packet listing the type after the market
+ * data, the packet is parsed a second time. A decoder is not thread-safe, use one decoder per thread
+ */
+public class MarketDataDecoder {
+
+  private static final int STRING_CACHE_SIZE = 1024;
+  private static final int STRING_CACHE_PROBES = 8;
+  private static final int NOT_MARKET_DATA = 0;
+  private static final int MARKET_DATA = 1;
+  private static final int TYPE_AFTER_MARKET_DATA = 2;
+
+  /**
+   * Epoch of a parsed hour, replaced as a whole so that it can be shared between decoders without locking
+   */
+  private static class HourCache {
+    public final char[] prefix;
+    public final long epochMillis;
+
+    public HourCache(char[] prefix, long epochMillis) {
+      this.prefix = prefix;
+      this.epochMillis = epochMillis;
+    }
+  }
+
+  private static volatile HourCache hourCache = new HourCache(new char[0], 0);
+
+  private JsonFactory jsonFactory = new JsonFactory();
+  private SymbolIds symbolIds;
+  private String[] strings = new String[STRING_CACHE_SIZE];
+  private char[] packetChars = new char[4096];
+  private PriceDispatcher.Quote price = new PriceDispatcher.Quote();
+  private TickUpdate tick = new TickUpdate();
+  private CandleUpdate candle = new CandleUpdate();
+  private BookUpdate book = new BookUpdate();
+
+  /**
+   * Constructs the decoder
+   */
+  public MarketDataDecoder() {
+    this(new SymbolIds());
+  }
+
+  /**
+   * Constructs the decoder sharing symbol ids with other components
+   * @param symbolIds symbol ids
+   */
+  public MarketDataDecoder(SymbolIds symbolIds) {
+    this.symbolIds = symbolIds;
+  }
+
+  /**
+   * Returns symbol ids used in decoded updates
+   * @return symbol ids
+   */
+  public SymbolIds getSymbolIds() {
+    return symbolIds;
+  }
+
+  /**
+   * Decodes a packet
+   * @param packet packet text
+   * @param handler handler to pass the decoded market data to
+   * @return whether the packet was a market data packet
+   * @throws IOException if the packet is not valid JSON
+   */
+  public boolean decode(String packet, MarketDataHandler handler) throws IOException {
+    int start = 0;
+    while (start < packet.length() && Character.isDigit(packet.charAt(start))) {
+      start++;
+    }
+    // the text is copied into a reused buffer instead of a substring, which the parser would copy again
+    int length = packet.length() - start;
+    if (packetChars.length < length) {
+      packetChars = new char[Math.max(length, packetChars.length * 2)];
+    }
+    packet.getChars(start, packet.length(), packetChars, 0);
+    int result;
+    try (JsonParser parser = jsonFactory.createParser(packetChars, 0, length)) {
+      result = decode(parser, handler, false);
+    }
+    if (result == TYPE_AFTER_MARKET_DATA) {
+      try (JsonParser parser = jsonFactory.createParser(packetChars, 0, length)) {
+        result = decode(parser, handler, true);
+      }
+    }
+    return result == MARKET_DATA;
+  }
+
+  /**
+   * Decodes a UTF-8 encoded packet
+   * @param data buffer containing the packet
+   * @param offset packet offset in the buffer
+   * @param length packet length
+   * @param handler handler to pass the decoded market data to
+   * @return whether the packet was a market data packet
+   * @throws IOException if the packet is not valid JSON
+   */
+  public boolean decode(byte[] data, int offset, int length, MarketDataHandler handler) throws IOException {
+    int start = offset;
+    while (start < offset + length && data[start] >= '0' && data[start] <= '9') {
+      start++;
+    }
+    int result;
+    try (JsonParser parser = jsonFactory.createParser(data, start, length - (start - offset))) {
+      result = decode(parser, handler, false);
+    }
+    if (result == TYPE_AFTER_MARKET_DATA) {
+      try (JsonParser parser = jsonFactory.createParser(data, start, length - (start - offset))) {
+        result = decode(parser, handler, true);
+      }
+    }
+    return result == MARKET_DATA;
+  }
+
+  /**
+   * Converts an ISO 8601 time, such as {@code 2020-04-15T02:45:06.521Z}, to epoch milliseconds. Fractions beyond
+   * milliseconds are truncated, and a zone offset such as {@code +03:00} may be used instead of {@code Z}. The
+   * epoch of the last parsed hour is reused, so parsing times of a stream, which mostly share the same date and
+   * hour, only converts minutes, seconds and the fraction, and only allocates when the hour changes
+   * @param chars buffer containing the time
+   * @param offset time offset in the buffer
+   * @param length time length
+   * @return epoch milliseconds
+   * @throws IllegalArgumentException if the time is malformed
+   */
+  public static long parseIsoTime(char[] chars, int offset, int length) {
+    return parseTime(chars, offset, length, 'T');
+  }
+
+  /**
+   * Converts an ISO 8601 UTC time to epoch milliseconds, see {@link #parseIsoTime(char[], int, int)}
+   * @param time time
+   * @return epoch milliseconds
+   * @throws IllegalArgumentException if the time is malformed
+   */
+  public static long parseIsoTime(String time) {
+    return parseTime(time.toCharArray(), 0, time.length(), 'T');
+  }
+
+  /**
+   * Converts a broker time, such as {@code 2020-04-15 05:45:06.521}, to epoch milliseconds as if it was UTC. Broker
+   * times separate the date from the time with a space and carry no zone, otherwise they are parsed as in
+   * {@link #parseIsoTime(char[], int, int)}
+   * @param time broker time
+   * @return epoch milliseconds
+   * @throws IllegalArgumentException if the time is malformed
+   */
+  public static long parseBrokerTime(String time) {
+    return parseTime(time.toCharArray(), 0, time.length(), ' ');
+  }
+
+  private static long parseTime(char[] chars, int offset, int length, char separator) {
+    if (length < 19 || chars[offset + 4] != '-' || chars[offset + 7] != '-' || chars[offset + 10] != separator
+      || chars[offset + 13] != ':' || chars[offset + 16] != ':') {
+      throw new IllegalArgumentException("Invalid time " + new String(chars, offset, length));
+    }
+    HourCache cache = hourCache;
+    long hourMillis;
+    if (regionEquals(cache.prefix, chars, offset)) {
+      hourMillis = cache.epochMillis;
+    } else {
+      int year = digits(chars, offset, 4);
+      int month = digits(chars, offset + 5, 2);
+      int day = digits(chars, offset + 8, 2);
+      int hour = digits(chars, offset + 11, 2);
+      if (month < 1 || month > 12 || day < 1 || day > 31 || hour > 23) {
+        throw new IllegalArgumentException("Invalid time " + new String(chars, offset, length));
+      }
+      hourMillis = (daysFromCivil(year, month, day) * 24 + hour) * 3600000L;
+      hourCache = new HourCache(Arrays.copyOfRange(chars, offset, offset + 13), hourMillis);
+    }
+    int minute = digits(chars, offset + 14, 2);
+    int second = digits(chars, offset + 17, 2);
+    if (minute > 59 || second > 60) {
+      throw new IllegalArgumentException("Invalid time " + new String(chars, offset, length));
+    }
+    int index = offset + 19;
+    int end = offset + length;
+    int millis = 0;
+    if (index < end && chars[index] == '.') {
+      int scale = 100;
+      for (index++; index < end && chars[index] >= '0' && chars[index] <= '9'; index++) {
+        millis += (chars[index] - '0') * scale;
+        scale /= 10;
+      }
+    }
+    long zoneOffset = 0;
+    if (index < end && chars[index] != 'Z') {
+      char sign = chars[index];
+      if ((sign != '+' && sign != '-') || end - index < 6 || chars[index + 3] != ':') {
+        throw new IllegalArgumentException("Invalid time " + new String(chars, offset, length));
+      }
+      zoneOffset = (digits(chars, index + 1, 2) * 60L + digits(chars, index + 4, 2)) * 60000L;
+      if (sign == '-') {
+        zoneOffset = -zoneOffset;
+      }
+    }
+    return hourMillis + minute * 60000L + second * 1000L + millis - zoneOffset;
+  }
+
+  /**
+   * Decodes a packet, passing market data to the handler only once the packet type is known
+   * @param typeChecked whether a previous pass found the packet to be a market data packet
+   * @return {@link #MARKET_DATA}, {@link #NOT_MARKET_DATA}, or {@link #TYPE_AFTER_MARKET_DATA} if market data was
+   * skipped because the type came after it
+   */
+  private int decode(JsonParser parser, MarketDataHandler handler, boolean typeChecked) throws IOException {
+    JsonToken token = parser.nextToken();
+    if (token == JsonToken.START_ARRAY) {
+      // socket.io event, the first element is the event name
+      if (parser.nextToken() != JsonToken.VALUE_STRING) {
+        return NOT_MARKET_DATA;
+      }
+      token = parser.nextToken();
+    }
+    if (token != JsonToken.START_OBJECT) {
+      return NOT_MARKET_DATA;
+    }
+    boolean marketData = typeChecked;
+    boolean skipped = false;
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      String name = parser.getCurrentName();
+      token = parser.nextToken();
+      if (token == JsonToken.START_ARRAY) {
+        if (!marketData) {
+          // arrays of other packets may share the names of market data arrays
+          skipped |= isMarketDataArray(name);
+          parser.skipChildren();
+          continue;
+        }
+        switch (name) {
+          case "prices":
+            readPrices(parser, handler);
+            break;
+          case "ticks":
+            readTicks(parser, handler);
+            break;
+          case "candles":
+            readCandles(parser, handler);
+            break;
+          case "books":
+            readBooks(parser, handler);
+            break;
+          default:
+            parser.skipChildren();
+        }
+      } else if (token == JsonToken.START_OBJECT) {
+        parser.skipChildren();
+      } else if (name.equals("type")) {
+        if (!textEquals(parser, "prices")) {
+          return NOT_MARKET_DATA;
+        }
+        marketData = true;
+      }
+    }
+    if (!marketData) {
+      return NOT_MARKET_DATA;
+    }
+    return skipped ? TYPE_AFTER_MARKET_DATA : MARKET_DATA;
+  }
+
+  private static boolean isMarketDataArray(String name) {
+    return name.equals("prices") || name.equals("ticks") || name.equals("candles") || name.equals("books");
+  }
+
+  private void readPrices(JsonParser parser, MarketDataHandler handler) throws IOException {
+    while (parser.nextToken() == JsonToken.START_OBJECT) {
+      price.symbol = null;
+      price.time = 0;
+      price.bid = Double.NaN;
+      price.ask = Double.NaN;
+      while (parser.nextToken() == JsonToken.FIELD_NAME) {
+        String name = parser.getCurrentName();
+        parser.nextToken();
+        switch (name) {
+          case "symbol":
+            price.symbol = readString(parser);
+            break;
+          case "time":
+            price.time = readTime(parser);
+            break;
+          case "bid":
+            price.bid = readNumber(parser);
+            break;
+          case "ask":
+            price.ask = readNumber(parser);
+            break;
+          default:
+            parser.skipChildren();
+        }
+      }
+      if (price.symbol != null) {
+        price.symbolId = symbolIds.getId(price.symbol);
+        handler.onPrice(price);
+      }
+    }
+  }
+
+  private void readTicks(JsonParser parser, MarketDataHandler handler) throws IOException {
+    while (parser.nextToken() == JsonToken.START_OBJECT) {
+      tick.symbol = null;
+      tick.time = 0;
+      tick.bid = Double.NaN;
+      tick.ask = Double.NaN;
+      tick.last = Double.NaN;
+      tick.volume = Double.NaN;
+      while (parser.nextToken() == JsonToken.FIELD_NAME) {
+        String name = parser.getCurrentName();
+        parser.nextToken();
+        switch (name) {
+          case "symbol":
+            tick.symbol = readString(parser);
+            break;
+          case "time":
+            tick.time = readTime(parser);
+            break;
+          case "bid":
+            tick.bid = readNumber(parser);
+            break;
+          case "ask":
+            tick.ask = readNumber(parser);
+            break;
+          case "last":
+            tick.last = readNumber(parser);
+            break;
+          case "volume":
+            tick.volume = readNumber(parser);
+            break;
+          default:
+            parser.skipChildren();
+        }
+      }
+      if (tick.symbol != null) {
+        tick.symbolId = symbolIds.getId(tick.symbol);
+        handler.onTick(tick);
+      }
+    }
+  }
+
+  private void readCandles(JsonParser parser, MarketDataHandler handler) throws IOException {
+    while (parser.nextToken() == JsonToken.START_OBJECT) {
+      candle.symbol = null;
+      candle.timeframe = null;
+      candle.time = 0;
+      candle.open = Double.NaN;
+      candle.high = Double.NaN;
+      candle.low = Double.NaN;
+      candle.close = Double.NaN;
+      candle.tickVolume = Double.NaN;
+      candle.spread = Double.NaN;
+      candle.volume = Double.NaN;
+      while (parser.nextToken() == JsonToken.FIELD_NAME) {
+        String name = parser.getCurrentName();
+        parser.nextToken();
+        switch (name) {
+          case "symbol":
+            candle.symbol = readString(parser);
+            break;
+          case "timeframe":
+            candle.timeframe = readString(parser);
+            break;
+          case "time":
+            candle.time = readTime(parser);
+            break;
+          case "open":
+            candle.open = readNumber(parser);
+            break;
+          case "high":
+            candle.high = readNumber(parser);
+            break;
+          case "low":
+            candle.low = readNumber(parser);
+            break;
+          case "close":
+            candle.close = readNumber(parser);
+            break;
+          case "tickVolume":
+            candle.tickVolume = readNumber(parser);
+            break;
+          case "spread":
+            candle.spread = readNumber(parser);
+            break;
+          case "volume":
+            candle.volume = readNumber(parser);
+            break;
+          default:
+            parser.skipChildren();
+        }
+      }
+      if (candle.symbol != null) {
+        candle.symbolId = symbolIds.getId(candle.symbol);
+        handler.onCandle(candle);
+      }
+    }
+  }
+
+  private void readBooks(JsonParser parser, MarketDataHandler handler) throws IOException {
+    while (parser.nextToken() == JsonToken.START_OBJECT) {
+      book.symbol = null;
+      book.time = 0;
+      book.bidCount = 0;
+      book.askCount = 0;
+      while (parser.nextToken() == JsonToken.FIELD_NAME) {
+        String name = parser.getCurrentName();
+        JsonToken token = parser.nextToken();
+        switch (name) {
+          case "symbol":
+            book.symbol = readString(parser);
+            break;
+          case "time":
+            book.time = readTime(parser);
+            break;
+          case "book":
+            if (token == JsonToken.START_ARRAY) {
+              readBookEntries(parser);
+            } else {
+              parser.skipChildren();
+            }
+            break;
+          default:
+            parser.skipChildren();
+        }
+      }
+      if (book.symbol != null) {
+        book.symbolId = symbolIds.getId(book.symbol);
+        handler.onBook(book);
+      }
+    }
+  }
+
+  private void readBookEntries(JsonParser parser) throws IOException {
+    while (parser.nextToken() == JsonToken.START_OBJECT) {
+      boolean sell = false;
+      boolean buy = false;
+      double entryPrice = Double.NaN;
+      double entryVolume = Double.NaN;
+      while (parser.nextToken() == JsonToken.FIELD_NAME) {
+        String name = parser.getCurrentName();
+        parser.nextToken();
+        switch (name) {
+          case "type":
+            // BOOK_TYPE_SELL, BOOK_TYPE_BUY, BOOK_TYPE_SELL_MARKET or BOOK_TYPE_BUY_MARKET
+            sell = textStartsWith(parser, "BOOK_TYPE_SELL");
+            buy = textStartsWith(parser, "BOOK_TYPE_BUY");
+            break;
+          case "price":
+            entryPrice = readNumber(parser);
+            break;
+          case "volume":
+            entryVolume = readNumber(parser);
+            break;
+          default:
+            parser.skipChildren();
+        }
+      }
+      if (sell) {
+        book.addAsk(entryPrice, entryVolume);
+      } else if (buy) {
+        book.addBid(entryPrice, entryVolume);
+      }
+    }
+  }
+
+  private double readNumber(JsonParser parser) throws IOException {
+    JsonToken token = parser.currentToken();
+    return token == JsonToken.VALUE_NUMBER_FLOAT || token == JsonToken.VALUE_NUMBER_INT
+      ? parser.getDoubleValue() : Double.NaN;
+  }
+
+  private long readTime(JsonParser parser) throws IOException {
+    if (parser.currentToken() != JsonToken.VALUE_STRING) {
+      return 0;
+    }
+    return parseIsoTime(parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength());
+  }
+
+  /**
+   * Returns the current string value, reusing a previously created string with the same content
+   */
+  private String readString(JsonParser parser) throws IOException {
+    if (parser.currentToken() != JsonToken.VALUE_STRING) {
+      return null;
+    }
+    char[] chars = parser.getTextCharacters();
+    int offset = parser.getTextOffset();
+    int length = parser.getTextLength();
+    int hash = 0;
+    for (int i = offset; i < offset + length; i++) {
+      hash = 31 * hash + chars[i];
+    }
+    int slot = (hash ^ (hash >>> 16)) & (STRING_CACHE_SIZE - 1);
+    for (int probe = 0; probe < STRING_CACHE_PROBES; probe++) {
+      int index = (slot + probe) & (STRING_CACHE_SIZE - 1);
+      String cached = strings[index];
+      if (cached == null) {
+        return strings[index] = new String(chars, offset, length);
+      }
+      if (cached.hashCode() == hash && regionEquals(cached, chars, offset, length)) {
+        return cached;
+      }
+    }
+    return strings[slot] = new String(chars, offset, length);
+  }
+
+  private boolean textEquals(JsonParser parser, String text) throws IOException {
+    return parser.currentToken() == JsonToken.VALUE_STRING
+      && regionEquals(text, parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength());
+  }
+
+  private boolean textStartsWith(JsonParser parser, String prefix) throws IOException {
+    return parser.currentToken() == JsonToken.VALUE_STRING && parser.getTextLength() >= prefix.length()
+      && regionEquals(prefix, parser.getTextCharacters(), parser.getTextOffset(), prefix.length());
+  }
+
+  private static boolean regionEquals(String text, char[] chars, int offset, int length) {
+    if (text.length() != length) {
+      return false;
+    }
+    for (int i = 0; i < length; i++) {
+      if (text.charAt(i) != chars[offset + i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean regionEquals(char[] prefix, char[] chars, int offset) {
+    for (int i = prefix.length - 1; i >= 0; i--) {
+      if (prefix[i] != chars[offset + i]) {
+        return false;
+      }
+    }
+    return prefix.length != 0;
+  }
+
+  private static int digits(char[] chars, int offset, int count) {
+    int result = 0;
+    for (int i = offset; i < offset + count; i++) {
+      char c = chars[i];
+      if (c < '0' || c > '9') {
+        throw new IllegalArgumentException("Invalid time " + new String(chars, offset, count));
+      }
+      result = result * 10 + (c - '0');
+    }
+    return result;
+  }
+
+  /**
+   * Returns number of days from 1970-01-01 to a date of the proleptic Gregorian calendar
+   */
+  private static long daysFromCivil(int year, int month, int day) {
+    year -= month <= 2 ? 1 : 0;
+    int era = (year >= 0 ? year : year - 399) / 400;
+    int yearOfEra = year - era * 400;
+    int dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+    int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+    return era * 146097L + dayOfEra - 719468;
+  }
+}
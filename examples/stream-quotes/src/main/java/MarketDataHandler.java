@@ -0,0 +1,30 @@
+/**
+ * Receives market data decoded by {@link MarketDataDecoder}. The passed objects are reused for the next updates,
+ * so they must not be retained after the method returns
+ */
+public abstract class MarketDataHandler {
+
+  /**
+   * Invoked when a symbol price is decoded
+   * @param price symbol price
+   */
+  public void onPrice(PriceDispatcher.Quote price) {}
+
+  /**
+   * Invoked when a tick is decoded
+   * @param tick tick
+   */
+  public void onTick(TickUpdate tick) {}
+
+  /**
+   * Invoked when a candle is decoded
+   * @param candle candle
+   */
+  public void onCandle(CandleUpdate candle) {}
+
+  /**
+   * Invoked when an order book is decoded
+   * @param book order book
+   */
+  public void onBook(BookUpdate book) {}
+}
@@ -0,0 +1,480 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import cloud.metaapi.sdk.clients.meta_api.SynchronizationListener;
+import cloud.metaapi.sdk.clients.meta_api.models.MetatraderBook;
+import cloud.metaapi.sdk.clients.meta_api.models.MetatraderBookEntry;
+import cloud.metaapi.sdk.clients.meta_api.models.MetatraderCandle;
+import cloud.metaapi.sdk.clients.meta_api.models.MetatraderSymbolPrice;
+import cloud.metaapi.sdk.clients.meta_api.models.MetatraderTick;
+import io.vertx.core.Future;
+
+/**
+ * Records prices, ticks, candles and order books to a compact binary journal, which {@link MarketDataReplayer} can
+ * replay into synchronization listeners and market data handlers. Register the recorder via
+ * {@code connection.addSynchronizationListener}, or pass {@link #getHandler()} to a {@link MarketDataDecoder}.
+ * Updates are encoded into an in-memory ring buffer on the calling thread, and a background thread copies them
+ * into the memory-mapped journal file, so recording never waits for the disk. If the writer falls behind and the
+ * ring buffer is full, updates are dropped and counted instead of blocking the streaming thread, see
+ * {@link #getDroppedCount()}. Updates received as one batch stay one batch on replay. Account equity and margin
+ * passed along with the updates are not recorded.
+ *
+ * <p>The journal starts with a header of {@value #HEADER_SIZE} bytes holding the magic number, the format version
+ * and the recording start time. It is followed by records made of the record length, the record type, flags and
+ * the receive time in nanoseconds since the recording start, then the type-specific fields. Symbols and timeframes
+ * are written once as name records and referenced by id afterwards. A zero record length marks the end of a
+ * journal which was not closed
+ */
+public class MarketDataRecorder extends SynchronizationListener {
+
+  static final int MAGIC = 0x4D444A31;
+  static final int VERSION = 1;
+  static final int HEADER_SIZE = 64;
+  static final int RECORD_HEADER_SIZE = 14;
+  static final int MAX_RECORD_SIZE = 1 << 20;
+  static final int MAX_BOOK_LEVELS = (MAX_RECORD_SIZE - RECORD_HEADER_SIZE - 20) / 17;
+  static final byte NAME = 1;
+  static final byte PRICE = 2;
+  static final byte TICK = 3;
+  static final byte CANDLE = 4;
+  static final byte BOOK = 5;
+  static final byte LAST_IN_BATCH = 1;
+  static final byte SIDE_BUY = 1;
+  static final byte SIDE_SELL = 2;
+  // book level types are written as explicit codes, since the SDK enum may change between versions
+  static final byte BOOK_LEVEL_SELL = 0;
+  static final byte BOOK_LEVEL_BUY = 1;
+  static final byte BOOK_LEVEL_SELL_MARKET = 2;
+  static final byte BOOK_LEVEL_BUY_MARKET = 3;
+  static final byte BOOK_LEVEL_UNKNOWN = 4;
+  static final int UNKNOWN_BROKER_OFFSET = Integer.MIN_VALUE;
+
+  private static final Future<Void> SUCCEEDED = Future.succeededFuture();
+  private static final int REGION_SIZE = 64 << 20;
+  private static final long WRITER_PARK_NANOS = 100000;
+
+  private FileChannel channel;
+  private MappedByteBuffer region;
+  private long regionOffset = 0;
+  private long startNanos = System.nanoTime();
+  private byte[] ring;
+  private volatile long head = 0;
+  private volatile long tail = 0;
+  private ByteBuffer batch = ByteBuffer.allocate(64 * 1024);
+  private int batchEvents = 0;
+  private int lastRecordStart = -1;
+  private Map<String, Integer> names = new HashMap<>();
+  private int committedNames = 0;
+  private long recordedCount = 0;
+  private AtomicLong droppedCount = new AtomicLong();
+  private volatile boolean closed = false;
+  private Thread writer;
+  private volatile IOException writerError;
+  private MarketDataHandler handler = new MarketDataHandler() {
+    @Override
+    public void onPrice(PriceDispatcher.Quote price) {
+      record(price);
+    }
+
+    @Override
+    public void onTick(TickUpdate tick) {
+      record(tick);
+    }
+
+    @Override
+    public void onCandle(CandleUpdate candle) {
+      record(candle);
+    }
+
+    @Override
+    public void onBook(BookUpdate book) {
+      record(book);
+    }
+  };
+
+  /**
+   * Constructs the recorder with a 16 MB ring buffer
+   * @param path journal file, replaced if it exists
+   */
+  public MarketDataRecorder(Path path) {
+    this(path, 16 << 20);
+  }
+
+  /**
+   * Constructs the recorder
+   * @param path journal file, replaced if it exists
+   * @param bufferSize ring buffer size in bytes, which bounds how far the writer thread may fall behind
+   */
+  public MarketDataRecorder(Path path, int bufferSize) {
+    if (bufferSize < MAX_RECORD_SIZE) {
+      throw new IllegalArgumentException("Buffer size must be at least " + MAX_RECORD_SIZE + " bytes");
+    }
+    ring = new byte[bufferSize];
+    try {
+      channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+        StandardOpenOption.READ, StandardOpenOption.WRITE);
+      region = channel.map(FileChannel.MapMode.READ_WRITE, 0, REGION_SIZE);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    region.putInt(MAGIC).putInt(VERSION).putLong(System.currentTimeMillis());
+    region.position(HEADER_SIZE);
+    writer = new Thread(this::write, "market-data-recorder");
+    writer.setDaemon(true);
+    writer.start();
+  }
+
+  /**
+   * Returns a handler recording updates decoded by a {@link MarketDataDecoder}
+   * @return market data handler
+   */
+  public MarketDataHandler getHandler() {
+    return handler;
+  }
+
+  /**
+   * Returns number of recorded updates
+   * @return number of recorded updates
+   */
+  public synchronized long getRecordedCount() {
+    return recordedCount;
+  }
+
+  /**
+   * Returns number of updates dropped because the ring buffer was full
+   * @return number of dropped updates
+   */
+  public long getDroppedCount() {
+    return droppedCount.get();
+  }
+
+  /**
+   * Records a symbol price
+   * @param price symbol price
+   */
+  public synchronized void record(PriceDispatcher.Quote price) {
+    if (begin()) {
+      encodePrice(price.symbol, price.time, price.bid, price.ask, Double.NaN, Double.NaN, Double.NaN,
+        UNKNOWN_BROKER_OFFSET);
+      commit();
+    }
+  }
+
+  /**
+   * Records a tick
+   * @param tick tick
+   */
+  public synchronized void record(TickUpdate tick) {
+    if (begin()) {
+      encodeTick(tick.symbol, tick.time, tick.bid, tick.ask, tick.last, tick.volume, (byte) 0,
+        UNKNOWN_BROKER_OFFSET);
+      commit();
+    }
+  }
+
+  /**
+   * Records a candle
+   * @param candle candle
+   */
+  public synchronized void record(CandleUpdate candle) {
+    if (begin()) {
+      encodeCandle(candle.symbol, candle.timeframe, candle.time, candle.open, candle.high, candle.low,
+        candle.close, candle.tickVolume, candle.spread, candle.volume, UNKNOWN_BROKER_OFFSET);
+      commit();
+    }
+  }
+
+  /**
+   * Records an order book. Asks are recorded as sell levels and bids as buy levels
+   * @param book order book
+   */
+  public synchronized void record(BookUpdate book) {
+    if (begin()) {
+      int askCount = Math.min(book.askCount, MAX_BOOK_LEVELS);
+      int bidCount = Math.min(book.bidCount, MAX_BOOK_LEVELS - askCount);
+      int symbolId = nameId(book.symbol);
+      beginRecord(BOOK, 20 + (askCount + bidCount) * 17);
+      batch.putInt(symbolId).putLong(book.time).putInt(UNKNOWN_BROKER_OFFSET).putInt(askCount + bidCount);
+      for (int i = 0; i < askCount; i++) {
+        batch.put(BOOK_LEVEL_SELL).putDouble(book.askPrices[i])
+          .putDouble(book.askVolumes[i]);
+      }
+      for (int i = 0; i < bidCount; i++) {
+        batch.put(BOOK_LEVEL_BUY).putDouble(book.bidPrices[i])
+          .putDouble(book.bidVolumes[i]);
+      }
+      batchEvents++;
+      commit();
+    }
+  }
+
+  @Override
+  public synchronized Future<Void> onSymbolPricesUpdated(String instanceIndex, List<MetatraderSymbolPrice> prices,
+    Double equity, Double margin, Double freeMargin, Double marginLevel, Double accountCurrencyExchangeRate) {
+    if (!prices.isEmpty() && begin()) {
+      for (MetatraderSymbolPrice price : prices) {
+        long time = price.time.getDate().getTime();
+        encodePrice(price.symbol, time, price.bid, price.ask, price.profitTickValue, price.lossTickValue,
+          valueOf(price.accountCurrencyExchangeRate), brokerOffset(price.brokerTime, time));
+      }
+      commit();
+    }
+    return SUCCEEDED;
+  }
+
+  @Override
+  public synchronized Future<Void> onTicksUpdated(String instanceIndex, List<MetatraderTick> ticks, Double equity,
+    Double margin, Double freeMargin, Double marginLevel, Double accountCurrencyExchangeRate) {
+    if (!ticks.isEmpty() && begin()) {
+      for (MetatraderTick tick : ticks) {
+        long time = tick.time.getDate().getTime();
+        byte side = "buy".equals(tick.side) ? SIDE_BUY : "sell".equals(tick.side) ? SIDE_SELL : 0;
+        encodeTick(tick.symbol, time, valueOf(tick.bid), valueOf(tick.ask), valueOf(tick.last),
+          valueOf(tick.volume), side, brokerOffset(tick.brokerTime, time));
+      }
+      commit();
+    }
+    return SUCCEEDED;
+  }
+
+  @Override
+  public synchronized Future<Void> onCandlesUpdated(String instanceIndex, List<MetatraderCandle> candles,
+    Double equity, Double margin, Double freeMargin, Double marginLevel, Double accountCurrencyExchangeRate) {
+    if (!candles.isEmpty() && begin()) {
+      for (MetatraderCandle candle : candles) {
+        long time = candle.time.getDate().getTime();
+        encodeCandle(candle.symbol, candle.timeframe, time, candle.open, candle.high, candle.low, candle.close,
+          valueOf(candle.tickVolume), valueOf(candle.spread), valueOf(candle.volume),
+          brokerOffset(candle.brokerTime, time));
+      }
+      commit();
+    }
+    return SUCCEEDED;
+  }
+
+  @Override
+  public synchronized Future<Void> onBooksUpdated(String instanceIndex, List<MetatraderBook> books, Double equity,
+    Double margin, Double freeMargin, Double marginLevel, Double accountCurrencyExchangeRate) {
+    if (!books.isEmpty() && begin()) {
+      for (MetatraderBook book : books) {
+        long time = book.time.getDate().getTime();
+        int levels = book.book != null ? Math.min(book.book.size(), MAX_BOOK_LEVELS) : 0;
+        int symbolId = nameId(book.symbol);
+        beginRecord(BOOK, 20 + levels * 17);
+        batch.putInt(symbolId).putLong(time).putInt(brokerOffset(book.brokerTime, time)).putInt(levels);
+        for (int i = 0; i < levels; i++) {
+          MetatraderBookEntry entry = book.book.get(i);
+          batch.put(getBookLevelCode(entry.type)).putDouble(entry.price).putDouble(entry.volume);
+        }
+        batchEvents++;
+      }
+      commit();
+    }
+    return SUCCEEDED;
+  }
+
+  /**
+   * Writes the remaining updates, stops the writer thread and closes the journal file
+   */
+  public void close() {
+    synchronized (this) {
+      if (closed) {
+        return;
+      }
+      closed = true;
+    }
+    LockSupport.unpark(writer);
+    try {
+      writer.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    try {
+      region.force();
+      try {
+        channel.truncate(regionOffset + region.position());
+      } catch (IOException e) {
+        // some platforms refuse to truncate mapped files, replay then stops at the zero-filled tail
+      }
+      channel.close();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    if (writerError != null) {
+      throw new UncheckedIOException(writerError);
+    }
+  }
+
+  private boolean begin() {
+    if (closed || writerError != null) {
+      return false;
+    }
+    batch.clear();
+    batchEvents = 0;
+    lastRecordStart = -1;
+    return true;
+  }
+
+  private void commit() {
+    batch.put(lastRecordStart + 5, (byte) (batch.get(lastRecordStart + 5) | LAST_IN_BATCH));
+    int length = batch.position();
+    long position = head;
+    if (length > ring.length - (position - tail)) {
+      droppedCount.addAndGet(batchEvents);
+      forgetNewNames();
+      return;
+    }
+    int offset = (int) (position % ring.length);
+    int firstPart = Math.min(length, ring.length - offset);
+    System.arraycopy(batch.array(), 0, ring, offset, firstPart);
+    System.arraycopy(batch.array(), firstPart, ring, 0, length - firstPart);
+    head = position + length;
+    recordedCount += batchEvents;
+    committedNames = names.size();
+  }
+
+  private void encodePrice(String symbol, long time, double bid, double ask, double profitTickValue,
+    double lossTickValue, double accountCurrencyExchangeRate, int brokerOffset) {
+    int symbolId = nameId(symbol);
+    beginRecord(PRICE, 56);
+    batch.putInt(symbolId).putLong(time).putDouble(bid).putDouble(ask).putDouble(profitTickValue)
+      .putDouble(lossTickValue).putDouble(accountCurrencyExchangeRate).putInt(brokerOffset);
+    batchEvents++;
+  }
+
+  private void encodeTick(String symbol, long time, double bid, double ask, double last, double volume, byte side,
+    int brokerOffset) {
+    int symbolId = nameId(symbol);
+    beginRecord(TICK, 49);
+    batch.putInt(symbolId).putLong(time).putDouble(bid).putDouble(ask).putDouble(last).putDouble(volume)
+      .put(side).putInt(brokerOffset);
+    batchEvents++;
+  }
+
+  private void encodeCandle(String symbol, String timeframe, long time, double open, double high, double low,
+    double close, double tickVolume, double spread, double volume, int brokerOffset) {
+    int symbolId = nameId(symbol);
+    int timeframeId = nameId(timeframe);
+    beginRecord(CANDLE, 76);
+    batch.putInt(symbolId).putInt(timeframeId).putLong(time).putDouble(open).putDouble(high).putDouble(low)
+      .putDouble(close).putDouble(tickVolume).putDouble(spread).putDouble(volume).putInt(brokerOffset);
+    batchEvents++;
+  }
+
+  private void beginRecord(byte type, int bodySize) {
+    int length = RECORD_HEADER_SIZE + bodySize;
+    if (batch.remaining() < length) {
+      ByteBuffer newBatch = ByteBuffer.allocate(Math.max(batch.capacity() * 2, batch.position() + length));
+      batch.flip();
+      batch = newBatch.put(batch);
+    }
+    lastRecordStart = batch.position();
+    batch.putInt(length).put(type).put((byte) 0).putLong(System.nanoTime() - startNanos);
+  }
+
+  private int nameId(String name) {
+    Integer id = names.get(name);
+    if (id != null) {
+      return id;
+    }
+    id = names.size();
+    names.put(name, id);
+    byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+    beginRecord(NAME, 6 + bytes.length);
+    batch.putInt(id).putShort((short) bytes.length).put(bytes);
+    return id;
+  }
+
+  private static byte getBookLevelCode(MetatraderBookEntry.BookType type) {
+    if (type == null) {
+      return BOOK_LEVEL_UNKNOWN;
+    }
+    switch (type) {
+      case BOOK_TYPE_SELL:
+        return BOOK_LEVEL_SELL;
+      case BOOK_TYPE_BUY:
+        return BOOK_LEVEL_BUY;
+      case BOOK_TYPE_SELL_MARKET:
+        return BOOK_LEVEL_SELL_MARKET;
+      case BOOK_TYPE_BUY_MARKET:
+        return BOOK_LEVEL_BUY_MARKET;
+      default:
+        return BOOK_LEVEL_UNKNOWN;
+    }
+  }
+
+  private void forgetNewNames() {
+    // names introduced by a dropped batch were not written, so they have to be written again when next used
+    Iterator<Map.Entry<String, Integer>> entries = names.entrySet().iterator();
+    while (entries.hasNext()) {
+      if (entries.next().getValue() >= committedNames) {
+        entries.remove();
+      }
+    }
+  }
+
+  private void write() {
+    while (true) {
+      long position = tail;
+      long available = head - position;
+      if (available == 0) {
+        if (closed) {
+          // a batch may have been committed between reading head and observing closed
+          if (head == position) {
+            return;
+          }
+          continue;
+        }
+        LockSupport.parkNanos(WRITER_PARK_NANOS);
+        continue;
+      }
+      try {
+        int offset = (int) (position % ring.length);
+        int length = (int) Math.min(available, ring.length - offset);
+        while (length > 0) {
+          if (!region.hasRemaining()) {
+            regionOffset += REGION_SIZE;
+            region = channel.map(FileChannel.MapMode.READ_WRITE, regionOffset, REGION_SIZE);
+          }
+          int chunk = Math.min(length, region.remaining());
+          region.put(ring, offset, chunk);
+          offset += chunk;
+          length -= chunk;
+          tail += chunk;
+        }
+      } catch (IOException e) {
+        System.err.println("Failed to write market data journal: " + e);
+        writerError = e;
+        return;
+      }
+    }
+  }
+
+  private static double valueOf(Double value) {
+    return value != null ? value : Double.NaN;
+  }
+
+  private static int brokerOffset(String brokerTime, long time) {
+    if (brokerTime == null) {
+      return UNKNOWN_BROKER_OFFSET;
+    }
+    try {
+      return (int) Math.round((MarketDataDecoder.parseBrokerTime(brokerTime) - time) / 60000.0);
+    } catch (IllegalArgumentException e) {
+      return UNKNOWN_BROKER_OFFSET;
+    }
+  }
+
+}
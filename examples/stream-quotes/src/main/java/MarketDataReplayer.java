@@ -0,0 +1,490 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.locks.LockSupport;
+
+import cloud.metaapi.sdk.clients.meta_api.SynchronizationListener;
+import cloud.metaapi.sdk.clients.meta_api.models.MetatraderBook;
+import cloud.metaapi.sdk.clients.meta_api.models.MetatraderBookEntry;
+import cloud.metaapi.sdk.clients.meta_api.models.MetatraderCandle;
+import cloud.metaapi.sdk.clients.meta_api.models.MetatraderSymbolPrice;
+import cloud.metaapi.sdk.clients.meta_api.models.MetatraderTick;
+import cloud.metaapi.sdk.clients.models.IsoTime;
+
+/**
+ * Replays a journal written by {@link MarketDataRecorder} on the calling thread, preserving the recorded order and
+ * batches. Updates can be replayed with the recorded timing, a multiple of it, or as fast as possible. Market data
+ * handlers receive reused update objects addressed by the given symbol ids and replay without allocating, which
+ * allows replaying millions of updates per second. Synchronization listeners receive SDK model objects built for
+ * every batch, like from a live connection: each price is passed to {@code onSymbolPriceUpdated} and then the batch
+ * to {@code onSymbolPricesUpdated}, while ticks, candles and books are passed in batches. Account equity and margin
+ * are passed as {@code null}
+ */
+public class MarketDataReplayer {
+
+  /**
+   * Replay speed to replay updates without waiting
+   */
+  public static final double AS_FAST_AS_POSSIBLE = Double.POSITIVE_INFINITY;
+
+  private static final String INSTANCE_INDEX = "0";
+  private static final int WINDOW_SIZE = 64 << 20;
+  private static final long SPIN_NANOS = 1000000;
+  private static final DateTimeFormatter BROKER_TIME_FORMAT = DateTimeFormatter
+    .ofPattern("yyyy-MM-dd HH:mm:ss.SSS").withZone(ZoneOffset.UTC);
+
+  private Path path;
+  private SymbolIds symbolIds;
+  private long startTime;
+  private volatile SynchronizationListener[] listeners = new SynchronizationListener[0];
+  private volatile MarketDataHandler[] handlers = new MarketDataHandler[0];
+  private volatile boolean stopped = false;
+  private String[] names = new String[0];
+  private int[] symbolIdsByName = new int[0];
+  private PriceDispatcher.Quote price = new PriceDispatcher.Quote();
+  private TickUpdate tick = new TickUpdate();
+  private CandleUpdate candle = new CandleUpdate();
+  private BookUpdate book = new BookUpdate();
+  private List<MetatraderSymbolPrice> prices = new ArrayList<>();
+  private List<MetatraderTick> ticks = new ArrayList<>();
+  private List<MetatraderCandle> candles = new ArrayList<>();
+  private List<MetatraderBook> books = new ArrayList<>();
+
+  /**
+   * Constructs the replayer
+   * @param path journal file
+   * @throws IOException if the file can not be read or is not a market data journal
+   */
+  public MarketDataReplayer(Path path) throws IOException {
+    this(path, new SymbolIds());
+  }
+
+  /**
+   * Constructs the replayer sharing symbol ids with other components
+   * @param path journal file
+   * @param symbolIds symbol ids to address updates passed to market data handlers with
+   * @throws IOException if the file can not be read or is not a market data journal
+   */
+  public MarketDataReplayer(Path path, SymbolIds symbolIds) throws IOException {
+    this.path = path;
+    this.symbolIds = symbolIds;
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      ByteBuffer header = ByteBuffer.allocate(MarketDataRecorder.HEADER_SIZE);
+      while (header.hasRemaining() && channel.read(header) != -1) {
+        continue;
+      }
+      if (header.position() < MarketDataRecorder.HEADER_SIZE || header.getInt(0) != MarketDataRecorder.MAGIC) {
+        throw new IOException(path + " is not a market data journal");
+      }
+      if (header.getInt(4) != MarketDataRecorder.VERSION) {
+        throw new IOException("Unsupported market data journal version " + header.getInt(4) + " of " + path);
+      }
+      startTime = header.getLong(8);
+    }
+  }
+
+  /**
+   * Returns symbol ids used to address updates passed to market data handlers
+   * @return symbol ids
+   */
+  public SymbolIds getSymbolIds() {
+    return symbolIds;
+  }
+
+  /**
+   * Returns time the recording started at
+   * @return epoch milliseconds
+   */
+  public long getStartTime() {
+    return startTime;
+  }
+
+  /**
+   * Adds a synchronization listener
+   * @param listener synchronization listener
+   */
+  public synchronized void addListener(SynchronizationListener listener) {
+    SynchronizationListener[] newListeners = Arrays.copyOf(listeners, listeners.length + 1);
+    newListeners[listeners.length] = listener;
+    listeners = newListeners;
+  }
+
+  /**
+   * Removes a synchronization listener
+   * @param listener synchronization listener
+   */
+  public synchronized void removeListener(SynchronizationListener listener) {
+    for (int i = 0; i < listeners.length; i++) {
+      if (listeners[i] == listener) {
+        SynchronizationListener[] newListeners = new SynchronizationListener[listeners.length - 1];
+        System.arraycopy(listeners, 0, newListeners, 0, i);
+        System.arraycopy(listeners, i + 1, newListeners, i, listeners.length - i - 1);
+        listeners = newListeners;
+        return;
+      }
+    }
+  }
+
+  /**
+   * Adds a market data handler
+   * @param handler market data handler
+   */
+  public synchronized void addHandler(MarketDataHandler handler) {
+    MarketDataHandler[] newHandlers = Arrays.copyOf(handlers, handlers.length + 1);
+    newHandlers[handlers.length] = handler;
+    handlers = newHandlers;
+  }
+
+  /**
+   * Removes a market data handler
+   * @param handler market data handler
+   */
+  public synchronized void removeHandler(MarketDataHandler handler) {
+    for (int i = 0; i < handlers.length; i++) {
+      if (handlers[i] == handler) {
+        MarketDataHandler[] newHandlers = new MarketDataHandler[handlers.length - 1];
+        System.arraycopy(handlers, 0, newHandlers, 0, i);
+        System.arraycopy(handlers, i + 1, newHandlers, i, handlers.length - i - 1);
+        handlers = newHandlers;
+        return;
+      }
+    }
+  }
+
+  /**
+   * Stops a running replay after the current update
+   */
+  public void stop() {
+    stopped = true;
+  }
+
+  /**
+   * Replays the journal on the calling thread. The journal may be replayed multiple times
+   * @param speed replay speed relative to the recorded timing, e.g. 1 for real time or 10 to replay 10 times
+   * faster, or {@link #AS_FAST_AS_POSSIBLE}
+   * @return number of replayed updates
+   * @throws IOException if the journal can not be read
+   */
+  public long replay(double speed) throws IOException {
+    if (!(speed > 0)) {
+      throw new IllegalArgumentException("Replay speed must be positive: " + speed);
+    }
+    stopped = false;
+    long count = 0;
+    long startedAt = System.nanoTime();
+    long firstReceivedAt = -1;
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      long size = channel.size();
+      long windowOffset = 0;
+      MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(WINDOW_SIZE, size));
+      window.position(MarketDataRecorder.HEADER_SIZE);
+      while (!stopped) {
+        if (window.remaining() < MarketDataRecorder.MAX_RECORD_SIZE && windowOffset + window.limit() < size) {
+          // remap at the current record, so that every record is contained in the window
+          windowOffset += window.position();
+          window = channel.map(FileChannel.MapMode.READ_ONLY, windowOffset,
+            Math.min(WINDOW_SIZE, size - windowOffset));
+        }
+        if (window.remaining() < MarketDataRecorder.RECORD_HEADER_SIZE) {
+          break;
+        }
+        int start = window.position();
+        int length = window.getInt(start);
+        if (length < MarketDataRecorder.RECORD_HEADER_SIZE || length > window.remaining()) {
+          // a zero length marks the end of a journal which was not closed
+          break;
+        }
+        byte type = window.get(start + 4);
+        boolean lastInBatch = (window.get(start + 5) & MarketDataRecorder.LAST_IN_BATCH) != 0;
+        if (speed != AS_FAST_AS_POSSIBLE) {
+          long receivedAt = window.getLong(start + 6);
+          if (firstReceivedAt == -1) {
+            firstReceivedAt = receivedAt;
+          }
+          waitUntil(startedAt + (long) ((receivedAt - firstReceivedAt) / speed));
+        }
+        window.position(start + MarketDataRecorder.RECORD_HEADER_SIZE);
+        if (type == MarketDataRecorder.NAME) {
+          readName(window);
+        } else {
+          if (type == MarketDataRecorder.PRICE) {
+            readPrice(window);
+          } else if (type == MarketDataRecorder.TICK) {
+            readTick(window);
+          } else if (type == MarketDataRecorder.CANDLE) {
+            readCandle(window);
+          } else if (type == MarketDataRecorder.BOOK) {
+            readBook(window);
+          }
+          count++;
+        }
+        if (lastInBatch) {
+          dispatchBatches();
+        }
+        window.position(start + length);
+      }
+    }
+    dispatchBatches();
+    return count;
+  }
+
+  private void readName(ByteBuffer buffer) {
+    int id = buffer.getInt();
+    byte[] bytes = new byte[buffer.getShort() & 0xFFFF];
+    buffer.get(bytes);
+    if (id >= names.length) {
+      names = Arrays.copyOf(names, Math.max(id + 1, names.length * 2));
+      symbolIdsByName = Arrays.copyOf(symbolIdsByName, names.length);
+    }
+    names[id] = new String(bytes, StandardCharsets.UTF_8);
+    symbolIdsByName[id] = symbolIds.getId(names[id]);
+  }
+
+  private void readPrice(ByteBuffer buffer) {
+    int nameId = buffer.getInt();
+    price.symbolId = symbolIdsByName[nameId];
+    price.symbol = names[nameId];
+    price.time = buffer.getLong();
+    price.bid = buffer.getDouble();
+    price.ask = buffer.getDouble();
+    double profitTickValue = buffer.getDouble();
+    double lossTickValue = buffer.getDouble();
+    double accountCurrencyExchangeRate = buffer.getDouble();
+    int brokerOffset = buffer.getInt();
+    for (MarketDataHandler handler : handlers) {
+      try {
+        handler.onPrice(price);
+      } catch (Exception e) {
+        System.err.println("Market data handler failed to process a price: " + e);
+      }
+    }
+    SynchronizationListener[] listeners = this.listeners;
+    if (listeners.length != 0) {
+      MetatraderSymbolPrice symbolPrice = new MetatraderSymbolPrice();
+      symbolPrice.symbol = price.symbol;
+      symbolPrice.time = new IsoTime(new Date(price.time));
+      symbolPrice.brokerTime = brokerTime(price.time, brokerOffset);
+      symbolPrice.bid = price.bid;
+      symbolPrice.ask = price.ask;
+      symbolPrice.profitTickValue = profitTickValue;
+      symbolPrice.lossTickValue = lossTickValue;
+      symbolPrice.accountCurrencyExchangeRate = valueOf(accountCurrencyExchangeRate);
+      for (SynchronizationListener listener : listeners) {
+        try {
+          listener.onSymbolPriceUpdated(INSTANCE_INDEX, symbolPrice);
+        } catch (Exception e) {
+          System.err.println("Synchronization listener failed to process a price: " + e);
+        }
+      }
+      prices.add(symbolPrice);
+    }
+  }
+
+  private void readTick(ByteBuffer buffer) {
+    int nameId = buffer.getInt();
+    tick.symbolId = symbolIdsByName[nameId];
+    tick.symbol = names[nameId];
+    tick.time = buffer.getLong();
+    tick.bid = buffer.getDouble();
+    tick.ask = buffer.getDouble();
+    tick.last = buffer.getDouble();
+    tick.volume = buffer.getDouble();
+    byte side = buffer.get();
+    int brokerOffset = buffer.getInt();
+    for (MarketDataHandler handler : handlers) {
+      try {
+        handler.onTick(tick);
+      } catch (Exception e) {
+        System.err.println("Market data handler failed to process a tick: " + e);
+      }
+    }
+    if (listeners.length != 0) {
+      MetatraderTick metatraderTick = new MetatraderTick();
+      metatraderTick.symbol = tick.symbol;
+      metatraderTick.time = new IsoTime(new Date(tick.time));
+      metatraderTick.brokerTime = brokerTime(tick.time, brokerOffset);
+      metatraderTick.bid = valueOf(tick.bid);
+      metatraderTick.ask = valueOf(tick.ask);
+      metatraderTick.last = valueOf(tick.last);
+      metatraderTick.volume = valueOf(tick.volume);
+      metatraderTick.side = side == MarketDataRecorder.SIDE_BUY ? "buy"
+        : side == MarketDataRecorder.SIDE_SELL ? "sell" : null;
+      ticks.add(metatraderTick);
+    }
+  }
+
+  private void readCandle(ByteBuffer buffer) {
+    int nameId = buffer.getInt();
+    candle.symbolId = symbolIdsByName[nameId];
+    candle.symbol = names[nameId];
+    candle.timeframe = names[buffer.getInt()];
+    candle.time = buffer.getLong();
+    candle.open = buffer.getDouble();
+    candle.high = buffer.getDouble();
+    candle.low = buffer.getDouble();
+    candle.close = buffer.getDouble();
+    candle.tickVolume = buffer.getDouble();
+    candle.spread = buffer.getDouble();
+    candle.volume = buffer.getDouble();
+    int brokerOffset = buffer.getInt();
+    for (MarketDataHandler handler : handlers) {
+      try {
+        handler.onCandle(candle);
+      } catch (Exception e) {
+        System.err.println("Market data handler failed to process a candle: " + e);
+      }
+    }
+    if (listeners.length != 0) {
+      MetatraderCandle metatraderCandle = new MetatraderCandle();
+      metatraderCandle.symbol = candle.symbol;
+      metatraderCandle.timeframe = candle.timeframe;
+      metatraderCandle.time = new IsoTime(new Date(candle.time));
+      metatraderCandle.brokerTime = brokerTime(candle.time, brokerOffset);
+      metatraderCandle.open = candle.open;
+      metatraderCandle.high = candle.high;
+      metatraderCandle.low = candle.low;
+      metatraderCandle.close = candle.close;
+      metatraderCandle.tickVolume = valueOf(candle.tickVolume);
+      metatraderCandle.spread = valueOf(candle.spread);
+      metatraderCandle.volume = valueOf(candle.volume);
+      candles.add(metatraderCandle);
+    }
+  }
+
+  private void readBook(ByteBuffer buffer) {
+    int nameId = buffer.getInt();
+    book.symbolId = symbolIdsByName[nameId];
+    book.symbol = names[nameId];
+    book.time = buffer.getLong();
+    int brokerOffset = buffer.getInt();
+    int levels = buffer.getInt();
+    book.bidCount = 0;
+    book.askCount = 0;
+    List<MetatraderBookEntry> entries = listeners.length != 0 ? new ArrayList<>(levels) : null;
+    for (int i = 0; i < levels; i++) {
+      byte code = buffer.get();
+      double levelPrice = buffer.getDouble();
+      double levelVolume = buffer.getDouble();
+      if (code == MarketDataRecorder.BOOK_LEVEL_SELL || code == MarketDataRecorder.BOOK_LEVEL_SELL_MARKET) {
+        book.addAsk(levelPrice, levelVolume);
+      } else if (code == MarketDataRecorder.BOOK_LEVEL_BUY || code == MarketDataRecorder.BOOK_LEVEL_BUY_MARKET) {
+        book.addBid(levelPrice, levelVolume);
+      }
+      if (entries != null) {
+        MetatraderBookEntry entry = new MetatraderBookEntry();
+        entry.type = getBookType(code);
+        entry.price = levelPrice;
+        entry.volume = levelVolume;
+        entries.add(entry);
+      }
+    }
+    for (MarketDataHandler handler : handlers) {
+      try {
+        handler.onBook(book);
+      } catch (Exception e) {
+        System.err.println("Market data handler failed to process a book: " + e);
+      }
+    }
+    if (entries != null) {
+      MetatraderBook metatraderBook = new MetatraderBook();
+      metatraderBook.symbol = book.symbol;
+      metatraderBook.time = new IsoTime(new Date(book.time));
+      metatraderBook.brokerTime = brokerTime(book.time, brokerOffset);
+      metatraderBook.book = entries;
+      books.add(metatraderBook);
+    }
+  }
+
+  private void dispatchBatches() {
+    if (!prices.isEmpty()) {
+      List<MetatraderSymbolPrice> batch = prices;
+      prices = new ArrayList<>();
+      for (SynchronizationListener listener : listeners) {
+        try {
+          listener.onSymbolPricesUpdated(INSTANCE_INDEX, batch, null, null, null, null, null);
+        } catch (Exception e) {
+          System.err.println("Synchronization listener failed to process prices: " + e);
+        }
+      }
+    }
+    if (!ticks.isEmpty()) {
+      List<MetatraderTick> batch = ticks;
+      ticks = new ArrayList<>();
+      for (SynchronizationListener listener : listeners) {
+        try {
+          listener.onTicksUpdated(INSTANCE_INDEX, batch, null, null, null, null, null);
+        } catch (Exception e) {
+          System.err.println("Synchronization listener failed to process ticks: " + e);
+        }
+      }
+    }
+    if (!candles.isEmpty()) {
+      List<MetatraderCandle> batch = candles;
+      candles = new ArrayList<>();
+      for (SynchronizationListener listener : listeners) {
+        try {
+          listener.onCandlesUpdated(INSTANCE_INDEX, batch, null, null, null, null, null);
+        } catch (Exception e) {
+          System.err.println("Synchronization listener failed to process candles: " + e);
+        }
+      }
+    }
+    if (!books.isEmpty()) {
+      List<MetatraderBook> batch = books;
+      books = new ArrayList<>();
+      for (SynchronizationListener listener : listeners) {
+        try {
+          listener.onBooksUpdated(INSTANCE_INDEX, batch, null, null, null, null, null);
+        } catch (Exception e) {
+          System.err.println("Synchronization listener failed to process books: " + e);
+        }
+      }
+    }
+  }
+
+  private void waitUntil(long deadline) {
+    long remaining;
+    while (!stopped && (remaining = deadline - System.nanoTime()) > 0) {
+      if (remaining > SPIN_NANOS) {
+        LockSupport.parkNanos(remaining - SPIN_NANOS);
+      } else {
+        Thread.yield();
+      }
+    }
+  }
+
+  private static String brokerTime(long time, int brokerOffset) {
+    return brokerOffset != MarketDataRecorder.UNKNOWN_BROKER_OFFSET
+      ? BROKER_TIME_FORMAT.format(Instant.ofEpochMilli(time + brokerOffset * 60000L)) : null;
+  }
+
+  private static MetatraderBookEntry.BookType getBookType(byte code) {
+    switch (code) {
+      case MarketDataRecorder.BOOK_LEVEL_SELL:
+        return MetatraderBookEntry.BookType.BOOK_TYPE_SELL;
+      case MarketDataRecorder.BOOK_LEVEL_BUY:
+        return MetatraderBookEntry.BookType.BOOK_TYPE_BUY;
+      case MarketDataRecorder.BOOK_LEVEL_SELL_MARKET:
+        return MetatraderBookEntry.BookType.BOOK_TYPE_SELL_MARKET;
+      case MarketDataRecorder.BOOK_LEVEL_BUY_MARKET:
+        return MetatraderBookEntry.BookType.BOOK_TYPE_BUY_MARKET;
+      default:
+        return null;
+    }
+  }
+
+  private static Double valueOf(double value) {
+    return Double.isNaN(value) ? null : value;
+  }
+}
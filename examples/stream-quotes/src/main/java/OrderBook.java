@@ -0,0 +1,277 @@
+import java.util.Arrays;
+
+/**
+ * Order book of a symbol with price levels kept sorted in primitive arrays, bids from the highest price and asks
+ * from the lowest one. Updates are applied by diffing the received book against the current levels, so that
+ * listeners receive only the changed levels. Queries do not allocate. The book is updated on the streaming thread
+ * and must only be read on it, e.g. from an {@link OrderBookListener}
+ */
+public class OrderBook {
+
+  /**
+   * Order book side
+   */
+  public enum Side {
+    /**
+     * Buy orders
+     */
+    BID,
+    /**
+     * Sell orders
+     */
+    ASK
+  }
+
+  /**
+   * Price levels of one side, sorted from the best price
+   */
+  private static class Levels {
+    public double[] prices = new double[16];
+    public double[] volumes = new double[16];
+    public int count = 0;
+
+    public void ensureCapacity(int capacity) {
+      if (prices.length < capacity) {
+        int length = Math.max(capacity, prices.length * 2);
+        prices = Arrays.copyOf(prices, length);
+        volumes = Arrays.copyOf(volumes, length);
+      }
+    }
+  }
+
+  private int symbolId;
+  private String symbol;
+  private long time;
+  private Levels bids = new Levels();
+  private Levels asks = new Levels();
+  private Levels nextBids = new Levels();
+  private Levels nextAsks = new Levels();
+
+  /**
+   * Constructs an empty order book
+   * @param symbolId symbol id, see {@link SymbolIds}
+   * @param symbol symbol
+   */
+  public OrderBook(int symbolId, String symbol) {
+    this.symbolId = symbolId;
+    this.symbol = symbol;
+  }
+
+  /**
+   * Returns symbol id
+   * @return symbol id
+   */
+  public int getSymbolId() {
+    return symbolId;
+  }
+
+  /**
+   * Returns symbol
+   * @return symbol
+   */
+  public String getSymbol() {
+    return symbol;
+  }
+
+  /**
+   * Returns time of the last update
+   * @return time in epoch milliseconds
+   */
+  public long getTime() {
+    return time;
+  }
+
+  /**
+   * Returns number of price levels of a side
+   * @param side book side
+   * @return number of levels
+   */
+  public int getLevelCount(Side side) {
+    return levels(side).count;
+  }
+
+  /**
+   * Returns price of a level
+   * @param side book side
+   * @param level level index, 0 is the best price
+   * @return level price
+   */
+  public double getPrice(Side side, int level) {
+    return levels(side).prices[checkLevel(side, level)];
+  }
+
+  /**
+   * Returns volume of a level
+   * @param side book side
+   * @param level level index, 0 is the best price
+   * @return level volume
+   */
+  public double getVolume(Side side, int level) {
+    return levels(side).volumes[checkLevel(side, level)];
+  }
+
+  /**
+   * Returns the highest bid price
+   * @return best bid price, or NaN if there are no bids
+   */
+  public double getBestBid() {
+    return bids.count != 0 ? bids.prices[0] : Double.NaN;
+  }
+
+  /**
+   * Returns the lowest ask price
+   * @return best ask price, or NaN if there are no asks
+   */
+  public double getBestAsk() {
+    return asks.count != 0 ? asks.prices[0] : Double.NaN;
+  }
+
+  /**
+   * Returns the middle of the best bid and ask prices
+   * @return mid price, or NaN if either side is empty
+   */
+  public double getMidPrice() {
+    return (getBestBid() + getBestAsk()) / 2;
+  }
+
+  /**
+   * Returns the difference between the best ask and bid prices
+   * @return spread, or NaN if either side is empty
+   */
+  public double getSpread() {
+    return getBestAsk() - getBestBid();
+  }
+
+  /**
+   * Returns total volume of the best levels of a side
+   * @param side book side
+   * @param levelCount number of levels to sum up
+   * @return total volume
+   */
+  public double getDepthVolume(Side side, int levelCount) {
+    Levels levels = levels(side);
+    double result = 0;
+    for (int i = 0; i < Math.min(levelCount, levels.count); i++) {
+      result += levels.volumes[i];
+    }
+    return result;
+  }
+
+  /**
+   * Returns volume-weighted average price of filling a volume against a side, e.g. against asks to buy
+   * @param side book side to fill against
+   * @param volume volume to fill
+   * @return average fill price, or NaN if the side does not have enough volume
+   */
+  public double getVwap(Side side, double volume) {
+    Levels levels = levels(side);
+    double remaining = volume;
+    double notional = 0;
+    for (int i = 0; i < levels.count && remaining > 0; i++) {
+      double filled = Math.min(remaining, levels.volumes[i]);
+      notional += filled * levels.prices[i];
+      remaining -= filled;
+    }
+    return remaining <= 0 && volume > 0 ? notional / volume : Double.NaN;
+  }
+
+  /**
+   * Replaces the book levels with a received book, reporting the changed levels to the listeners
+   * @param update received book
+   * @param listeners listeners to report changes to
+   * @return whether any level changed
+   */
+  public boolean apply(BookUpdate update, OrderBookListener[] listeners) {
+    time = update.time;
+    // bids are sorted by descending price, which is ascending order of the negated prices
+    copySorted(update.bidPrices, update.bidVolumes, update.bidCount, nextBids, -1);
+    copySorted(update.askPrices, update.askVolumes, update.askCount, nextAsks, 1);
+    boolean changed = diff(Side.BID, bids, nextBids, -1, listeners);
+    changed |= diff(Side.ASK, asks, nextAsks, 1, listeners);
+    Levels previous = bids;
+    bids = nextBids;
+    nextBids = previous;
+    previous = asks;
+    asks = nextAsks;
+    nextAsks = previous;
+    if (changed) {
+      for (OrderBookListener listener : listeners) {
+        try {
+          listener.onBookChanged(this);
+        } catch (Throwable err) {
+          System.err.println("Order book listener failed to process " + symbol + " book: " + err);
+        }
+      }
+    }
+    return changed;
+  }
+
+  /**
+   * Copies received levels into spare level arrays, sorting them from the best price and merging levels with
+   * equal prices. Books are shallow, so insertion sort is used
+   */
+  private void copySorted(double[] prices, double[] volumes, int count, Levels levels, int direction) {
+    levels.ensureCapacity(count);
+    levels.count = 0;
+    for (int i = 0; i < count; i++) {
+      double price = prices[i];
+      int index = levels.count;
+      while (index > 0 && direction * levels.prices[index - 1] > direction * price) {
+        index--;
+      }
+      if (index > 0 && levels.prices[index - 1] == price) {
+        levels.volumes[index - 1] += volumes[i];
+        continue;
+      }
+      System.arraycopy(levels.prices, index, levels.prices, index + 1, levels.count - index);
+      System.arraycopy(levels.volumes, index, levels.volumes, index + 1, levels.count - index);
+      levels.prices[index] = price;
+      levels.volumes[index] = volumes[i];
+      levels.count++;
+    }
+  }
+
+  private boolean diff(Side side, Levels current, Levels next, int direction, OrderBookListener[] listeners) {
+    boolean changed = false;
+    int i = 0;
+    int j = 0;
+    while (i < current.count || j < next.count) {
+      double price;
+      double volume;
+      if (j == next.count || (i < current.count
+        && direction * current.prices[i] < direction * next.prices[j])) {
+        price = current.prices[i++];
+        volume = 0;
+      } else if (i == current.count || direction * next.prices[j] < direction * current.prices[i]) {
+        price = next.prices[j];
+        volume = next.volumes[j++];
+      } else {
+        price = next.prices[j];
+        volume = next.volumes[j++];
+        if (current.volumes[i++] == volume) {
+          continue;
+        }
+      }
+      changed = true;
+      for (OrderBookListener listener : listeners) {
+        try {
+          listener.onLevelChanged(this, side, price, volume);
+        } catch (Throwable err) {
+          System.err.println("Order book listener failed to process " + symbol + " level: " + err);
+        }
+      }
+    }
+    return changed;
+  }
+
+  private Levels levels(Side side) {
+    return side == Side.BID ? bids : asks;
+  }
+
+  private int checkLevel(Side side, int level) {
+    if (level < 0 || level >= levels(side).count) {
+      throw new IndexOutOfBoundsException("Level " + level + " of " + levels(side).count);
+    }
+    return level;
+  }
+}
@@ -0,0 +1,21 @@
+/**
+ * Receives changes of order books maintained by an {@link OrderBookTracker}. Invoked on the streaming thread, so
+ * implementations should return quickly
+ */
+public abstract class OrderBookListener {
+
+  /**
+   * Invoked for every price level which was added, removed or changed its volume
+   * @param book order book being updated. Its levels are updated after all level changes are reported
+   * @param side book side
+   * @param price level price
+   * @param volume new level volume, or 0 if the level was removed
+   */
+  public void onLevelChanged(OrderBook book, OrderBook.Side side, double price, double volume) {}
+
+  /**
+   * Invoked after an order book was updated, if any of its levels changed
+   * @param book order book
+   */
+  public void onBookChanged(OrderBook book) {}
+}
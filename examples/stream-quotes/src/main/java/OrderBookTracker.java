@@ -0,0 +1,130 @@
+import java.util.Arrays;
+import java.util.List;
+
+import cloud.metaapi.sdk.clients.meta_api.SynchronizationListener;
+import cloud.metaapi.sdk.clients.meta_api.models.MetatraderBook;
+import cloud.metaapi.sdk.clients.meta_api.models.MetatraderBookEntry;
+import io.vertx.core.Future;
+
+/**
+ * Synchronization listener which maintains a local {@link OrderBook} per symbol from market depth updates and
+ * reports changed levels to {@link OrderBookListener}s. Register it once via
+ * {@code connection.addSynchronizationListener} and subscribe to market data with the {@code marketDepth}
+ * subscription type. Books decoded by a {@link MarketDataDecoder} can be applied via {@link #apply(BookUpdate)}
+ */
+public class OrderBookTracker extends SynchronizationListener {
+
+  private static final Future<Void> SUCCEEDED = Future.succeededFuture();
+
+  private SymbolIds symbolIds;
+  private volatile OrderBookListener[] listeners = new OrderBookListener[0];
+  private OrderBook[] books = new OrderBook[0];
+  private BookUpdate update = new BookUpdate();
+
+  /**
+   * Constructs the tracker
+   */
+  public OrderBookTracker() {
+    this(new SymbolIds());
+  }
+
+  /**
+   * Constructs the tracker sharing symbol ids with other components
+   * @param symbolIds symbol ids
+   */
+  public OrderBookTracker(SymbolIds symbolIds) {
+    this.symbolIds = symbolIds;
+  }
+
+  /**
+   * Returns symbol ids used to address books
+   * @return symbol ids
+   */
+  public SymbolIds getSymbolIds() {
+    return symbolIds;
+  }
+
+  /**
+   * Adds an order book listener
+   * @param listener order book listener
+   */
+  public synchronized void addListener(OrderBookListener listener) {
+    OrderBookListener[] newListeners = Arrays.copyOf(listeners, listeners.length + 1);
+    newListeners[listeners.length] = listener;
+    listeners = newListeners;
+  }
+
+  /**
+   * Removes an order book listener
+   * @param listener order book listener
+   */
+  public synchronized void removeListener(OrderBookListener listener) {
+    for (int i = 0; i < listeners.length; i++) {
+      if (listeners[i] == listener) {
+        OrderBookListener[] newListeners = new OrderBookListener[listeners.length - 1];
+        System.arraycopy(listeners, 0, newListeners, 0, i);
+        System.arraycopy(listeners, i + 1, newListeners, i, listeners.length - i - 1);
+        listeners = newListeners;
+        return;
+      }
+    }
+  }
+
+  /**
+   * Returns order book of a symbol. Must only be read on the streaming thread
+   * @param symbolId symbol id
+   * @return order book, or {@code null} if no book of the symbol was received yet
+   */
+  public OrderBook getBook(int symbolId) {
+    return symbolId >= 0 && symbolId < books.length ? books[symbolId] : null;
+  }
+
+  /**
+   * Returns order book of a symbol. Must only be read on the streaming thread
+   * @param symbol symbol
+   * @return order book, or {@code null} if no book of the symbol was received yet
+   */
+  public OrderBook getBook(String symbol) {
+    return getBook(symbolIds.findId(symbol));
+  }
+
+  /**
+   * Applies a received book
+   * @param book received book
+   */
+  public void apply(BookUpdate book) {
+    int symbolId = symbolIds.getId(book.symbol);
+    if (symbolId >= books.length) {
+      books = Arrays.copyOf(books, Math.max(symbolId + 1, books.length * 2));
+    }
+    OrderBook orderBook = books[symbolId];
+    if (orderBook == null) {
+      orderBook = books[symbolId] = new OrderBook(symbolId, book.symbol);
+    }
+    orderBook.apply(book, listeners);
+  }
+
+  @Override
+  public Future<Void> onBooksUpdated(String instanceIndex, List<MetatraderBook> books, Double equity,
+    Double margin, Double freeMargin, Double marginLevel, Double accountCurrencyExchangeRate) {
+    for (MetatraderBook book : books) {
+      update.symbol = book.symbol;
+      update.time = book.time != null ? book.time.getDate().getTime() : 0;
+      update.bidCount = 0;
+      update.askCount = 0;
+      if (book.book != null) {
+        for (MetatraderBookEntry entry : book.book) {
+          if (entry.type == MetatraderBookEntry.BookType.BOOK_TYPE_SELL
+            || entry.type == MetatraderBookEntry.BookType.BOOK_TYPE_SELL_MARKET) {
+            update.addAsk(entry.price, entry.volume);
+          } else if (entry.type == MetatraderBookEntry.BookType.BOOK_TYPE_BUY
+            || entry.type == MetatraderBookEntry.BookType.BOOK_TYPE_BUY_MARKET) {
+            update.addBid(entry.price, entry.volume);
+          }
+        }
+      }
+      apply(update);
+    }
+    return SUCCEEDED;
+  }
+}
@@ -0,0 +1,137 @@
+import java.util.Arrays;
+
+import cloud.metaapi.sdk.clients.meta_api.SynchronizationListener;
+import cloud.metaapi.sdk.clients.meta_api.models.MetatraderSymbolPrice;
+import io.vertx.core.Future;
+
+/**
+ * Synchronization listener which forwards symbol price updates to {@link PriceListener}s as primitives. It keeps
+ * one reusable {@link Quote} per symbol which is updated in place, so neither the dispatch nor the listeners
+ * allocate per quote. Register the dispatcher once via {@code connection.addSynchronizationListener}
+ */
+public class PriceDispatcher extends SynchronizationListener {
+
+  private static final Future<Void> SUCCEEDED = Future.succeededFuture();
+
+  /**
+   * Latest quote of a symbol. Quotes passed to a {@link PriceListener} are reused for all updates of the symbol, so
+   * they must only be read on the streaming thread. Quotes created by the caller and filled via
+   * {@link ConcurrentTerminalState#getPrice(int, Quote)} belong to the caller, who may read them on any thread
+   * but must not share one quote between threads that fill it concurrently
+   */
+  public static class Quote {
+    /**
+     * Symbol id
+     */
+    public int symbolId;
+    /**
+     * Symbol
+     */
+    public String symbol;
+    /**
+     * Bid price
+     */
+    public double bid;
+    /**
+     * Ask price
+     */
+    public double ask;
+    /**
+     * Quote time in epoch milliseconds
+     */
+    public long time;
+  }
+
+  private SymbolIds symbolIds;
+  private volatile PriceListener[] listeners = new PriceListener[0];
+  private Quote[] quotes = new Quote[0];
+
+  /**
+   * Constructs the dispatcher
+   */
+  public PriceDispatcher() {
+    this(new SymbolIds());
+  }
+
+  /**
+   * Constructs the dispatcher sharing symbol ids with other components
+   * @param symbolIds symbol ids
+   */
+  public PriceDispatcher(SymbolIds symbolIds) {
+    this.symbolIds = symbolIds;
+  }
+
+  /**
+   * Returns symbol ids used in price updates
+   * @return symbol ids
+   */
+  public SymbolIds getSymbolIds() {
+    return symbolIds;
+  }
+
+  /**
+   * Adds a price listener
+   * @param listener price listener
+   */
+  public synchronized void addListener(PriceListener listener) {
+    PriceListener[] newListeners = Arrays.copyOf(listeners, listeners.length + 1);
+    newListeners[listeners.length] = listener;
+    listeners = newListeners;
+  }
+
+  /**
+   * Removes a price listener
+   * @param listener price listener
+   */
+  public synchronized void removeListener(PriceListener listener) {
+    for (int i = 0; i < listeners.length; i++) {
+      if (listeners[i] == listener) {
+        PriceListener[] newListeners = new PriceListener[listeners.length - 1];
+        System.arraycopy(listeners, 0, newListeners, 0, i);
+        System.arraycopy(listeners, i + 1, newListeners, i, listeners.length - i - 1);
+        listeners = newListeners;
+        return;
+      }
+    }
+  }
+
+  /**
+   * Returns latest quote of a symbol. Must only be called on the streaming thread
+   * @param symbolId symbol id
+   * @return latest quote, or {@code null} if no quote of the symbol was received yet
+   */
+  public Quote getQuote(int symbolId) {
+    return symbolId < quotes.length ? quotes[symbolId] : null;
+  }
+
+  @Override
+  public Future<Void> onSymbolPriceUpdated(String instanceIndex, MetatraderSymbolPrice price) {
+    int symbolId = symbolIds.getId(price.symbol);
+    Quote quote = getOrCreateQuote(symbolId, price.symbol);
+    quote.bid = price.bid;
+    quote.ask = price.ask;
+    quote.time = price.time.getDate().getTime();
+    for (PriceListener listener : listeners) {
+      try {
+        listener.onPrice(symbolId, quote.bid, quote.ask, quote.time);
+      } catch (Throwable err) {
+        System.err.println("Price listener failed to process " + price.symbol + " price: " + err);
+      }
+    }
+    return SUCCEEDED;
+  }
+
+  private Quote getOrCreateQuote(int symbolId, String symbol) {
+    if (symbolId >= quotes.length) {
+      quotes = Arrays.copyOf(quotes, Math.max(symbolId + 1, quotes.length * 2));
+    }
+    Quote quote = quotes[symbolId];
+    if (quote == null) {
+      quote = new Quote();
+      quote.symbolId = symbolId;
+      quote.symbol = symbol;
+      quotes[symbolId] = quote;
+    }
+    return quote;
+  }
+}
@@ -0,0 +1,15 @@
+/**
+ * Receives symbol price updates as primitives. Register it in a {@link PriceDispatcher}
+ */
+public interface PriceListener {
+
+  /**
+   * Invoked when a symbol price was updated. Invoked on the streaming thread, so implementations should return
+   * quickly
+   * @param symbolId symbol id, see {@link PriceDispatcher#getSymbolIds()}
+   * @param bid bid price
+   * @param ask ask price
+   * @param time quote time in epoch milliseconds
+   */
+  void onPrice(int symbolId, double bid, double ask, long time);
+}
@@ -0,0 +1,80 @@
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+import cloud.metaapi.sdk.clients.meta_api.models.MarketDataSubscription;
+import cloud.metaapi.sdk.clients.meta_api.models.MetatraderAccountDto.ConnectionStatus;
+import cloud.metaapi.sdk.clients.meta_api.models.MetatraderAccountDto.DeploymentState;
+import cloud.metaapi.sdk.meta_api.MetaApi;
+import cloud.metaapi.sdk.meta_api.MetaApiConnection;
+import cloud.metaapi.sdk.meta_api.MetatraderAccount;
+import io.vertx.core.Vertx;
+
+/**
+ * Records quotes, ticks and the order book of a symbol to a journal via {@link MarketDataRecorder}, which
+ * {@link ReplayMarketDataExample} can replay afterwards.
+ * Note: for information on how to use this example code please read
+ * https://metaapi.cloud/docs/client/usingCodeExamples
+ */
+public class RecordMarketDataExample {
+
+  private static String token = getEnvOrDefault("TOKEN", "<put in your token here>");
+  private static String accountId = getEnvOrDefault("ACCOUNT_ID", "<put in your account id here>");
+  private static String symbol = getEnvOrDefault("SYMBOL", "EURUSD");
+  private static String journal = getEnvOrDefault("JOURNAL", "market-data.journal");
+  private static long durationInSeconds = Long.parseLong(getEnvOrDefault("DURATION_IN_SECONDS", "60"));
+
+  public static void main(String[] args) {
+    try {
+      MetaApi api = new MetaApi(token, Vertx.vertx());
+      MetatraderAccount account = api.getMetatraderAccountApi().getAccount(accountId).toCompletionStage().toCompletableFuture().get();
+
+      // wait until account is deployed and connected to broker
+      System.out.println("Deploying account");
+      if (account.getState() != DeploymentState.DEPLOYED) {
+        account.deploy().toCompletionStage().toCompletableFuture().get();
+      } else {
+        System.out.println("Account already deployed");
+      }
+      System.out.println("Waiting for API server to connect to broker (may take couple of minutes)");
+      if (account.getConnectionStatus() != ConnectionStatus.CONNECTED) {
+        account.waitConnected().toCompletionStage().toCompletableFuture().get();
+      }
+
+      // connect to MetaApi API
+      MetaApiConnection connection = account.connect().toCompletionStage().toCompletableFuture().get();
+
+      // the recorder only copies updates into memory on the streaming thread, a background thread writes the file
+      MarketDataRecorder recorder = new MarketDataRecorder(Paths.get(journal));
+      connection.addSynchronizationListener(recorder);
+
+      // wait until terminal state synchronized to the local state
+      System.out.println("Waiting for SDK to synchronize to terminal state (may take some "
+        + "time depending on your history size)");
+      connection.waitSynchronized().toCompletionStage().toCompletableFuture().get();
+
+      connection.subscribeToMarketData(symbol, Arrays.asList(
+        new MarketDataSubscription() {{ type = "quotes"; }},
+        new MarketDataSubscription() {{ type = "ticks"; }},
+        new MarketDataSubscription() {{ type = "marketDepth"; }}
+      )).toCompletionStage().toCompletableFuture().join();
+      System.out.println("Synchronized successfully, recording " + symbol + " market data to " + journal
+        + " for " + durationInSeconds + " seconds...");
+
+      Thread.sleep(durationInSeconds * 1000);
+      connection.removeSynchronizationListener(recorder);
+      recorder.close();
+      System.out.println("Recorded " + recorder.getRecordedCount() + " updates, dropped "
+        + recorder.getDroppedCount());
+      connection.close().toCompletionStage().toCompletableFuture().get();
+
+    } catch (Exception err) {
+      System.err.println(err);
+    }
+    System.exit(0);
+  }
+
+  private static String getEnvOrDefault(String name, String defaultValue) {
+    String result = System.getenv(name);
+    return (result != null ? result : defaultValue);
+  }
+}
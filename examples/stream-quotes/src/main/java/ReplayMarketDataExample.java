@@ -0,0 +1,55 @@
+import java.nio.file.Paths;
+import java.time.Instant;
+
+/**
+ * Replays a journal recorded by {@link RecordMarketDataExample} into a {@link CandleAggregator} and an
+ * {@link OrderBookTracker}, the same way they receive updates from a live connection, and reports the replay
+ * throughput. Set SPEED to 1 to replay in real time, to 10 to replay 10 times faster, or to 0 to replay as fast as
+ * possible
+ */
+public class ReplayMarketDataExample {
+
+  private static String journal = getEnvOrDefault("JOURNAL", "market-data.journal");
+  private static String symbol = getEnvOrDefault("SYMBOL", "EURUSD");
+  private static double speed = Double.parseDouble(getEnvOrDefault("SPEED", "0"));
+
+  public static void main(String[] args) {
+    try {
+      MarketDataReplayer replayer = new MarketDataReplayer(Paths.get(journal));
+      System.out.println("Replaying market data recorded at " + Instant.ofEpochMilli(replayer.getStartTime()));
+
+      // synchronization listeners receive the recorded updates as SDK models
+      CandleAggregator aggregator = new CandleAggregator();
+      aggregator.addTimeBars(symbol, 5000, 1000);
+      aggregator.addListener(series -> System.out.println(series.getSymbol() + " 5s bar "
+        + Instant.ofEpochMilli(series.getTime(0)) + " O " + series.getOpen(0) + " H " + series.getHigh(0)
+        + " L " + series.getLow(0) + " C " + series.getClose(0)));
+      OrderBookTracker orderBookTracker = new OrderBookTracker();
+      replayer.addListener(aggregator);
+      replayer.addListener(orderBookTracker);
+
+      // market data handlers receive reused objects, which is the fastest way to consume a replay
+      long[] prices = new long[1];
+      replayer.addHandler(new MarketDataHandler() {
+        @Override
+        public void onPrice(PriceDispatcher.Quote price) {
+          prices[0]++;
+        }
+      });
+
+      long startedAt = System.nanoTime();
+      long count = replayer.replay(speed > 0 ? speed : MarketDataReplayer.AS_FAST_AS_POSSIBLE);
+      long elapsed = Math.max(1, System.nanoTime() - startedAt);
+      System.out.println("Replayed " + count + " updates with " + prices[0] + " prices in " + elapsed / 1000000
+        + "ms, " + count * 1000000000L / elapsed + " updates per second");
+    } catch (Exception err) {
+      System.err.println(err);
+    }
+    System.exit(0);
+  }
+
+  private static String getEnvOrDefault(String name, String defaultValue) {
+    String result = System.getenv(name);
+    return (result != null ? result : defaultValue);
+  }
+}
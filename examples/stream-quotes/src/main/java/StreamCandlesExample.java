@@ -0,0 +1,86 @@
+import java.time.Instant;
+import java.util.Arrays;
+
+import cloud.metaapi.sdk.clients.meta_api.models.MarketDataSubscription;
+import cloud.metaapi.sdk.clients.meta_api.models.MetatraderAccountDto.ConnectionStatus;
+import cloud.metaapi.sdk.clients.meta_api.models.MetatraderAccountDto.DeploymentState;
+import cloud.metaapi.sdk.meta_api.MetaApi;
+import cloud.metaapi.sdk.meta_api.MetaApiConnection;
+import cloud.metaapi.sdk.meta_api.MetatraderAccount;
+import io.vertx.core.Vertx;
+
+/**
+ * Builds 5 and 15 second bars and range bars locally via {@link CandleAggregator} and prints the closed bars.
+ * Note: for information on how to use this example code please read
+ * https://metaapi.cloud/docs/client/usingCodeExamples
+ */
+public class StreamCandlesExample {
+
+  private static String token = getEnvOrDefault("TOKEN", "<put in your token here>");
+  private static String accountId = getEnvOrDefault("ACCOUNT_ID", "<put in your account id here>");
+  private static String symbol = getEnvOrDefault("SYMBOL", "EURUSD");
+  private static double range = Double.parseDouble(getEnvOrDefault("RANGE", "0.0002"));
+
+  private static class PrintingBarListener implements BarListener {
+    @Override
+    public void onBarClosed(BarSeries series) {
+      String name = series.getIntervalInMilliseconds() != 0 ? (series.getIntervalInMilliseconds() / 1000) + "s"
+        : "range " + series.getRange();
+      System.out.println(series.getSymbol() + " " + name + " bar " + Instant.ofEpochMilli(series.getTime(0))
+        + " O " + series.getOpen(0) + " H " + series.getHigh(0) + " L " + series.getLow(0)
+        + " C " + series.getClose(0) + " ticks " + series.getTickCount(0));
+    }
+  }
+
+  public static void main(String[] args) {
+    try {
+      MetaApi api = new MetaApi(token, Vertx.vertx());
+      MetatraderAccount account = api.getMetatraderAccountApi().getAccount(accountId).toCompletionStage().toCompletableFuture().get();
+
+      // wait until account is deployed and connected to broker
+      System.out.println("Deploying account");
+      if (account.getState() != DeploymentState.DEPLOYED) {
+        account.deploy().toCompletionStage().toCompletableFuture().get();
+      } else {
+        System.out.println("Account already deployed");
+      }
+      System.out.println("Waiting for API server to connect to broker (may take couple of minutes)");
+      if (account.getConnectionStatus() != ConnectionStatus.CONNECTED) {
+        account.waitConnected().toCompletionStage().toCompletableFuture().get();
+      }
+
+      // connect to MetaApi API
+      MetaApiConnection connection = account.connect().toCompletionStage().toCompletableFuture().get();
+
+      // the aggregator builds bars of custom timeframes from the quote stream, no candle subscription is needed
+      CandleAggregator aggregator = new CandleAggregator();
+      aggregator.addTimeBars(symbol, 5000, 1000);
+      aggregator.addTimeBars(symbol, 15000, 1000);
+      aggregator.addRangeBars(symbol, range, 1000);
+      aggregator.addListener(new PrintingBarListener());
+      connection.addSynchronizationListener(aggregator);
+
+      // wait until terminal state synchronized to the local state
+      System.out.println("Waiting for SDK to synchronize to terminal state (may take some "
+        + "time depending on your history size)");
+      connection.waitSynchronized().toCompletionStage().toCompletableFuture().get();
+
+      connection.subscribeToMarketData(symbol, Arrays.asList(
+        new MarketDataSubscription() {{ type = "quotes"; }}
+      )).toCompletionStage().toCompletableFuture().join();
+      System.out.println("Synchronized successfully, building " + symbol + " bars now...");
+
+      while (true) {
+        Thread.sleep(1000);
+      }
+
+    } catch (Exception err) {
+      System.err.println(err);
+    }
+  }
+
+  private static String getEnvOrDefault(String name, String defaultValue) {
+    String result = System.getenv(name);
+    return (result != null ? result : defaultValue);
+  }
+}
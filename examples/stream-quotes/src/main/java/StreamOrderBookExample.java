@@ -0,0 +1,87 @@
+import java.util.Arrays;
+
+import cloud.metaapi.sdk.clients.meta_api.models.MarketDataSubscription;
+import cloud.metaapi.sdk.clients.meta_api.models.MetatraderAccountDto.ConnectionStatus;
+import cloud.metaapi.sdk.clients.meta_api.models.MetatraderAccountDto.DeploymentState;
+import cloud.metaapi.sdk.meta_api.MetaApi;
+import cloud.metaapi.sdk.meta_api.MetaApiConnection;
+import cloud.metaapi.sdk.meta_api.MetatraderAccount;
+import io.vertx.core.Vertx;
+
+/**
+ * Maintains a local order book via {@link OrderBookTracker} and prints the changed levels. Market depth streaming
+ * is available in MT5 only.
+ * Note: for information on how to use this example code please read
+ * https://metaapi.cloud/docs/client/usingCodeExamples
+ */
+public class StreamOrderBookExample {
+
+  private static String token = getEnvOrDefault("TOKEN", "<put in your token here>");
+  private static String accountId = getEnvOrDefault("ACCOUNT_ID", "<put in your account id here>");
+  private static String symbol = getEnvOrDefault("SYMBOL", "EURUSD");
+  private static double volume = Double.parseDouble(getEnvOrDefault("VOLUME", "10"));
+
+  private static class DepthListener extends OrderBookListener {
+    @Override
+    public void onLevelChanged(OrderBook book, OrderBook.Side side, double price, double volume) {
+      System.out.println(book.getSymbol() + " " + side + " " + price + (volume != 0 ? " volume " + volume
+        : " removed"));
+    }
+
+    @Override
+    public void onBookChanged(OrderBook book) {
+      System.out.println(book.getSymbol() + " bid " + book.getBestBid() + " ask " + book.getBestAsk()
+        + ", " + volume + " lots buy VWAP " + book.getVwap(OrderBook.Side.ASK, volume)
+        + ", sell VWAP " + book.getVwap(OrderBook.Side.BID, volume));
+    }
+  }
+
+  public static void main(String[] args) {
+    try {
+      MetaApi api = new MetaApi(token, Vertx.vertx());
+      MetatraderAccount account = api.getMetatraderAccountApi().getAccount(accountId).toCompletionStage().toCompletableFuture().get();
+
+      // wait until account is deployed and connected to broker
+      System.out.println("Deploying account");
+      if (account.getState() != DeploymentState.DEPLOYED) {
+        account.deploy().toCompletionStage().toCompletableFuture().get();
+      } else {
+        System.out.println("Account already deployed");
+      }
+      System.out.println("Waiting for API server to connect to broker (may take couple of minutes)");
+      if (account.getConnectionStatus() != ConnectionStatus.CONNECTED) {
+        account.waitConnected().toCompletionStage().toCompletableFuture().get();
+      }
+
+      // connect to MetaApi API
+      MetaApiConnection connection = account.connect().toCompletionStage().toCompletableFuture().get();
+
+      // the tracker keeps the order book up to date and reports only the changed levels
+      OrderBookTracker tracker = new OrderBookTracker();
+      tracker.addListener(new DepthListener());
+      connection.addSynchronizationListener(tracker);
+
+      // wait until terminal state synchronized to the local state
+      System.out.println("Waiting for SDK to synchronize to terminal state (may take some "
+        + "time depending on your history size)");
+      connection.waitSynchronized().toCompletionStage().toCompletableFuture().get();
+
+      connection.subscribeToMarketData(symbol, Arrays.asList(
+        new MarketDataSubscription() {{ type = "marketDepth"; intervalInMilliseconds = 1000; }}
+      )).toCompletionStage().toCompletableFuture().join();
+      System.out.println("Synchronized successfully, streaming " + symbol + " market depth now...");
+
+      while (true) {
+        Thread.sleep(1000);
+      }
+
+    } catch (Exception err) {
+      System.err.println(err);
+    }
+  }
+
+  private static String getEnvOrDefault(String name, String defaultValue) {
+    String result = System.getenv(name);
+    return (result != null ? result : defaultValue);
+  }
+}
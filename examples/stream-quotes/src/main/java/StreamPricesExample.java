@@ -0,0 +1,83 @@
+import cloud.metaapi.sdk.clients.meta_api.models.MetatraderAccountDto.ConnectionStatus;
+import cloud.metaapi.sdk.clients.meta_api.models.MetatraderAccountDto.DeploymentState;
+import cloud.metaapi.sdk.meta_api.MetaApi;
+import cloud.metaapi.sdk.meta_api.MetaApiConnection;
+import cloud.metaapi.sdk.meta_api.MetatraderAccount;
+import io.vertx.core.Vertx;
+
+/**
+ * Streams quotes through the allocation-free {@link PriceDispatcher}. Set account
+ * quoteStreamingIntervalInSeconds to 0 to receive a quote per tick.
+ * Note: for information on how to use this example code please read
+ * https://metaapi.cloud/docs/client/usingCodeExamples
+ */
+public class StreamPricesExample {
+
+  private static String token = getEnvOrDefault("TOKEN", "<put in your token here>");
+  private static String accountId = getEnvOrDefault("ACCOUNT_ID", "<put in your account id here>");
+  private static String symbol = getEnvOrDefault("SYMBOL", "EURUSD");
+
+  private static class SpreadListener implements PriceListener {
+    private int symbolId;
+    private double maxSpread = 0;
+
+    public SpreadListener(int symbolId) {
+      this.symbolId = symbolId;
+    }
+
+    @Override
+    public void onPrice(int symbolId, double bid, double ask, long time) {
+      if (symbolId == this.symbolId && ask - bid > maxSpread) {
+        maxSpread = ask - bid;
+        System.out.println(symbol + " max spread increased to " + maxSpread + " at " + time);
+      }
+    }
+  }
+
+  public static void main(String[] args) {
+    try {
+      MetaApi api = new MetaApi(token, Vertx.vertx());
+      MetatraderAccount account = api.getMetatraderAccountApi().getAccount(accountId).toCompletionStage().toCompletableFuture().get();
+
+      // wait until account is deployed and connected to broker
+      System.out.println("Deploying account");
+      if (account.getState() != DeploymentState.DEPLOYED) {
+        account.deploy().toCompletionStage().toCompletableFuture().get();
+      } else {
+        System.out.println("Account already deployed");
+      }
+      System.out.println("Waiting for API server to connect to broker (may take couple of minutes)");
+      if (account.getConnectionStatus() != ConnectionStatus.CONNECTED) {
+        account.waitConnected().toCompletionStage().toCompletableFuture().get();
+      }
+
+      // connect to MetaApi API
+      MetaApiConnection connection = account.connect().toCompletionStage().toCompletableFuture().get();
+
+      // the dispatcher is registered once and fans quotes out to primitive price listeners
+      PriceDispatcher dispatcher = new PriceDispatcher();
+      dispatcher.addListener(new SpreadListener(dispatcher.getSymbolIds().getId(symbol)));
+      connection.addSynchronizationListener(dispatcher);
+
+      // wait until terminal state synchronized to the local state
+      System.out.println("Waiting for SDK to synchronize to terminal state (may take some "
+        + "time depending on your history size)");
+      connection.waitSynchronized().toCompletionStage().toCompletableFuture().get();
+
+      connection.subscribeToMarketData(symbol).toCompletionStage().toCompletableFuture().join();
+      System.out.println("Synchronized successfully, streaming " + symbol + " prices now...");
+
+      while (true) {
+        Thread.sleep(1000);
+      }
+
+    } catch (Exception err) {
+      System.err.println(err);
+    }
+  }
+
+  private static String getEnvOrDefault(String name, String defaultValue) {
+    String result = System.getenv(name);
+    return (result != null ? result : defaultValue);
+  }
+}
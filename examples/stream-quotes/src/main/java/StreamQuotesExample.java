@@ -34,12 +34,10 @@ public class StreamQuotesExample {
   private static class QuoteListener extends SynchronizationListener {
     @Override
     public Future<Void> onSymbolPriceUpdated(String instanceIndex, MetatraderSymbolPrice price) {
-      if (price.symbol.equals(symbol)) {
-        try {
-          System.out.println(symbol + " price updated " + asJson(price));
-        } catch (JsonProcessingException e) {
-          e.printStackTrace();
-        }
+      try {
+        System.out.println(symbol + " price updated " + asJson(price));
+      } catch (JsonProcessingException e) {
+        e.printStackTrace();
       }
       return Future.succeededFuture();
     }
@@ -47,12 +45,10 @@ public class StreamQuotesExample {
     public Future<Void> onCandlesUpdated(String instanceIndex, List<MetatraderCandle> candles,
       Double equity, Double margin, Double freeMargin, Double marginLevel, Double accountCurrencyExchangeRate) {
       for (MetatraderCandle candle : candles) {
-        if (candle.symbol.equals(symbol)) {
-          try {
-            System.out.println(symbol + " candle updated " + asJson(candle));
-          } catch (JsonProcessingException e) {
-            e.printStackTrace();
-          }
+        try {
+          System.out.println(symbol + " candle updated " + asJson(candle));
+        } catch (JsonProcessingException e) {
+          e.printStackTrace();
         }
       }
       return Future.succeededFuture();
@@ -61,12 +57,10 @@ public class StreamQuotesExample {
     public Future<Void> onTicksUpdated(String instanceIndex, List<MetatraderTick> ticks,
       Double equity, Double margin, Double freeMargin, Double marginLevel, Double accountCurrencyExchangeRate) {
       for (MetatraderTick tick : ticks) {
-        if (tick.symbol.equals(symbol)) {
-          try {
-            System.out.println(symbol + " tick updated " + asJson(tick));
-          } catch (JsonProcessingException e) {
-            e.printStackTrace();
-          }
+        try {
+          System.out.println(symbol + " tick updated " + asJson(tick));
+        } catch (JsonProcessingException e) {
+          e.printStackTrace();
         }
       }
       return Future.succeededFuture();
@@ -75,12 +69,10 @@ public class StreamQuotesExample {
     public Future<Void> onBooksUpdated(String instanceIndex, List<MetatraderBook> books,
       Double equity, Double margin, Double freeMargin, Double marginLevel, Double accountCurrencyExchangeRate) {
       for (MetatraderBook book : books) {
-        if (book.symbol.equals(symbol)) {
-          try {
-            System.out.println(symbol + " order book updated " + asJson(book));
-          } catch (JsonProcessingException e) {
-            e.printStackTrace();
-          }
+        try {
+          System.out.println(symbol + " order book updated " + asJson(book));
+        } catch (JsonProcessingException e) {
+          e.printStackTrace();
         }
       }
       return Future.succeededFuture();
@@ -116,8 +108,11 @@ public class StreamQuotesExample {
       // connect to MetaApi API
       MetaApiConnection connection = account.connect().toCompletionStage().toCompletableFuture().get();
       
+      // the registry delivers market data events only to the listeners registered for the event symbol
+      SymbolListenerRegistry registry = new SymbolListenerRegistry();
+      connection.addSynchronizationListener(registry);
       SynchronizationListener quoteListener = new QuoteListener();
-      connection.addSynchronizationListener(quoteListener);
+      registry.addListener(symbol, quoteListener);
       
       // wait until terminal state synchronized to the local state
       System.out.println("Waiting for SDK to synchronize to terminal state (may take some "
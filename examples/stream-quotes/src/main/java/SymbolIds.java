@@ -0,0 +1,63 @@
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Interns symbols into dense integer ids, so that per-symbol state can be kept in arrays indexed by id instead
+ * of maps keyed by symbol. Ids are assigned in order starting from 0 and are never released. Lookups of known
+ * symbols do not allocate
+ */
+public class SymbolIds {
+
+  private Map<String, Integer> ids = new ConcurrentHashMap<>();
+  private volatile String[] symbols = new String[0];
+
+  /**
+   * Returns id of a symbol, assigning a new one if the symbol is seen for the first time
+   * @param symbol symbol
+   * @return symbol id
+   */
+  public int getId(String symbol) {
+    Integer id = ids.get(symbol);
+    return id != null ? id : register(symbol);
+  }
+
+  /**
+   * Returns id of a symbol without registering it
+   * @param symbol symbol
+   * @return symbol id, or -1 if the symbol is not registered
+   */
+  public int findId(String symbol) {
+    Integer id = ids.get(symbol);
+    return id != null ? id : -1;
+  }
+
+  /**
+   * Returns symbol by id
+   * @param id symbol id
+   * @return symbol
+   */
+  public String getSymbol(int id) {
+    return symbols[id];
+  }
+
+  /**
+   * Returns number of registered symbols
+   * @return number of registered symbols
+   */
+  public int size() {
+    return symbols.length;
+  }
+
+  private synchronized int register(String symbol) {
+    Integer id = ids.get(symbol);
+    if (id == null) {
+      String[] newSymbols = Arrays.copyOf(symbols, symbols.length + 1);
+      newSymbols[symbols.length] = symbol;
+      symbols = newSymbols;
+      id = symbols.length - 1;
+      ids.put(symbol, id);
+    }
+    return id;
+  }
+}
@@ -0,0 +1,314 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import cloud.metaapi.sdk.clients.meta_api.SynchronizationListener;
+import cloud.metaapi.sdk.clients.meta_api.models.MarketDataSubscription;
+import cloud.metaapi.sdk.clients.meta_api.models.MarketDataUnsubscription;
+import cloud.metaapi.sdk.clients.meta_api.models.MetatraderBook;
+import cloud.metaapi.sdk.clients.meta_api.models.MetatraderCandle;
+import cloud.metaapi.sdk.clients.meta_api.models.MetatraderSymbolPrice;
+import cloud.metaapi.sdk.clients.meta_api.models.MetatraderTick;
+import io.vertx.core.CompositeFuture;
+import io.vertx.core.Future;
+
+/**
+ * Synchronization listener which delivers market data events only to the listeners registered for the symbol
+ * and event type, so that listeners do not need to filter events themselves. Listeners are kept in a dispatch
+ * table indexed by symbol and event type, and every event costs one hash lookup regardless of the number of
+ * listeners. Register the registry once via {@code connection.addSynchronizationListener}. Futures returned by
+ * the listeners of an event are joined, so that the connection sees their failures the same way as failures of
+ * its own listeners. Listener exceptions are logged and do not affect other listeners
+ */
+@SuppressWarnings("rawtypes")
+public class SymbolListenerRegistry extends SynchronizationListener {
+
+  private static final Future<Void> SUCCEEDED = Future.succeededFuture();
+  private static final SynchronizationListener[] NO_LISTENERS = new SynchronizationListener[0];
+
+  /**
+   * Market data event type
+   */
+  public enum EventType {
+    /**
+     * {@link SynchronizationListener#onSymbolPriceUpdated}
+     */
+    PRICES,
+    /**
+     * {@link SynchronizationListener#onTicksUpdated}
+     */
+    TICKS,
+    /**
+     * {@link SynchronizationListener#onCandlesUpdated}
+     */
+    CANDLES,
+    /**
+     * {@link SynchronizationListener#onBooksUpdated}
+     */
+    BOOKS,
+    /**
+     * {@link SynchronizationListener#onSubscriptionDowngraded}
+     */
+    SUBSCRIPTION_DOWNGRADES
+  }
+
+  private Map<String, SynchronizationListener[][]> listeners = new ConcurrentHashMap<>();
+
+  /**
+   * Adds a listener of symbol events
+   * @param symbol symbol to receive events for
+   * @param listener listener
+   * @param eventTypes event types to receive, all market data event types if none are specified
+   */
+  public synchronized void addListener(String symbol, SynchronizationListener listener, EventType... eventTypes) {
+    SynchronizationListener[][] table = copyTable(symbol);
+    for (EventType eventType : eventTypes.length != 0 ? eventTypes : EventType.values()) {
+      SynchronizationListener[] current = table[eventType.ordinal()];
+      if (!Arrays.asList(current).contains(listener)) {
+        SynchronizationListener[] updated = Arrays.copyOf(current, current.length + 1);
+        updated[current.length] = listener;
+        table[eventType.ordinal()] = updated;
+      }
+    }
+    listeners.put(symbol, table);
+  }
+
+  /**
+   * Removes a listener of symbol events
+   * @param symbol symbol to stop receiving events for
+   * @param listener listener
+   * @param eventTypes event types to stop receiving, all event types if none are specified
+   */
+  public synchronized void removeListener(String symbol, SynchronizationListener listener,
+    EventType... eventTypes) {
+    if (!listeners.containsKey(symbol)) {
+      return;
+    }
+    SynchronizationListener[][] table = copyTable(symbol);
+    boolean empty = true;
+    for (EventType eventType : EventType.values()) {
+      if (eventTypes.length == 0 || Arrays.asList(eventTypes).contains(eventType)) {
+        List<SynchronizationListener> updated = new ArrayList<>(Arrays.asList(table[eventType.ordinal()]));
+        updated.remove(listener);
+        table[eventType.ordinal()] = updated.toArray(NO_LISTENERS);
+      }
+      empty &= table[eventType.ordinal()].length == 0;
+    }
+    if (empty) {
+      listeners.remove(symbol);
+    } else {
+      listeners.put(symbol, table);
+    }
+  }
+
+  /**
+   * Removes a listener from all symbols and event types
+   * @param listener listener
+   */
+  public synchronized void removeListener(SynchronizationListener listener) {
+    for (String symbol : new ArrayList<>(listeners.keySet())) {
+      removeListener(symbol, listener);
+    }
+  }
+
+  @Override
+  public Future<Void> onSymbolPriceUpdated(String instanceIndex, MetatraderSymbolPrice price) {
+    List<Future> results = null;
+    for (SynchronizationListener listener : getListeners(price.symbol, EventType.PRICES)) {
+      try {
+        results = add(results, listener.onSymbolPriceUpdated(instanceIndex, price));
+      } catch (Throwable err) {
+        logError("price", price.symbol, err);
+      }
+    }
+    return join(results);
+  }
+
+  @Override
+  public Future<Void> onTicksUpdated(String instanceIndex, List<MetatraderTick> ticks, Double equity,
+    Double margin, Double freeMargin, Double marginLevel, Double accountCurrencyExchangeRate) {
+    String symbol = getSingleSymbol(ticks, tick -> tick.symbol);
+    if (symbol != null) {
+      return join(onTicksUpdated(null, symbol, instanceIndex, ticks, equity, margin, freeMargin, marginLevel,
+        accountCurrencyExchangeRate));
+    }
+    List<Future> results = null;
+    for (Map.Entry<String, List<MetatraderTick>> entry : groupBySymbol(ticks, tick -> tick.symbol).entrySet()) {
+      results = onTicksUpdated(results, entry.getKey(), instanceIndex, entry.getValue(), equity, margin,
+        freeMargin, marginLevel, accountCurrencyExchangeRate);
+    }
+    return join(results);
+  }
+
+  @Override
+  public Future<Void> onCandlesUpdated(String instanceIndex, List<MetatraderCandle> candles, Double equity,
+    Double margin, Double freeMargin, Double marginLevel, Double accountCurrencyExchangeRate) {
+    String symbol = getSingleSymbol(candles, candle -> candle.symbol);
+    if (symbol != null) {
+      return join(onCandlesUpdated(null, symbol, instanceIndex, candles, equity, margin, freeMargin, marginLevel,
+        accountCurrencyExchangeRate));
+    }
+    List<Future> results = null;
+    for (Map.Entry<String, List<MetatraderCandle>> entry : groupBySymbol(candles, candle -> candle.symbol)
+      .entrySet()) {
+      results = onCandlesUpdated(results, entry.getKey(), instanceIndex, entry.getValue(), equity, margin,
+        freeMargin, marginLevel, accountCurrencyExchangeRate);
+    }
+    return join(results);
+  }
+
+  @Override
+  public Future<Void> onBooksUpdated(String instanceIndex, List<MetatraderBook> books, Double equity,
+    Double margin, Double freeMargin, Double marginLevel, Double accountCurrencyExchangeRate) {
+    String symbol = getSingleSymbol(books, book -> book.symbol);
+    if (symbol != null) {
+      return join(onBooksUpdated(null, symbol, instanceIndex, books, equity, margin, freeMargin, marginLevel,
+        accountCurrencyExchangeRate));
+    }
+    List<Future> results = null;
+    for (Map.Entry<String, List<MetatraderBook>> entry : groupBySymbol(books, book -> book.symbol).entrySet()) {
+      results = onBooksUpdated(results, entry.getKey(), instanceIndex, entry.getValue(), equity, margin,
+        freeMargin, marginLevel, accountCurrencyExchangeRate);
+    }
+    return join(results);
+  }
+
+  @Override
+  public Future<Void> onSubscriptionDowngraded(String instanceIndex, String symbol,
+    List<MarketDataSubscription> updates, List<MarketDataUnsubscription> unsubscriptions) {
+    List<Future> results = null;
+    for (SynchronizationListener listener : getListeners(symbol, EventType.SUBSCRIPTION_DOWNGRADES)) {
+      try {
+        results = add(results, listener.onSubscriptionDowngraded(instanceIndex, symbol, updates,
+          unsubscriptions));
+      } catch (Throwable err) {
+        logError("subscription downgrade", symbol, err);
+      }
+    }
+    return join(results);
+  }
+
+  private List<Future> onTicksUpdated(List<Future> results, String symbol, String instanceIndex,
+    List<MetatraderTick> ticks, Double equity, Double margin, Double freeMargin, Double marginLevel,
+    Double accountCurrencyExchangeRate) {
+    for (SynchronizationListener listener : getListeners(symbol, EventType.TICKS)) {
+      try {
+        results = add(results, listener.onTicksUpdated(instanceIndex, ticks, equity, margin, freeMargin,
+          marginLevel, accountCurrencyExchangeRate));
+      } catch (Throwable err) {
+        logError("ticks", symbol, err);
+      }
+    }
+    return results;
+  }
+
+  private List<Future> onCandlesUpdated(List<Future> results, String symbol, String instanceIndex,
+    List<MetatraderCandle> candles, Double equity, Double margin, Double freeMargin, Double marginLevel,
+    Double accountCurrencyExchangeRate) {
+    for (SynchronizationListener listener : getListeners(symbol, EventType.CANDLES)) {
+      try {
+        results = add(results, listener.onCandlesUpdated(instanceIndex, candles, equity, margin, freeMargin,
+          marginLevel, accountCurrencyExchangeRate));
+      } catch (Throwable err) {
+        logError("candles", symbol, err);
+      }
+    }
+    return results;
+  }
+
+  private List<Future> onBooksUpdated(List<Future> results, String symbol, String instanceIndex,
+    List<MetatraderBook> books, Double equity, Double margin, Double freeMargin, Double marginLevel,
+    Double accountCurrencyExchangeRate) {
+    for (SynchronizationListener listener : getListeners(symbol, EventType.BOOKS)) {
+      try {
+        results = add(results, listener.onBooksUpdated(instanceIndex, books, equity, margin, freeMargin,
+          marginLevel, accountCurrencyExchangeRate));
+      } catch (Throwable err) {
+        logError("books", symbol, err);
+      }
+    }
+    return results;
+  }
+
+  /**
+   * Adds a listener future to join, unless it has already succeeded, so that no list is allocated while all
+   * listeners complete synchronously
+   */
+  private static List<Future> add(List<Future> results, Future<Void> result) {
+    if (result == null || result.succeeded()) {
+      return results;
+    }
+    if (results == null) {
+      results = new ArrayList<>(2);
+    }
+    results.add(result);
+    return results;
+  }
+
+  /**
+   * Joins listener futures the same way the SDK joins the futures of the listeners of a connection
+   */
+  @SuppressWarnings("unchecked")
+  private static Future<Void> join(List<Future> results) {
+    if (results == null) {
+      return SUCCEEDED;
+    }
+    return results.size() == 1 ? (Future<Void>) results.get(0) : CompositeFuture.join(results).mapEmpty();
+  }
+
+  private SynchronizationListener[] getListeners(String symbol, EventType eventType) {
+    SynchronizationListener[][] table = symbol != null ? listeners.get(symbol) : null;
+    return table != null ? table[eventType.ordinal()] : NO_LISTENERS;
+  }
+
+  private SynchronizationListener[][] copyTable(String symbol) {
+    SynchronizationListener[][] table = listeners.get(symbol);
+    SynchronizationListener[][] result = new SynchronizationListener[EventType.values().length][];
+    for (int i = 0; i < result.length; i++) {
+      result[i] = table != null ? table[i] : NO_LISTENERS;
+    }
+    return result;
+  }
+
+  /**
+   * Returns the symbol of all items if they have the same one, which is the usual case
+   * @return symbol, or {@code null} if the items have different symbols or there are no items
+   */
+  private <T> String getSingleSymbol(List<T> items, SymbolGetter<T> symbolGetter) {
+    if (items.isEmpty()) {
+      return null;
+    }
+    String first = symbolGetter.getSymbol(items.get(0));
+    for (int i = 1; i < items.size() && first != null; i++) {
+      if (!first.equals(symbolGetter.getSymbol(items.get(i)))) {
+        return null;
+      }
+    }
+    return first;
+  }
+
+  /**
+   * Groups items of different symbols by symbol
+   */
+  private <T> Map<String, List<T>> groupBySymbol(List<T> items, SymbolGetter<T> symbolGetter) {
+    Map<String, List<T>> result = new LinkedHashMap<>();
+    for (T item : items) {
+      String symbol = symbolGetter.getSymbol(item);
+      if (symbol != null && listeners.containsKey(symbol)) {
+        result.computeIfAbsent(symbol, key -> new ArrayList<>()).add(item);
+      }
+    }
+    return result;
+  }
+
+  private void logError(String event, String symbol, Throwable err) {
+    System.err.println("Listener failed to process " + symbol + " " + event + " event: " + err);
+  }
+
+  private interface SymbolGetter<T> {
+    String getSymbol(T item);
+  }
+}
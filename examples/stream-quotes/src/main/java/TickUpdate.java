@@ -0,0 +1,33 @@
+/**
+ * Mutable tick. Instances are reused by {@link MarketDataDecoder}, so that decoding ticks does not allocate
+ */
+public class TickUpdate {
+  /**
+   * Symbol id, see {@link SymbolIds}
+   */
+  public int symbolId;
+  /**
+   * Symbol
+   */
+  public String symbol;
+  /**
+   * Tick time in epoch milliseconds
+   */
+  public long time;
+  /**
+   * Bid price, or NaN if the tick did not change it
+   */
+  public double bid;
+  /**
+   * Ask price, or NaN if the tick did not change it
+   */
+  public double ask;
+  /**
+   * Last deal price, or NaN if the tick did not change it
+   */
+  public double last;
+  /**
+   * Volume of the last deal, or NaN if the tick did not change it
+   */
+  public double volume;
+}